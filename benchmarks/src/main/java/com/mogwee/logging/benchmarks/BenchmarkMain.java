@@ -0,0 +1,56 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so allocation rates ({@code gc.alloc.rate.norm})
+ * are reported next to timings.
+ * <p/>
+ * Usage: {@code java -jar target/benchmarks.jar [regexp...]}; results are also written to {@code jmh-result.json}.
+ * For the full JMH command line (other profilers, forks, etc.), use {@code java -cp target/benchmarks.jar org.openjdk.jmh.Main}.
+ */
+public final class BenchmarkMain
+{
+    private BenchmarkMain()
+    {
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result("jmh-result.json");
+
+        if (args.length == 0) {
+            options.include("com\\.mogwee\\.logging\\.benchmarks\\..*");
+        }
+
+        for (String include : args) {
+            options.include(include);
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.BinaryLogAppender;
+import com.mogwee.logging.Logger;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@code infof} call end to end, formatted and written as text by a buffered {@link FileAppender}, against
+ * deferred formatting written by a buffered {@link BinaryLogAppender}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryLogBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+
+    @Param({"text", "binary"})
+    private String appenderType;
+
+    private File directory;
+    private org.apache.log4j.Logger log4j;
+    private String user = "bob";
+    private long requestId = 12345;
+    private double millis = 17.25;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        String fileName;
+
+        directory = Files.createTempDirectory("binary-benchmark").toFile();
+        fileName = new File(directory, "benchmark.log").getPath();
+        Log4JSetup.configure(BinaryLogBenchmark.class, Level.INFO);
+        log4j = org.apache.log4j.Logger.getLogger(BinaryLogBenchmark.class.getName());
+        log4j.setAdditivity(false);
+
+        if ("binary".equals(appenderType)) {
+            BinaryLogAppender appender = new BinaryLogAppender();
+
+            appender.setFile(fileName);
+            appender.setImmediateFlush(false);
+            appender.setMaxFileSize("256MB");
+            appender.activateOptions();
+            log4j.addAppender(appender);
+            Logger.setDeferredFormatting(true);
+        }
+        else {
+            log4j.addAppender(new FileAppender(new PatternLayout("%d{ISO8601} [%t] %-5p %c - %m%n"), fileName, true, true, 8192));
+        }
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        Logger.setDeferredFormatting(false);
+        log4j.removeAllAppenders();
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    @Benchmark
+    public void infof()
+    {
+        LOG.infof("Processed request %d for user %s in %.2f ms", requestId, user, millis);
+    }
+}
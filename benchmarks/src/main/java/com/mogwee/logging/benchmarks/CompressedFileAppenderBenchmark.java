@@ -0,0 +1,149 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.CompressedFileAppender;
+import com.mogwee.logging.Logger;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An {@code infof} call end to end, written as text by a buffered {@link FileAppender}, against a
+ * {@link CompressedFileAppender} compressing at {@code level}.
+ * <p/>
+ * Compression ratios are printed at the end of each trial: for the newest file as written, and for the files rolled
+ * (every 1MB of compressed output) and recompressed in the background at level 9.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressedFileAppenderBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final String LAYOUT = "%d{ISO8601} [%t] %-5p %c - %m%n";
+    private static final String[] USERS = {"bob", "alice", "carol", "dave", "eve", "mallory", "trent"};
+    private static final String[] PATHS = {"/api/v1/orders", "/api/v1/users/profile", "/health", "/api/v2/search?q=widgets", "/login"};
+
+    @Param({"text", "1", "6"})
+    private String level;
+
+    private File directory;
+    private org.apache.log4j.Logger log4j;
+    private CompressedFileAppender compressed;
+    private long requestId = 1000000;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        String fileName;
+
+        directory = Files.createTempDirectory("compressed-benchmark").toFile();
+        fileName = new File(directory, "benchmark.log").getPath();
+        Log4JSetup.configure(CompressedFileAppenderBenchmark.class, Level.INFO);
+        log4j = org.apache.log4j.Logger.getLogger(CompressedFileAppenderBenchmark.class.getName());
+        log4j.setAdditivity(false);
+
+        if ("text".equals(level)) {
+            log4j.addAppender(new FileAppender(new PatternLayout(LAYOUT), fileName, true, true, 8192));
+        }
+        else {
+            compressed = new CompressedFileAppender();
+            compressed.setLayout(new PatternLayout(LAYOUT));
+            compressed.setFile(fileName);
+            compressed.setCompressionLevel(Integer.parseInt(level));
+            compressed.setMaxFileSize("1MB");
+            compressed.activateOptions();
+            log4j.addAppender(compressed);
+        }
+    }
+
+    @TearDown
+    public void teardown() throws IOException, InterruptedException
+    {
+        log4j.removeAllAppenders();
+
+        if (compressed != null) {
+            compressed.close();
+            compressed.awaitRecompression(1, TimeUnit.MINUTES);
+
+            File[] files = directory.listFiles();
+
+            Arrays.sort(files);
+            System.out.printf("%nas written: %s, recompressed: %s%n", ratio(files, files.length - 1, files.length), ratio(files, 0, files.length - 1));
+        }
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    @Benchmark
+    public void infof()
+    {
+        long id = requestId++;
+
+        LOG.infof("Processed GET %s for user %s (request %d) in %.2f ms", PATHS[(int) (id % PATHS.length)], USERS[(int) (id % USERS.length)], id, (id % 5000) / 100.0);
+    }
+
+    private static String ratio(File[] files, int from, int to) throws IOException
+    {
+        long compressedBytes = 0;
+        long textBytes = 0;
+        byte[] buffer = new byte[65536];
+
+        for (int i = from; i < to; ++i) {
+            compressedBytes += files[i].length();
+
+            try (InputStream in = new GZIPInputStream(new FileInputStream(files[i]))) {
+                int count;
+
+                while ((count = in.read(buffer)) >= 0) {
+                    textBytes += count;
+                }
+            }
+        }
+
+        return compressedBytes == 0 ? "n/a" : String.format("%.1f:1 (%d files)", (double) textBytes / compressedBytes, to - from);
+    }
+}
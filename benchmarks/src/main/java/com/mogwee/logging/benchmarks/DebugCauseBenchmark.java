@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code *Debug} variants with DEBUG disabled, where the cause is summarised into the message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DebugCauseBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+
+    private final Exception cause = new IllegalStateException("connection refused\n\tat somewhere");
+    private final Exception causeWithoutMessage = new IllegalStateException();
+    private String host = "db01.example.com";
+
+    @Setup
+    public void setup()
+    {
+        Log4JSetup.configure(DebugCauseBenchmark.class, Level.INFO);
+    }
+
+    @Benchmark
+    public void infoDebug()
+    {
+        LOG.infoDebug(cause, "Call failed");
+    }
+
+    @Benchmark
+    public void warnDebug()
+    {
+        LOG.warnDebug(cause, "Call failed");
+    }
+
+    @Benchmark
+    public void errorDebugWithoutCauseMessage()
+    {
+        LOG.errorDebug(causeWithoutMessage, "Call failed");
+    }
+
+    @Benchmark
+    public void warnDebugf()
+    {
+        LOG.warnDebugf(cause, "Call to %s failed", host);
+    }
+
+    @Benchmark
+    public void errorDebugfVarargs()
+    {
+        LOG.errorDebugf(cause, "Call to %s failed after %s attempts in %sms (%s)", host, 3, 1500L, "timeout", "retrying");
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls at a level that isn't enabled: these should cost a level check and nothing else. The {@code *CachedLevels}
+ * variants run in a JVM started with level caching on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisabledLevelBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+
+    private final Exception cause = new IllegalStateException("benchmark");
+    private String name = "world";
+    private int count = 1234567;
+    private long total = 9876543210L;
+    private double ratio = 0.75;
+
+    @Setup
+    public void setup()
+    {
+        Log4JSetup.configure(DisabledLevelBenchmark.class, Level.ERROR);
+    }
+
+    @Benchmark
+    public void debug()
+    {
+        LOG.debug("Hello world");
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dcom.mogwee.logging.levelRefreshMillis=1000")
+    public void debugCachedLevels()
+    {
+        LOG.debug("Hello world");
+    }
+
+    @Benchmark
+    public void debugWithCause()
+    {
+        LOG.debug(cause, "Hello world");
+    }
+
+    @Benchmark
+    public void infoWithCause()
+    {
+        LOG.info(cause, "Hello world");
+    }
+
+    @Benchmark
+    public void warn()
+    {
+        LOG.warn("Hello world");
+    }
+
+    @Benchmark
+    public void debugfOneObject()
+    {
+        LOG.debugf("Hello %s", name);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dcom.mogwee.logging.levelRefreshMillis=1000")
+    public void debugfOneObjectCachedLevels()
+    {
+        LOG.debugf("Hello %s", name);
+    }
+
+    @Benchmark
+    public void debugfFourObjects()
+    {
+        LOG.debugf("%s %s %s %s", name, count, total, ratio);
+    }
+
+    @Benchmark
+    public void debugfVarargs()
+    {
+        LOG.debugf("%s %s %s %s %s", name, count, total, ratio, name);
+    }
+
+    @Benchmark
+    public void debugfInt()
+    {
+        LOG.debugf("count=%d", count);
+    }
+
+    @Benchmark
+    public void debugfLong()
+    {
+        LOG.debugf("total=%d", total);
+    }
+
+    @Benchmark
+    public void debugfDouble()
+    {
+        LOG.debugf("ratio=%s", ratio);
+    }
+
+    @Benchmark
+    public void infofWithCause()
+    {
+        LOG.infof(cause, "Hello %s", name);
+    }
+
+    @Benchmark
+    public void warnfWithCause()
+    {
+        LOG.warnf(cause, "Hello %s %s", name, count);
+    }
+
+    @Benchmark
+    public void infoDebug()
+    {
+        LOG.infoDebug(cause, "Hello world");
+    }
+
+    @Benchmark
+    public void warnDebug()
+    {
+        LOG.warnDebug(cause, "Hello world");
+    }
+
+    @Benchmark
+    public void infoDebugf()
+    {
+        LOG.infoDebugf(cause, "Hello %s", name);
+    }
+
+    @Benchmark
+    public void warnDebugfLong()
+    {
+        LOG.warnDebugf(cause, "total=%d", total);
+    }
+}
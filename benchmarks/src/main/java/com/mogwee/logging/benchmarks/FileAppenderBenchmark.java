@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.MappedFileAppender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MappedFileAppender} against Log4J's {@link FileAppender}, with and without {@code ImmediateFlush}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileAppenderBenchmark
+{
+    @Param({"fileImmediateFlush", "fileBuffered", "mapped"})
+    private String appenderType;
+
+    private File directory;
+    private AppenderSkeleton appender;
+    private LoggingEvent event;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        PatternLayout layout = new PatternLayout("%p %c - %m%n");
+        String fileName;
+
+        directory = Files.createTempDirectory("appender-benchmark").toFile();
+        fileName = new File(directory, "benchmark.log").getPath();
+
+        if ("mapped".equals(appenderType)) {
+            appender = new MappedFileAppender(layout, fileName);
+        }
+        else {
+            FileAppender fileAppender = new FileAppender(layout, fileName, true, "fileBuffered".equals(appenderType), 8192);
+
+            fileAppender.setImmediateFlush("fileImmediateFlush".equals(appenderType));
+            appender = fileAppender;
+        }
+
+        org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(FileAppenderBenchmark.class.getName());
+
+        event = new LoggingEvent(FileAppenderBenchmark.class.getName(), log4j, Level.INFO, "Processed request 12345 for user bob in 17 ms", null);
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        appender.close();
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    @Benchmark
+    public void append()
+    {
+        appender.doAppend(event);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enabled {@code *f} calls with varying argument counts, compared against {@link String#format(String, Object...)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+
+    private String name = "world";
+    private int count = 1234567;
+    private long total = 9876543210L;
+    private double ratio = 0.75;
+
+    @Setup
+    public void setup()
+    {
+        Log4JSetup.configure(FormatBenchmark.class, Level.ALL);
+    }
+
+    @Benchmark
+    public String stringFormatBaseline()
+    {
+        return String.format("Hello %s %s", name, count);
+    }
+
+    @Benchmark
+    public void noArguments()
+    {
+        LOG.infof("Hello world", new Object[0]);
+    }
+
+    @Benchmark
+    public void oneArgument()
+    {
+        LOG.infof("Hello %s", name);
+    }
+
+    @Benchmark
+    public void twoArguments()
+    {
+        LOG.infof("Hello %s %s", name, count);
+    }
+
+    @Benchmark
+    public void threeArguments()
+    {
+        LOG.infof("Hello %s %s %d", name, count, total);
+    }
+
+    @Benchmark
+    public void fourArguments()
+    {
+        LOG.infof("Hello %s %s %d %s", name, count, total, ratio);
+    }
+
+    @Benchmark
+    public void fiveArgumentsVarargs()
+    {
+        LOG.infof("Hello %s %s %d %s %s", name, count, total, ratio, name);
+    }
+
+    @Benchmark
+    public void intArgument()
+    {
+        LOG.infof("count=%d", count);
+    }
+
+    @Benchmark
+    public void longArgument()
+    {
+        LOG.infof("total=%d", total);
+    }
+
+    @Benchmark
+    public void doubleArgument()
+    {
+        LOG.infof("ratio=%s", ratio);
+    }
+
+    @Benchmark
+    public void formatterFallback()
+    {
+        LOG.infof("ratio=%.2f name=%-8s", ratio, name);
+    }
+
+    @Benchmark
+    public void bogusFormat()
+    {
+        LOG.infof("count=%d", name);
+    }
+}
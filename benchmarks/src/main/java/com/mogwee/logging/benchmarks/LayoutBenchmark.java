@@ -0,0 +1,114 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.JsonLayout;
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JsonLayout} against {@link PatternLayout}, for ASCII and non-ASCII messages.
+ * The {@code patternLayoutBytes} case includes the UTF-8 encoding a {@code WriterAppender} would do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutBenchmark
+{
+    @Param({"ascii", "unicode"})
+    private String text;
+
+    private final PatternLayout patternLayout = new PatternLayout("%d{ISO8601} %-5p [%t] %c - %m%n");
+    private final JsonLayout jsonLayout = new JsonLayout();
+    private final OutputStream sink = new OutputStream()
+    {
+        @Override
+        public void write(int b)
+        {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+        }
+    };
+    private LoggingEvent event;
+
+    @Setup
+    public void setup()
+    {
+        String message = "ascii".equals(text)
+            ? "Processed request 12345 for user bob in 17 ms"
+            : "Processed request 12345 for user b\u00f6b in 17 \u00b5s";
+        org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(LayoutBenchmark.class.getName());
+
+        event = new LoggingEvent(LayoutBenchmark.class.getName(), log4j, Level.INFO, message, null);
+        // resolve the thread name once, as an appender would
+        event.getThreadName();
+    }
+
+    @Benchmark
+    public String patternLayout()
+    {
+        return patternLayout.format(event);
+    }
+
+    @Benchmark
+    public byte[] patternLayoutBytes()
+    {
+        return patternLayout.format(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String jsonLayoutFormat()
+    {
+        return jsonLayout.format(event);
+    }
+
+    @Benchmark
+    public void jsonLayoutWriteTo() throws IOException
+    {
+        jsonLayout.writeTo(event, sink);
+    }
+
+    @Benchmark
+    public ByteBuffer jsonLayoutEncode()
+    {
+        return jsonLayout.encode(event);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.LevelOverride;
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disabled calls while no {@link LevelOverride} is in force anywhere (the single volatile read), and while one is
+ * in force on another thread (which adds a thread-local lookup on the benchmark thread).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelOverrideBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+
+    @Param({"none", "otherThread"})
+    private String override;
+
+    private final Exception cause = new IllegalStateException("benchmark");
+    private final CountDownLatch done = new CountDownLatch(1);
+    private String name = "world";
+    private Thread holder;
+
+    @Setup
+    public void setup() throws InterruptedException
+    {
+        Log4JSetup.configure(LevelOverrideBenchmark.class, Level.ERROR);
+
+        if ("otherThread".equals(override)) {
+            final CountDownLatch forced = new CountDownLatch(1);
+
+            holder = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    LevelOverride levelOverride = LevelOverride.force(Level.DEBUG);
+
+                    forced.countDown();
+
+                    try {
+                        done.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        levelOverride.restore();
+                    }
+                }
+            });
+            holder.setDaemon(true);
+            holder.start();
+            forced.await();
+        }
+    }
+
+    @TearDown
+    public void teardown() throws InterruptedException
+    {
+        done.countDown();
+
+        if (holder != null) {
+            holder.join();
+        }
+    }
+
+    @Benchmark
+    public void debugf()
+    {
+        LOG.debugf("Hello %s", name);
+    }
+
+    @Benchmark
+    public void warnDebug()
+    {
+        LOG.warnDebug(cause, "Hello world");
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.varia.NullAppender;
+
+/**
+ * Points Log4J at a {@link NullAppender} so benchmarks measure the logging path rather than I/O.
+ */
+final class Log4JSetup
+{
+    private Log4JSetup()
+    {
+    }
+
+    /**
+     * @param benchmarkClass class whose logger the benchmark uses
+     * @param level          level to enable for that logger
+     */
+    static void configure(Class<?> benchmarkClass, Level level)
+    {
+        org.apache.log4j.Logger root = org.apache.log4j.Logger.getRootLogger();
+
+        root.removeAllAppenders();
+        root.addAppender(new NullAppender());
+        root.setLevel(Level.ALL);
+        // Logger.getLogger() warns about non-static use, which is exactly what GetLoggerBenchmark does
+        org.apache.log4j.Logger.getLogger(com.mogwee.logging.Logger.class.getName()).setLevel(Level.OFF);
+        org.apache.log4j.Logger.getLogger(benchmarkClass.getName()).setLevel(level);
+        com.mogwee.logging.Logger.refreshLevels();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.Logger;
+import com.mogwee.logging.LoggingMetrics;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of {@link LoggingMetrics}, for a disabled call and an enabled one (to a {@code NullAppender}); the
+ * {@code *WithMetrics} variants run in a JVM started with metrics on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+
+    private String name = "world";
+
+    @Setup
+    public void setup()
+    {
+        Log4JSetup.configure(MetricsBenchmark.class, Level.INFO);
+    }
+
+    @Benchmark
+    public void debugf()
+    {
+        LOG.debugf("Hello %s", name);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + LoggingMetrics.ENABLED_PROPERTY + "=true")
+    public void debugfWithMetrics()
+    {
+        LOG.debugf("Hello %s", name);
+    }
+
+    @Benchmark
+    public void infof()
+    {
+        LOG.infof("Hello %s", name);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + LoggingMetrics.ENABLED_PROPERTY + "=true")
+    public void infofWithMetrics()
+    {
+        LOG.infof("Hello %s", name);
+    }
+}
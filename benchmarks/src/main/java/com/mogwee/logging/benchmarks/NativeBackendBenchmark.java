@@ -0,0 +1,165 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.BackendLogger;
+import com.mogwee.logging.Log4jBackend;
+import com.mogwee.logging.LoggingBackend;
+import com.mogwee.logging.NativeBackend;
+import com.mogwee.logging.NativeFileAppender;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NativeBackend} against {@link Log4jBackend}, both writing the same line format to a buffered file,
+ * at 1, 8 and 64 threads.
+ * <p/>
+ * {@code Logger} picks its backend once per JVM, so this drives the backends directly; the {@code Logger} front end
+ * costs the same in front of either. Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeBackendBenchmark
+{
+    @Param({"log4j", "native"})
+    private String backendType;
+
+    private final Exception cause = new IllegalStateException("benchmark");
+    private File directory;
+    private LoggingBackend backend;
+    private BackendLogger logger;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        File file;
+
+        directory = Files.createTempDirectory("backend-benchmark").toFile();
+        file = new File(directory, "benchmark.log");
+
+        if ("native".equals(backendType)) {
+            backend = new NativeBackend(Level.INFO, new NativeFileAppender(file, true, 8192, false));
+        }
+        else {
+            org.apache.log4j.Logger root = org.apache.log4j.Logger.getRootLogger();
+
+            root.removeAllAppenders();
+            root.addAppender(new FileAppender(new PatternLayout("%d [%t] %-5p %c - %m%n"), file.getPath(), true, true, 8192));
+            root.setLevel(Level.INFO);
+            com.mogwee.logging.Logger.refreshLevels();
+            backend = new Log4jBackend();
+        }
+
+        logger = backend.getLogger(NativeBackendBenchmark.class.getName());
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        if (backend instanceof NativeBackend) {
+            ((NativeBackend) backend).close();
+        }
+        else {
+            org.apache.log4j.Logger.getRootLogger().removeAllAppenders();
+        }
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    private void info()
+    {
+        if (logger.isEnabled(Level.INFO)) {
+            logger.log(Level.INFO, "Processed request 12345 for user bob in 17 ms", null);
+        }
+    }
+
+    private void error()
+    {
+        if (logger.isEnabled(Level.ERROR)) {
+            logger.log(Level.ERROR, "Request failed", cause);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void info1Thread()
+    {
+        info();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void info8Threads()
+    {
+        info();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void info64Threads()
+    {
+        info();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void error1Thread()
+    {
+        error();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void error8Threads()
+    {
+        error();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void error64Threads()
+    {
+        error();
+    }
+}
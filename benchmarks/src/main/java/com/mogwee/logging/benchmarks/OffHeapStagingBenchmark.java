@@ -0,0 +1,90 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.AsyncDispatcher;
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing to an {@link AsyncDispatcher} that keeps events on the heap against one that stages them off the heap
+ * ({@code stagingBytes} &gt; 0). Staging costs the encoding on the logging thread, and here the decoding too, since
+ * events go to a {@code NullAppender} that never renders anything otherwise; what it saves is heap held by queued
+ * events, which shows up as fewer objects surviving young collections under bursts rather than here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OffHeapStagingBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+
+    @Param({"0", "4194304"})
+    private int stagingBytes;
+
+    private final Exception cause = new IllegalStateException("benchmark");
+    private AsyncDispatcher dispatcher;
+    private boolean wasDeferred;
+    private int id = 0;
+
+    @Setup
+    public void setup()
+    {
+        Log4JSetup.configure(OffHeapStagingBenchmark.class, Level.INFO);
+        wasDeferred = Logger.setDeferredFormatting(true);
+        dispatcher = new AsyncDispatcher(65536, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.BLOCK, 100, 1, 0, stagingBytes);
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+    }
+
+    @TearDown
+    public void teardown() throws InterruptedException
+    {
+        Logger.setAsyncDispatcher(null);
+        dispatcher.shutdown(10, TimeUnit.SECONDS);
+        Logger.setDeferredFormatting(wasDeferred);
+    }
+
+    @Benchmark
+    public void infof()
+    {
+        LOG.infof("Processed request %d for user %s in %d ms", ++id, "bob", 17);
+    }
+
+    @Benchmark
+    public void warnWithCause()
+    {
+        LOG.warn(cause, "Request failed");
+    }
+}
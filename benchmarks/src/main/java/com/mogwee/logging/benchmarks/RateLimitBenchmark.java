@@ -0,0 +1,84 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A flood of one {@code warnDebugf} call site with a rate limit set, so nearly every call is suppressed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+
+    private final Exception cause = new IllegalStateException("benchmark");
+    private String host = "db1.example.com";
+
+    @Setup
+    public void setup()
+    {
+        Log4JSetup.configure(RateLimitBenchmark.class, Level.INFO);
+        LOG.setRateLimit(Level.WARN, 10, 10);
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        LOG.removeRateLimit(Level.WARN);
+    }
+
+    @Benchmark
+    public void suppressed()
+    {
+        LOG.warnDebugf(cause, "call to %s failed", host);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void suppressed8Threads()
+    {
+        LOG.warnDebugf(cause, "call to %s failed", host);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void suppressedAllThreads()
+    {
+        LOG.warnDebugf(cause, "call to %s failed", host);
+    }
+}
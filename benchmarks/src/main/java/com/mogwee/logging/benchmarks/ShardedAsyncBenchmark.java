@@ -0,0 +1,89 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.AsyncDispatcher;
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producers publishing to an {@link AsyncDispatcher} with one ring buffer against a sharded one.
+ * {@code stripes=0} means one stripe per available processor. Events are dropped when the consumer falls behind,
+ * so this measures the producer side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedAsyncBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+
+    @Param({"1", "0"})
+    private int stripes;
+
+    private AsyncDispatcher dispatcher;
+
+    @Setup
+    public void setup()
+    {
+        int count = stripes == 0 ? Runtime.getRuntime().availableProcessors() : stripes;
+
+        Log4JSetup.configure(ShardedAsyncBenchmark.class, Level.INFO);
+        dispatcher = new AsyncDispatcher(8192 / count, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.DROP, 100, count, 1);
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+    }
+
+    @TearDown
+    public void teardown() throws InterruptedException
+    {
+        Logger.setAsyncDispatcher(null);
+        dispatcher.shutdown(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void info8Threads()
+    {
+        LOG.info("Hello world");
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void info64Threads()
+    {
+        LOG.info("Hello world");
+    }
+}
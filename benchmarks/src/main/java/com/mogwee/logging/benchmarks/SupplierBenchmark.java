@@ -0,0 +1,112 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disabled DEBUG calls taking a MessageSupplier, MessageFormatter or MessageWriter, next to the eager string concatenation
+ * they replace. Check {@code gc.alloc.rate.norm}: non-capturing lambdas should allocate nothing. The enabled MessageWriter
+ * call should allocate less than the MessageFormatter one, as it skips the intermediate string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SupplierBenchmark
+{
+    private static final Logger LOG = Logger.getLogger();
+
+    private List<String> hosts = Arrays.asList("db1.example.com", "db2.example.com", "db3.example.com");
+
+    @Setup
+    public void setup()
+    {
+        Log4JSetup.configure(SupplierBenchmark.class, Level.INFO);
+    }
+
+    @Benchmark
+    public void disabledEagerConcatenation()
+    {
+        LOG.debug("Hosts: " + String.join(",", hosts));
+    }
+
+    @Benchmark
+    public void disabledNonCapturingSupplier()
+    {
+        LOG.debug(() -> "Hosts: none");
+    }
+
+    @Benchmark
+    public void disabledCapturingSupplier()
+    {
+        LOG.debug(() -> "Hosts: " + String.join(",", hosts));
+    }
+
+    @Benchmark
+    public void disabledFormatter()
+    {
+        LOG.debug(h -> "Hosts: " + String.join(",", h), hosts);
+    }
+
+    @Benchmark
+    public void enabledInfoDebugFormatter()
+    {
+        LOG.infoDebug(null, h -> "Hosts: " + String.join(",", h), hosts);
+    }
+
+    @Benchmark
+    public void enabledFormatter()
+    {
+        LOG.info(h -> "Hosts: " + String.join(",", h), hosts);
+    }
+
+    @Benchmark
+    public void disabledWriter()
+    {
+        LOG.debug(w -> w.append("Hosts: ").append(hosts));
+    }
+
+    @Benchmark
+    public void enabledWriter()
+    {
+        LOG.info(w -> {
+            w.append("Hosts: ");
+
+            for (int i = 0; i < hosts.size(); ++i) {
+                w.append(i == 0 ? "" : ",").append(hosts.get(i));
+            }
+        });
+    }
+}
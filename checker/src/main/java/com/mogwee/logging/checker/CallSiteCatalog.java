@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.checker;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The log call sites found in a compilation, written out as tab-separated lines:
+ * id, level, method, class, source file, line and template.
+ * <p/>
+ * The id is a hash of the class, the method, the template and the number of earlier calls in the class with
+ * the same method and template; it doesn't depend on line numbers, so it survives unrelated edits to the file.
+ * Tabs, newlines and backslashes in the template are escaped; calls whose message isn't a constant have an
+ * empty template.
+ */
+final class CallSiteCatalog
+{
+    static final String HEADER = "# id\tlevel\tmethod\tclass\tfile\tline\ttemplate";
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final List<String> lines = new ArrayList<String>();
+    private final Map<String, Integer> occurrences = new HashMap<String, Integer>();
+
+    /**
+     * Records a call site.
+     *
+     * @param level     the level logged at, e.g., {@code INFO}
+     * @param method    the name of the {@code Logger} method called
+     * @param className the binary name of the calling class
+     * @param file      the name of the source file
+     * @param line      the line the call starts on
+     * @param template  the message or format string, or null if it isn't a constant
+     * @return the id of the call site
+     */
+    String add(String level, String method, String className, String file, long line, String template)
+    {
+        String key = className + '\0' + method + '\0' + (template == null ? "" : template);
+        Integer previous = occurrences.get(key);
+        int occurrence = previous == null ? 0 : previous + 1;
+
+        occurrences.put(key, occurrence);
+
+        String id = String.format("%016x", hash(key + '\0' + occurrence));
+
+        lines.add(id + '\t' + level + '\t' + method + '\t' + className + '\t' + file + '\t' + line + '\t' + escape(template));
+
+        return id;
+    }
+
+    boolean isEmpty()
+    {
+        return lines.isEmpty();
+    }
+
+    void writeTo(Writer writer) throws IOException
+    {
+        writer.write(HEADER);
+        writer.write('\n');
+
+        for (String line : lines) {
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes
+    static long hash(String value)
+    {
+        long hash = FNV_OFFSET_BASIS;
+
+        for (byte b : value.getBytes(UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    static String escape(String template)
+    {
+        if (template == null) {
+            return "";
+        }
+
+        StringBuilder builder = new StringBuilder(template.length());
+
+        for (int i = 0; i < template.length(); ++i) {
+            char c = template.charAt(i);
+
+            switch (c) {
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+}
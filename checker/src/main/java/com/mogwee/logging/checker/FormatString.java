@@ -0,0 +1,210 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.checker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A format string parsed the way {@link java.util.Formatter} parses it, keeping only what's needed to check
+ * the arguments of a call: which argument each specifier consumes, and what kind of value it expects.
+ */
+final class FormatString
+{
+    // same grammar as java.util.Formatter
+    private static final Pattern SPECIFIER = Pattern.compile("%(\\d+\\$)?([-#+ 0,(\\<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+    private static final String DATE_TIME_SUFFIXES = "HIklMSLNpzZsQBbhAaCYyjmdeRTrDFc";
+
+    /**
+     * What kind of value a conversion accepts.
+     */
+    enum Category
+    {
+        GENERAL, CHARACTER, INTEGRAL, FLOATING_POINT, DATE_TIME
+    }
+
+    /**
+     * A specifier that consumes an argument.
+     */
+    static final class Specifier
+    {
+        private final String text;
+        private final int argumentIndex;
+        private final Category category;
+
+        private Specifier(String text, int argumentIndex, Category category)
+        {
+            this.text = text;
+            this.argumentIndex = argumentIndex;
+            this.category = category;
+        }
+
+        String getText()
+        {
+            return text;
+        }
+
+        /**
+         * @return the zero-based index of the argument this specifier consumes
+         */
+        int getArgumentIndex()
+        {
+            return argumentIndex;
+        }
+
+        Category getCategory()
+        {
+            return category;
+        }
+    }
+
+    private final List<Specifier> specifiers;
+    private final int argumentCount;
+
+    private FormatString(List<Specifier> specifiers, int argumentCount)
+    {
+        this.specifiers = specifiers;
+        this.argumentCount = argumentCount;
+    }
+
+    /**
+     * Parses a format string.
+     *
+     * @param format a format string
+     * @return the parsed format string
+     * @throws IllegalArgumentException if {@link java.util.Formatter} would reject the format string whatever the arguments
+     */
+    static FormatString parse(String format)
+    {
+        List<Specifier> specifiers = new ArrayList<Specifier>();
+        Matcher matcher = SPECIFIER.matcher(format);
+        int argumentCount = 0;
+        int ordinaryIndex = 0;
+        int lastIndex = -1;
+        int offset = 0;
+
+        while ((offset = format.indexOf('%', offset)) >= 0) {
+            if (!matcher.find(offset) || matcher.start() != offset) {
+                throw new IllegalArgumentException(String.format("Unknown format conversion at offset %d: '%s'", offset, format.substring(offset)));
+            }
+
+            String text = matcher.group();
+            String flags = matcher.group(2) == null ? "" : matcher.group(2);
+            boolean hasPrecision = matcher.group(4) != null;
+            char conversion = matcher.group(6).charAt(0);
+            Category category;
+
+            offset = matcher.end();
+
+            if (matcher.group(5) != null) {
+                if (DATE_TIME_SUFFIXES.indexOf(conversion) < 0) {
+                    throw new IllegalArgumentException(String.format("Unknown date/time conversion '%s'", text));
+                }
+
+                category = Category.DATE_TIME;
+            }
+            else {
+                switch (conversion) {
+                    case '%':
+                    case 'n':
+                        continue;
+                    case 'b':
+                    case 'B':
+                    case 'h':
+                    case 'H':
+                    case 's':
+                    case 'S':
+                        category = Category.GENERAL;
+                        break;
+                    case 'c':
+                    case 'C':
+                        category = Category.CHARACTER;
+                        break;
+                    case 'd':
+                    case 'o':
+                    case 'x':
+                    case 'X':
+                        category = Category.INTEGRAL;
+                        break;
+                    case 'e':
+                    case 'E':
+                    case 'f':
+                    case 'g':
+                    case 'G':
+                    case 'a':
+                    case 'A':
+                        category = Category.FLOATING_POINT;
+                        break;
+                    default:
+                        throw new IllegalArgumentException(String.format("Unknown format conversion '%s'", text));
+                }
+            }
+
+            if (hasPrecision && category != Category.GENERAL && category != Category.FLOATING_POINT) {
+                throw new IllegalArgumentException(String.format("Precision not allowed in '%s'", text));
+            }
+
+            int index;
+
+            if (flags.indexOf('<') >= 0) {
+                if (lastIndex < 0) {
+                    throw new IllegalArgumentException(String.format("'%s' refers to a previous argument, but there's none", text));
+                }
+
+                index = lastIndex;
+            }
+            else if (matcher.group(1) != null) {
+                String position = matcher.group(1);
+
+                index = Integer.parseInt(position.substring(0, position.length() - 1)) - 1;
+
+                if (index < 0) {
+                    throw new IllegalArgumentException(String.format("Invalid argument index in '%s'", text));
+                }
+            }
+            else {
+                index = ordinaryIndex++;
+            }
+
+            lastIndex = index;
+            argumentCount = Math.max(argumentCount, index + 1);
+            specifiers.add(new Specifier(text, index, category));
+        }
+
+        return new FormatString(Collections.unmodifiableList(specifiers), argumentCount);
+    }
+
+    /**
+     * @return the specifiers that consume arguments, in order
+     */
+    List<Specifier> getSpecifiers()
+    {
+        return specifiers;
+    }
+
+    /**
+     * @return how many arguments the format string needs
+     */
+    int getArgumentCount()
+    {
+        return argumentCount;
+    }
+}
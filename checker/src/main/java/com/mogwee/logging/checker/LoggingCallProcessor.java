@@ -0,0 +1,516 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.checker;
+
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks calls to {@code com.mogwee.logging.Logger} at compile time:
+ * <ul>
+ * <li>constant format strings passed to the {@code *f} methods must be valid, and their arguments must match
+ * them in number and, where the static type makes it certain, in type; mismatches that would otherwise only show up
+ * as a "Bogus format string" warning at runtime are reported as errors, and unused arguments as warnings;</li>
+ * <li>{@code Logger.getLogger()} without arguments should only be called from a static initializer, as it walks
+ * the stack to find the calling class every time it's called (and names the logger after the anonymous or
+ * local class it's called from, if any).</li>
+ * </ul>
+ * As a side output, every log call site is recorded in a catalog (see {@link CallSiteCatalog}) written to
+ * {@value #DEFAULT_CATALOG} in the class output directory.
+ * <p/>
+ * Options: {@code -Amogwee.logging.formatCheck=warning} reports format problems as warnings instead of errors,
+ * and {@code -Amogwee.logging.catalog=<path>} changes where the catalog is written, relative to the class output
+ * directory ({@code none} disables it).
+ * <p/>
+ * The checks need attributed trees, which annotation processors don't get to see, so the processor registers
+ * a listener with javac and does its work after each class has been analyzed; with other compilers it does nothing.
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions({LoggingCallProcessor.FORMAT_CHECK_OPTION, LoggingCallProcessor.CATALOG_OPTION})
+public class LoggingCallProcessor extends AbstractProcessor
+{
+    static final String FORMAT_CHECK_OPTION = "mogwee.logging.formatCheck";
+    static final String CATALOG_OPTION = "mogwee.logging.catalog";
+    static final String DEFAULT_CATALOG = "META-INF/mogwee-logging/call-sites.tsv";
+
+    private static final String LOGGER_CLASS = "com.mogwee.logging.Logger";
+    private static final Pattern LOG_METHOD = Pattern.compile("(?:at)?(debug|info|warn|error)(?:Debug)?(f)?", Pattern.CASE_INSENSITIVE);
+    private static final Set<String> KNOWN_TYPES = new HashSet<String>(Arrays.asList(
+        "boolean", "char", "byte", "short", "int", "long", "float", "double",
+        "java.lang.Boolean", "java.lang.Character", "java.lang.Byte", "java.lang.Short", "java.lang.Integer",
+        "java.lang.Long", "java.lang.Float", "java.lang.Double", "java.lang.String",
+        "java.math.BigInteger", "java.math.BigDecimal"
+    ));
+    private static final Map<FormatString.Category, Set<String>> ACCEPTED_TYPES = new EnumMap<FormatString.Category, Set<String>>(FormatString.Category.class);
+
+    static {
+        ACCEPTED_TYPES.put(FormatString.Category.GENERAL, KNOWN_TYPES);
+        ACCEPTED_TYPES.put(FormatString.Category.CHARACTER, new HashSet<String>(Arrays.asList(
+            "char", "byte", "short", "int", "java.lang.Character", "java.lang.Byte", "java.lang.Short", "java.lang.Integer"
+        )));
+        ACCEPTED_TYPES.put(FormatString.Category.INTEGRAL, new HashSet<String>(Arrays.asList(
+            "byte", "short", "int", "long", "java.lang.Byte", "java.lang.Short", "java.lang.Integer", "java.lang.Long", "java.math.BigInteger"
+        )));
+        ACCEPTED_TYPES.put(FormatString.Category.FLOATING_POINT, new HashSet<String>(Arrays.asList(
+            "float", "double", "java.lang.Float", "java.lang.Double", "java.math.BigDecimal"
+        )));
+        ACCEPTED_TYPES.put(FormatString.Category.DATE_TIME, new HashSet<String>(Arrays.asList(
+            "long", "java.lang.Long"
+        )));
+    }
+
+    private final Set<String> pending = new HashSet<String>();
+    private final CallSiteCatalog catalog = new CallSiteCatalog();
+    private Trees trees;
+    private Elements elements;
+    private Types types;
+    private Diagnostic.Kind formatProblemKind = Diagnostic.Kind.ERROR;
+    private FileObject catalogFile;
+    private boolean enabled = false;
+    private boolean processingOver = false;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv)
+    {
+        super.init(processingEnv);
+
+        try {
+            trees = Trees.instance(processingEnv);
+            JavacTask.instance(processingEnv).addTaskListener(new AnalysisListener());
+            enabled = true;
+        }
+        catch (RuntimeException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Not running under javac; Logger calls won't be checked");
+            return;
+        }
+
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+
+        if ("warning".equalsIgnoreCase(processingEnv.getOptions().get(FORMAT_CHECK_OPTION))) {
+            formatProblemKind = Diagnostic.Kind.WARNING;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        if (!enabled) {
+            return false;
+        }
+
+        for (Element element : roundEnv.getRootElements()) {
+            if (element instanceof TypeElement) {
+                pending.add(((TypeElement) element).getQualifiedName().toString());
+            }
+        }
+
+        if (roundEnv.processingOver()) {
+            processingOver = true;
+            createCatalogFile();
+            writeCatalogIfDone();
+        }
+
+        return false;
+    }
+
+    private void createCatalogFile()
+    {
+        String path = processingEnv.getOptions().get(CATALOG_OPTION);
+
+        if (path == null) {
+            path = DEFAULT_CATALOG;
+        }
+        else if ("none".equals(path)) {
+            return;
+        }
+
+        try {
+            catalogFile = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, String.format("Can't create log call site catalog %s: %s", path, e));
+        }
+    }
+
+    private void writeCatalogIfDone()
+    {
+        if (!processingOver || !pending.isEmpty() || catalogFile == null) {
+            return;
+        }
+
+        FileObject file = catalogFile;
+
+        catalogFile = null;
+
+        try {
+            Writer writer = file.openWriter();
+
+            try {
+                catalog.writeTo(writer);
+            }
+            finally {
+                writer.close();
+            }
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, String.format("Can't write log call site catalog %s: %s", file.getName(), e));
+        }
+    }
+
+    private class AnalysisListener implements TaskListener
+    {
+        @Override
+        public void started(TaskEvent event)
+        {
+        }
+
+        @Override
+        public void finished(TaskEvent event)
+        {
+            if (event.getKind() != TaskEvent.Kind.ANALYZE || event.getTypeElement() == null) {
+                return;
+            }
+
+            // nested classes are analyzed along with their top-level class
+            if (!pending.remove(event.getTypeElement().getQualifiedName().toString())) {
+                return;
+            }
+
+            TreePath path = trees.getPath(event.getTypeElement());
+
+            if (path != null) {
+                new CallScanner(path.getCompilationUnit()).scan(path, null);
+            }
+
+            writeCatalogIfDone();
+        }
+    }
+
+    private class CallScanner extends TreePathScanner<Void, Void>
+    {
+        private final CompilationUnitTree unit;
+        private final String fileName;
+
+        private CallScanner(CompilationUnitTree unit)
+        {
+            String name = unit.getSourceFile().toUri().getPath();
+
+            this.unit = unit;
+            this.fileName = name == null ? unit.getSourceFile().getName() : name.substring(name.lastIndexOf('/') + 1);
+        }
+
+        @Override
+        public Void visitMethodInvocation(MethodInvocationTree node, Void unused)
+        {
+            Element element = trees.getElement(getCurrentPath());
+
+            if (element instanceof ExecutableElement && isLoggerMethod((ExecutableElement) element)) {
+                ExecutableElement method = (ExecutableElement) element;
+                String name = method.getSimpleName().toString();
+                Matcher matcher = LOG_METHOD.matcher(name);
+
+                if ("getLogger".equals(name) && method.getParameters().isEmpty()) {
+                    checkGetLoggerContext(node);
+                }
+                else if (matcher.matches()) {
+                    checkLogCall(node, method, matcher.group(1).toUpperCase(), matcher.group(2) != null);
+                }
+            }
+
+            return super.visitMethodInvocation(node, unused);
+        }
+
+        private void checkLogCall(MethodInvocationTree node, ExecutableElement method, String level, boolean formats)
+        {
+            List<? extends VariableElement> parameters = method.getParameters();
+            List<? extends ExpressionTree> arguments = node.getArguments();
+            int messageIndex = -1;
+
+            for (int i = 0; i < parameters.size(); ++i) {
+                if (isType(parameters.get(i).asType(), "java.lang.String")) {
+                    messageIndex = i;
+                    break;
+                }
+            }
+
+            String template = messageIndex < 0 ? null : constantString(arguments.get(messageIndex));
+            long line = unit.getLineMap().getLineNumber(trees.getSourcePositions().getStartPosition(unit, node));
+
+            catalog.add(level, method.getSimpleName().toString(), callingClassName(), fileName, line, template);
+
+            // the one-argument *f methods are deprecated aliases that don't format
+            if (formats && template != null && messageIndex < parameters.size() - 1) {
+                checkFormat(arguments.get(messageIndex), template, method, arguments.subList(messageIndex + 1, arguments.size()));
+            }
+        }
+
+        private void checkFormat(ExpressionTree formatTree, String template, ExecutableElement method, List<? extends ExpressionTree> arguments)
+        {
+            FormatString format;
+
+            try {
+                format = FormatString.parse(template);
+            }
+            catch (IllegalArgumentException e) {
+                report(formatProblemKind, String.format("Bogus format string \"%s\": %s", template, e.getMessage()), formatTree);
+                return;
+            }
+
+            // an array passed straight through as the varargs can hold anything
+            if (method.isVarArgs() && arguments.size() == 1) {
+                TypeMirror varargsType = method.getParameters().get(method.getParameters().size() - 1).asType();
+
+                if (types.isAssignable(typeOf(arguments.get(0)), varargsType)) {
+                    return;
+                }
+            }
+
+            if (arguments.size() < format.getArgumentCount()) {
+                report(formatProblemKind, String.format("Format string \"%s\" needs %d arguments, but %d given", template, format.getArgumentCount(), arguments.size()), formatTree);
+                return;
+            }
+
+            if (arguments.size() > format.getArgumentCount()) {
+                report(Diagnostic.Kind.WARNING, String.format("Format string \"%s\" uses %d arguments, but %d given", template, format.getArgumentCount(), arguments.size()), formatTree);
+            }
+
+            for (FormatString.Specifier specifier : format.getSpecifiers()) {
+                ExpressionTree argument = arguments.get(specifier.getArgumentIndex());
+                String typeName = typeName(typeOf(argument));
+
+                if (KNOWN_TYPES.contains(typeName) && !ACCEPTED_TYPES.get(specifier.getCategory()).contains(typeName)) {
+                    report(formatProblemKind, String.format("%s doesn't accept %s, in format string \"%s\"", specifier.getText(), typeName, template), argument);
+                }
+            }
+        }
+
+        private void checkGetLoggerContext(MethodInvocationTree node)
+        {
+            TreePath path = getCurrentPath();
+            Tree previous = path.getLeaf();
+
+            for (path = path.getParentPath(); path != null; path = path.getParentPath()) {
+                Tree leaf = path.getLeaf();
+
+                if (leaf instanceof MethodTree || leaf instanceof LambdaExpressionTree) {
+                    break;
+                }
+
+                if (leaf instanceof ClassTree) {
+                    TypeElement type = (TypeElement) trees.getElement(path);
+                    boolean named = type != null && (type.getNestingKind() == NestingKind.TOP_LEVEL || type.getNestingKind() == NestingKind.MEMBER);
+
+                    if (named && isStaticInitializer(new TreePath(path, previous))) {
+                        return;
+                    }
+
+                    break;
+                }
+
+                previous = leaf;
+            }
+
+            report(
+                Diagnostic.Kind.WARNING,
+                "Logger.getLogger() looks up its calling class every time it's called; call it from a static initializer of a named class, e.g., private static final Logger LOG = Logger.getLogger();",
+                node
+            );
+        }
+
+        private boolean isStaticInitializer(TreePath member)
+        {
+            Tree tree = member.getLeaf();
+
+            if (tree instanceof BlockTree) {
+                return ((BlockTree) tree).isStatic();
+            }
+
+            if (tree instanceof VariableTree) {
+                Element element = trees.getElement(member);
+
+                // interface fields are implicitly static
+                return element != null && element.getModifiers().contains(Modifier.STATIC);
+            }
+
+            return false;
+        }
+
+        // the innermost named class, so that ids don't depend on how anonymous and local classes are numbered
+        private String callingClassName()
+        {
+            for (TreePath path = getCurrentPath(); path != null; path = path.getParentPath()) {
+                if (path.getLeaf() instanceof ClassTree) {
+                    Element element = trees.getElement(path);
+
+                    if (element instanceof TypeElement) {
+                        NestingKind nesting = ((TypeElement) element).getNestingKind();
+
+                        if (nesting == NestingKind.TOP_LEVEL || nesting == NestingKind.MEMBER) {
+                            return elements.getBinaryName((TypeElement) element).toString();
+                        }
+                    }
+                }
+            }
+
+            return "";
+        }
+
+        private String constantString(ExpressionTree tree)
+        {
+            Object value = constantValue(tree);
+
+            return value instanceof String ? (String) value : null;
+        }
+
+        private Object constantValue(ExpressionTree tree)
+        {
+            switch (tree.getKind()) {
+                case STRING_LITERAL:
+                case INT_LITERAL:
+                case LONG_LITERAL:
+                case FLOAT_LITERAL:
+                case DOUBLE_LITERAL:
+                case BOOLEAN_LITERAL:
+                case CHAR_LITERAL:
+                    return ((LiteralTree) tree).getValue();
+                case PARENTHESIZED:
+                    return constantValue(((ParenthesizedTree) tree).getExpression());
+                case PLUS:
+                    BinaryTree binary = (BinaryTree) tree;
+                    Object left = constantValue(binary.getLeftOperand());
+                    Object right = left == null ? null : constantValue(binary.getRightOperand());
+
+                    // only a constant if both operands are
+                    if (left == null || right == null) {
+                        return null;
+                    }
+
+                    if (left instanceof String || right instanceof String) {
+                        return String.valueOf(left) + right;
+                    }
+
+                    return null;
+                case IDENTIFIER:
+                case MEMBER_SELECT:
+                    Element element = trees.getElement(new TreePath(getCurrentPath(), tree));
+
+                    if (element instanceof VariableElement) {
+                        return ((VariableElement) element).getConstantValue();
+                    }
+
+                    return null;
+                default:
+                    return null;
+            }
+        }
+
+        private TypeMirror typeOf(ExpressionTree tree)
+        {
+            return trees.getTypeMirror(new TreePath(getCurrentPath(), tree));
+        }
+
+        private void report(Diagnostic.Kind kind, String message, Tree tree)
+        {
+            trees.printMessage(kind, message, tree, unit);
+        }
+    }
+
+    private static boolean isLoggerMethod(ExecutableElement method)
+    {
+        Element owner = method.getEnclosingElement();
+
+        return owner instanceof TypeElement && ((TypeElement) owner).getQualifiedName().contentEquals(LOGGER_CLASS);
+    }
+
+    private static boolean isType(TypeMirror type, String name)
+    {
+        return name.equals(typeName(type));
+    }
+
+    // primitive name or qualified class name; null for anything else, e.g., arrays, type variables or the null type
+    private static String typeName(TypeMirror type)
+    {
+        if (type == null) {
+            return null;
+        }
+
+        if (type.getKind().isPrimitive()) {
+            return type.getKind().name().toLowerCase();
+        }
+
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.checker;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class TestFormatString
+{
+    @Test
+    public void testOrdinaryIndexes()
+    {
+        FormatString format = FormatString.parse("%s %% %d%n %5.2f %x");
+        List<FormatString.Specifier> specifiers = format.getSpecifiers();
+
+        Assert.assertEquals(format.getArgumentCount(), 4);
+        Assert.assertEquals(specifiers.size(), 4);
+        Assert.assertEquals(specifiers.get(0).getCategory(), FormatString.Category.GENERAL);
+        Assert.assertEquals(specifiers.get(1).getCategory(), FormatString.Category.INTEGRAL);
+        Assert.assertEquals(specifiers.get(2).getCategory(), FormatString.Category.FLOATING_POINT);
+        Assert.assertEquals(specifiers.get(2).getText(), "%5.2f");
+        Assert.assertEquals(specifiers.get(3).getArgumentIndex(), 3);
+    }
+
+    @Test
+    public void testExplicitAndRelativeIndexes()
+    {
+        FormatString format = FormatString.parse("%2$s %s %<d %1$tY %s");
+        List<FormatString.Specifier> specifiers = format.getSpecifiers();
+
+        Assert.assertEquals(format.getArgumentCount(), 2);
+        Assert.assertEquals(specifiers.get(0).getArgumentIndex(), 1);
+        Assert.assertEquals(specifiers.get(1).getArgumentIndex(), 0);
+        Assert.assertEquals(specifiers.get(2).getArgumentIndex(), 0);
+        Assert.assertEquals(specifiers.get(3).getArgumentIndex(), 0);
+        Assert.assertEquals(specifiers.get(3).getCategory(), FormatString.Category.DATE_TIME);
+        Assert.assertEquals(specifiers.get(4).getArgumentIndex(), 1);
+    }
+
+    @Test
+    public void testNoArguments()
+    {
+        Assert.assertEquals(FormatString.parse("100%% done%n").getArgumentCount(), 0);
+        Assert.assertEquals(FormatString.parse("").getArgumentCount(), 0);
+    }
+
+    @Test
+    public void testInvalidFormats()
+    {
+        for (String format : new String[]{"%q", "%D", "trailing %", "%tq", "%.2d", "%<s"}) {
+            try {
+                FormatString.parse(format);
+                Assert.fail(format);
+            }
+            catch (IllegalArgumentException e) {
+                // String.format agrees
+                try {
+                    String.format(format, 1);
+                    Assert.fail(format);
+                }
+                catch (IllegalArgumentException expected) {
+                }
+            }
+        }
+    }
+}
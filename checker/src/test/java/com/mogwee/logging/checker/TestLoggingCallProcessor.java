@@ -0,0 +1,304 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.checker;
+
+import com.mogwee.logging.Logger;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestLoggingCallProcessor
+{
+    private File outputDirectory;
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        outputDirectory = Files.createTempDirectory("checker").toFile();
+        diagnostics = new DiagnosticCollector<JavaFileObject>();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        delete(outputDirectory);
+    }
+
+    @Test
+    public void testValidCalls() throws Exception
+    {
+        Assert.assertTrue(compile(
+            "Valid",
+            "import com.mogwee.logging.Logger;",
+            "class Valid {",
+            "    private static final Logger LOG = Logger.getLogger();",
+            "    private static final String FORMAT = \"%s took %d ms\";",
+            "    void run(Object[] args, long millis, java.util.Date date) {",
+            "        LOG.infof(\"%s took %d ms\", \"run\", millis);",
+            "        LOG.infof(FORMAT, \"run\", 5);",
+            "        LOG.warnf(\"%\" + \"s %.1f\", this, 1.5f);",
+            "        LOG.errorf(\"%2$s %1$s %<s\", 1, 2);",
+            "        LOG.debugf(\"%s %s %s\", args);",
+            "        LOG.debugf(\"%s %s\", (Object[]) null);",
+            "        LOG.infof(\"%tY %c\", date, 'c');",
+            "        LOG.infof(\"100%%\");",
+            "        LOG.infoDebugf(new RuntimeException(), \"%x\", 255);",
+            "        LOG.info(\"%d is fine in a plain message\");",
+            "        LOG.infof(\"%s \" + args[0], \"not checked\", \"as the format isn't a constant\");",
+            "    }",
+            "}"
+        ), String.valueOf(diagnostics.getDiagnostics()));
+        Assert.assertEquals(problems(), new ArrayList<String>());
+    }
+
+    @Test
+    public void testFormatProblems() throws Exception
+    {
+        Assert.assertFalse(compile(
+            "Bogus",
+            "import com.mogwee.logging.Logger;",
+            "class Bogus {",
+            "    private static final Logger LOG = Logger.getLogger();",
+            "    void run(Object anything) {",
+            "        LOG.infof(\"%s and %s\", 1);",
+            "        LOG.warnf(\"%d\", \"not a number\");",
+            "        LOG.errorf(new RuntimeException(), \"%q\", 1);",
+            "        LOG.debugf(\"%s\", 1, 2);",
+            "        LOG.infof(\"%f\", 1);",
+            "        LOG.infof(\"%d %c\", anything, 1.0);",
+            "    }",
+            "}"
+        ));
+        Assert.assertEquals(problems(), Arrays.asList(
+            "ERROR:5:Format string \"%s and %s\" needs 2 arguments, but 1 given",
+            "ERROR:6:%d doesn't accept java.lang.String, in format string \"%d\"",
+            "ERROR:7:Bogus format string \"%q\": Unknown format conversion '%q'",
+            "WARNING:8:Format string \"%s\" uses 1 arguments, but 2 given",
+            "ERROR:9:%f doesn't accept int, in format string \"%f\"",
+            "ERROR:10:%c doesn't accept double, in format string \"%d %c\""
+        ));
+    }
+
+    @Test
+    public void testFormatProblemsAsWarnings() throws Exception
+    {
+        Assert.assertTrue(compile(
+            Arrays.asList("-Amogwee.logging.formatCheck=warning"),
+            "Lenient",
+            "class Lenient {",
+            "    private static final com.mogwee.logging.Logger LOG = com.mogwee.logging.Logger.getLogger();",
+            "    void run() {",
+            "        LOG.infof(\"%s and %s\", 1);",
+            "    }",
+            "}"
+        ));
+        Assert.assertEquals(problems(), Arrays.asList("WARNING:4:Format string \"%s and %s\" needs 2 arguments, but 1 given"));
+    }
+
+    @Test
+    public void testGetLoggerOutsideStaticInitializers() throws Exception
+    {
+        Assert.assertTrue(compile(
+            "Lookups",
+            "import com.mogwee.logging.Logger;",
+            "class Lookups {",
+            "    private static final Logger FIELD = Logger.getLogger();",
+            "    private static final Logger BLOCK;",
+            "    static { BLOCK = Logger.getLogger(); }",
+            "    private final Logger instance = Logger.getLogger();",
+            "    private static final Logger NAMED = Logger.getLogger(\"named\");",
+            "    interface Constants { Logger LOG = Logger.getLogger(); }",
+            "    void run() {",
+            "        Logger.getLogger().info(\"in a method\");",
+            "        new Object() { final Logger anonymous = Logger.getLogger(); };",
+            "    }",
+            "}"
+        ));
+
+        List<String> problems = problems();
+
+        Assert.assertEquals(problems.size(), 3, problems.toString());
+        Assert.assertTrue(problems.get(0).startsWith("WARNING:6:Logger.getLogger() looks up its calling class"));
+        Assert.assertTrue(problems.get(1).startsWith("WARNING:10:"));
+        Assert.assertTrue(problems.get(2).startsWith("WARNING:11:"));
+    }
+
+    @Test
+    public void testCatalog() throws Exception
+    {
+        String[] source = {
+            "package sample;",
+            "import com.mogwee.logging.Logger;",
+            "public class Calls {",
+            "    private static final Logger LOG = Logger.getLogger();",
+            "    void run(String dynamic) {",
+            "        LOG.infof(\"tab\\there %d\", 1);",
+            "        LOG.infof(\"tab\\there %d\", 2);",
+            "        LOG.warnDebug(new RuntimeException(), dynamic);",
+            "        LOG.atError(\"structured\").log();",
+            "        new Runnable() { public void run() { LOG.debug(\"inner\"); } };",
+            "    }",
+            "    static class Nested { void run() { LOG.error(\"nested\"); } }",
+            "}"
+        };
+
+        Assert.assertTrue(compile("sample/Calls", source));
+
+        List<String> lines = catalog();
+
+        Assert.assertEquals(lines.size(), 7, lines.toString());
+        Assert.assertEquals(lines.get(0), CallSiteCatalog.HEADER);
+        Assert.assertTrue(lines.get(1).matches("[0-9a-f]{16}\tINFO\tinfof\tsample.Calls\tCalls.java\t6\ttab\\\\there %d"), lines.get(1));
+        Assert.assertTrue(lines.get(2).matches("[0-9a-f]{16}\tINFO\tinfof\tsample.Calls\tCalls.java\t7\ttab\\\\there %d"), lines.get(2));
+        Assert.assertTrue(lines.get(3).matches("[0-9a-f]{16}\tWARN\twarnDebug\tsample.Calls\tCalls.java\t8\t"), lines.get(3));
+        Assert.assertTrue(lines.get(4).matches("[0-9a-f]{16}\tERROR\tatError\tsample.Calls\tCalls.java\t9\tstructured"), lines.get(4));
+        Assert.assertTrue(lines.get(5).matches("[0-9a-f]{16}\tDEBUG\tdebug\tsample.Calls\tCalls.java\t10\tinner"), lines.get(5));
+        Assert.assertTrue(lines.get(6).matches("[0-9a-f]{16}\tERROR\terror\tsample.Calls\\$Nested\tCalls.java\t12\tnested"), lines.get(6));
+        Assert.assertFalse(id(lines.get(1)).equals(id(lines.get(2))));
+
+        // ids don't depend on line numbers
+        String[] shifted = new String[source.length + 1];
+
+        shifted[0] = "// a new first line";
+        System.arraycopy(source, 0, shifted, 1, source.length);
+        delete(outputDirectory);
+        Assert.assertTrue(compile("sample/Calls", shifted));
+
+        List<String> shiftedLines = catalog();
+
+        for (int i = 1; i < lines.size(); ++i) {
+            Assert.assertEquals(id(shiftedLines.get(i)), id(lines.get(i)));
+        }
+    }
+
+    @Test
+    public void testCatalogOption() throws Exception
+    {
+        Assert.assertTrue(compile(
+            Arrays.asList("-Amogwee.logging.catalog=none"),
+            "Quiet",
+            "class Quiet { void run() { com.mogwee.logging.Logger.getLogger(\"quiet\").info(\"quiet\"); } }"
+        ));
+        Assert.assertFalse(new File(outputDirectory, LoggingCallProcessor.DEFAULT_CATALOG).exists());
+    }
+
+    private boolean compile(String name, String... lines) throws IOException
+    {
+        return compile(new ArrayList<String>(), name, lines);
+    }
+
+    private boolean compile(List<String> options, String name, String... lines) throws IOException
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<String>(options);
+        StringBuilder source = new StringBuilder();
+
+        for (String line : lines) {
+            source.append(line).append('\n');
+        }
+
+        outputDirectory.mkdirs();
+        arguments.addAll(Arrays.asList(
+            "-d", outputDirectory.getPath(),
+            "-classpath", new File(Logger.class.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath()
+        ));
+
+        JavaCompiler.CompilationTask task = compiler.getTask(
+            null,
+            null,
+            diagnostics,
+            arguments,
+            null,
+            Arrays.asList(new SourceFile(name, source.toString()))
+        );
+
+        task.setProcessors(Arrays.asList(new LoggingCallProcessor()));
+
+        return task.call();
+    }
+
+    private List<String> problems()
+    {
+        List<String> problems = new ArrayList<String>();
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR || diagnostic.getKind() == Diagnostic.Kind.WARNING) {
+                problems.add(diagnostic.getKind() + ":" + diagnostic.getLineNumber() + ":" + diagnostic.getMessage(null));
+            }
+        }
+
+        return problems;
+    }
+
+    private List<String> catalog() throws IOException
+    {
+        return Files.readAllLines(new File(outputDirectory, LoggingCallProcessor.DEFAULT_CATALOG).toPath(), Charset.forName("UTF-8"));
+    }
+
+    private static String id(String line)
+    {
+        return line.substring(0, line.indexOf('\t'));
+    }
+
+    private static void delete(File file)
+    {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject
+    {
+        private final String source;
+
+        private SourceFile(String name, String source)
+        {
+            super(URI.create("string:///" + name + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors)
+        {
+            return source;
+        }
+    }
+}
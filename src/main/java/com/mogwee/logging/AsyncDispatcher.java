@@ -0,0 +1,904 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.MDC;
+import org.apache.log4j.NDC;
+import org.apache.log4j.helpers.LogLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands log events off to a single consumer thread through a bounded, lock-free ring buffer,
+ * so that slow appenders don't stall the threads doing the logging.
+ * <p/>
+ * Slots are pre-allocated; producers claim a sequence number with a CAS, fill in the slot and publish it.
+ * The consumer thread drains published slots in sequence order and passes them to Log4J's appenders.
+ * With many producer threads, that one sequence number becomes a hotspot; a sharded dispatcher (see
+ * {@link #AsyncDispatcher(int, WaitStrategy, OverflowPolicy, int, int, long)}) gives each group of threads
+ * a ring buffer of its own and merges them by timestamp.
+ * Typical usage:
+ * <pre>
+ * AsyncDispatcher dispatcher = new AsyncDispatcher(8192, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.BLOCK);
+ *
+ * dispatcher.start();
+ * Logger.setAsyncDispatcher(dispatcher);
+ * ...
+ * Logger.setAsyncDispatcher(null);
+ * dispatcher.shutdown(5, TimeUnit.SECONDS);
+ * </pre>
+ */
+public final class AsyncDispatcher
+{
+    /**
+     * How idle threads wait: the consumer when the buffer is empty and producers when it's full.
+     */
+    public enum WaitStrategy
+    {
+        /** Spin without yielding; lowest latency, burns a core. */
+        BUSY_SPIN,
+        /** Spin briefly, then yield the processor. */
+        YIELDING,
+        /** Spin, yield, then park for short intervals. */
+        SLEEPING,
+        /** Park until a producer signals that an event was published. */
+        BLOCKING;
+
+        int idle(int counter)
+        {
+            switch (this) {
+                case BUSY_SPIN:
+                    return counter;
+                case YIELDING:
+                    if (counter < 100) {
+                        return counter + 1;
+                    }
+
+                    Thread.yield();
+                    return counter;
+                case SLEEPING:
+                    if (counter < 100) {
+                        return counter + 1;
+                    }
+
+                    if (counter < 200) {
+                        Thread.yield();
+                        return counter + 1;
+                    }
+
+                    LockSupport.parkNanos(100000L);
+                    return counter;
+                default:
+                    LockSupport.parkNanos(1000000L);
+                    return counter;
+            }
+        }
+    }
+
+    /**
+     * What a producer does when the buffer is full.
+     */
+    public enum OverflowPolicy
+    {
+        /** Wait for the consumer to free a slot. */
+        BLOCK,
+        /** Discard the event. */
+        DROP,
+        /** Wait for a slot for one event in every {@code sampleRate}, discard the others. */
+        SAMPLE
+    }
+
+    /**
+     * MDC key under which events delivered by a dispatcher with several stripes carry their delivery sequence number,
+     * e.g., {@code %X{mogwee.sequence}} in a {@code PatternLayout}; {@link JsonLayout} writes it as {@code "sequence"}.
+     * Numbers start at zero and have no gaps, so comparing them with timestamps shows how events were merged.
+     */
+    public static final String SEQUENCE_KEY = "mogwee.sequence";
+
+    static final int MIN_STAGING_BYTES = 1024;
+
+    private static final long CLOSED = Long.MIN_VALUE;
+    private static final String FQCN = Logger.class.getName();
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final long reorderWindowMillis;
+    private final AtomicLong overflowed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong reordered = new AtomicLong();
+    // callers of awaitDelivery() currently waiting; while there are any, the reordering window is ignored
+    private final AtomicInteger hurried = new AtomicInteger();
+    private final Thread consumer;
+    // set by start(), or by shutdown() when it has to deliver on the caller's thread instead
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile boolean consumerWaiting = false;
+
+    /**
+     * @param capacity       number of slots, rounded up to a power of two
+     * @param waitStrategy   how idle threads wait
+     * @param overflowPolicy what to do when the buffer is full
+     */
+    public AsyncDispatcher(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy)
+    {
+        this(capacity, waitStrategy, overflowPolicy, 100);
+    }
+
+    /**
+     * @param capacity       number of slots, rounded up to a power of two
+     * @param waitStrategy   how idle threads wait
+     * @param overflowPolicy what to do when the buffer is full
+     * @param sampleRate     with {@link OverflowPolicy#SAMPLE}, keep one in this many events while the buffer is full
+     */
+    public AsyncDispatcher(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy, int sampleRate)
+    {
+        this(capacity, waitStrategy, overflowPolicy, sampleRate, 1, 0);
+    }
+
+    /**
+     * Creates a sharded dispatcher: every producer thread publishes to one of several stripes, each with a ring buffer
+     * of its own, so that producers on different cores don't contend on the same sequence counter and slots.
+     * <p/>
+     * A thread always uses the same stripe (threads are spread by id), so its events are delivered in the order it
+     * logged them. Across stripes, the consumer merges events by timestamp, holding each one back until it's
+     * {@code reorderWindowMillis} old so that events logged slightly earlier on other stripes can overtake it;
+     * events are delivered sooner when a stripe fills up or {@link #awaitDelivery} is waiting. With more than one
+     * stripe, delivered events are numbered: see {@link #SEQUENCE_KEY}.
+     *
+     * @param capacity            number of slots per stripe, rounded up to a power of two
+     * @param waitStrategy        how idle threads wait
+     * @param overflowPolicy      what to do when a stripe is full
+     * @param sampleRate          with {@link OverflowPolicy#SAMPLE}, keep one in this many events while a stripe is full
+     * @param stripes             number of stripes, rounded up to a power of two; typically the number of cores,
+     *                            see {@link Runtime#availableProcessors()}
+     * @param reorderWindowMillis how long to hold events back, in milliseconds; 0 to merge in whatever order the
+     *                            consumer finds events
+     */
+    public AsyncDispatcher(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy, int sampleRate, int stripes, long reorderWindowMillis)
+    {
+        this(capacity, waitStrategy, overflowPolicy, sampleRate, stripes, reorderWindowMillis, 0);
+    }
+
+    /**
+     * Creates a dispatcher that stages events off the heap: instead of keeping the message, its arguments and the cause
+     * reachable until the consumer gets to them, producers encode them into a direct-memory arena (see
+     * {@link StagedEvent}) and the consumer frees the bytes as soon as it has read them. Messages other than
+     * {@link FormattedMessage} and {@link StructuredMessage} are therefore rendered by the thread that logs them.
+     * <p/>
+     * The arena is split evenly between the stripes. A stripe is full when its arena can't fit the next event or when
+     * all of its {@code capacity} slots are in use, so make {@code capacity} large enough that the byte bound applies;
+     * events that can't fit even in an empty arena are delivered synchronously. See {@link #getStagedBytes()}.
+     *
+     * @param capacity            number of slots per stripe, rounded up to a power of two
+     * @param waitStrategy        how idle threads wait
+     * @param overflowPolicy      what to do when a stripe is full
+     * @param sampleRate          with {@link OverflowPolicy#SAMPLE}, keep one in this many events while a stripe is full
+     * @param stripes             number of stripes, rounded up to a power of two
+     * @param reorderWindowMillis how long to hold events back, in milliseconds
+     * @param stagingBytes        size of the arena, in bytes; 0 to keep events on the heap
+     */
+    public AsyncDispatcher(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy, int sampleRate, int stripes, long reorderWindowMillis, int stagingBytes)
+    {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(String.format("Capacity must be between 1 and 2^30: %s", capacity));
+        }
+
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException(String.format("Sample rate must be positive: %s", sampleRate));
+        }
+
+        if (stripes < 1 || stripes > 1 << 16) {
+            throw new IllegalArgumentException(String.format("Stripes must be between 1 and 2^16: %s", stripes));
+        }
+
+        if (reorderWindowMillis < 0) {
+            throw new IllegalArgumentException(String.format("Reordering window must not be negative: %s", reorderWindowMillis));
+        }
+
+        if (stagingBytes < 0 || (stagingBytes > 0 && stagingBytes / roundUpToPowerOfTwo(stripes) < MIN_STAGING_BYTES)) {
+            throw new IllegalArgumentException(String.format("Staging needs at least %s bytes per stripe: %s", MIN_STAGING_BYTES, stagingBytes));
+        }
+
+        this.stripes = new Stripe[roundUpToPowerOfTwo(stripes)];
+        this.stripeMask = this.stripes.length - 1;
+        this.waitStrategy = waitStrategy;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        this.reorderWindowMillis = reorderWindowMillis;
+
+        for (int i = 0; i < this.stripes.length; ++i) {
+            this.stripes[i] = new Stripe(roundUpToPowerOfTwo(capacity), stagingBytes / this.stripes.length);
+        }
+
+        this.consumer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                consume();
+            }
+        }, "mogwee-logging-async");
+        consumer.setDaemon(true);
+    }
+
+    private static int roundUpToPowerOfTwo(int value)
+    {
+        int size = Integer.highestOneBit(value);
+
+        return size < value ? size << 1 : size;
+    }
+
+    /**
+     * Starts the consumer thread; does nothing once started or shut down.
+     */
+    public void start()
+    {
+        if (started.compareAndSet(false, true)) {
+            consumer.start();
+        }
+    }
+
+    /**
+     * Stops accepting events and waits for the consumer thread to deliver the ones already published; if it was never
+     * started, they're delivered on the calling thread instead. Events logged after this method is called are delivered
+     * synchronously by {@link Logger}.
+     *
+     * @param timeout maximum time to wait for the buffer to drain
+     * @param unit    unit of {@code timeout}
+     * @return true if every published event was delivered
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        for (Stripe stripe : stripes) {
+            long current;
+
+            do {
+                current = stripe.claimed();
+            }
+            while ((current & CLOSED) == 0 && !stripe.casClaimed(current, current | CLOSED));
+        }
+
+        if (started.compareAndSet(false, true)) {
+            consume();
+
+            return true;
+        }
+
+        LockSupport.unpark(consumer);
+        consumer.join(unit.toMillis(timeout));
+
+        return !consumer.isAlive();
+    }
+
+    /**
+     * Waits for the consumer thread to deliver every event published before this call.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of {@code timeout}
+     * @return true if they were all delivered; false right away if called from the consumer thread, which can't wait for itself
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitDelivery(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        if (Thread.currentThread() == consumer) {
+            return false;
+        }
+
+        long[] targets = new long[stripes.length];
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        for (int i = 0; i < stripes.length; ++i) {
+            targets[i] = stripes[i].claimed() & ~CLOSED;
+        }
+
+        hurried.incrementAndGet();
+
+        try {
+            for (int i = 0; i < stripes.length; ++i) {
+                while (stripes[i].consumed() < targets[i]) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        return false;
+                    }
+
+                    LockSupport.unpark(consumer);
+                    Thread.sleep(1);
+                }
+            }
+        }
+        finally {
+            hurried.decrementAndGet();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return total number of slots, in all stripes
+     */
+    public int getCapacity()
+    {
+        return stripes.length * stripes[0].slots.length;
+    }
+
+    /**
+     * @return number of stripes
+     */
+    public int getStripeCount()
+    {
+        return stripes.length;
+    }
+
+    /**
+     * @return number of events published but not yet delivered
+     */
+    public long getPendingCount()
+    {
+        long pending = 0;
+
+        for (Stripe stripe : stripes) {
+            pending += (stripe.claimed() & ~CLOSED) - stripe.consumed();
+        }
+
+        return pending;
+    }
+
+    /**
+     * @return size of the off-heap arena, in bytes; 0 if events are kept on the heap
+     */
+    public long getStagingCapacity()
+    {
+        long capacity = 0;
+
+        for (Stripe stripe : stripes) {
+            capacity += stripe.arena == null ? 0 : stripe.arena.capacity;
+        }
+
+        return capacity;
+    }
+
+    /**
+     * @return bytes of the off-heap arena currently taken by events not yet delivered (plus the unused ends of
+     *         stripes' arenas that events wrapped around); 0 if events are kept on the heap
+     */
+    public long getStagedBytes()
+    {
+        long staged = 0;
+
+        for (Stripe stripe : stripes) {
+            staged += stripe.arena == null ? 0 : stripe.arena.used();
+        }
+
+        return staged;
+    }
+
+    /**
+     * @return number of events discarded because the buffer was full
+     */
+    public long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of events delivered after an event with a later timestamp, i.e., that arrived on their stripe
+     *         after the reordering window had passed, or that were overtaken because a stripe was full
+     */
+    public long getReorderedCount()
+    {
+        return reordered.get();
+    }
+
+    /**
+     * Publishes an event for the consumer thread; the caller is responsible for checking the level is enabled.
+     *
+     * @param log4j   logger to deliver the event to
+     * @param level   level of the event
+     * @param message message of the event; rendered on the consumer thread
+     * @param cause   exception of the event, possibly null
+     * @param forced  true if the level is forced on by a {@link LevelOverride}, so Log4J's level shouldn't be rechecked
+     * @return false if the dispatcher isn't accepting events, or the caller is the consumer thread itself (an appender
+     *         or a message's {@code toString()} logging), and the caller should log synchronously;
+     *         true if the event was published or deliberately dropped
+     */
+    boolean publish(org.apache.log4j.Logger log4j, Level level, Object message, Throwable cause, boolean forced)
+    {
+        // the consumer can't wait for room that only it can free
+        if (Thread.currentThread() == consumer) {
+            return false;
+        }
+
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+
+        if (stripe.arena != null) {
+            return stage(stripe, log4j, level, message, cause, forced);
+        }
+
+        long sequence = claim(stripe, 0);
+
+        if (sequence == CLOSED) {
+            return false;
+        }
+
+        if (sequence < 0) {
+            dropped.incrementAndGet();
+            return true;
+        }
+
+        Slot slot = stripe.slots[(int) sequence & stripe.mask];
+        Hashtable<?, ?> context = MDC.getContext();
+
+        slot.log4j = log4j;
+        slot.level = level;
+        slot.forced = forced;
+        slot.message = message;
+        slot.cause = cause;
+        slot.timestamp = System.currentTimeMillis();
+        slot.threadName = Thread.currentThread().getName();
+        slot.ndc = NDC.get();
+        slot.mdc = context == null || context.isEmpty() ? null : (Map<?, ?>) context.clone();
+        stripe.published.lazySet((int) sequence & stripe.mask, sequence);
+
+        if (consumerWaiting) {
+            LockSupport.unpark(consumer);
+        }
+
+        return true;
+    }
+
+    private boolean stage(Stripe stripe, org.apache.log4j.Logger log4j, Level level, Object message, Throwable cause, boolean forced)
+    {
+        long timestamp = System.currentTimeMillis();
+        // encoding may render the message, which may log, so do it before taking the stripe's lock
+        BinaryEncoder encoder = StagedEvent.encode(Thread.currentThread().getName(), NDC.get(), MDC.getContext(), message, cause);
+
+        try {
+            int length = encoder.length();
+
+            if (length > stripe.arena.capacity) {
+                return false;
+            }
+
+            // producers sharing a stripe take turns, so that arena space is handed out in sequence order
+            synchronized (stripe) {
+                long sequence = claim(stripe, length);
+
+                if (sequence == CLOSED) {
+                    return false;
+                }
+
+                if (sequence < 0) {
+                    dropped.incrementAndGet();
+                    return true;
+                }
+
+                Slot slot = stripe.slots[(int) sequence & stripe.mask];
+
+                slot.log4j = log4j;
+                slot.level = level;
+                slot.forced = forced;
+                slot.timestamp = timestamp;
+                slot.end = stripe.arena.write(encoder.bytes(), length);
+                slot.length = length;
+                stripe.published.lazySet((int) sequence & stripe.mask, sequence);
+            }
+        }
+        finally {
+            StagedEvent.release(encoder);
+        }
+
+        if (consumerWaiting) {
+            LockSupport.unpark(consumer);
+        }
+
+        return true;
+    }
+
+    // returns the claimed sequence, CLOSED if shut down, or -1 if the event should be dropped
+    private long claim(Stripe stripe, int bytes)
+    {
+        boolean mayDrop = true;
+        int counter = 0;
+
+        while (true) {
+            long current = stripe.claimed();
+
+            if ((current & CLOSED) != 0) {
+                return CLOSED;
+            }
+
+            if (current - stripe.consumed() >= stripe.slots.length || (bytes > 0 && !stripe.arena.fits(bytes))) {
+                if (mayDrop) {
+                    if (overflowPolicy == OverflowPolicy.DROP) {
+                        return -1;
+                    }
+
+                    if (overflowPolicy == OverflowPolicy.SAMPLE && overflowed.getAndIncrement() % sampleRate != 0) {
+                        return -1;
+                    }
+
+                    // only sample once per event, however long we end up waiting
+                    mayDrop = false;
+                }
+
+                if (!consumer.isAlive()) {
+                    return CLOSED;
+                }
+
+                if (consumerWaiting) {
+                    LockSupport.unpark(consumer);
+                }
+
+                counter = waitStrategy == WaitStrategy.BLOCKING ? WaitStrategy.SLEEPING.idle(counter) : waitStrategy.idle(counter);
+            }
+            else if (stripe.casClaimed(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    private void consume()
+    {
+        boolean numbered = stripes.length > 1;
+        long delivered = 0;
+        long latest = Long.MIN_VALUE;
+        int counter = 0;
+
+        while (true) {
+            // find the stripe whose next event is the oldest, and the timestamp of the runner-up
+            Stripe oldest = null;
+            long oldestTimestamp = Long.MAX_VALUE;
+            long runnerUpTimestamp = Long.MAX_VALUE;
+            boolean full = false;
+            boolean closed = true;
+            boolean pending = false;
+
+            for (Stripe stripe : stripes) {
+                long next = stripe.consumed();
+                long claimed = stripe.claimed();
+                int index = (int) next & stripe.mask;
+
+                closed &= (claimed & CLOSED) != 0;
+                pending |= (claimed & ~CLOSED) != next;
+
+                if (stripe.published.get(index) == next) {
+                    long timestamp = stripe.slots[index].timestamp;
+
+                    full |= (claimed & ~CLOSED) - next >= stripe.slots.length || (stripe.arena != null && 2 * stripe.arena.used() >= stripe.arena.capacity);
+
+                    if (timestamp < oldestTimestamp) {
+                        runnerUpTimestamp = oldestTimestamp;
+                        oldest = stripe;
+                        oldestTimestamp = timestamp;
+                    }
+                    else if (timestamp < runnerUpTimestamp) {
+                        runnerUpTimestamp = timestamp;
+                    }
+                }
+            }
+
+            boolean hurry = closed || full || hurried.get() > 0;
+            long wait = oldest == null || hurry ? 0 : waitFor(oldestTimestamp);
+
+            if (oldest != null && wait <= 0) {
+                // deliver from that stripe while it stays ahead of the others
+                long next = oldest.consumed();
+
+                while (true) {
+                    int index = (int) next & oldest.mask;
+
+                    if (oldest.published.get(index) != next) {
+                        break;
+                    }
+
+                    Slot slot = oldest.slots[index];
+
+                    if (slot.timestamp > runnerUpTimestamp || (!hurry && waitFor(slot.timestamp) > 0)) {
+                        break;
+                    }
+
+                    if (slot.timestamp < latest) {
+                        reordered.lazySet(reordered.get() + 1);
+                    }
+                    else {
+                        latest = slot.timestamp;
+                    }
+
+                    // one event failing, however badly, mustn't stop the delivery of the others
+                    try {
+                        deliver(oldest, slot, numbered ? delivered++ : -1);
+                    }
+                    catch (Error e) {
+                        LogLog.error("Unable to deliver asynchronous log event", e);
+                    }
+                    finally {
+                        slot.clear();
+                        oldest.consumedLazySet(++next);
+                    }
+                }
+
+                counter = 0;
+            }
+            else if (closed && !pending) {
+                return;
+            }
+            else if (waitStrategy == WaitStrategy.BLOCKING || oldest != null) {
+                consumerWaiting = true;
+
+                if (oldest != null) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(wait));
+                }
+                else if (!hasPublished()) {
+                    waitStrategy.idle(counter);
+                }
+
+                consumerWaiting = false;
+            }
+            else {
+                counter = waitStrategy.idle(counter);
+            }
+        }
+    }
+
+    // milliseconds until an event logged at the given time may be delivered
+    private long waitFor(long timestamp)
+    {
+        return reorderWindowMillis == 0 ? 0 : timestamp + reorderWindowMillis - System.currentTimeMillis();
+    }
+
+    private boolean hasPublished()
+    {
+        for (Stripe stripe : stripes) {
+            long next = stripe.consumed();
+
+            if (stripe.published.get((int) next & stripe.mask) == next || (stripe.claimed() & CLOSED) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void deliver(Stripe stripe, Slot slot, long sequence)
+    {
+        StagedEvent staged = null;
+
+        try {
+            if (stripe.arena != null) {
+                try {
+                    staged = stripe.arena.read(slot.end, slot.length);
+                }
+                catch (IOException e) {
+                    LogLog.error("Unable to read staged log event", e);
+                    return;
+                }
+            }
+
+            // producers check against a cached level, so recheck against Log4J itself
+            if (!slot.forced && !slot.log4j.isEnabledFor(slot.level)) {
+                return;
+            }
+
+            if (staged == null) {
+                slot.log4j.callAppenders(
+                    new AsyncLoggingEvent(FQCN, slot.log4j, slot.timestamp, slot.level, slot.message, slot.cause, slot.threadName, slot.ndc, slot.mdc, sequence)
+                );
+            }
+            else {
+                slot.log4j.callAppenders(
+                    new AsyncLoggingEvent(
+                        FQCN,
+                        slot.log4j,
+                        slot.timestamp,
+                        slot.level,
+                        staged.getMessage(),
+                        staged.getThrowableStrRep(),
+                        staged.getThreadName(),
+                        staged.getNDC(),
+                        staged.getMDC(),
+                        sequence
+                    )
+                );
+            }
+        }
+        catch (RuntimeException e) {
+            LogLog.error("Unable to deliver asynchronous log event", e);
+        }
+    }
+
+    /**
+     * One ring buffer; producers claim sequence numbers with a CAS, the consumer thread is the only one to advance
+     * {@code consumed}.
+     */
+    private static final class Stripe
+    {
+        // claimed and consumed live on cache lines of their own: producers write the former, the consumer the latter
+        private static final int CLAIMED = 8;
+        private static final int CONSUMED = 24;
+
+        private final Slot[] slots;
+        private final AtomicLongArray published;
+        private final int mask;
+        // next sequence to claim, with the CLOSED bit set once the dispatcher stops accepting events,
+        // and next sequence the consumer will read
+        private final AtomicLongArray counters = new AtomicLongArray(32);
+
+        // null unless events are staged off the heap
+        private final Arena arena;
+
+        private Stripe(int size, int stagingBytes)
+        {
+            arena = stagingBytes == 0 ? null : new Arena(stagingBytes);
+            slots = new Slot[size];
+            published = new AtomicLongArray(size);
+            mask = size - 1;
+
+            for (int i = 0; i < size; ++i) {
+                slots[i] = new Slot();
+                published.set(i, -1);
+            }
+        }
+
+        private long claimed()
+        {
+            return counters.get(CLAIMED);
+        }
+
+        private boolean casClaimed(long expected, long value)
+        {
+            return counters.compareAndSet(CLAIMED, expected, value);
+        }
+
+        private long consumed()
+        {
+            return counters.get(CONSUMED);
+        }
+
+        private void consumedLazySet(long value)
+        {
+            counters.lazySet(CONSUMED, value);
+        }
+    }
+
+    /**
+     * A ring of direct memory holding the encoded events of one stripe, in sequence order. Records never wrap around:
+     * one that doesn't fit before the end of the buffer starts over at the beginning. Producers write under the
+     * stripe's lock; the consumer, the only reader, frees each record as soon as it has copied it out.
+     */
+    private static final class Arena
+    {
+        private final int capacity;
+        private final ByteBuffer writer;
+        private final ByteBuffer reader;
+        // absolute positions: where the next record goes, and the end of the oldest record still in use
+        private volatile long head = 0;
+        private volatile long tail = 0;
+        // consumer only
+        private final RecordInput input = new RecordInput();
+        private final BinaryDecoder decoder = new BinaryDecoder(input);
+
+        private Arena(int capacity)
+        {
+            this.capacity = capacity;
+            this.writer = ByteBuffer.allocateDirect(capacity);
+            this.reader = writer.duplicate();
+        }
+
+        private long used()
+        {
+            return head - tail;
+        }
+
+        private long start(int length)
+        {
+            long start = head;
+            int offset = (int) (start % capacity);
+
+            return offset + length > capacity ? start + capacity - offset : start;
+        }
+
+        private boolean fits(int length)
+        {
+            return start(length) + length - tail <= capacity;
+        }
+
+        // returns the end of the record; the caller checked it fits
+        private long write(byte[] bytes, int length)
+        {
+            long start = start(length);
+
+            writer.position((int) (start % capacity));
+            writer.put(bytes, 0, length);
+            head = start + length;
+
+            return head;
+        }
+
+        private StagedEvent read(long end, int length) throws IOException
+        {
+            reader.position((int) ((end - length) % capacity));
+            input.fill(reader, length);
+            tail = end;
+
+            return StagedEvent.decode(decoder);
+        }
+    }
+
+    /**
+     * The bytes of one record, copied out of an arena so that its space can be reused right away.
+     */
+    private static final class RecordInput extends ByteArrayInputStream
+    {
+        private RecordInput()
+        {
+            super(new byte[256]);
+        }
+
+        private void fill(ByteBuffer source, int length)
+        {
+            if (length > buf.length) {
+                buf = new byte[Math.max(length, 2 * buf.length)];
+            }
+
+            source.get(buf, 0, length);
+            pos = 0;
+            count = length;
+            mark = 0;
+        }
+    }
+
+    private static final class Slot
+    {
+        private org.apache.log4j.Logger log4j;
+        private Level level;
+        private boolean forced;
+        private Object message;
+        private Throwable cause;
+        private long timestamp;
+        private String threadName;
+        private String ndc;
+        private Map<?, ?> mdc;
+        // where a staged event ends in the arena, and its length
+        private long end;
+        private int length;
+
+        private void clear()
+        {
+            log4j = null;
+            level = null;
+            message = null;
+            cause = null;
+            threadName = null;
+            ndc = null;
+            mdc = null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Category;
+import org.apache.log4j.Priority;
+import org.apache.log4j.spi.LocationInfo;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.util.Map;
+
+/**
+ * A Log4J event delivered on a thread other than the one that logged it.
+ * <p/>
+ * {@link LoggingEvent} looks up the thread name, NDC and MDC lazily on whatever thread asks for them,
+ * so the values captured on the logging thread are returned instead.
+ * Location information isn't available, since the logging thread's stack is long gone.
+ */
+class AsyncLoggingEvent extends LoggingEvent
+{
+    private static final long serialVersionUID = 1L;
+    private static final LocationInfo NO_LOCATION = new LocationInfo(null, null);
+
+    private final String threadName;
+    private final String ndc;
+    private final Map<?, ?> mdc;
+    private final long sequence;
+    private final String[] throwableStrRep;
+
+    AsyncLoggingEvent(
+        String fqnOfCategoryClass,
+        Category logger,
+        long timeStamp,
+        Priority level,
+        Object message,
+        Throwable throwable,
+        String threadName,
+        String ndc,
+        Map<?, ?> mdc,
+        long sequence
+    )
+    {
+        super(fqnOfCategoryClass, logger, timeStamp, level, message, throwable);
+        this.threadName = threadName;
+        this.ndc = ndc;
+        this.mdc = mdc;
+        this.sequence = sequence;
+        this.throwableStrRep = null;
+    }
+
+    /**
+     * For an event staged off the heap: the cause is only known by the lines of its stack trace.
+     */
+    AsyncLoggingEvent(
+        String fqnOfCategoryClass,
+        Category logger,
+        long timeStamp,
+        Priority level,
+        Object message,
+        String[] throwableStrRep,
+        String threadName,
+        String ndc,
+        Map<?, ?> mdc,
+        long sequence
+    )
+    {
+        super(fqnOfCategoryClass, logger, timeStamp, level, message, null);
+        this.threadName = threadName;
+        this.ndc = ndc;
+        this.mdc = mdc;
+        this.sequence = sequence;
+        this.throwableStrRep = throwableStrRep;
+    }
+
+    @Override
+    public String[] getThrowableStrRep()
+    {
+        return throwableStrRep == null ? super.getThrowableStrRep() : throwableStrRep;
+    }
+
+    @Override
+    public String getThreadName()
+    {
+        return threadName;
+    }
+
+    @Override
+    public String getNDC()
+    {
+        return ndc;
+    }
+
+    @Override
+    public Object getMDC(String key)
+    {
+        if (sequence >= 0 && AsyncDispatcher.SEQUENCE_KEY.equals(key)) {
+            return sequence;
+        }
+
+        return mdc == null ? null : mdc.get(key);
+    }
+
+    @Override
+    public void getMDCCopy()
+    {
+        // already copied on the logging thread
+    }
+
+    /**
+     * @return the delivery sequence number (see {@link AsyncDispatcher#SEQUENCE_KEY}), or -1 if events aren't numbered
+     */
+    long getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * @return the MDC captured on the logging thread, possibly null
+     */
+    Map<?, ?> getCapturedMDC()
+    {
+        return mdc;
+    }
+
+    @Override
+    public LocationInfo getLocationInformation()
+    {
+        return NO_LOCATION;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import org.apache.log4j.helpers.LogLog;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Picks the {@link LoggingBackend} {@link Logger} uses.
+ */
+final class BackendLoader
+{
+    static final String BACKEND_PROPERTY = "com.mogwee.logging.backend";
+
+    // a provider iterator that keeps failing is given up on after this many failures in a row
+    private static final int MAX_FAILURES = 16;
+
+    private BackendLoader()
+    {
+    }
+
+    static LoggingBackend load()
+    {
+        return select(System.getProperty(BACKEND_PROPERTY), ServiceLoader.load(LoggingBackend.class).iterator());
+    }
+
+    /**
+     * @param wanted    class name of the backend to use, or null for the first one available
+     * @param providers backends found by {@link ServiceLoader}
+     * @return the backend to use; {@link Log4jBackend} if {@code wanted} names it, or if no other backend is available.
+     *         A {@code wanted} backend that isn't among the providers is instantiated by name, so that backends shipped
+     *         with this library, such as {@link NativeBackend}, can be picked without a services file.
+     */
+    static LoggingBackend select(String wanted, Iterator<LoggingBackend> providers)
+    {
+        if (Log4jBackend.class.getName().equals(wanted)) {
+            return new Log4jBackend();
+        }
+
+        int failures = 0;
+
+        while (true) {
+            LoggingBackend backend;
+
+            try {
+                if (!providers.hasNext()) {
+                    break;
+                }
+            }
+            catch (ServiceConfigurationError e) {
+                // the iterator can't get past a malformed services file; asking again would fail the same way
+                LogLog.warn("Unable to look up logging backends", e);
+                break;
+            }
+
+            try {
+                backend = providers.next();
+                failures = 0;
+            }
+            catch (ServiceConfigurationError e) {
+                LogLog.warn("Unable to load logging backend", e);
+
+                if (++failures >= MAX_FAILURES) {
+                    break;
+                }
+
+                continue;
+            }
+
+            if (wanted == null || wanted.equals(backend.getClass().getName())) {
+                LogLog.debug(String.format("Using logging backend %s", backend.getClass().getName()));
+                return backend;
+            }
+        }
+
+        if (wanted != null) {
+            try {
+                LoggingBackend backend = Class.forName(wanted).asSubclass(LoggingBackend.class).getDeclaredConstructor().newInstance();
+
+                LogLog.debug(String.format("Using logging backend %s", wanted));
+                return backend;
+            }
+            catch (Exception e) {
+                LogLog.warn(String.format("Logging backend %s not found, using Log4J", wanted), e);
+            }
+            catch (LinkageError e) {
+                LogLog.warn(String.format("Logging backend %s not found, using Log4J", wanted), e);
+            }
+        }
+
+        return new Log4jBackend();
+    }
+}
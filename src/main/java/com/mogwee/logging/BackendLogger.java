@@ -0,0 +1,51 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+/**
+ * Where {@link Logger} sends events; see {@link LoggingBackend}.
+ * <p/>
+ * {@link Logger} checks the level before building a message and never calls {@link #log} or {@link #logStructured}
+ * for a disabled level, unless a {@link LevelOverride} forces it on for the calling thread; implementations should log
+ * whatever they're given. Implementations must be thread-safe.
+ */
+public interface BackendLogger
+{
+    /**
+     * Called on every log call, before anything else is done; should be cheap.
+     *
+     * @param level DEBUG, INFO, WARN or ERROR
+     * @return true if events at this level should be logged
+     */
+    boolean isEnabled(org.apache.log4j.Level level);
+
+    /**
+     * @param level   an enabled level
+     * @param message the message: a String, or an object whose {@code toString()} renders it, e.g.,
+     *                a {@link FormattedMessage} if formatting is deferred; may be null
+     * @param cause   an exception to print the stack trace of, or null
+     */
+    void log(org.apache.log4j.Level level, Object message, Throwable cause);
+
+    /**
+     * @param level   an enabled level
+     * @param message a message plus typed fields
+     * @param cause   an exception to print the stack trace of, or null
+     */
+    void logStructured(org.apache.log4j.Level level, StructuredMessage message, Throwable cause);
+}
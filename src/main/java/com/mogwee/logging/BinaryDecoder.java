@@ -0,0 +1,179 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Reads the primitives written by {@link BinaryEncoder} from a stream. Not thread-safe.
+ */
+final class BinaryDecoder
+{
+    private final InputStream in;
+    private byte[] buffer = new byte[256];
+
+    BinaryDecoder(InputStream in)
+    {
+        this.in = in;
+    }
+
+    /**
+     * @return the next byte, or -1 at the end of the stream
+     */
+    int read() throws IOException
+    {
+        return in.read();
+    }
+
+    /**
+     * Reads arguments written by {@link BinaryEncoder#writeArguments}.
+     *
+     * @return the arguments; null if a null array was written
+     */
+    Object[] readArguments() throws IOException
+    {
+        int count = (int) readVarint();
+
+        if (count == 0) {
+            return null;
+        }
+
+        Object[] args = new Object[count - 1];
+
+        for (int i = 0; i < args.length; ++i) {
+            args[i] = readValue();
+        }
+
+        return args;
+    }
+
+    /**
+     * Reads an argument, or a value written by {@link BinaryEncoder#writeValue}.
+     */
+    Object readValue() throws IOException
+    {
+        int type = (int) readVarint();
+
+        switch (type) {
+            case BinaryLogFormat.NULL:
+                return null;
+            case BinaryLogFormat.FALSE:
+                return Boolean.FALSE;
+            case BinaryLogFormat.TRUE:
+                return Boolean.TRUE;
+            case BinaryLogFormat.CHARACTER:
+                return (char) readVarint();
+            case BinaryLogFormat.BYTE:
+                return (byte) BinaryLogFormat.unZigZag(readVarint());
+            case BinaryLogFormat.SHORT:
+                return (short) BinaryLogFormat.unZigZag(readVarint());
+            case BinaryLogFormat.INTEGER:
+                return (int) BinaryLogFormat.unZigZag(readVarint());
+            case BinaryLogFormat.LONG:
+                return BinaryLogFormat.unZigZag(readVarint());
+            case BinaryLogFormat.FLOAT:
+                return Float.intBitsToFloat((int) readFixed(4));
+            case BinaryLogFormat.DOUBLE:
+                return Double.longBitsToDouble(readFixed(8));
+            case BinaryLogFormat.STRING:
+                return readString();
+            case BinaryLogFormat.BIG_INTEGER:
+                return new BigInteger(readBytes());
+            case BinaryLogFormat.BIG_DECIMAL:
+                int scale = (int) BinaryLogFormat.unZigZag(readVarint());
+
+                return new BigDecimal(new BigInteger(readBytes()), scale);
+            default:
+                throw new IOException(String.format("Unknown argument type %d", type));
+        }
+    }
+
+    long readVarint() throws IOException
+    {
+        return BinaryLogFormat.readVarint(in);
+    }
+
+    long readFixed(int byteCount) throws IOException
+    {
+        long value = 0;
+
+        for (int i = 0; i < byteCount; ++i) {
+            int b = in.read();
+
+            if (b < 0) {
+                throw new EOFException();
+            }
+
+            value |= (long) b << (8 * i);
+        }
+
+        return value;
+    }
+
+    String readString() throws IOException
+    {
+        long length = readVarint() - 1;
+
+        if (length < 0) {
+            return null;
+        }
+
+        readFully(length);
+
+        return BinaryLogFormat.decodeString(buffer, (int) length);
+    }
+
+    byte[] readBytes() throws IOException
+    {
+        int length = readFully(readVarint());
+        byte[] bytes = new byte[length];
+
+        System.arraycopy(buffer, 0, bytes, 0, length);
+
+        return bytes;
+    }
+
+    // reads into buffer
+    private int readFully(long length) throws IOException
+    {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Record too long: %d bytes", length));
+        }
+
+        if (length > buffer.length) {
+            buffer = new byte[(int) Math.max(length, 2L * buffer.length)];
+        }
+
+        int offset = 0;
+
+        while (offset < length) {
+            int count = in.read(buffer, offset, (int) length - offset);
+
+            if (count < 0) {
+                throw new EOFException();
+            }
+
+            offset += count;
+        }
+
+        return (int) length;
+    }
+}
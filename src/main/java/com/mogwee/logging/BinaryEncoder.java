@@ -0,0 +1,278 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Formattable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A growable byte array with writers for the primitives of {@link BinaryLogFormat}: varints, fixed-size numbers,
+ * strings and the arguments of a {@link FormattedMessage}. Not thread-safe.
+ * <p/>
+ * An argument is written as is if it can be rendered later exactly as it would have been now: nulls, booleans,
+ * characters, numbers (including {@link BigInteger} and {@link BigDecimal}) and strings always can; any other argument
+ * can if it's only rendered with a plain {@code %s}, in which case its {@code toString()} is written instead.
+ */
+final class BinaryEncoder
+{
+    private static final Map<Class<?>, Integer> ARGUMENT_TYPES = new HashMap<Class<?>, Integer>();
+
+    static {
+        ARGUMENT_TYPES.put(Character.class, BinaryLogFormat.CHARACTER);
+        ARGUMENT_TYPES.put(Byte.class, BinaryLogFormat.BYTE);
+        ARGUMENT_TYPES.put(Short.class, BinaryLogFormat.SHORT);
+        ARGUMENT_TYPES.put(Integer.class, BinaryLogFormat.INTEGER);
+        ARGUMENT_TYPES.put(Long.class, BinaryLogFormat.LONG);
+        ARGUMENT_TYPES.put(Float.class, BinaryLogFormat.FLOAT);
+        ARGUMENT_TYPES.put(Double.class, BinaryLogFormat.DOUBLE);
+        ARGUMENT_TYPES.put(String.class, BinaryLogFormat.STRING);
+        ARGUMENT_TYPES.put(BigInteger.class, BinaryLogFormat.BIG_INTEGER);
+        ARGUMENT_TYPES.put(BigDecimal.class, BinaryLogFormat.BIG_DECIMAL);
+    }
+
+    private byte[] bytes;
+    private int length = 0;
+
+    BinaryEncoder(int initialCapacity)
+    {
+        bytes = new byte[initialCapacity];
+    }
+
+    /**
+     * @return the array written to; only valid until the next write
+     */
+    byte[] bytes()
+    {
+        return bytes;
+    }
+
+    int length()
+    {
+        return length;
+    }
+
+    /**
+     * Discards everything written after the first {@code length} bytes.
+     */
+    void truncate(int length)
+    {
+        this.length = length;
+    }
+
+    /**
+     * Overwrites a byte already written.
+     */
+    void set(int offset, int value)
+    {
+        bytes[offset] = (byte) value;
+    }
+
+    /**
+     * Drops the array if it grew past {@code maxCapacity}, so that one huge record doesn't pin memory forever.
+     */
+    void shrink(int maxCapacity, int initialCapacity)
+    {
+        if (bytes.length > maxCapacity) {
+            bytes = new byte[initialCapacity];
+        }
+    }
+
+    /**
+     * Writes the arguments of a message: their count plus one (zero for a null array), then each argument.
+     *
+     * @return false if an argument can't be written, in which case the message should be written as text
+     */
+    boolean writeArguments(FormattedMessage message)
+    {
+        FormatTemplate template = message.getTemplate();
+        Object[] args = message.getArguments();
+
+        if (args == null) {
+            writeVarint(0);
+            return true;
+        }
+
+        writeVarint(args.length + 1);
+
+        for (int i = 0; i < args.length; ++i) {
+            if (!writeArgument(template, i, args[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean writeArgument(FormatTemplate template, int index, Object arg)
+    {
+        RenderLimits limits = RenderLimits.get();
+
+        // text over the argument limit is written the way it renders instead
+        if (!(arg instanceof CharSequence && ((CharSequence) arg).length() > limits.getMaxArgumentLength()) && writeExactValue(arg)) {
+            return true;
+        }
+
+        // arguments a simple template doesn't use are never looked at
+        if (template.isSimple() && index >= template.getArgumentCount()) {
+            writeVarint(BinaryLogFormat.NULL);
+            return true;
+        }
+
+        if (arg instanceof Formattable || template.getConversion(index) != 's') {
+            return false;
+        }
+
+        String text;
+
+        try {
+            text = limits.toString(arg);
+        }
+        catch (RuntimeException e) {
+            // let the text event describe the failure
+            return false;
+        }
+
+        writeVarint(BinaryLogFormat.STRING);
+        writeString(text);
+
+        return true;
+    }
+
+    /**
+     * Writes a value the way {@link BinaryDecoder#readValue()} reads it: nulls, booleans, characters, numbers and strings
+     * as they are, anything else as its {@code toString()}.
+     */
+    void writeValue(Object value)
+    {
+        if (!writeExactValue(value)) {
+            writeVarint(BinaryLogFormat.STRING);
+            writeString(StructuredMessage.safeToString(value));
+        }
+    }
+
+    private boolean writeExactValue(Object arg)
+    {
+        if (arg == null) {
+            writeVarint(BinaryLogFormat.NULL);
+            return true;
+        }
+
+        if (arg instanceof Boolean) {
+            writeVarint((Boolean) arg ? BinaryLogFormat.TRUE : BinaryLogFormat.FALSE);
+            return true;
+        }
+
+        Integer type = ARGUMENT_TYPES.get(arg.getClass());
+
+        if (type == null) {
+            return false;
+        }
+
+        writeVarint(type);
+
+        switch (type) {
+            case BinaryLogFormat.CHARACTER:
+                writeVarint((Character) arg);
+                break;
+            case BinaryLogFormat.BYTE:
+            case BinaryLogFormat.SHORT:
+            case BinaryLogFormat.INTEGER:
+            case BinaryLogFormat.LONG:
+                writeVarint(BinaryLogFormat.zigZag(((Number) arg).longValue()));
+                break;
+            case BinaryLogFormat.FLOAT:
+                writeFixed(Float.floatToRawIntBits((Float) arg), 4);
+                break;
+            case BinaryLogFormat.DOUBLE:
+                writeFixed(Double.doubleToRawLongBits((Double) arg), 8);
+                break;
+            case BinaryLogFormat.STRING:
+                writeString((String) arg);
+                break;
+            case BinaryLogFormat.BIG_INTEGER:
+                writeBytes(((BigInteger) arg).toByteArray());
+                break;
+            case BinaryLogFormat.BIG_DECIMAL:
+                writeVarint(BinaryLogFormat.zigZag(((BigDecimal) arg).scale()));
+                writeBytes(((BigDecimal) arg).unscaledValue().toByteArray());
+                break;
+        }
+
+        return true;
+    }
+
+    void writeVarint(long value)
+    {
+        ensureCapacity(10);
+
+        while ((value & ~0x7fL) != 0) {
+            bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+
+        bytes[length++] = (byte) value;
+    }
+
+    void writeFixed(long value, int byteCount)
+    {
+        ensureCapacity(byteCount);
+
+        for (int i = 0; i < byteCount; ++i) {
+            bytes[length++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    void writeString(String value)
+    {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+
+        int encodedLength = BinaryLogFormat.encodedLength(value);
+
+        writeVarint(encodedLength + 1);
+        ensureCapacity(encodedLength);
+        length = BinaryLogFormat.encodeString(value, bytes, length);
+    }
+
+    void writeBytes(byte[] value)
+    {
+        writeVarint(value.length);
+        append(value, 0, value.length);
+    }
+
+    void append(byte[] value, int offset, int count)
+    {
+        ensureCapacity(count);
+        System.arraycopy(value, offset, bytes, length, count);
+        length += count;
+    }
+
+    private void ensureCapacity(int count)
+    {
+        if (length + count > bytes.length) {
+            byte[] grown = new byte[Math.max(bytes.length * 2, length + count)];
+
+            System.arraycopy(bytes, 0, grown, 0, length);
+            bytes = grown;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.helpers.OptionConverter;
+import org.apache.log4j.spi.ErrorCode;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Appends events in a compact binary format to files {@code File.000001}, {@code File.000002}, etc.,
+ * to be turned back into text by {@link BinaryLogRenderer} when (and if) they're read.
+ * <p/>
+ * Together with {@link Logger#setDeferredFormatting(boolean)}, this takes formatting off the logging path entirely:
+ * the {@code *f} methods hand over the format string and the arguments, and this appender writes them as they are,
+ * numbers as varints and strings as UTF-8, with format strings, logger names and thread names written once per file
+ * (see {@link BinaryLogFormat}). Other messages are written as text.
+ * <p/>
+ * Every file is self-contained, so a new one is started whenever the appender is activated, and whenever the current one
+ * has grown past {@code MaxFileSize} (default 64MB). Writes go through a buffer of {@code BufferSize} bytes (default
+ * 8KB), which is flushed after every event unless {@code ImmediateFlush} is false (see also {@link #flush()}).
+ * No layout is used.
+ */
+public class BinaryLogAppender extends AppenderSkeleton implements Flushable
+{
+    static final long DEFAULT_MAX_FILE_SIZE = 64L * 1024 * 1024;
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private String fileName = null;
+    private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private boolean immediateFlush = true;
+
+    private int fileIndex = 0;
+    private BinaryLogWriter writer = null;
+
+    public BinaryLogAppender()
+    {
+    }
+
+    public BinaryLogAppender(String fileName)
+    {
+        this.fileName = fileName;
+        activateOptions();
+    }
+
+    public String getFile()
+    {
+        return fileName;
+    }
+
+    /**
+     * @param fileName path files are named after
+     */
+    public void setFile(String fileName)
+    {
+        this.fileName = fileName == null ? null : fileName.trim();
+    }
+
+    public long getMaxFileSize()
+    {
+        return maxFileSize;
+    }
+
+    /**
+     * @param maxFileSize size after which a new file is started, e.g., {@code 64MB}
+     */
+    public void setMaxFileSize(String maxFileSize)
+    {
+        this.maxFileSize = OptionConverter.toFileSize(maxFileSize, DEFAULT_MAX_FILE_SIZE);
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize)
+    {
+        this.bufferSize = Math.max(bufferSize, 1);
+    }
+
+    public boolean getImmediateFlush()
+    {
+        return immediateFlush;
+    }
+
+    /**
+     * @param immediateFlush false to only write events out once the buffer is full
+     */
+    public void setImmediateFlush(boolean immediateFlush)
+    {
+        this.immediateFlush = immediateFlush;
+    }
+
+    @Override
+    public synchronized void activateOptions()
+    {
+        if (fileName == null) {
+            LogLog.error(String.format("File option not set for appender [%s]", name));
+            return;
+        }
+
+        closeWriter();
+
+        int newest = MappedFileAppender.findNewestSegment(fileName);
+
+        fileIndex = segmentFile(newest).exists() ? newest + 1 : newest;
+        openWriter();
+    }
+
+    @Override
+    protected void append(LoggingEvent event)
+    {
+        if (writer == null) {
+            errorHandler.error(String.format("No file open for appender [%s]", name));
+            return;
+        }
+
+        try {
+            writer.write(event);
+
+            if (writer.size() >= maxFileSize) {
+                closeWriter();
+                ++fileIndex;
+                openWriter();
+            }
+            else if (immediateFlush) {
+                writer.flush();
+            }
+        }
+        catch (IOException e) {
+            errorHandler.error(String.format("Unable to write to %s", segmentFile(fileIndex)), e, ErrorCode.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Writes out the buffer.
+     */
+    @Override
+    public synchronized void flush()
+    {
+        if (writer != null) {
+            try {
+                writer.flush();
+            }
+            catch (IOException e) {
+                errorHandler.error(String.format("Unable to flush %s", segmentFile(fileIndex)), e, ErrorCode.FLUSH_FAILURE);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        closeWriter();
+    }
+
+    @Override
+    public boolean requiresLayout()
+    {
+        return false;
+    }
+
+    File segmentFile(int index)
+    {
+        return new File(String.format("%s.%06d", fileName, index));
+    }
+
+    private void openWriter()
+    {
+        File file = segmentFile(fileIndex);
+
+        try {
+            writer = new BinaryLogWriter(new BufferedOutputStream(new FileOutputStream(file), bufferSize));
+            writer.flush();
+        }
+        catch (IOException e) {
+            errorHandler.error(String.format("Unable to open %s", file), e, ErrorCode.FILE_OPEN_FAILURE);
+            writer = null;
+        }
+    }
+
+    private void closeWriter()
+    {
+        if (writer != null) {
+            try {
+                writer.close();
+            }
+            catch (IOException e) {
+                errorHandler.error(String.format("Unable to close %s", segmentFile(fileIndex)), e, ErrorCode.CLOSE_FAILURE);
+            }
+
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Layout of the files written by {@link BinaryLogAppender} and read by {@link BinaryLogReader}.
+ * <p/>
+ * A file starts with {@link #MAGIC}, a version byte, and the writer's locale (language, country, variant),
+ * time zone id and line separator, which is what formatting depends on. Records follow, each starting with a tag:
+ * <ul>
+ * <li>{@link #DEFINE}: a dictionary id and the string it stands for; format strings, logger names and thread names
+ * are written once per file and referred to by id from then on;</li>
+ * <li>{@link #FORMATTED_EVENT}: level, timestamp, logger, thread, format string and the arguments, unformatted;</li>
+ * <li>{@link #TEXT_EVENT}: level, timestamp, logger, thread and the message as text.</li>
+ * </ul>
+ * Both kinds of event end with the lines of the stack trace, if any. Numbers are unsigned LEB128 varints, zig-zag
+ * encoded where they can be negative (timestamps are stored as the difference from the previous event's). Strings are
+ * a varint byte length plus one (zero stands for null) followed by UTF-8, with unpaired surrogates encoded like any
+ * other character so that every string round-trips exactly.
+ */
+final class BinaryLogFormat
+{
+    static final byte[] MAGIC = {'M', 'G', 'W', 'L'};
+    static final int VERSION = 1;
+
+    static final int DEFINE = 1;
+    static final int FORMATTED_EVENT = 2;
+    static final int TEXT_EVENT = 3;
+
+    // dictionary id for a string written inline instead, once the dictionary is full
+    static final int INLINE = 0;
+
+    // argument types
+    static final int NULL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int CHARACTER = 3;
+    static final int BYTE = 4;
+    static final int SHORT = 5;
+    static final int INTEGER = 6;
+    static final int LONG = 7;
+    static final int FLOAT = 8;
+    static final int DOUBLE = 9;
+    static final int STRING = 10;
+    static final int BIG_INTEGER = 11;
+    static final int BIG_DECIMAL = 12;
+
+    private BinaryLogFormat()
+    {
+    }
+
+    static long zigZag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return the number of bytes {@link #encodeString} writes for a string
+     */
+    static int encodedLength(String value)
+    {
+        int length = 0;
+
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                length += 1;
+            }
+            else if (c < 0x800) {
+                length += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                ++i;
+            }
+            else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Writes the UTF-8 encoding of a string, unpaired surrogates included.
+     *
+     * @return the offset after the last byte written
+     */
+    static int encodeString(String value, byte[] bytes, int offset)
+    {
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                bytes[offset++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                bytes[offset++] = (byte) (0xc0 | (c >> 6));
+                bytes[offset++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                bytes[offset++] = (byte) (0xf0 | (codePoint >> 18));
+                bytes[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[offset++] = (byte) (0x80 | (codePoint & 0x3f));
+            }
+            else {
+                bytes[offset++] = (byte) (0xe0 | (c >> 12));
+                bytes[offset++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[offset++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        return offset;
+    }
+
+    static String decodeString(byte[] bytes, int length) throws IOException
+    {
+        char[] chars = new char[length];
+        int count = 0;
+        int i = 0;
+
+        while (i < length) {
+            int b = bytes[i++] & 0xff;
+
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+            }
+            else if (b < 0xe0) {
+                chars[count++] = (char) (((b & 0x1f) << 6) | continuation(bytes, i++, length));
+            }
+            else if (b < 0xf0) {
+                chars[count++] = (char) (((b & 0x0f) << 12) | (continuation(bytes, i++, length) << 6) | continuation(bytes, i++, length));
+            }
+            else {
+                int codePoint = ((b & 0x07) << 18) | (continuation(bytes, i++, length) << 12) | (continuation(bytes, i++, length) << 6) | continuation(bytes, i++, length);
+
+                if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint > Character.MAX_CODE_POINT) {
+                    throw new IOException("Malformed string");
+                }
+
+                count += Character.toChars(codePoint, chars, count);
+            }
+        }
+
+        return new String(chars, 0, count);
+    }
+
+    private static int continuation(byte[] bytes, int index, int length) throws IOException
+    {
+        if (index >= length || (bytes[index] & 0xc0) != 0x80) {
+            throw new IOException("Malformed string");
+        }
+
+        return bytes[index] & 0x3f;
+    }
+
+    static long readVarint(InputStream in) throws IOException
+    {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+
+            if (b < 0) {
+                throw new EOFException();
+            }
+
+            value |= (long) (b & 0x7f) << shift;
+
+            if (b < 0x80) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Reads the files written by {@link BinaryLogAppender}, one event at a time.
+ * <p/>
+ * Messages are formatted with the locale and line separator of the process that wrote the file, so they come out
+ * exactly as {@link String#format(String, Object...)} would have formatted them there. (Date/time conversions of
+ * {@code long} arguments use the reader's default time zone, as {@link java.util.Formatter} offers no other way;
+ * {@link #getTimeZone()} is the writer's.) A record cut short, e.g., by a crash, ends the file.
+ */
+public final class BinaryLogReader implements Closeable
+{
+    private final InputStream in;
+    private final BinaryDecoder decoder;
+    private final Locale locale;
+    private final TimeZone timeZone;
+    private final String lineSeparator;
+    private final List<String> dictionary = new ArrayList<String>();
+    private long previousTimestamp = 0;
+    private boolean truncated = false;
+
+    /**
+     * Reads the file header.
+     *
+     * @param in the contents of a file
+     * @throws IOException if the header can't be read or isn't one of ours
+     */
+    public BinaryLogReader(InputStream in) throws IOException
+    {
+        this.in = new BufferedInputStream(in);
+        this.decoder = new BinaryDecoder(this.in);
+
+        for (byte b : BinaryLogFormat.MAGIC) {
+            if (this.in.read() != b) {
+                throw new IOException("Not a binary log file");
+            }
+        }
+
+        long version = readVarint();
+
+        if (version != BinaryLogFormat.VERSION) {
+            throw new IOException(String.format("Unsupported binary log version %d", version));
+        }
+
+        locale = new Locale(readString(), readString(), readString());
+        timeZone = TimeZone.getTimeZone(readString());
+        lineSeparator = readString();
+    }
+
+    public Locale getLocale()
+    {
+        return locale;
+    }
+
+    public TimeZone getTimeZone()
+    {
+        return timeZone;
+    }
+
+    public String getLineSeparator()
+    {
+        return lineSeparator;
+    }
+
+    /**
+     * @return true if the file ended in the middle of a record
+     */
+    public boolean isTruncated()
+    {
+        return truncated;
+    }
+
+    /**
+     * @return the next event, or null at the end of the file
+     * @throws IOException if the file can't be read or is corrupt
+     */
+    public Event read() throws IOException
+    {
+        try {
+            while (true) {
+                int tag = in.read();
+
+                if (tag < 0) {
+                    return null;
+                }
+
+                switch (tag) {
+                    case BinaryLogFormat.DEFINE:
+                        long id = readVarint();
+
+                        if (id != dictionary.size() + 1) {
+                            throw new IOException(String.format("Unexpected dictionary id %d", id));
+                        }
+
+                        dictionary.add(readString());
+                        break;
+                    case BinaryLogFormat.FORMATTED_EVENT:
+                    case BinaryLogFormat.TEXT_EVENT:
+                        return readEvent(tag == BinaryLogFormat.FORMATTED_EVENT);
+                    default:
+                        throw new IOException(String.format("Unknown record type %d", tag));
+                }
+            }
+        }
+        catch (EOFException e) {
+            truncated = true;
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+    private Event readEvent(boolean formatted) throws IOException
+    {
+        Level level = Level.toLevel((int) readVarint());
+        long timestamp = previousTimestamp + BinaryLogFormat.unZigZag(readVarint());
+        String loggerName = readReference();
+        String threadName = readReference();
+        String format = null;
+        Object[] args = null;
+        String message = null;
+
+        if (formatted) {
+            format = readReference();
+
+            args = decoder.readArguments();
+        }
+        else {
+            message = readString();
+        }
+
+        int lineCount = (int) readVarint();
+        String[] throwable = null;
+
+        if (lineCount > 0) {
+            throwable = new String[lineCount];
+
+            for (int i = 0; i < lineCount; ++i) {
+                throwable[i] = readString();
+            }
+        }
+
+        previousTimestamp = timestamp;
+
+        return new Event(this, level, timestamp, loggerName, threadName, formatted, format, args, message, throwable);
+    }
+
+    private String readReference() throws IOException
+    {
+        long id = readVarint();
+
+        if (id == BinaryLogFormat.INLINE) {
+            return readString();
+        }
+
+        if (id > dictionary.size()) {
+            throw new IOException(String.format("Undefined dictionary id %d", id));
+        }
+
+        return dictionary.get((int) id - 1);
+    }
+
+    private long readVarint() throws IOException
+    {
+        return decoder.readVarint();
+    }
+
+    private String readString() throws IOException
+    {
+        return decoder.readString();
+    }
+
+    /**
+     * An event read from a file.
+     */
+    public static final class Event
+    {
+        private final BinaryLogReader reader;
+        private final Level level;
+        private final long timestamp;
+        private final String loggerName;
+        private final String threadName;
+        private final boolean formatted;
+        private final String format;
+        private final Object[] args;
+        private final String[] throwableStrRep;
+
+        private String message;
+
+        private Event(BinaryLogReader reader, Level level, long timestamp, String loggerName, String threadName, boolean formatted, String format, Object[] args, String message, String[] throwableStrRep)
+        {
+            this.reader = reader;
+            this.level = level;
+            this.timestamp = timestamp;
+            this.loggerName = loggerName;
+            this.threadName = threadName;
+            this.formatted = formatted;
+            this.format = format;
+            this.args = args;
+            this.message = message;
+            this.throwableStrRep = throwableStrRep;
+        }
+
+        public Level getLevel()
+        {
+            return level;
+        }
+
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+        public String getLoggerName()
+        {
+            return loggerName;
+        }
+
+        public String getThreadName()
+        {
+            return threadName;
+        }
+
+        /**
+         * @return true if the message was written as a format string and arguments rather than as text
+         */
+        public boolean isFormatted()
+        {
+            return formatted;
+        }
+
+        /**
+         * @return the format string, or null if the message was written as text
+         */
+        public String getFormat()
+        {
+            return format;
+        }
+
+        /**
+         * @return the arguments, or null if the message was written as text; arguments that were written as their
+         *         {@code toString()}, or not at all because the format string doesn't use them, differ from the originals
+         */
+        public Object[] getArguments()
+        {
+            return args;
+        }
+
+        /**
+         * @return the message, formatted on first call if need be
+         */
+        public String getMessage()
+        {
+            if (formatted && message == null) {
+                message = reader.render(format, args);
+            }
+
+            return message;
+        }
+
+        /**
+         * @return the lines of the stack trace, or null if there's none
+         */
+        public String[] getThrowableStrRep()
+        {
+            return throwableStrRep;
+        }
+    }
+
+    private String render(String format, Object[] args)
+    {
+        if (format == null) {
+            return FormattedMessage.describeFailure(null, args, "java.lang.NullPointerException");
+        }
+
+        String currentSeparator = System.getProperty("line.separator");
+        String localFormat = lineSeparator == null || lineSeparator.equals(currentSeparator) ? format : replaceLineSeparators(format);
+
+        if (locale.equals(Locale.getDefault())) {
+            return FormattedMessage.render(FormatTemplate.forFormat(localFormat), args);
+        }
+
+        try {
+            return String.format(locale, localFormat, args);
+        }
+        catch (RuntimeException e) {
+            return FormattedMessage.describeFailure(format, args, StructuredMessage.safeToString(e));
+        }
+    }
+
+    // %n is the line separator of the reader's JVM; substitute the writer's
+    private String replaceLineSeparators(String format)
+    {
+        StringBuilder builder = new StringBuilder(format.length());
+
+        for (int i = 0; i < format.length(); ++i) {
+            char c = format.charAt(i);
+
+            if (c == '%' && i + 1 < format.length()) {
+                char next = format.charAt(++i);
+
+                if (next == 'n') {
+                    builder.append(lineSeparator.replace("%", "%%"));
+                }
+                else {
+                    builder.append(c).append(next);
+                }
+            }
+            else {
+                builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+}
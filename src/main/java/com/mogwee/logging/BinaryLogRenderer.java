@@ -0,0 +1,256 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders the files written by {@link BinaryLogAppender} as text, one line per event (plus stack traces) in the form
+ * {@code 2011-06-01 12:34:56,789 [thread] INFO  logger - message}, with timestamps in the writer's time zone.
+ * <p/>
+ * Files are decoded in parallel. From the command line:
+ * <pre>
+ * java -cp mogwee-logging.jar:log4j.jar com.mogwee.logging.BinaryLogRenderer [-t threads] [-o directory] file...
+ * </pre>
+ * renders every file, in the order given, to standard output, or to {@code directory/<file name>.log} with {@code -o}.
+ * Output is UTF-8.
+ */
+public final class BinaryLogRenderer
+{
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private BinaryLogRenderer()
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        File directory = null;
+        List<File> files = new ArrayList<File>();
+
+        for (int i = 0; i < args.length; ++i) {
+            if ("-t".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            }
+            else if ("-o".equals(args[i]) && i + 1 < args.length) {
+                directory = new File(args[++i]);
+            }
+            else if (args[i].startsWith("-")) {
+                files.clear();
+                break;
+            }
+            else {
+                files.add(new File(args[i]));
+            }
+        }
+
+        if (files.isEmpty() || threads < 1) {
+            System.err.println(String.format("Usage: java %s [-t threads] [-o directory] file...", BinaryLogRenderer.class.getName()));
+            System.exit(2);
+        }
+
+        if (directory == null) {
+            renderAll(files, System.out, threads);
+            System.out.flush();
+        }
+        else {
+            renderAll(files, directory, threads);
+        }
+    }
+
+    /**
+     * Renders a file.
+     *
+     * @param file a file written by {@link BinaryLogAppender}
+     * @param out  where to write the text
+     * @throws IOException if the file can't be read or is corrupt
+     */
+    public static void render(File file, Writer out) throws IOException
+    {
+        BinaryLogReader reader = new BinaryLogReader(new FileInputStream(file));
+
+        try {
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+            String lineSeparator = reader.getLineSeparator();
+            Date date = new Date();
+            BinaryLogReader.Event event;
+
+            dateFormat.setTimeZone(reader.getTimeZone());
+
+            while ((event = reader.read()) != null) {
+                String level = String.valueOf(event.getLevel());
+
+                date.setTime(event.getTimestamp());
+                out.write(dateFormat.format(date));
+                out.write(" [");
+                out.write(String.valueOf(event.getThreadName()));
+                out.write("] ");
+                out.write(level);
+
+                for (int i = level.length(); i < 5; ++i) {
+                    out.write(' ');
+                }
+
+                out.write(' ');
+                out.write(String.valueOf(event.getLoggerName()));
+                out.write(" - ");
+                out.write(String.valueOf(event.getMessage()));
+                out.write(lineSeparator);
+
+                if (event.getThrowableStrRep() != null) {
+                    for (String line : event.getThrowableStrRep()) {
+                        out.write(line);
+                        out.write(lineSeparator);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new IOException(String.format("Unable to render %s: %s", file, e.getMessage()), e);
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Renders files in parallel, writing them out one after the other in the order given.
+     * At most {@code threads} rendered files are held in memory at a time.
+     *
+     * @param files   files written by {@link BinaryLogAppender}
+     * @param out     where to write the text, as UTF-8
+     * @param threads how many files to render at once
+     * @throws IOException if a file can't be read or is corrupt
+     */
+    public static void renderAll(List<File> files, OutputStream out, int threads) throws IOException, InterruptedException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+
+            for (final File file : files) {
+                if (pending.size() >= threads) {
+                    out.write(get(pending.removeFirst()));
+                }
+
+                pending.add(executor.submit(new Callable<byte[]>()
+                {
+                    @Override
+                    public byte[] call() throws IOException
+                    {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        Writer writer = new BufferedWriter(new OutputStreamWriter(bytes, UTF_8));
+
+                        render(file, writer);
+                        writer.close();
+
+                        return bytes.toByteArray();
+                    }
+                }));
+            }
+
+            while (!pending.isEmpty()) {
+                out.write(get(pending.removeFirst()));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Renders files in parallel, each to a file named after it with a {@code .log} extension.
+     *
+     * @param files     files written by {@link BinaryLogAppender}
+     * @param directory where to write the text files, as UTF-8
+     * @param threads   how many files to render at once
+     * @throws IOException if a file can't be read or is corrupt, or a text file can't be written
+     */
+    public static void renderAll(List<File> files, final File directory, int threads) throws IOException, InterruptedException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+
+            directory.mkdirs();
+
+            for (final File file : files) {
+                results.add(executor.submit(new Callable<byte[]>()
+                {
+                    @Override
+                    public byte[] call() throws IOException
+                    {
+                        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(directory, file.getName() + ".log")), UTF_8));
+
+                        try {
+                            render(file, writer);
+                        }
+                        finally {
+                            writer.close();
+                        }
+
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<byte[]> result : results) {
+                get(result);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] get(Future<byte[]> future) throws IOException, InterruptedException
+    {
+        try {
+            return future.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
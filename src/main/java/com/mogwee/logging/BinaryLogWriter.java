@@ -0,0 +1,175 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Encodes events into one file in the format described by {@link BinaryLogFormat}. Not thread-safe.
+ * <p/>
+ * The message of an event logged with deferred formatting (a {@link FormattedMessage}) is written as its format
+ * string plus arguments, provided the arguments can be rendered later exactly as they would have been now: nulls,
+ * booleans, characters, numbers (including {@link BigInteger} and {@link BigDecimal}) and strings always can; any other
+ * argument can if it's only rendered with a plain {@code %s}, in which case its {@code toString()} is written instead
+ * (see {@link BinaryEncoder}). Every other message is written as text.
+ */
+final class BinaryLogWriter
+{
+    static final int MAX_DICTIONARY_SIZE = 65536;
+
+    private final OutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    private final BinaryEncoder encoder = new BinaryEncoder(1024);
+    private long previousTimestamp = 0;
+    private long size = 0;
+
+    /**
+     * Writes the file header.
+     *
+     * @param out where to write the file
+     */
+    BinaryLogWriter(OutputStream out) throws IOException
+    {
+        Locale locale = Locale.getDefault();
+
+        this.out = out;
+        encoder.append(BinaryLogFormat.MAGIC, 0, BinaryLogFormat.MAGIC.length);
+        encoder.writeVarint(BinaryLogFormat.VERSION);
+        encoder.writeString(locale.getLanguage());
+        encoder.writeString(locale.getCountry());
+        encoder.writeString(locale.getVariant());
+        encoder.writeString(TimeZone.getDefault().getID());
+        encoder.writeString(System.getProperty("line.separator"));
+        flushRecord();
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    long size()
+    {
+        return size;
+    }
+
+    void write(LoggingEvent event) throws IOException
+    {
+        Object message = event.getMessage();
+        FormattedMessage formatted = message instanceof FormattedMessage ? (FormattedMessage) message : null;
+        // dictionary definitions go first, so encode into a separate record
+        int loggerId = define(event.getLoggerName());
+        int threadId = define(event.getThreadName());
+        int formatId = formatted == null ? -1 : define(formatted.getFormat());
+        int start = encoder.length();
+
+        encoder.writeVarint(formatted == null ? BinaryLogFormat.TEXT_EVENT : BinaryLogFormat.FORMATTED_EVENT);
+        encoder.writeVarint(event.getLevel().toInt());
+        encoder.writeVarint(BinaryLogFormat.zigZag(event.timeStamp - previousTimestamp));
+        writeReference(loggerId, event.getLoggerName());
+        writeReference(threadId, event.getThreadName());
+
+        int beforeMessage = encoder.length();
+
+        if (formatted != null) {
+            writeReference(formatId, formatted.getFormat());
+        }
+
+        if (formatted == null || !encoder.writeArguments(formatted)) {
+            encoder.truncate(beforeMessage);
+            encoder.set(start, BinaryLogFormat.TEXT_EVENT);
+            encoder.writeString(event.getRenderedMessage());
+        }
+
+        String[] throwable = event.getThrowableStrRep();
+
+        if (throwable == null) {
+            encoder.writeVarint(0);
+        }
+        else {
+            encoder.writeVarint(throwable.length);
+
+            for (String line : throwable) {
+                encoder.writeString(line);
+            }
+        }
+
+        previousTimestamp = event.timeStamp;
+        flushRecord();
+    }
+
+    void flush() throws IOException
+    {
+        out.flush();
+    }
+
+    void close() throws IOException
+    {
+        out.close();
+    }
+
+    // returns the id of a string, writing its definition first if it doesn't have one yet; INLINE once the dictionary is full
+    private int define(String value) throws IOException
+    {
+        if (value == null) {
+            return BinaryLogFormat.INLINE;
+        }
+
+        Integer id = dictionary.get(value);
+
+        if (id != null) {
+            return id;
+        }
+
+        if (dictionary.size() >= MAX_DICTIONARY_SIZE) {
+            return BinaryLogFormat.INLINE;
+        }
+
+        id = dictionary.size() + 1;
+        dictionary.put(value, id);
+        encoder.writeVarint(BinaryLogFormat.DEFINE);
+        encoder.writeVarint(id);
+        encoder.writeString(value);
+        flushRecord();
+
+        return id;
+    }
+
+    private void writeReference(int id, String value)
+    {
+        encoder.writeVarint(id);
+
+        if (id == BinaryLogFormat.INLINE) {
+            encoder.writeString(value);
+        }
+    }
+
+    private void flushRecord() throws IOException
+    {
+        out.write(encoder.bytes(), 0, encoder.length());
+        size += encoder.length();
+        encoder.truncate(0);
+    }
+}
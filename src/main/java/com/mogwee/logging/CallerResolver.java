@@ -0,0 +1,161 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+
+/**
+ * Finds the frame that called into a given class, e.g., the class calling {@link Logger#getLogger()}.
+ * <p/>
+ * On Java 9 and later, {@code java.lang.StackWalker} is used (reflectively, as this library still targets Java 6),
+ * which only materializes the few frames it looks at. Older JVMs fall back to {@link Thread#getStackTrace()}.
+ */
+abstract class CallerResolver
+{
+    static final CallerResolver INSTANCE = create();
+
+    private static CallerResolver create()
+    {
+        try {
+            return new StackWalkerResolver();
+        }
+        catch (Exception e) {
+            return new StackTraceResolver();
+        }
+        catch (LinkageError e) {
+            return new StackTraceResolver();
+        }
+    }
+
+    /**
+     * @param callee name of the class being called
+     * @return the frame that called the innermost run of {@code callee} frames, or null if there's none
+     */
+    abstract StackTraceElement callerOf(String callee);
+
+    /**
+     * Walks the frames reported by {@code java.lang.StackWalker}, stopping as soon as the caller is found.
+     */
+    static final class StackWalkerResolver extends CallerResolver
+    {
+        private static final ThreadLocal<String> CALLEE = new ThreadLocal<String>();
+
+        private final Object walker;
+        private final Method walk;
+        private final Method iterator;
+        private final Method getClassName;
+        private final Method toStackTraceElement;
+        private final Object function;
+
+        StackWalkerResolver() throws Exception
+        {
+            Class<?> walkerClass = Class.forName("java.lang.StackWalker");
+            Class<?> frameClass = Class.forName("java.lang.StackWalker$StackFrame");
+            Class<?> functionClass = Class.forName("java.util.function.Function");
+
+            walker = walkerClass.getMethod("getInstance").invoke(null);
+            walk = walkerClass.getMethod("walk", functionClass);
+            iterator = Class.forName("java.util.stream.BaseStream").getMethod("iterator");
+            getClassName = frameClass.getMethod("getClassName");
+            toStackTraceElement = frameClass.getMethod("toStackTraceElement");
+            // a java.util.function.Function that searches the stream of frames for the caller of CALLEE
+            function = Proxy.newProxyInstance(
+                CallerResolver.class.getClassLoader(),
+                new Class<?>[]{functionClass},
+                new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                    {
+                        if (!"apply".equals(method.getName())) {
+                            return method.invoke(this, args);
+                        }
+
+                        return find(CALLEE.get(), (Iterator<?>) iterator.invoke(args[0]));
+                    }
+                }
+            );
+        }
+
+        @Override
+        StackTraceElement callerOf(String callee)
+        {
+            CALLEE.set(callee);
+
+            try {
+                return (StackTraceElement) walk.invoke(walker, function);
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            finally {
+                CALLEE.remove();
+            }
+        }
+
+        private StackTraceElement find(String callee, Iterator<?> frames) throws Exception
+        {
+            boolean inCallee = false;
+
+            while (frames.hasNext()) {
+                Object frame = frames.next();
+                boolean isCallee = callee.equals(getClassName.invoke(frame));
+
+                if (isCallee) {
+                    inCallee = true;
+                }
+                else if (inCallee) {
+                    return (StackTraceElement) toStackTraceElement.invoke(frame);
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Materializes the whole stack trace; works everywhere.
+     */
+    static final class StackTraceResolver extends CallerResolver
+    {
+        @Override
+        StackTraceElement callerOf(String callee)
+        {
+            boolean inCallee = false;
+
+            for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+                boolean isCallee = callee.equals(element.getClassName());
+
+                if (isCallee) {
+                    inCallee = true;
+                }
+                else if (inCallee) {
+                    return element;
+                }
+            }
+
+            return null;
+        }
+    }
+}
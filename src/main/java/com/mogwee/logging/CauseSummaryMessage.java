@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * The message logged by the {@code *Debug} methods when DEBUG is off: the message followed by a one-line summary of the cause.
+ * <p/>
+ * The concatenation is deferred until the message is rendered, and {@link JsonLayout} writes the parts without doing it at all.
+ */
+final class CauseSummaryMessage
+{
+    static final String SEPARATOR = " (Switch to DEBUG for full stack trace): ";
+
+    private final String message;
+    private final String causeClassName;
+    private final String causeMessage;
+
+    private String text = null;
+
+    CauseSummaryMessage(String message, Throwable cause)
+    {
+        this.message = message;
+        this.causeClassName = cause.getClass().getName();
+        this.causeMessage = cause.getMessage();
+    }
+
+    String getMessage()
+    {
+        return message;
+    }
+
+    String getCauseClassName()
+    {
+        return causeClassName;
+    }
+
+    /**
+     * @return the cause's message, or null if it has none; only its first {@link #getCauseMessageLength()} characters are summarized
+     */
+    String getCauseMessage()
+    {
+        return causeMessage;
+    }
+
+    /**
+     * @return the length of the first line of the cause's message
+     */
+    int getCauseMessageLength()
+    {
+        int index = causeMessage.indexOf('\n');
+
+        return index == -1 ? causeMessage.length() : index;
+    }
+
+    /**
+     * @return the length of {@link #toString()}, computed without concatenating anything
+     */
+    int length()
+    {
+        int length = String.valueOf(message).length() + SEPARATOR.length() + causeClassName.length();
+
+        return causeMessage == null ? length : length + 2 + getCauseMessageLength();
+    }
+
+    @Override
+    public String toString()
+    {
+        String result = text;
+
+        if (result == null) {
+            StringBuilder builder = new StringBuilder();
+
+            builder.append(message).append(SEPARATOR).append(causeClassName);
+
+            if (causeMessage != null) {
+                builder.append(": ").append(causeMessage, 0, getCauseMessageLength());
+            }
+
+            result = builder.toString();
+            text = result;
+        }
+
+        return result;
+    }
+}
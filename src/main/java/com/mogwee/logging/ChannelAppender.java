@@ -0,0 +1,141 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.helpers.LogLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link NativeAppender} that copies records into a direct {@link ByteBuffer} and writes it to a channel when it
+ * fills up, on {@link #flush()}, or after every record if {@code immediateFlush} is set. Records larger than the
+ * buffer are written straight through.
+ * <p/>
+ * Only the copy and the write happen under the appender's lock; rendering is done beforehand by the logging thread.
+ * The first write error is reported to {@link LogLog}; later ones are only counted, and the records are dropped.
+ */
+abstract class ChannelAppender implements NativeAppender
+{
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final String name;
+    private final ByteBuffer buffer;
+    private final boolean immediateFlush;
+    private WritableByteChannel channel;
+    private long errorCount = 0;
+
+    ChannelAppender(String name, WritableByteChannel channel, int bufferSize, boolean immediateFlush)
+    {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid buffer size %s", bufferSize));
+        }
+
+        this.name = name;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.immediateFlush = immediateFlush;
+    }
+
+    @Override
+    public synchronized void append(NativeEvent event, ByteBuffer record)
+    {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            if (record.remaining() > buffer.remaining()) {
+                drain();
+            }
+
+            if (record.remaining() > buffer.remaining()) {
+                write(record);
+            }
+            else {
+                buffer.put(record);
+            }
+
+            if (immediateFlush) {
+                drain();
+            }
+        }
+        catch (IOException e) {
+            if (errorCount++ == 0) {
+                LogLog.error(String.format("Unable to write to %s", name), e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException
+    {
+        if (channel != null) {
+            drain();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            drain();
+        }
+        finally {
+            closeChannel(channel);
+            channel = null;
+        }
+    }
+
+    /**
+     * @return the number of writes that failed so far
+     */
+    public synchronized long getErrorCount()
+    {
+        return errorCount;
+    }
+
+    /**
+     * Called once, by {@link #close()}.
+     */
+    abstract void closeChannel(WritableByteChannel channel) throws IOException;
+
+    private void drain() throws IOException
+    {
+        buffer.flip();
+
+        try {
+            write(buffer);
+        }
+        finally {
+            // on failure, whatever wasn't written is dropped rather than retried forever
+            buffer.clear();
+        }
+    }
+
+    private void write(ByteBuffer source) throws IOException
+    {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
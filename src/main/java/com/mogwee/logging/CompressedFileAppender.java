@@ -0,0 +1,553 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Layout;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.helpers.OptionConverter;
+import org.apache.log4j.spi.ErrorCode;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Appends events to gzip-compressed files {@code File.000001.gz}, {@code File.000002.gz}, etc.
+ * <p/>
+ * Events are collected into blocks of up to {@code BlockSize} bytes (default 64KB) of text, and each block is written as a
+ * gzip member of its own (see {@link GzipFrameWriter}), compressed at {@code CompressionLevel} (default 1, the fastest).
+ * Blocks only ever hold whole events, so every frame decodes to complete lines by itself, and the files as a whole
+ * can be read with {@code zcat}. A block is written out once it's full, on {@link #flush()}, and every
+ * {@code FlushIntervalMillis} (default 1000) by a background thread; zero or less leaves it to the first two.
+ * <p/>
+ * A new file is started whenever the appender is activated, and whenever the current one has grown past
+ * {@code MaxFileSize} (default 64MB) of compressed data. The file just finished is then recompressed at
+ * {@code RecompressionLevel} (default 9) into frames of {@value #RECOMPRESSION_BLOCK_SIZE} bytes, by a single
+ * low-priority thread, and replaced once the new version is complete; zero or less keeps files as they were written.
+ * <p/>
+ * With a {@link JsonLayout}, events are copied from the layout's byte buffer without going through a string.
+ * Other layouts are encoded with {@code Encoding} (default UTF-8).
+ */
+public class CompressedFileAppender extends AppenderSkeleton implements Flushable
+{
+    static final String SUFFIX = ".gz";
+    static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+    static final int DEFAULT_RECOMPRESSION_LEVEL = Deflater.BEST_COMPRESSION;
+    static final int RECOMPRESSION_BLOCK_SIZE = 1024 * 1024;
+    static final long DEFAULT_MAX_FILE_SIZE = 64L * 1024 * 1024;
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private String fileName = null;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+    private int recompressionLevel = DEFAULT_RECOMPRESSION_LEVEL;
+    private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+    private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private Charset encoding = Charset.forName("UTF-8");
+
+    private int fileIndex = 0;
+    private OutputStream out = null;
+    private long fileSize = 0;
+    private GzipFrameWriter frameWriter = null;
+    private byte[] block = null;
+    private int blockLength = 0;
+    private Thread flusher = null;
+    private ExecutorService recompressor = null;
+
+    public CompressedFileAppender()
+    {
+    }
+
+    public CompressedFileAppender(Layout layout, String fileName)
+    {
+        this.layout = layout;
+        this.fileName = fileName;
+        activateOptions();
+    }
+
+    public String getFile()
+    {
+        return fileName;
+    }
+
+    /**
+     * @param fileName path files are named after
+     */
+    public void setFile(String fileName)
+    {
+        this.fileName = fileName == null ? null : fileName.trim();
+    }
+
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * @param blockSize how much text to collect before compressing it, e.g., {@code 64KB}
+     */
+    public void setBlockSize(String blockSize)
+    {
+        this.blockSize = (int) Math.max(Math.min(OptionConverter.toFileSize(blockSize, DEFAULT_BLOCK_SIZE), Integer.MAX_VALUE), 1);
+    }
+
+    public int getCompressionLevel()
+    {
+        return compressionLevel;
+    }
+
+    /**
+     * @param compressionLevel 0 (none) to 9 (best) for the files being written
+     */
+    public void setCompressionLevel(int compressionLevel)
+    {
+        this.compressionLevel = Math.max(Math.min(compressionLevel, Deflater.BEST_COMPRESSION), Deflater.NO_COMPRESSION);
+    }
+
+    public int getRecompressionLevel()
+    {
+        return recompressionLevel;
+    }
+
+    /**
+     * @param recompressionLevel 1 to 9 for files that are no longer written to; zero or less to leave them be
+     */
+    public void setRecompressionLevel(int recompressionLevel)
+    {
+        this.recompressionLevel = Math.min(recompressionLevel, Deflater.BEST_COMPRESSION);
+    }
+
+    public long getMaxFileSize()
+    {
+        return maxFileSize;
+    }
+
+    /**
+     * @param maxFileSize compressed size after which a new file is started, e.g., {@code 64MB}
+     */
+    public void setMaxFileSize(String maxFileSize)
+    {
+        this.maxFileSize = OptionConverter.toFileSize(maxFileSize, DEFAULT_MAX_FILE_SIZE);
+    }
+
+    public long getFlushIntervalMillis()
+    {
+        return flushIntervalMillis;
+    }
+
+    /**
+     * @param flushIntervalMillis how often a partial block is written out; zero or less to only write full blocks
+     */
+    public void setFlushIntervalMillis(long flushIntervalMillis)
+    {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public String getEncoding()
+    {
+        return encoding.name();
+    }
+
+    public void setEncoding(String encoding)
+    {
+        this.encoding = Charset.forName(encoding);
+    }
+
+    @Override
+    public synchronized void activateOptions()
+    {
+        if (fileName == null) {
+            LogLog.error(String.format("File option not set for appender [%s]", name));
+            return;
+        }
+
+        closeFile();
+
+        if (frameWriter != null) {
+            frameWriter.end();
+        }
+
+        int newest = MappedFileAppender.findNewestSegment(fileName, SUFFIX);
+
+        frameWriter = new GzipFrameWriter(compressionLevel);
+        block = new byte[blockSize];
+        blockLength = 0;
+        fileIndex = segmentFile(newest).exists() ? newest + 1 : newest;
+        openFile();
+        startFlusher();
+    }
+
+    @Override
+    protected void append(LoggingEvent event)
+    {
+        if (out == null) {
+            errorHandler.error(String.format("No file open for appender [%s]", name));
+            return;
+        }
+
+        ByteBuffer record = encode(event);
+
+        try {
+            if (record.remaining() > block.length - blockLength) {
+                writeBlock();
+            }
+
+            if (record.remaining() > block.length) {
+                // an event larger than a block gets a frame of its own
+                fileSize += frameWriter.write(record.array(), record.arrayOffset() + record.position(), record.remaining(), out);
+            }
+            else {
+                int length = record.remaining();
+
+                record.get(block, blockLength, length);
+                blockLength += length;
+            }
+
+            if (fileSize >= maxFileSize) {
+                roll();
+            }
+        }
+        catch (IOException e) {
+            errorHandler.error(String.format("Unable to write to %s", segmentFile(fileIndex)), e, ErrorCode.WRITE_FAILURE);
+        }
+    }
+
+    private ByteBuffer encode(LoggingEvent event)
+    {
+        if (layout instanceof JsonLayout) {
+            return ((JsonLayout) layout).encode(event);
+        }
+
+        String text = layout.format(event);
+
+        if (layout.ignoresThrowable()) {
+            String[] throwable = event.getThrowableStrRep();
+
+            if (throwable != null) {
+                StringBuilder builder = new StringBuilder(text);
+
+                for (String line : throwable) {
+                    builder.append(line).append(Layout.LINE_SEP);
+                }
+
+                text = builder.toString();
+            }
+        }
+
+        return ByteBuffer.wrap(text.getBytes(encoding));
+    }
+
+    /**
+     * Compresses and writes out the events collected so far, as a frame of their own.
+     */
+    @Override
+    public synchronized void flush()
+    {
+        if (out != null) {
+            try {
+                writeBlock();
+                out.flush();
+
+                if (fileSize >= maxFileSize) {
+                    roll();
+                }
+            }
+            catch (IOException e) {
+                errorHandler.error(String.format("Unable to flush %s", segmentFile(fileIndex)), e, ErrorCode.FLUSH_FAILURE);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher = null;
+        }
+
+        closeFile();
+
+        if (frameWriter != null) {
+            frameWriter.end();
+            frameWriter = null;
+        }
+
+        if (recompressor != null) {
+            // files already handed over are still recompressed
+            recompressor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean requiresLayout()
+    {
+        return true;
+    }
+
+    /**
+     * Waits for the files rolled so far to be recompressed.
+     *
+     * @param timeout how long to wait
+     * @param unit    unit of {@code timeout}
+     * @return true if they were, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitRecompression(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        ExecutorService executor;
+
+        synchronized (this) {
+            executor = recompressor;
+        }
+
+        if (executor == null) {
+            return true;
+        }
+
+        if (executor.isShutdown()) {
+            return executor.awaitTermination(timeout, unit);
+        }
+
+        try {
+            // the executor has a single thread, so once this has run, everything submitted before it has too
+            executor.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                }
+            }).get(timeout, unit);
+            return true;
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    File segmentFile(int index)
+    {
+        return new File(String.format("%s.%06d%s", fileName, index, SUFFIX));
+    }
+
+    private void writeBlock() throws IOException
+    {
+        if (blockLength > 0) {
+            fileSize += frameWriter.write(block, 0, blockLength, out);
+            blockLength = 0;
+        }
+    }
+
+    private void roll()
+    {
+        File rolled = segmentFile(fileIndex);
+
+        closeFile();
+        ++fileIndex;
+        openFile();
+
+        if (recompressionLevel > 0 && rolled.length() > 0) {
+            recompress(rolled);
+        }
+    }
+
+    private void openFile()
+    {
+        File file = segmentFile(fileIndex);
+
+        try {
+            out = new FileOutputStream(file);
+            fileSize = 0;
+        }
+        catch (IOException e) {
+            errorHandler.error(String.format("Unable to open %s", file), e, ErrorCode.FILE_OPEN_FAILURE);
+            out = null;
+        }
+    }
+
+    private void closeFile()
+    {
+        if (out != null) {
+            try {
+                writeBlock();
+                out.close();
+            }
+            catch (IOException e) {
+                errorHandler.error(String.format("Unable to close %s", segmentFile(fileIndex)), e, ErrorCode.CLOSE_FAILURE);
+            }
+
+            out = null;
+        }
+    }
+
+    private void recompress(final File file)
+    {
+        if (recompressor == null) {
+            recompressor = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "mogwee-logging-recompress");
+
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+
+                    return thread;
+                }
+            });
+        }
+
+        final int level = recompressionLevel;
+
+        recompressor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    recompress(file, level);
+                }
+                catch (IOException e) {
+                    LogLog.error(String.format("Unable to recompress %s", file), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Rewrites a file of frames at another compression level, in frames of {@value #RECOMPRESSION_BLOCK_SIZE} bytes
+     * that still end on line boundaries. The new file replaces the old one once it's complete.
+     *
+     * @param file  the file to recompress
+     * @param level the level to recompress it at
+     * @throws IOException if the file can't be read, or the new one written
+     */
+    static void recompress(File file, int level) throws IOException
+    {
+        File temporary = new File(file.getPath() + ".tmp");
+        GzipFrameWriter writer = new GzipFrameWriter(level);
+        byte[] buffer = new byte[RECOMPRESSION_BLOCK_SIZE];
+        InputStream in = new FileInputStream(file);
+
+        try {
+            in = new GZIPInputStream(in, 65536);
+
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(temporary), 65536);
+
+            try {
+                int length = 0;
+                int count;
+
+                while ((count = in.read(buffer, length, buffer.length - length)) >= 0) {
+                    length += count;
+
+                    if (length == buffer.length) {
+                        int end = length;
+
+                        // end the frame after the last complete line, if there's one
+                        while (end > 0 && buffer[end - 1] != '\n') {
+                            --end;
+                        }
+
+                        if (end == 0) {
+                            end = length;
+                        }
+
+                        writer.write(buffer, 0, end, out);
+                        System.arraycopy(buffer, end, buffer, 0, length - end);
+                        length -= end;
+                    }
+                }
+
+                if (length > 0) {
+                    writer.write(buffer, 0, length, out);
+                }
+            }
+            finally {
+                out.close();
+            }
+        }
+        catch (IOException e) {
+            temporary.delete();
+            throw e;
+        }
+        finally {
+            in.close();
+            writer.end();
+        }
+
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            temporary.delete();
+            throw new IOException(String.format("Unable to replace %s with %s", file, temporary));
+        }
+    }
+
+    private void startFlusher()
+    {
+        if (flusher != null || flushIntervalMillis <= 0) {
+            return;
+        }
+
+        flusher = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (!Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(flushIntervalMillis * 1000000L);
+
+                    synchronized (CompressedFileAppender.this) {
+                        if (blockLength > 0 && !closed) {
+                            flush();
+                        }
+                    }
+                }
+            }
+        }, "mogwee-logging-compress-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * Builds a structured log event: a message plus typed key/value fields, e.g.,
+ * {@code LOG.atInfo("request.done").kv("latencyMs", 12L).kv("user", id).log();}
+ * <p/>
+ * If the level isn't enabled, a shared no-op instance is returned and nothing is recorded.
+ * Otherwise the builder is a per-thread instance that is recycled by {@link #log()},
+ * so it must not be kept around or used after {@code log()} has been called.
+ */
+public interface EventBuilder
+{
+    /**
+     * Adds a field.
+     *
+     * @param key   name of the field
+     * @param value value of the field; {@code int}, {@code short} and {@code byte} values widen to {@code long}
+     * @return this builder
+     */
+    EventBuilder kv(String key, long value);
+
+    /**
+     * Adds a field.
+     *
+     * @param key   name of the field
+     * @param value value of the field; {@code float} values widen to {@code double}
+     * @return this builder
+     */
+    EventBuilder kv(String key, double value);
+
+    /**
+     * Adds a field.
+     *
+     * @param key   name of the field
+     * @param value value of the field
+     * @return this builder
+     */
+    EventBuilder kv(String key, boolean value);
+
+    /**
+     * Adds a field. The value's {@code toString()} isn't called until the event is rendered.
+     *
+     * @param key   name of the field
+     * @param value value of the field
+     * @return this builder
+     */
+    EventBuilder kv(String key, Object value);
+
+    /**
+     * Attaches an exception to print the stack trace of.
+     *
+     * @param cause an exception
+     * @return this builder
+     */
+    EventBuilder cause(Throwable cause);
+
+    /**
+     * Logs the event and recycles this builder.
+     */
+    void log();
+}
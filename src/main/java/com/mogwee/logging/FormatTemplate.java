@@ -0,0 +1,496 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.IllegalFormatCodePointException;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A format string parsed once into literal text and conversions.
+ * <p/>
+ * Only plain {@code %s}, {@code %d}, {@code %n} and {@code %%} specifiers are rendered directly;
+ * any other specifier (flags, widths, explicit indexes, other conversions), as well as arguments the
+ * fast path can't render exactly (e.g., {@link Formattable}), fall back to a {@link java.util.Formatter}, just like
+ * {@link String#format(String, Object...)}. The output is therefore identical to {@code String.format}, exceptions
+ * included, unless it's over the {@link RenderLimits}. Either way, messages are rendered into the thread's
+ * {@link RenderContext}.
+ * <p/>
+ * Templates also remember, for a few argument types each, that {@code String.format} rejected them, so that
+ * callers can check {@link #knownFailure(Object[])} and skip straight to their fallback instead of having
+ * the same exception constructed and thrown on every call.
+ */
+final class FormatTemplate
+{
+    static final int MAX_CACHED_TEMPLATES = 1024;
+
+    private static final int MAX_FAILURES = 4;
+    private static final Failure[] NO_FAILURES = new Failure[0];
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final ConcurrentMap<String, FormatTemplate> CACHE = new ConcurrentHashMap<String, FormatTemplate>();
+    private static final AtomicInteger CACHE_SIZE = new AtomicInteger();
+
+    private static volatile DigitCheck digitCheck = new DigitCheck(Locale.getDefault());
+
+    private final String format;
+    private final boolean simple;
+    // literals[i] precedes conversions[i]; the trailing literal follows the last conversion
+    private final String[] literals;
+    private final char[] conversions;
+    private final String trailer;
+    private final int estimatedLength;
+    private volatile Failure[] failures = NO_FAILURES;
+
+    /**
+     * Formats a message as {@link String#format(String, Object...)} would, within the {@link RenderLimits}.
+     *
+     * @param format a format string
+     * @param args   arguments referenced by the format specifiers in the format string
+     * @return the formatted message
+     */
+    static String format(String format, Object... args)
+    {
+        if (format == null) {
+            return RenderContext.format(format, args);
+        }
+
+        return forFormat(format).render(args);
+    }
+
+    /**
+     * Returns the (possibly cached) template for a format string.
+     * Once {@link #MAX_CACHED_TEMPLATES} distinct formats have been seen, new ones are parsed but not cached.
+     *
+     * @param format a non-null format string
+     * @return a template
+     */
+    static FormatTemplate forFormat(String format)
+    {
+        FormatTemplate template = CACHE.get(format);
+
+        if (template == null) {
+            template = compile(format);
+
+            if (CACHE_SIZE.get() < MAX_CACHED_TEMPLATES) {
+                FormatTemplate existing = CACHE.putIfAbsent(format, template);
+
+                if (existing == null) {
+                    CACHE_SIZE.incrementAndGet();
+                }
+                else {
+                    template = existing;
+                }
+            }
+        }
+
+        return template;
+    }
+
+    static int cachedTemplateCount()
+    {
+        return CACHE_SIZE.get();
+    }
+
+    private static FormatTemplate compile(String format)
+    {
+        List<String> literals = new ArrayList<String>();
+        StringBuilder conversions = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        int length = format.length();
+
+        for (int i = 0; i < length; ++i) {
+            char c = format.charAt(i);
+
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+
+            char conversion = i + 1 < length ? format.charAt(i + 1) : 0;
+
+            switch (conversion) {
+                case '%':
+                    literal.append('%');
+                    break;
+                case 'n':
+                    literal.append(LINE_SEPARATOR);
+                    break;
+                case 's':
+                case 'd':
+                    literals.add(literal.toString());
+                    conversions.append(conversion);
+                    literal.setLength(0);
+                    break;
+                default:
+                    return new FormatTemplate(format, false, null, null, null);
+            }
+
+            ++i;
+        }
+
+        return new FormatTemplate(
+            format,
+            true,
+            literals.toArray(new String[literals.size()]),
+            conversions.toString().toCharArray(),
+            literal.toString()
+        );
+    }
+
+    private FormatTemplate(String format, boolean simple, String[] literals, char[] conversions, String trailer)
+    {
+        this.format = format;
+        this.simple = simple;
+        this.literals = literals;
+        this.conversions = conversions;
+        this.trailer = trailer;
+
+        int literalLength = trailer == null ? 0 : trailer.length();
+
+        if (literals != null) {
+            for (String literal : literals) {
+                literalLength += literal.length();
+            }
+        }
+
+        this.estimatedLength = literalLength + (conversions == null ? 0 : 16 * conversions.length);
+    }
+
+    String getFormat()
+    {
+        return format;
+    }
+
+    /**
+     * @return true if every specifier in this template is rendered without {@link java.util.Formatter}
+     */
+    boolean isSimple()
+    {
+        return simple;
+    }
+
+    /**
+     * Checks arguments against this template as far as that's cheap: a simple template needs an argument for each
+     * conversion, and integers for its {@code %d}s. Other templates can't be checked without rendering them.
+     *
+     * @param args arguments referenced by the format specifiers
+     * @return false if rendering these arguments is sure to fail
+     */
+    boolean accepts(Object[] args)
+    {
+        if (!simple || conversions.length == 0) {
+            return true;
+        }
+
+        if (args == null || args.length < conversions.length) {
+            return false;
+        }
+
+        for (int i = 0; i < conversions.length; ++i) {
+            Object arg = args[i];
+
+            if (conversions[i] == 'd' && arg != null &&
+                !(arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte || arg instanceof BigInteger)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the number of arguments this template consumes, or -1 if it isn't simple
+     */
+    int getArgumentCount()
+    {
+        return simple ? conversions.length : -1;
+    }
+
+    /**
+     * @param index an argument index
+     * @return the conversion ({@code 's'} or {@code 'd'}) that consumes the argument, or 0 if none does or this template isn't simple
+     */
+    char getConversion(int index)
+    {
+        return simple && index < conversions.length ? conversions[index] : 0;
+    }
+
+    /**
+     * Renders this template.
+     *
+     * @param args arguments referenced by the format specifiers
+     * @return the formatted message, identical to {@code String.format(getFormat(), args)} within the {@link RenderLimits}
+     */
+    String render(Object... args)
+    {
+        if (!canRender(args)) {
+            return RenderContext.format(format, args);
+        }
+
+        if (conversions.length == 0) {
+            return trailer;
+        }
+
+        RenderContext context = RenderContext.acquire();
+        StringBuilder builder = context.builder();
+
+        try {
+            builder.ensureCapacity(estimatedLength);
+            renderTo(builder, args, RenderLimits.get());
+
+            return builder.toString();
+        }
+        finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Renders this template with a single integral argument, without boxing it.
+     *
+     * @param value the argument
+     * @return the formatted message, or null if the argument has to be boxed and rendered by {@link #render(Object...)}
+     */
+    String renderInteger(long value)
+    {
+        if (!simple || conversions.length != 1 || (conversions[0] == 'd' && !usesAsciiDigits())) {
+            return null;
+        }
+
+        RenderContext context = RenderContext.acquire();
+
+        try {
+            return context.builder().append(literals[0]).append(value).append(trailer).toString();
+        }
+        finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Renders this template with a single floating-point argument, without boxing it.
+     *
+     * @param value the argument
+     * @return the formatted message, or null if the argument has to be boxed and rendered by {@link #render(Object...)}
+     */
+    String renderDouble(double value)
+    {
+        if (!simple || conversions.length != 1 || conversions[0] != 's') {
+            return null;
+        }
+
+        RenderContext context = RenderContext.acquire();
+
+        try {
+            return context.builder().append(literals[0]).append(value).append(trailer).toString();
+        }
+        finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Checks whether rendering these arguments is known to fail, without rendering them.
+     *
+     * @param args arguments referenced by the format specifiers
+     * @return the description of the exception recorded by {@link #recordFailure} for arguments of the same types, or null
+     */
+    String knownFailure(Object[] args)
+    {
+        Failure[] known = failures;
+
+        for (int i = 0; i < known.length; ++i) {
+            if (known[i].matches(args)) {
+                return known[i].description;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Remembers that rendering failed, if the failure only depends on the template and the types of the arguments.
+     * Failures caused by argument values (e.g., a {@code toString()} that throws, or an invalid code point for {@code %c})
+     * and failures involving {@link Formattable} arguments aren't remembered.
+     *
+     * @param args        the arguments that failed to render
+     * @param e           the exception thrown by {@link #render(Object...)}
+     * @param description how to describe the failure from now on
+     */
+    void recordFailure(Object[] args, RuntimeException e, String description)
+    {
+        if (!(e instanceof IllegalFormatException) || e instanceof IllegalFormatCodePointException) {
+            return;
+        }
+
+        Class<?>[] classes = null;
+
+        if (args != null) {
+            classes = new Class<?>[args.length];
+
+            for (int i = 0; i < args.length; ++i) {
+                if (args[i] instanceof Formattable) {
+                    return;
+                }
+
+                classes[i] = args[i] == null ? null : args[i].getClass();
+            }
+        }
+
+        synchronized (this) {
+            Failure[] known = failures;
+
+            if (known.length < MAX_FAILURES && knownFailure(args) == null) {
+                Failure[] updated = new Failure[known.length + 1];
+
+                System.arraycopy(known, 0, updated, 0, known.length);
+                updated[known.length] = new Failure(classes, description);
+                failures = updated;
+            }
+        }
+    }
+
+    private void renderTo(StringBuilder builder, Object[] args, RenderLimits limits)
+    {
+        for (int i = 0; i < conversions.length; ++i) {
+            Object arg = args[i];
+
+            builder.append(literals[i]);
+
+            if (arg == null) {
+                builder.append("null");
+            }
+            else if (conversions[i] == 'd') {
+                builder.append(((Number) arg).longValue());
+            }
+            else {
+                limits.appendArgument(builder, arg);
+            }
+
+            // don't render the remaining arguments of a message that's already too long
+            if (limits.exceedsMessage(builder, 0)) {
+                limits.truncateMessage(builder, 0);
+                return;
+            }
+        }
+
+        builder.append(trailer);
+
+        if (limits.exceedsMessage(builder, 0)) {
+            limits.truncateMessage(builder, 0);
+        }
+    }
+
+    private boolean canRender(Object[] args)
+    {
+        if (!simple) {
+            return false;
+        }
+
+        if (conversions.length == 0) {
+            return true;
+        }
+
+        if (args == null || args.length < conversions.length) {
+            return false;
+        }
+
+        for (int i = 0; i < conversions.length; ++i) {
+            Object arg = args[i];
+
+            if (arg == null) {
+                continue;
+            }
+
+            if (conversions[i] == 'd') {
+                if (!(arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte) || !usesAsciiDigits()) {
+                    return false;
+                }
+            }
+            else if (arg instanceof Formattable) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean usesAsciiDigits()
+    {
+        DigitCheck check = digitCheck;
+        Locale locale = Locale.getDefault();
+
+        if (check.locale != locale) {
+            check = new DigitCheck(locale);
+            digitCheck = check;
+        }
+
+        return check.asciiDigits;
+    }
+
+    // a combination of argument types that String.format rejects; null classes stand for a null argument array
+    private static final class Failure
+    {
+        private final Class<?>[] classes;
+        private final String description;
+
+        private Failure(Class<?>[] classes, String description)
+        {
+            this.classes = classes;
+            this.description = description;
+        }
+
+        private boolean matches(Object[] args)
+        {
+            if (args == null || classes == null) {
+                return args == null && classes == null;
+            }
+
+            if (args.length != classes.length) {
+                return false;
+            }
+
+            for (int i = 0; i < args.length; ++i) {
+                if ((args[i] == null ? null : args[i].getClass()) != classes[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    // Formatter localizes %d digits, so only render integers directly when the default locale uses ASCII digits
+    private static final class DigitCheck
+    {
+        private final Locale locale;
+        private final boolean asciiDigits;
+
+        private DigitCheck(Locale locale)
+        {
+            this.locale = locale;
+            this.asciiDigits = "-1234567890".equals(String.format("%d", -1234567890));
+        }
+    }
+}
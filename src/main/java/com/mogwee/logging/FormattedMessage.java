@@ -0,0 +1,113 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+/**
+ * The message of a {@code *f} call whose formatting was deferred (see {@link Logger#setDeferredFormatting(boolean)}):
+ * the format string and the arguments, as passed.
+ * <p/>
+ * {@link #toString()} (which is what Log4J's {@code getRenderedMessage()} uses) formats the message the first time
+ * it's called, as {@link String#format(String, Object...)} would (within the {@link RenderLimits}). As the arguments
+ * are only looked at then, they shouldn't be modified after being logged. {@link BinaryLogAppender} writes the format
+ * string and the arguments without formatting them at all.
+ */
+public final class FormattedMessage
+{
+    private final FormatTemplate template;
+    private final Object[] args;
+
+    private String text = null;
+
+    FormattedMessage(FormatTemplate template, Object[] args)
+    {
+        this.template = template;
+        this.args = args;
+    }
+
+    public String getFormat()
+    {
+        return template.getFormat();
+    }
+
+    /**
+     * @return the arguments, not copied; don't modify them
+     */
+    public Object[] getArguments()
+    {
+        return args;
+    }
+
+    FormatTemplate getTemplate()
+    {
+        return template;
+    }
+
+    /**
+     * @return the formatted message; if the format string and the arguments don't match, a description of the problem,
+     *         which unlike the one {@link Logger} logs when it formats right away doesn't include the level
+     */
+    @Override
+    public String toString()
+    {
+        String result = text;
+
+        if (result == null) {
+            result = render(template, args);
+            text = result;
+        }
+
+        return result;
+    }
+
+    static String render(FormatTemplate template, Object[] args)
+    {
+        String failure = template.knownFailure(args);
+
+        if (failure == null) {
+            try {
+                return template.render(args);
+            }
+            catch (RuntimeException e) {
+                failure = StructuredMessage.safeToString(e);
+                template.recordFailure(args, e, failure);
+            }
+        }
+
+        return describeFailure(template.getFormat(), args, failure);
+    }
+
+    static String describeFailure(String format, Object[] args, String failure)
+    {
+        StringBuilder builder = new StringBuilder("Bogus format string: ").append(format).append(" [");
+
+        if (args == null) {
+            builder.append("null");
+        }
+        else {
+            for (int i = 0; i < args.length; ++i) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+
+                builder.append(StructuredMessage.safeToString(args[i]));
+            }
+        }
+
+        return builder.append("] (").append(failure).append(')').toString();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses blocks into self-contained gzip members ("frames").
+ * <p/>
+ * A file made of such frames is an ordinary gzip file ({@code zcat} and {@link java.util.zip.GZIPInputStream} read
+ * it whole), but since every frame carries its own header, checksum and length, each one can also be decoded on its own,
+ * and a file cut short after any frame is still valid up to that point. Not thread-safe.
+ */
+final class GzipFrameWriter
+{
+    private static final byte[] HEADER = {
+        (byte) 0x1f, (byte) 0x8b, // magic
+        Deflater.DEFLATED,        // compression method
+        0,                        // flags
+        0, 0, 0, 0,               // modification time: none
+        0,                        // extra flags
+        (byte) 0xff               // operating system: unknown
+    };
+
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] trailer = new byte[8];
+    private byte[] output = new byte[8192];
+
+    /**
+     * @param level a {@link Deflater} compression level, 0 (none) to 9 (best)
+     */
+    GzipFrameWriter(int level)
+    {
+        deflater = new Deflater(level, true);
+    }
+
+    /**
+     * Writes a block as a frame.
+     *
+     * @param block  the uncompressed bytes
+     * @param offset where they start in {@code block}
+     * @param length how many there are
+     * @param out    where to write the frame
+     * @return the number of bytes written
+     * @throws IOException if {@code out} can't be written to
+     */
+    long write(byte[] block, int offset, int length, OutputStream out) throws IOException
+    {
+        long written = HEADER.length + trailer.length;
+
+        crc.reset();
+        crc.update(block, offset, length);
+        deflater.reset();
+        deflater.setInput(block, offset, length);
+        deflater.finish();
+        out.write(HEADER);
+
+        while (!deflater.finished()) {
+            int count = deflater.deflate(output);
+
+            out.write(output, 0, count);
+            written += count;
+
+            if (count == output.length && output.length < block.length) {
+                output = new byte[output.length * 2];
+            }
+        }
+
+        writeIntLE((int) crc.getValue(), 0);
+        writeIntLE(length, 4);
+        out.write(trailer);
+
+        return written;
+    }
+
+    /**
+     * Releases the compressor's native memory; the writer can't be used afterwards.
+     */
+    void end()
+    {
+        deflater.end();
+    }
+
+    private void writeIntLE(int value, int offset)
+    {
+        trailer[offset] = (byte) value;
+        trailer[offset + 1] = (byte) (value >>> 8);
+        trailer[offset + 2] = (byte) (value >>> 16);
+        trailer[offset + 3] = (byte) (value >>> 24);
+    }
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Layout;
+import org.apache.log4j.MDC;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Formats events as newline-delimited JSON, e.g.,
+ * {@code {"timestamp":1316131200000,"level":"INFO","logger":"com.example.Foo","thread":"main","message":"Hello"}}.
+ * <p/>
+ * Events are encoded straight to UTF-8 in a per-thread byte buffer; plain ASCII text is copied without any escaping work.
+ * {@link #format(LoggingEvent)} satisfies the {@link Layout} contract by decoding that buffer into a string,
+ * but callers that deal in bytes should use {@link #writeTo(LoggingEvent, OutputStream)} or {@link #encode(LoggingEvent)}.
+ * <p/>
+ * Fields of a {@link StructuredMessage} are written as a {@code "fields"} object. The NDC, the MDC (as an {@code "mdc"} object)
+ * and the exception's stack trace (as {@code "exception"}) are written when present. Log4J 1.2 can't enumerate an event's
+ * MDC, so the MDC is read from the current thread, unless the event was delivered by an {@link AsyncDispatcher}, which
+ * captures it on the logging thread. Don't use this layout behind Log4J's own {@code AsyncAppender} if you need the MDC.
+ * Events numbered by a sharded {@link AsyncDispatcher} get a {@code "sequence"} field.
+ */
+public class JsonLayout extends Layout
+{
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int INITIAL_CAPACITY = 512;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(UTF_8);
+    private static final ThreadLocal<Encoder> ENCODER = new ThreadLocal<Encoder>()
+    {
+        @Override
+        protected Encoder initialValue()
+        {
+            return new Encoder();
+        }
+    };
+
+    @Override
+    public String format(LoggingEvent event)
+    {
+        Encoder encoder = Encoder.acquire();
+
+        try {
+            encoder.encode(event);
+
+            return new String(encoder.bytes, 0, encoder.count, UTF_8);
+        }
+        finally {
+            encoder.release();
+        }
+    }
+
+    /**
+     * Writes an event without creating any intermediate string.
+     *
+     * @param event an event
+     * @param out   where to write the event's JSON, including the trailing newline
+     * @throws IOException if {@code out} fails
+     */
+    public void writeTo(LoggingEvent event, OutputStream out) throws IOException
+    {
+        Encoder encoder = Encoder.acquire();
+
+        try {
+            encoder.encode(event);
+            out.write(encoder.bytes, 0, encoder.count);
+        }
+        finally {
+            encoder.release();
+        }
+    }
+
+    /**
+     * Encodes an event into this thread's buffer.
+     *
+     * @param event an event
+     * @return a buffer holding the event's JSON, including the trailing newline, between its position and its limit;
+     *         it is reused by the next call on the same thread
+     */
+    public ByteBuffer encode(LoggingEvent event)
+    {
+        Encoder encoder = Encoder.acquire();
+
+        try {
+            encoder.encode(event);
+
+            ByteBuffer view = encoder.view;
+
+            view.limit(encoder.count).position(0);
+
+            return view;
+        }
+        finally {
+            encoder.release();
+        }
+    }
+
+    @Override
+    public String getContentType()
+    {
+        return "application/json";
+    }
+
+    @Override
+    public boolean ignoresThrowable()
+    {
+        return false;
+    }
+
+    @Override
+    public void activateOptions()
+    {
+    }
+
+    private static final class Encoder
+    {
+        private byte[] bytes = new byte[INITIAL_CAPACITY];
+        private ByteBuffer view = ByteBuffer.wrap(bytes);
+        private int count = 0;
+        private boolean inUse = false;
+
+        // a message's toString() may itself log through this layout, so never hand out an encoder that's already in use
+        private static Encoder acquire()
+        {
+            Encoder encoder = ENCODER.get();
+
+            if (encoder.inUse) {
+                encoder = new Encoder();
+            }
+
+            encoder.inUse = true;
+            encoder.count = 0;
+
+            return encoder;
+        }
+
+        private void release()
+        {
+            if (bytes.length > MAX_RETAINED_CAPACITY) {
+                bytes = new byte[INITIAL_CAPACITY];
+                view = ByteBuffer.wrap(bytes);
+            }
+
+            inUse = false;
+        }
+
+        private void encode(LoggingEvent event)
+        {
+            writeAscii("{\"timestamp\":");
+            writeLong(event.timeStamp);
+
+            if (event instanceof AsyncLoggingEvent && ((AsyncLoggingEvent) event).getSequence() >= 0) {
+                writeAscii(",\"sequence\":");
+                writeLong(((AsyncLoggingEvent) event).getSequence());
+            }
+
+            writeAscii(",\"level\":");
+            writeString(event.getLevel().toString());
+            writeAscii(",\"logger\":");
+            writeString(event.getLoggerName());
+            writeAscii(",\"thread\":");
+            writeString(event.getThreadName());
+            writeAscii(",\"message\":");
+            writeMessage(event);
+
+            String ndc = event.getNDC();
+
+            if (ndc != null) {
+                writeAscii(",\"ndc\":");
+                writeString(ndc);
+            }
+
+            writeMDC(event);
+
+            String[] throwable = event.getThrowableStrRep();
+
+            if (throwable != null) {
+                writeAscii(",\"exception\":\"");
+
+                for (int i = 0; i < throwable.length; ++i) {
+                    if (i > 0) {
+                        writeAscii("\\n");
+                    }
+
+                    writeEscaped(throwable[i], 0, throwable[i].length());
+                }
+
+                writeByte('"');
+            }
+
+            writeAscii("}\n");
+        }
+
+        private void writeMessage(LoggingEvent event)
+        {
+            Object message = event.getMessage();
+
+            if (message instanceof String) {
+                writeString((String) message);
+            }
+            else if (message instanceof StructuredMessage) {
+                StructuredMessage structuredMessage = (StructuredMessage) message;
+
+                writeString(structuredMessage.getMessage());
+
+                if (structuredMessage.getFieldCount() > 0) {
+                    writeAscii(",\"fields\":{");
+                    writeFields(structuredMessage);
+                    writeByte('}');
+                }
+            }
+            else if (message instanceof CauseSummaryMessage) {
+                CauseSummaryMessage summary = (CauseSummaryMessage) message;
+                String causeMessage = summary.getCauseMessage();
+
+                writeByte('"');
+                writeEscaped(String.valueOf(summary.getMessage()));
+                writeAscii(CauseSummaryMessage.SEPARATOR);
+                writeEscaped(summary.getCauseClassName());
+
+                if (causeMessage != null) {
+                    writeAscii(": ");
+                    writeEscaped(causeMessage, 0, summary.getCauseMessageLength());
+                }
+
+                writeByte('"');
+            }
+            else {
+                writeString(event.getRenderedMessage());
+            }
+        }
+
+        private void writeFields(StructuredMessage message)
+        {
+            for (int i = 0; i < message.getFieldCount(); ++i) {
+                if (i > 0) {
+                    writeByte(',');
+                }
+
+                writeString(message.getKey(i));
+                writeByte(':');
+
+                switch (message.getType(i)) {
+                    case LONG:
+                        writeLong(message.getLong(i));
+                        break;
+                    case DOUBLE:
+                        double value = message.getDouble(i);
+
+                        if (StructuredMessage.isFinite(value)) {
+                            writeAscii(Double.toString(value));
+                        }
+                        else {
+                            writeByte('"');
+                            writeAscii(Double.toString(value));
+                            writeByte('"');
+                        }
+                        break;
+                    case BOOLEAN:
+                        writeAscii(message.getBoolean(i) ? "true" : "false");
+                        break;
+                    default:
+                        writeObject(message.getObject(i));
+                        break;
+                }
+            }
+        }
+
+        private void writeObject(Object value)
+        {
+            if (value == null) {
+                writeAscii("null");
+            }
+            else if (value instanceof Boolean) {
+                writeAscii(((Boolean) value) ? "true" : "false");
+            }
+            else if (StructuredMessage.isJsonLiteral(value)) {
+                writeLong(((Number) value).longValue());
+            }
+            else {
+                writeString(StructuredMessage.safeToString(value));
+            }
+        }
+
+        private void writeMDC(LoggingEvent event)
+        {
+            Map<?, ?> mdc = event instanceof AsyncLoggingEvent ? ((AsyncLoggingEvent) event).getCapturedMDC() : MDC.getContext();
+
+            if (mdc == null || mdc.isEmpty()) {
+                return;
+            }
+
+            boolean first = true;
+
+            writeAscii(",\"mdc\":{");
+
+            for (Map.Entry<?, ?> entry : mdc.entrySet()) {
+                if (!first) {
+                    writeByte(',');
+                }
+
+                writeString(StructuredMessage.safeToString(entry.getKey()));
+                writeByte(':');
+                writeString(StructuredMessage.safeToString(entry.getValue()));
+                first = false;
+            }
+
+            writeByte('}');
+        }
+
+        private void writeString(String value)
+        {
+            if (value == null) {
+                writeAscii("null");
+                return;
+            }
+
+            writeByte('"');
+            writeEscaped(value, 0, value.length());
+            writeByte('"');
+        }
+
+        private void writeEscaped(String value)
+        {
+            writeEscaped(value, 0, value.length());
+        }
+
+        private void writeEscaped(String value, int start, int end)
+        {
+            ensureCapacity(end - start);
+
+            byte[] buffer = bytes;
+            int position = count;
+            int i = start;
+
+            // fast path: printable ASCII without quotes or backslashes is one byte per char and needs no escaping
+            for (; i < end; ++i) {
+                char c = value.charAt(i);
+
+                if (c < 0x20 || c >= 0x80 || c == '"' || c == '\\') {
+                    break;
+                }
+
+                buffer[position++] = (byte) c;
+            }
+
+            count = position;
+
+            for (; i < end; ++i) {
+                char c = value.charAt(i);
+
+                if (c == '"' || c == '\\') {
+                    ensureCapacity(2);
+                    bytes[count++] = '\\';
+                    bytes[count++] = (byte) c;
+                }
+                else if (c < 0x20) {
+                    writeControl(c);
+                }
+                else if (c < 0x80) {
+                    ensureCapacity(1);
+                    bytes[count++] = (byte) c;
+                }
+                else if (c < 0x800) {
+                    ensureCapacity(2);
+                    bytes[count++] = (byte) (0xc0 | (c >> 6));
+                    bytes[count++] = (byte) (0x80 | (c & 0x3f));
+                }
+                else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                    ensureCapacity(4);
+                    bytes[count++] = (byte) (0xf0 | (codePoint >> 18));
+                    bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    bytes[count++] = (byte) (0x80 | (codePoint & 0x3f));
+                }
+                else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                    // unpaired surrogate; replaced like String.getBytes() does
+                    ensureCapacity(1);
+                    bytes[count++] = '?';
+                }
+                else {
+                    ensureCapacity(3);
+                    bytes[count++] = (byte) (0xe0 | (c >> 12));
+                    bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    bytes[count++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+
+        private void writeControl(char c)
+        {
+            ensureCapacity(6);
+            bytes[count++] = '\\';
+
+            switch (c) {
+                case '\n':
+                    bytes[count++] = 'n';
+                    break;
+                case '\r':
+                    bytes[count++] = 'r';
+                    break;
+                case '\t':
+                    bytes[count++] = 't';
+                    break;
+                default:
+                    bytes[count++] = 'u';
+                    bytes[count++] = '0';
+                    bytes[count++] = '0';
+                    bytes[count++] = HEX[c >> 4];
+                    bytes[count++] = HEX[c & 0xf];
+                    break;
+            }
+        }
+
+        // only for strings known to be printable ASCII that needs no escaping
+        private void writeAscii(String value)
+        {
+            int length = value.length();
+
+            ensureCapacity(length);
+
+            for (int i = 0; i < length; ++i) {
+                bytes[count++] = (byte) value.charAt(i);
+            }
+        }
+
+        private void writeLong(long value)
+        {
+            if (value == Long.MIN_VALUE) {
+                writeAscii("-9223372036854775808");
+                return;
+            }
+
+            ensureCapacity(20);
+
+            if (value < 0) {
+                bytes[count++] = '-';
+                value = -value;
+            }
+
+            int digits = 1;
+
+            for (long remaining = value; remaining >= 10; remaining /= 10) {
+                ++digits;
+            }
+
+            int position = count + digits;
+
+            do {
+                bytes[--position] = (byte) ('0' + (value % 10));
+                value /= 10;
+            } while (value != 0);
+
+            count += digits;
+        }
+
+        private void writeByte(char c)
+        {
+            ensureCapacity(1);
+            bytes[count++] = (byte) c;
+        }
+
+        private void ensureCapacity(int extra)
+        {
+            if (count + extra > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, count + extra)];
+
+                System.arraycopy(bytes, 0, grown, 0, count);
+                bytes = grown;
+                view = ByteBuffer.wrap(bytes);
+            }
+        }
+    }
+}
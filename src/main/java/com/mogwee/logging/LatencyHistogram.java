@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * Counts durations in power-of-two buckets: bucket {@code i} holds durations of less than {@code 2^i} nanoseconds
+ * that didn't fit in bucket {@code i - 1}, and the last bucket holds everything longer.
+ * <p/>
+ * Recording is a shift and a striped increment, and percentiles are only as precise as the buckets (within a factor
+ * of two), which is plenty to tell a 200ns log call from a 20us one.
+ */
+final class LatencyHistogram
+{
+    static final int BUCKETS = 40;
+
+    private final StripedCounters counts = new StripedCounters(BUCKETS);
+
+    /**
+     * @param nanos a duration
+     */
+    void record(long nanos)
+    {
+        counts.add(bucket(nanos), 1);
+    }
+
+    /**
+     * @return the number of durations in each bucket
+     */
+    long[] getCounts()
+    {
+        long[] result = new long[BUCKETS];
+
+        for (int i = 0; i < BUCKETS; ++i) {
+            result[i] = counts.sum(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the (exclusive) upper bound of each bucket, in nanoseconds; the last one is {@link Long#MAX_VALUE}
+     */
+    static long[] getUpperBounds()
+    {
+        long[] result = new long[BUCKETS];
+
+        for (int i = 0; i < BUCKETS - 1; ++i) {
+            result[i] = 1L << i;
+        }
+
+        result[BUCKETS - 1] = Long.MAX_VALUE;
+
+        return result;
+    }
+
+    /**
+     * @param percentile a percentile, e.g., 99.9
+     * @return the upper bound of the bucket the percentile falls in, in nanoseconds, or 0 if nothing was recorded
+     */
+    long getPercentile(double percentile)
+    {
+        long[] snapshot = getCounts();
+        long total = 0;
+
+        for (long count : snapshot) {
+            total += count;
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * Math.max(Math.min(percentile, 100), 0) / 100);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS - 1; ++i) {
+            seen += snapshot[i];
+
+            if (seen >= rank && seen > 0) {
+                return 1L << i;
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    void reset()
+    {
+        counts.reset();
+    }
+
+    static int bucket(long nanos)
+    {
+        return Math.min(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)), BUCKETS - 1);
+    }
+}
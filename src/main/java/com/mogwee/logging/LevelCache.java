@@ -0,0 +1,170 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.Category;
+import org.apache.log4j.Hierarchy;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.HierarchyEventListener;
+import org.apache.log4j.spi.LoggerRepository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of whether cached effective levels are still current.
+ * <p/>
+ * Log4J 1.2 doesn't announce level changes, so when caching is on every {@link Logger} caches the threshold it
+ * computed from Log4J along with the generation it was computed in, and recomputes it once the generation moves on.
+ * The generation is bumped by {@link Logger#refreshLevels()}, by {@link LevelControl}, whenever an appender is added
+ * to or removed from the default hierarchy (which is what configurators do when they reload), and periodically by a
+ * daemon thread so that direct calls to {@link Category#setLevel} are eventually picked up.
+ * <p/>
+ * Caching is off by default, so that every call asks Log4J and direct level changes are seen right away. Setting the
+ * {@value #REFRESH_MILLIS_PROPERTY} system property to a refresh interval greater than zero turns it on, at the price
+ * of direct level changes going unnoticed for up to that long unless {@link Logger#refreshLevels()} is called.
+ */
+final class LevelCache
+{
+    static final String REFRESH_MILLIS_PROPERTY = "com.mogwee.logging.levelRefreshMillis";
+    static final long DEFAULT_REFRESH_MILLIS = 0;
+    static final boolean ENABLED;
+
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    static {
+        long refreshMillis = DEFAULT_REFRESH_MILLIS;
+
+        try {
+            refreshMillis = Long.parseLong(System.getProperty(REFRESH_MILLIS_PROPERTY, String.valueOf(DEFAULT_REFRESH_MILLIS)));
+        }
+        catch (RuntimeException e) {
+            LogLog.warn(String.format("Invalid %s, using %s", REFRESH_MILLIS_PROPERTY, DEFAULT_REFRESH_MILLIS), e);
+        }
+
+        ENABLED = refreshMillis > 0;
+
+        if (ENABLED) {
+            listenForAppenderChanges();
+            startRefresher(refreshMillis);
+        }
+    }
+
+    private LevelCache()
+    {
+    }
+
+    /**
+     * @return the current generation; a single volatile read
+     */
+    static int generation()
+    {
+        return GENERATION.get();
+    }
+
+    /**
+     * Marks every cached level as stale.
+     */
+    static void invalidate()
+    {
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Computes the lowest level a Log4J logger currently accepts, taking the repository threshold into account.
+     *
+     * @param log4j a Log4J logger
+     * @return a snapshot of its threshold
+     */
+    static Snapshot snapshot(org.apache.log4j.Logger log4j)
+    {
+        // read the generation first, so a change racing with this computation leaves the snapshot stale
+        int generation = generation();
+        int threshold = log4j.getEffectiveLevel().toInt();
+        LoggerRepository repository = log4j.getLoggerRepository();
+
+        if (repository != null) {
+            threshold = Math.max(threshold, repository.getThreshold().toInt());
+        }
+
+        return new Snapshot(generation, threshold);
+    }
+
+    private static void listenForAppenderChanges()
+    {
+        LoggerRepository repository = LogManager.getLoggerRepository();
+
+        if (repository instanceof Hierarchy) {
+            ((Hierarchy) repository).addHierarchyEventListener(new HierarchyEventListener()
+            {
+                @Override
+                public void addAppenderEvent(Category cat, Appender appender)
+                {
+                    invalidate();
+                }
+
+                @Override
+                public void removeAppenderEvent(Category cat, Appender appender)
+                {
+                    invalidate();
+                }
+            });
+        }
+    }
+
+    private static void startRefresher(final long refreshMillis)
+    {
+        Thread refresher = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (true) {
+                    try {
+                        Thread.sleep(refreshMillis);
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+
+                    invalidate();
+                }
+            }
+        }, "mogwee-logging-level-refresh");
+
+        refresher.setDaemon(true);
+        refresher.start();
+    }
+
+    /**
+     * An immutable threshold; safe to publish through a plain field.
+     */
+    static final class Snapshot
+    {
+        static final Snapshot STALE = new Snapshot(Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+        final int generation;
+        final int threshold;
+
+        Snapshot(int generation, int threshold)
+        {
+            this.generation = generation;
+            this.threshold = threshold;
+        }
+    }
+}
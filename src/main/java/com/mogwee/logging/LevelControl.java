@@ -0,0 +1,469 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.helpers.LogLog;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Changes levels at runtime, per logger name prefix, without editing (and waiting for a reload of) the configuration.
+ * <p/>
+ * Setting the level of a prefix sets the level of the logger with that name, and of every existing logger below it that
+ * has a level of its own, so that everything under the prefix logs at the new level (loggers created later with a level
+ * of their own keep it). Each change is made in full before the level cache generation is bumped (see
+ * {@link Logger#refreshLevels()}), so every {@link Logger} sees it on its next call, without locking. A change can be
+ * made temporary, in which case the previous levels are put back automatically, and any change can be reset to the
+ * levels the prefix and the loggers below it had before it was first changed.
+ * <p/>
+ * Levels are those of the backend in use: the Log4J hierarchy by default, or {@link NativeBackend#setLevel} for that
+ * backend. Registered with the platform MBean server as {@value #OBJECT_NAME} by {@link #register()}, which happens
+ * when {@link Logger} is loaded if the {@value #JMX_PROPERTY} system property is true.
+ */
+public final class LevelControl implements LevelControlMBean
+{
+    public static final String OBJECT_NAME = "com.mogwee.logging:type=LevelControl";
+    public static final String JMX_PROPERTY = "com.mogwee.logging.levelControl.jmx";
+
+    private static LevelControl instance = null;
+    private static boolean registered = false;
+
+    private final Levels levels;
+    // the levels each changed prefix and the loggers below it had before its first change, and its pending reversions
+    private final Map<String, Change> changes = new TreeMap<String, Change>();
+    private ScheduledExecutorService reverter = null;
+
+    LevelControl(Levels levels)
+    {
+        this.levels = levels;
+    }
+
+    /**
+     * @return the level control for the backend {@link Logger} uses
+     */
+    public static synchronized LevelControl getInstance()
+    {
+        if (instance == null) {
+            LoggingBackend backend = Logger.getBackend();
+
+            instance = new LevelControl(backend instanceof NativeBackend ? new NativeLevels((NativeBackend) backend) : new Log4jLevels());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Registers the level control with the platform MBean server as {@value #OBJECT_NAME}, unless it already is.
+     */
+    public static synchronized void register()
+    {
+        if (registered) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(getInstance(), new ObjectName(OBJECT_NAME));
+            registered = true;
+        }
+        catch (Exception e) {
+            LogLog.warn(String.format("Unable to register %s", OBJECT_NAME), e);
+        }
+    }
+
+    @Override
+    public String getLevel(String prefix)
+    {
+        return toString(levels.get(prefix));
+    }
+
+    @Override
+    public String getEffectiveLevel(String name)
+    {
+        return toString(levels.getEffective(name));
+    }
+
+    @Override
+    public void setLevel(String prefix, String level)
+    {
+        setLevel(prefix, toLevel(level));
+    }
+
+    @Override
+    public void setLevelTemporarily(String prefix, String level, long minutes)
+    {
+        setLevel(prefix, toLevel(level), minutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Changes the level of a prefix, and of the loggers below it that have a level of their own, until it's reset.
+     *
+     * @param prefix a logger name prefix; "" for the root
+     * @param level  the new level; null to inherit it (not allowed for the root)
+     */
+    public synchronized void setLevel(String prefix, Level level)
+    {
+        checkChange(prefix, level);
+        change(prefix, snapshot(prefix), level).cancelReversions();
+    }
+
+    /**
+     * Changes the level of a prefix, and of the loggers below it that have a level of their own, and puts back the
+     * levels they had just before after a while, unless the prefix has been changed for good in the meantime.
+     * Temporary changes nest: one made while another is in force puts back the levels of the outer one if it expires
+     * first, and the levels from before the outer one once both have expired.
+     *
+     * @param prefix   a logger name prefix; "" for the root
+     * @param level    the new level; null to inherit it (not allowed for the root)
+     * @param duration how long the new level lasts
+     * @param unit     unit of {@code duration}
+     */
+    public synchronized void setLevel(final String prefix, Level level, long duration, TimeUnit unit)
+    {
+        checkChange(prefix, level);
+
+        Map<String, Level> before = snapshot(prefix);
+        final Reversion reversion = new Reversion(before, System.currentTimeMillis() + unit.toMillis(duration));
+        final Change change = change(prefix, before, level);
+
+        change.reversions.add(reversion);
+        reversion.future = reverter().schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                synchronized (LevelControl.this) {
+                    // unless it's been reset or changed for good since
+                    if (changes.get(prefix) == change && change.reversions.contains(reversion)) {
+                        revert(prefix, change, reversion);
+                    }
+                }
+            }
+        }, duration, unit);
+    }
+
+    @Override
+    public synchronized void resetLevel(String prefix)
+    {
+        Change change = changes.remove(prefix);
+
+        if (change != null) {
+            change.cancelReversions();
+            restore(change.original);
+            LevelCache.invalidate();
+        }
+    }
+
+    private void revert(String prefix, Change change, Reversion reversion)
+    {
+        List<Reversion> reversions = change.reversions;
+        int index = reversions.indexOf(reversion);
+
+        reversions.remove(index);
+
+        if (index < reversions.size()) {
+            // a later temporary change is still in force: it now puts back what this one would have
+            reversions.get(index).before = reversion.before;
+            return;
+        }
+
+        if (reversions.isEmpty() && reversion.before.equals(change.original)) {
+            changes.remove(prefix);
+        }
+
+        restore(reversion.before);
+        LevelCache.invalidate();
+    }
+
+    @Override
+    public synchronized void resetAll()
+    {
+        for (String prefix : new ArrayList<String>(changes.keySet())) {
+            resetLevel(prefix);
+        }
+    }
+
+    @Override
+    public synchronized String[] getChangedLevels()
+    {
+        List<String> result = new ArrayList<String>(changes.size());
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<String, Change> entry : changes.entrySet()) {
+            List<Reversion> reversions = entry.getValue().reversions;
+            // the innermost temporary change is the next to put a level back
+            String reversion = reversions.isEmpty() ? "" : String.format(", reverts in %ss", Math.max((reversions.get(reversions.size() - 1).revertAt - now + 999) / 1000, 0));
+
+            result.add(String.format("%s: %s (was %s%s)", entry.getKey(), toString(levels.get(entry.getKey())), toString(entry.getValue().original.get(entry.getKey())), reversion));
+        }
+
+        return result.toArray(new String[result.size()]);
+    }
+
+    private static void checkChange(String prefix, Level level)
+    {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix can't be null; use \"\" for the root");
+        }
+
+        if (level == null && "".equals(prefix)) {
+            throw new IllegalArgumentException("The root level can't be removed");
+        }
+    }
+
+    /**
+     * @return the level of the prefix (possibly null) and those of the loggers below it that have one, by name
+     */
+    private Map<String, Level> snapshot(String prefix)
+    {
+        Map<String, Level> snapshot = levels.getBelow(prefix);
+
+        snapshot.put(prefix, levels.get(prefix));
+
+        return snapshot;
+    }
+
+    private void restore(Map<String, Level> snapshot)
+    {
+        for (Map.Entry<String, Level> entry : snapshot.entrySet()) {
+            levels.set(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private Change change(String prefix, Map<String, Level> before, Level level)
+    {
+        Change change = changes.get(prefix);
+
+        if (change == null) {
+            change = new Change(before);
+            changes.put(prefix, change);
+        }
+
+        for (String name : before.keySet()) {
+            levels.set(name, level);
+        }
+
+        LevelCache.invalidate();
+
+        return change;
+    }
+
+    private ScheduledExecutorService reverter()
+    {
+        if (reverter == null) {
+            reverter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "mogwee-logging-level-revert");
+
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            });
+        }
+
+        return reverter;
+    }
+
+    private static Level toLevel(String level)
+    {
+        if (level == null || level.trim().length() == 0) {
+            return null;
+        }
+
+        Level result = Level.toLevel(level.trim(), null);
+
+        if (result == null) {
+            throw new IllegalArgumentException(String.format("Unknown level %s", level));
+        }
+
+        return result;
+    }
+
+    private static String toString(Level level)
+    {
+        return level == null ? null : level.toString();
+    }
+
+    private static boolean isBelow(String name, String prefix)
+    {
+        if ("".equals(prefix)) {
+            return !"".equals(name);
+        }
+
+        return name.length() > prefix.length() && name.charAt(prefix.length()) == '.' && name.startsWith(prefix);
+    }
+
+    private static final class Change
+    {
+        private final Map<String, Level> original;
+        // pending temporary changes, outermost first
+        private final List<Reversion> reversions = new ArrayList<Reversion>();
+
+        private Change(Map<String, Level> original)
+        {
+            this.original = original;
+        }
+
+        private void cancelReversions()
+        {
+            for (Reversion reversion : reversions) {
+                reversion.future.cancel(false);
+            }
+
+            reversions.clear();
+        }
+    }
+
+    private static final class Reversion
+    {
+        private final long revertAt;
+        // the levels to put back when this temporary change expires
+        private Map<String, Level> before;
+        private ScheduledFuture<?> future = null;
+
+        private Reversion(Map<String, Level> before, long revertAt)
+        {
+            this.before = before;
+            this.revertAt = revertAt;
+        }
+    }
+
+    /**
+     * The levels of a backend.
+     */
+    interface Levels
+    {
+        /**
+         * @return the level set for exactly that name, or null
+         */
+        Level get(String name);
+
+        /**
+         * @param level the level to set, or null to inherit it
+         */
+        void set(String name, Level level);
+
+        Level getEffective(String name);
+
+        /**
+         * @return the loggers strictly below the prefix that have a level set, by name, in a map the caller may modify
+         */
+        Map<String, Level> getBelow(String prefix);
+    }
+
+    static final class Log4jLevels implements Levels
+    {
+        @Override
+        public Level get(String name)
+        {
+            return logger(name).getLevel();
+        }
+
+        @Override
+        public void set(String name, Level level)
+        {
+            logger(name).setLevel(level);
+        }
+
+        @Override
+        public Level getEffective(String name)
+        {
+            return logger(name).getEffectiveLevel();
+        }
+
+        @Override
+        public Map<String, Level> getBelow(String prefix)
+        {
+            Map<String, Level> result = new HashMap<String, Level>();
+            Enumeration<?> loggers = LogManager.getCurrentLoggers();
+
+            while (loggers.hasMoreElements()) {
+                org.apache.log4j.Logger logger = (org.apache.log4j.Logger) loggers.nextElement();
+
+                if (logger.getLevel() != null && isBelow(logger.getName(), prefix)) {
+                    result.put(logger.getName(), logger.getLevel());
+                }
+            }
+
+            return result;
+        }
+
+        private static org.apache.log4j.Logger logger(String name)
+        {
+            return "".equals(name) ? LogManager.getRootLogger() : LogManager.getLogger(name);
+        }
+    }
+
+    static final class NativeLevels implements Levels
+    {
+        private final NativeBackend backend;
+
+        NativeLevels(NativeBackend backend)
+        {
+            this.backend = backend;
+        }
+
+        @Override
+        public Level get(String name)
+        {
+            return backend.getLevel(name);
+        }
+
+        @Override
+        public void set(String name, Level level)
+        {
+            backend.setLevel(name, level);
+        }
+
+        @Override
+        public Level getEffective(String name)
+        {
+            return backend.getEffectiveLevel(name);
+        }
+
+        @Override
+        public Map<String, Level> getBelow(String prefix)
+        {
+            Map<String, Level> result = new HashMap<String, Level>();
+
+            for (Map.Entry<String, Level> entry : backend.getLevels().entrySet()) {
+                if (isBelow(entry.getKey(), prefix)) {
+                    result.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            return result;
+        }
+    }
+}
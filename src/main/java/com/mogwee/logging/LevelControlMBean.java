@@ -0,0 +1,71 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * JMX view of {@link LevelControl}. Prefixes are logger names, or "" for the root; levels are given by name,
+ * e.g., DEBUG, with an empty or null level meaning the prefix inherits its level from its parent.
+ */
+public interface LevelControlMBean
+{
+    /**
+     * @param prefix a logger name prefix
+     * @return the level set for exactly that prefix, or null if it inherits its level
+     */
+    String getLevel(String prefix);
+
+    /**
+     * @param name a logger name
+     * @return the level events logged under that name are checked against
+     */
+    String getEffectiveLevel(String name);
+
+    /**
+     * Changes the level of a prefix, and of the loggers below it that have a level of their own, until it's reset.
+     *
+     * @param prefix a logger name prefix
+     * @param level  the new level
+     */
+    void setLevel(String prefix, String level);
+
+    /**
+     * Changes the level of a prefix, and of the loggers below it that have a level of their own, and puts back the
+     * levels they had just before after a while, unless the prefix has been changed again in the meantime.
+     *
+     * @param prefix  a logger name prefix
+     * @param level   the new level
+     * @param minutes how long the new level lasts
+     */
+    void setLevelTemporarily(String prefix, String level, long minutes);
+
+    /**
+     * Puts back the levels a prefix and the loggers below it had before it was first changed through this interface.
+     *
+     * @param prefix a logger name prefix
+     */
+    void resetLevel(String prefix);
+
+    /**
+     * Resets every changed prefix.
+     */
+    void resetAll();
+
+    /**
+     * @return the prefixes changed through this interface, as {@code prefix: LEVEL (was LEVEL[, reverts in Ns])}
+     */
+    String[] getChangedLevels();
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Forces levels on for the current thread, e.g., to log a single request at DEBUG (with full stack traces from
+ * the {@code *Debug} methods) without lowering any logger's level for everybody else:
+ * <pre>
+ * LevelOverride override = LevelOverride.force(Level.DEBUG);
+ *
+ * try {
+ *     handle(request);
+ * }
+ * finally {
+ *     override.restore();
+ * }
+ * </pre>
+ * An override only ever enables levels. {@link Logger} consults it when a level is otherwise disabled, and even then
+ * only looks at the current thread once a single volatile read says some thread has an override, so overrides cost
+ * nothing noticeable while none is in force. Forced events bypass logger levels and the repository threshold,
+ * but not appender thresholds or filters.
+ * <p/>
+ * Overrides are per thread; to have one follow work handed to other threads, submit it through {@link #wrap(Executor)},
+ * or wrap the tasks themselves.
+ */
+public final class LevelOverride
+{
+    private static final ThreadLocal<Level> FORCED = new ThreadLocal<Level>();
+    // the number of threads with an override in force
+    private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+    private final Thread thread;
+    private final Level previous;
+
+    private LevelOverride(Thread thread, Level previous)
+    {
+        this.thread = thread;
+        this.previous = previous;
+    }
+
+    /**
+     * Forces events at {@code level} and above to be logged on the current thread, until {@link #restore()} is called.
+     *
+     * @param level the lowest level to log, e.g., {@link Level#DEBUG}; null to lift the current override
+     * @return a handle to restore whatever override was in force before
+     */
+    public static LevelOverride force(Level level)
+    {
+        LevelOverride override = new LevelOverride(Thread.currentThread(), FORCED.get());
+
+        set(level);
+
+        return override;
+    }
+
+    /**
+     * @return the level forced on the current thread, or null if there's none
+     */
+    public static Level current()
+    {
+        return FORCED.get();
+    }
+
+    /**
+     * Puts back the override that was in force when this one was created; overrides must be restored in reverse order.
+     *
+     * @throws IllegalStateException if called from another thread
+     */
+    public void restore()
+    {
+        if (Thread.currentThread() != thread) {
+            throw new IllegalStateException(String.format("Level override of %s restored by %s", thread.getName(), Thread.currentThread().getName()));
+        }
+
+        set(previous);
+    }
+
+    /**
+     * @param task a task to run on another thread
+     * @return a task that runs {@code task} with the override currently in force, if any
+     */
+    public static Runnable wrap(final Runnable task)
+    {
+        final Level level = FORCED.get();
+
+        if (level == null) {
+            return task;
+        }
+
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                LevelOverride override = force(level);
+
+                try {
+                    task.run();
+                }
+                finally {
+                    override.restore();
+                }
+            }
+        };
+    }
+
+    /**
+     * @param task a task to run on another thread
+     * @param <T>  type of the task's result
+     * @return a task that runs {@code task} with the override currently in force, if any
+     */
+    public static <T> Callable<T> wrap(final Callable<T> task)
+    {
+        final Level level = FORCED.get();
+
+        if (level == null) {
+            return task;
+        }
+
+        return new Callable<T>()
+        {
+            @Override
+            public T call() throws Exception
+            {
+                LevelOverride override = force(level);
+
+                try {
+                    return task.call();
+                }
+                finally {
+                    override.restore();
+                }
+            }
+        };
+    }
+
+    /**
+     * @param executor an executor
+     * @return an executor that runs tasks on {@code executor} with the override in force when they were submitted
+     */
+    public static Executor wrap(final Executor executor)
+    {
+        return new Executor()
+        {
+            @Override
+            public void execute(Runnable task)
+            {
+                executor.execute(wrap(task));
+            }
+        };
+    }
+
+    /**
+     * @param level a level that is otherwise disabled
+     * @return true if it's forced on for the current thread
+     */
+    static boolean forces(Level level)
+    {
+        if (ACTIVE.get() == 0) {
+            return false;
+        }
+
+        Level forced = FORCED.get();
+
+        return forced != null && level.toInt() >= forced.toInt();
+    }
+
+    private static void set(Level level)
+    {
+        Level current = FORCED.get();
+
+        if (level == null) {
+            if (current != null) {
+                FORCED.remove();
+                ACTIVE.decrementAndGet();
+            }
+        }
+        else {
+            FORCED.set(level);
+
+            if (current == null) {
+                ACTIVE.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default {@link LoggingBackend}: Log4J 1.2, optionally through an {@link AsyncDispatcher}
+ * (see {@link Logger#setAsyncDispatcher(AsyncDispatcher)}).
+ * <p/>
+ * Levels can be cached per logger (see {@link LevelCache}). {@link #flush()} waits for the async dispatcher, if any,
+ * to deliver what it has queued, then flushes every appender that implements {@link Flushable}, such as
+ * {@link BinaryLogAppender} and {@link MappedFileAppender}.
+ */
+public class Log4jBackend implements LoggingBackend
+{
+    static final long FLUSH_TIMEOUT_SECONDS = 10;
+
+    private static final String FQCN = Logger.class.getName();
+
+    @Override
+    public BackendLogger getLogger(String name)
+    {
+        return new Log4jLogger(org.apache.log4j.Logger.getLogger(name));
+    }
+
+    @Override
+    public void flush()
+    {
+        AsyncDispatcher dispatcher = Logger.getAsyncDispatcher();
+
+        if (dispatcher != null) {
+            try {
+                if (!dispatcher.awaitDelivery(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LogLog.warn(String.format("Async dispatcher didn't deliver its events within %ss", FLUSH_TIMEOUT_SECONDS));
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        Set<Appender> appenders = Collections.newSetFromMap(new IdentityHashMap<Appender, Boolean>());
+
+        addAppenders(appenders, LogManager.getRootLogger());
+
+        for (Enumeration<?> loggers = LogManager.getCurrentLoggers(); loggers.hasMoreElements(); ) {
+            addAppenders(appenders, (org.apache.log4j.Logger) loggers.nextElement());
+        }
+
+        for (Appender appender : appenders) {
+            if (appender instanceof Flushable) {
+                try {
+                    ((Flushable) appender).flush();
+                }
+                catch (IOException e) {
+                    LogLog.error(String.format("Unable to flush appender [%s]", appender.getName()), e);
+                }
+            }
+        }
+    }
+
+    private static void addAppenders(Set<Appender> appenders, org.apache.log4j.Logger logger)
+    {
+        for (Enumeration<?> enumeration = logger.getAllAppenders(); enumeration.hasMoreElements(); ) {
+            appenders.add((Appender) enumeration.nextElement());
+        }
+    }
+
+    static final class Log4jLogger implements BackendLogger
+    {
+        private final org.apache.log4j.Logger log4j;
+        // immutable, so a plain field is enough; a stale read just means one extra refresh
+        private LevelCache.Snapshot levels = LevelCache.Snapshot.STALE;
+
+        Log4jLogger(org.apache.log4j.Logger log4j)
+        {
+            this.log4j = log4j;
+        }
+
+        @Override
+        public boolean isEnabled(final Level level)
+        {
+            if (!LevelCache.ENABLED) {
+                return log4j.isEnabledFor(level);
+            }
+
+            LevelCache.Snapshot snapshot = levels;
+
+            if (snapshot.generation != LevelCache.generation()) {
+                snapshot = LevelCache.snapshot(log4j);
+                levels = snapshot;
+            }
+
+            return level.toInt() >= snapshot.threshold;
+        }
+
+        @Override
+        public void log(final Level level, final Object message, final Throwable cause)
+        {
+            AsyncDispatcher dispatcher = Logger.getAsyncDispatcher();
+            // Logger only logs enabled levels, so one Log4J would turn down was forced by a LevelOverride
+            boolean forced = LevelCache.ENABLED ? level.toInt() < levels.threshold : !log4j.isEnabledFor(level);
+
+            if (dispatcher == null || !dispatcher.publish(log4j, level, message, cause, forced)) {
+                if (forced) {
+                    log4j.callAppenders(new LoggingEvent(FQCN, log4j, level, message, cause));
+                }
+                else {
+                    log4j.log(FQCN, level, message, cause);
+                }
+            }
+        }
+
+        @Override
+        public void logStructured(final Level level, final StructuredMessage message, final Throwable cause)
+        {
+            log(level, message, cause);
+        }
+    }
+}
@@ -18,16 +18,37 @@ package com.mogwee.logging;
 
 import org.apache.log4j.Level;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 public class Logger
 {
-    private static final Logger LOG = new Logger(org.apache.log4j.Logger.getLogger(Logger.class.getName()));
+    private static final String FQCN = Logger.class.getName();
+    private static final ConcurrentMap<String, Logger> LOGGERS = new ConcurrentHashMap<String, Logger>();
+    private static final LoggingBackend BACKEND = BackendLoader.load();
+    private static final Logger LOG = getLogger(Logger.class);
+
+    private static final String UNKNOWN_CALLER = "unknown caller";
+
+    private static volatile AsyncDispatcher asyncDispatcher = null;
+    private static volatile boolean deferFormatting = false;
+
+    static {
+        if (Boolean.getBoolean(LevelControl.JMX_PROPERTY)) {
+            LevelControl.register();
+        }
+    }
 
-    private final org.apache.log4j.Logger log4j;
+    private final BackendLogger backend;
+    // null unless LoggingMetrics.ENABLED
+    private final LoggerMetrics metrics;
+    // indexed by rateLimitIndex(); null until a rate limit is set
+    private volatile RateLimiter[] rateLimiters = null;
 
     /**
      * Returns a logger for the calling class.
      * <p/>
-     * Specifically, throws and catches an exception, then uses the stack trace to determine the calling class.
+     * Specifically, walks the stack to determine the calling class (see {@link CallerResolver}).
      * The fully-qualified name of that class is used to get a Log4J logger, when is then wrapped.
      * Typical usage is to use this method to initialize a static member variable, e.g.,
      * {@code private static final Logger LOG = Logger.getLogger();}
@@ -39,10 +60,7 @@ public class Logger
      */
     public static Logger getLogger()
     {
-        StackTraceElement[] stacktrace = Thread.currentThread().getStackTrace();
-        // stacktrace[0] is getStackTrace()
-        // stacktrace[1] is getLogger()
-        StackTraceElement element = stacktrace[2];
+        StackTraceElement element = CallerResolver.INSTANCE.callerOf(FQCN);
         String name = element.getClassName();
 
         if (!"<clinit>".equals(element.getMethodName())) {
@@ -54,373 +72,2707 @@ public class Logger
             );
         }
 
-        return new Logger(org.apache.log4j.Logger.getLogger(name));
+        return getLogger(name);
     }
 
-    private Logger(org.apache.log4j.Logger log4j)
+    /**
+     * Returns the logger for a class, without any stack walking.
+     *
+     * @param clazz a class
+     * @return the logger named after the class's fully-qualified name; the same instance on every call
+     */
+    public static Logger getLogger(Class<?> clazz)
     {
-        this.log4j = log4j;
+        return getLogger(clazz.getName());
     }
 
     /**
-     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Returns the logger with a given name, without any stack walking.
      *
-     * @param cause   an exception to print stack trace of
-     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string
+     * @param name name of the backend logger to wrap, e.g., a Log4J logger name
+     * @return a logger; the same instance on every call with the same name
      */
-    public final void debugf(Throwable cause, String message, Object... args)
+    public static Logger getLogger(String name)
     {
-        logf(Level.DEBUG, cause, message, args);
+        Logger logger = LOGGERS.get(name);
+
+        if (logger == null) {
+            logger = new Logger(name, BACKEND.getLogger(name));
+
+            Logger existing = LOGGERS.putIfAbsent(name, logger);
+
+            if (existing != null) {
+                logger = existing;
+            }
+        }
+
+        return logger;
     }
 
     /**
-     * Logs a formatted message if DEBUG logging is enabled.
-     *
-     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string
+     * @return the backend every logger sends events to
      */
-    public final void debugf(String message, Object... args)
+    static LoggingBackend getBackend()
     {
-        logf(Level.DEBUG, null, message, args);
+        return BACKEND;
     }
 
     /**
-     * @param cause   an exception to print stack trace of
-     * @param message a message to log
-     * @deprecated You meant to call {@link #debug(Throwable, String)}.
+     * Switches every logger to asynchronous delivery through the given dispatcher, or back to synchronous delivery.
+     * <p/>
+     * The dispatcher must already be started; events logged after it has been shut down are delivered synchronously.
+     * Only the default, Log4J, backend (see {@link LoggingBackend}) uses the dispatcher.
+     *
+     * @param dispatcher a started dispatcher, or null to log synchronously
+     * @return the previously installed dispatcher, or null
      */
-    @Deprecated
-    public final void debugf(Throwable cause, String message)
+    public static AsyncDispatcher setAsyncDispatcher(AsyncDispatcher dispatcher)
     {
-        log4j.debug(message, cause);
+        AsyncDispatcher previous = asyncDispatcher;
+
+        asyncDispatcher = dispatcher;
+
+        return previous;
+    }
+
+    static AsyncDispatcher getAsyncDispatcher()
+    {
+        return asyncDispatcher;
     }
 
     /**
-     * @param message a message to log
-     * @deprecated You meant to call {@link #debug(String)}.
+     * Writes out whatever events the backend has buffered, e.g., before the process exits.
+     * For the default backend, see {@link Log4jBackend#flush()}.
      */
-    @Deprecated
-    public final void debugf(String message)
+    public static void flush()
     {
-        log4j.debug(message);
+        BACKEND.flush();
     }
 
     /**
-     * Logs a message and stack trace if DEBUG logging is enabled.
+     * Switches the {@code *f} methods between formatting messages when they're called and handing the format string
+     * and arguments to Log4J as a {@link FormattedMessage}, which is only formatted if an appender asks for its text.
+     * <p/>
+     * {@link BinaryLogAppender} never asks, so formatting is skipped altogether. Deferred messages are formatted
+     * with whatever state the arguments are in when they're rendered. Arguments that can be seen not to match the
+     * format string when logging (a missing argument, a {@code %d} of something other than an integer, or types that
+     * already failed with that format string) are formatted right away, and reported as a bogus format string at WARN
+     * or above; other mismatches (e.g., in a format string with widths or flags) are only reported in the message itself,
+     * at the level it was logged at, as {@code Bogus format string: format [arguments] (exception)}.
      *
-     * @param cause   an exception to print stack trace of
-     * @param message a message
+     * @param defer true to defer formatting
+     * @return whether formatting was deferred before
      */
-    public final void debug(Throwable cause, String message)
+    public static boolean setDeferredFormatting(boolean defer)
     {
-        log4j.debug(message, cause);
+        boolean previous = deferFormatting;
+
+        deferFormatting = defer;
+
+        return previous;
     }
 
     /**
-     * Logs a message if DEBUG logging is enabled.
-     *
-     * @param message a message
+     * Makes every logger pick up Log4J level changes on its next call.
+     * <p/>
+     * Only needed when level caching is on (see {@value LevelCache#REFRESH_MILLIS_PROPERTY}): loggers then cache their
+     * effective level, and while changes made through a configurator are picked up right away, changes made directly
+     * through {@link org.apache.log4j.Category#setLevel} are only noticed periodically unless this method is called.
      */
-    public final void debug(String message)
+    public static void refreshLevels()
     {
-        log4j.debug(message);
+        LevelCache.invalidate();
     }
 
     /**
-     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Limits how often each format string (for the {@code *f} methods), message callback, or line of code logging
+     * a plain message is logged at a level. Callbacks are told apart by their class, which lambdas and anonymous
+     * classes have one of per call site; plain messages by the caller's stack frame, which costs a stack walk per call
+     * while a limit is set.
+     * <p/>
+     * Suppressed events aren't formatted; instead, a summary line with the number of suppressed events is logged
+     * periodically (see {@value RateLimiter#SUMMARY_MILLIS_PROPERTY}). Loggers are shared by name, so the limit applies
+     * to every user of this logger.
      *
-     * @param cause   an exception to print stack trace of
-     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string.
+     * @param level           DEBUG, INFO, WARN or ERROR
+     * @param eventsPerSecond sustained rate allowed for each message
+     * @param burst           how many events of a message can be logged back to back
      */
-    public final void infof(Throwable cause, String message, Object... args)
+    public final synchronized void setRateLimit(Level level, double eventsPerSecond, int burst)
     {
-        logf(Level.INFO, cause, message, args);
+        int index = rateLimitIndex(level);
+        RateLimiter[] limiters = rateLimiters == null ? new RateLimiter[4] : rateLimiters.clone();
+        RateLimiter previous = limiters[index];
+
+        limiters[index] = RateLimiter.create(this, level, eventsPerSecond, burst);
+        rateLimiters = limiters;
+
+        if (previous != null) {
+            previous.retire();
+        }
     }
 
     /**
-     * Logs a formatted message if INFO logging is enabled.
+     * Removes the rate limit set by {@link #setRateLimit(Level, double, int)}, if any.
      *
-     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string.
+     * @param level DEBUG, INFO, WARN or ERROR
      */
-    public final void infof(String message, Object... args)
+    public final synchronized void removeRateLimit(Level level)
+    {
+        int index = rateLimitIndex(level);
+
+        if (rateLimiters == null || rateLimiters[index] == null) {
+            return;
+        }
+
+        RateLimiter[] limiters = rateLimiters.clone();
+        RateLimiter previous = limiters[index];
+
+        limiters[index] = null;
+        rateLimiters = limiters;
+        previous.retire();
+    }
+
+    private Logger(String name, BackendLogger backend)
     {
-        logf(Level.INFO, null, message, args);
+        this.backend = backend;
+        this.metrics = LoggingMetrics.ENABLED ? LoggingMetrics.forLogger(name) : null;
     }
 
     /**
-     * Logs a message and stack trace if INFO logging is enabled.
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
      *
      * @param cause   an exception to print stack trace of
-     * @param message a message
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string
      */
-    public final void info(Throwable cause, String message)
+    public final void debugf(Throwable cause, String message, Object... args)
     {
-        log4j.info(message, cause);
+        logf(Level.DEBUG, cause, message, args, false);
     }
 
     /**
-     * Logs a message if INFO logging is enabled.
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
      *
-     * @param message a message
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void info(String message)
+    public final void debugf(Throwable cause, String message, Object arg)
     {
-        log4j.info(message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg}, false);
+        }
     }
 
     /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     *
      * @param cause   an exception to print stack trace of
-     * @param message a message to log
-     * @deprecated You meant to call {@link #info(Throwable, String)}.
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
      */
-    @Deprecated
-    public final void infof(Throwable cause, String message)
+    public final void debugf(Throwable cause, String message, Object arg1, Object arg2)
     {
-        log4j.info(message, cause);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg1, arg2}, false);
+        }
     }
 
     /**
-     * @param message a message to log
-     * @deprecated You meant to call {@link #info(String)}.
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
      */
-    @Deprecated
-    public final void infof(String message)
+    public final void debugf(Throwable cause, String message, Object arg1, Object arg2, Object arg3)
     {
-        log4j.info(message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg1, arg2, arg3}, false);
+        }
     }
 
     /**
-     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
      *
      * @param cause   an exception to print stack trace of
      * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string.
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
      */
-    public final void warnf(Throwable cause, String message, Object... args)
+    public final void debugf(Throwable cause, String message, Object arg1, Object arg2, Object arg3, Object arg4)
     {
-        logf(Level.WARN, cause, message, args);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg1, arg2, arg3, arg4}, false);
+        }
     }
 
     /**
-     * Logs a formatted message if WARN logging is enabled.
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
      *
+     * @param cause   an exception to print stack trace of
      * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string.
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void warnf(String message, Object... args)
+    public final void debugf(Throwable cause, String message, int arg)
     {
-        logf(Level.WARN, null, message, args);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, arg, false);
+        }
     }
 
     /**
-     * Logs a message and stack trace if WARN logging is enabled.
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
      *
      * @param cause   an exception to print stack trace of
-     * @param message a message
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void warn(Throwable cause, String message)
+    public final void debugf(Throwable cause, String message, long arg)
     {
-        log4j.warn(message, cause);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, arg, false);
+        }
     }
 
     /**
-     * Logs a message if WARN logging is enabled.
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
      *
-     * @param message a message
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void warn(String message)
+    public final void debugf(Throwable cause, String message, double arg)
     {
-        log4j.warn(message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, arg, false);
+        }
     }
 
     /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     *
      * @param cause   an exception to print stack trace of
-     * @param message a message to log
-     * @deprecated You meant to call {@link #warn(Throwable, String)}.
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    @Deprecated
-    public final void warnf(Throwable cause, String message)
+    public final void debugf(Throwable cause, String message, char arg)
     {
-        log4j.warn(message, cause);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg}, false);
+        }
     }
 
     /**
-     * @param message a message to log
-     * @deprecated You meant to call {@link #warn(String)}.
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    @Deprecated
-    public final void warnf(String message)
+    public final void debugf(Throwable cause, String message, byte arg)
     {
-        log4j.warn(message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg}, false);
+        }
     }
 
     /**
-     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
      *
      * @param cause   an exception to print stack trace of
      * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string.
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void errorf(Throwable cause, String message, Object... args)
+    public final void debugf(Throwable cause, String message, short arg)
     {
-        logf(Level.ERROR, cause, message, args);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg}, false);
+        }
     }
 
     /**
-     * Logs a formatted message if ERROR logging is enabled.
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
      *
+     * @param cause   an exception to print stack trace of
      * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string.
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void errorf(String message, Object... args)
+    public final void debugf(Throwable cause, String message, float arg)
     {
-        logf(Level.ERROR, null, message, args);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg}, false);
+        }
     }
 
     /**
-     * Logs a message and stack trace if ERROR logging is enabled.
+     * Logs a formatted message if DEBUG logging is enabled.
      *
-     * @param cause   an exception to print stack trace of
-     * @param message a message
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string
      */
-    public final void error(Throwable cause, String message)
+    public final void debugf(String message, Object... args)
     {
-        log4j.error(message, cause);
+        logf(Level.DEBUG, null, message, args, false);
     }
 
     /**
-     * Logs a message if ERROR logging is enabled.
+     * Logs a formatted message if DEBUG logging is enabled.
      *
-     * @param message a message
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void error(String message)
+    public final void debugf(String message, Object arg)
     {
-        log4j.error(message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg}, false);
+        }
     }
 
     /**
-     * @param cause   an exception to print stack trace of
-     * @param message a message to log
-     * @deprecated You meant to call {@link #error(Throwable, String)}.
+     * Logs a formatted message if DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
      */
-    @Deprecated
-    public final void errorf(Throwable cause, String message)
+    public final void debugf(String message, Object arg1, Object arg2)
     {
-        log4j.error(message, cause);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg1, arg2}, false);
+        }
     }
 
     /**
-     * @param message a message to log
-     * @deprecated You meant to call {@link #error(String)}.
+     * Logs a formatted message if DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
      */
-    @Deprecated
-    public final void errorf(String message)
+    public final void debugf(String message, Object arg1, Object arg2, Object arg3)
     {
-        log4j.error(message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg1, arg2, arg3}, false);
+        }
     }
 
     /**
-     * Logs a formatted message and stack trace if DEBUG logging is enabled
-     * or a formatted message and exception description if INFO logging is enabled.
+     * Logs a formatted message if DEBUG logging is enabled.
      *
-     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
      * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string.
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
      */
-    public final void infoDebugf(final Throwable cause, final String message, final Object... args)
+    public final void debugf(String message, Object arg1, Object arg2, Object arg3, Object arg4)
     {
-        logDebugf(Level.INFO, cause, message, args);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg1, arg2, arg3, arg4}, false);
+        }
     }
 
     /**
-     * Logs a message and stack trace if DEBUG logging is enabled
-     * or a formatted message and exception description if INFO logging is enabled.
+     * Logs a formatted message if DEBUG logging is enabled.
      *
-     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
-     * @param message a message
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void infoDebug(final Throwable cause, final String message)
+    public final void debugf(String message, int arg)
     {
-        logDebug(Level.INFO, cause, message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, arg, false);
+        }
     }
 
     /**
-     * @param cause   an exception to print stack trace of if DEBUG level is enabled
-     * @param message a message to log
-     * @deprecated You meant to call {@link #infoDebug(Throwable, String)}.
+     * Logs a formatted message if DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    @Deprecated
-    public final void infoDebugf(Throwable cause, String message)
+    public final void debugf(String message, long arg)
     {
-        infoDebug(cause, message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, arg, false);
+        }
     }
 
     /**
-     * Logs a formatted message and stack trace if DEBUG logging is enabled
-     * or a formatted message and exception description if WARN logging is enabled.
+     * Logs a formatted message if DEBUG logging is enabled.
      *
-     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
      * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string.
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void warnDebugf(final Throwable cause, final String message, final Object... args)
+    public final void debugf(String message, double arg)
     {
-        logDebugf(Level.WARN, cause, message, args);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, arg, false);
+        }
     }
 
     /**
-     * Logs a message and stack trace if DEBUG logging is enabled
-     * or a formatted message and exception description if WARN logging is enabled.
+     * Logs a formatted message if DEBUG logging is enabled.
      *
-     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
-     * @param message a message
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void warnDebug(final Throwable cause, final String message)
+    public final void debugf(String message, char arg)
     {
-        logDebug(Level.WARN, cause, message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg}, false);
+        }
     }
 
     /**
-     * @param cause   an exception to print stack trace of if DEBUG level is enabled
-     * @param message a message to log
-     * @deprecated You meant to call {@link #warnDebug(Throwable, String)}.
+     * Logs a formatted message if DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    @Deprecated
-    public final void warnDebugf(Throwable cause, String message)
+    public final void debugf(String message, byte arg)
     {
-        warnDebug(cause, message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg}, false);
+        }
     }
 
     /**
-     * Logs a formatted message and stack trace if DEBUG logging is enabled
-     * or a formatted message and exception description if ERROR logging is enabled.
+     * Logs a formatted message if DEBUG logging is enabled.
      *
-     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
      * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
-     * @param args    arguments referenced by the format specifiers in the format string.
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void errorDebugf(final Throwable cause, final String message, final Object... args)
+    public final void debugf(String message, short arg)
     {
-        logDebugf(Level.ERROR, cause, message, args);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg}, false);
+        }
     }
 
     /**
-     * Logs a message and stack trace if DEBUG logging is enabled
-     * or a formatted message and exception description if ERROR logging is enabled.
+     * Logs a formatted message if DEBUG logging is enabled.
      *
-     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
-     * @param message a message
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
      */
-    public final void errorDebug(final Throwable cause, final String message)
+    public final void debugf(String message, float arg)
     {
-        logDebug(Level.ERROR, cause, message);
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg}, false);
+        }
     }
 
     /**
-     * @param cause   an exception to print stack trace of if DEBUG level is enabled
+     * @param cause   an exception to print stack trace of
+     * @param message a message to log
+     * @deprecated You meant to call {@link #debug(Throwable, String)}.
+     */
+    @Deprecated
+    public final void debugf(Throwable cause, String message)
+    {
+        log(Level.DEBUG, message, cause);
+    }
+
+    /**
+     * @param message a message to log
+     * @deprecated You meant to call {@link #debug(String)}.
+     */
+    @Deprecated
+    public final void debugf(String message)
+    {
+        log(Level.DEBUG, message, null);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a message
+     */
+    public final void debug(Throwable cause, String message)
+    {
+        log(Level.DEBUG, message, cause);
+    }
+
+    /**
+     * Logs a message if DEBUG logging is enabled.
+     *
+     * @param message a message
+     */
+    public final void debug(String message)
+    {
+        log(Level.DEBUG, message, null);
+    }
+
+    /**
+     * Starts a structured DEBUG event, e.g., {@code LOG.atDebug("cache.miss").kv("key", key).log();}
+     *
+     * @param message a message
+     * @return a builder for the event's fields; a no-op builder if DEBUG logging isn't enabled
+     */
+    public final EventBuilder atDebug(String message)
+    {
+        return atLevel(Level.DEBUG, message);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message builds the message, if DEBUG logging is enabled
+     */
+    public final void debug(Throwable cause, MessageSupplier message)
+    {
+        logCallback(Level.DEBUG, cause, Callback.SUPPLIER, message, null, false);
+    }
+
+    /**
+     * Logs a message if DEBUG logging is enabled.
+     *
+     * @param message builds the message, if DEBUG logging is enabled
+     */
+    public final void debug(MessageSupplier message)
+    {
+        logCallback(Level.DEBUG, null, Callback.SUPPLIER, message, null, false);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled.
+     *
+     * @param cause     an exception to print stack trace of
+     * @param formatter builds the message from {@code arg}, if DEBUG logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void debug(Throwable cause, MessageFormatter<? super T> formatter, T arg)
+    {
+        logCallback(Level.DEBUG, cause, Callback.FORMATTER, formatter, arg, false);
+    }
+
+    /**
+     * Logs a message if DEBUG logging is enabled.
+     *
+     * @param formatter builds the message from {@code arg}, if DEBUG logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void debug(MessageFormatter<? super T> formatter, T arg)
+    {
+        logCallback(Level.DEBUG, null, Callback.FORMATTER, formatter, arg, false);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled.
+     *
+     * @param cause  an exception to print stack trace of
+     * @param writer writes the message, if DEBUG logging is enabled
+     */
+    public final void debug(Throwable cause, MessageWriter writer)
+    {
+        logCallback(Level.DEBUG, cause, Callback.WRITER, writer, null, false);
+    }
+
+    /**
+     * Logs a message if DEBUG logging is enabled.
+     *
+     * @param writer writes the message, if DEBUG logging is enabled
+     */
+    public final void debug(MessageWriter writer)
+    {
+        logCallback(Level.DEBUG, null, Callback.WRITER, writer, null, false);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void infof(Throwable cause, String message, Object... args)
+    {
+        logf(Level.INFO, cause, message, args, false);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(Throwable cause, String message, Object arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg1, arg2}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg1, arg2, arg3}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg1, arg2, arg3, arg4}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(Throwable cause, String message, int arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(Throwable cause, String message, long arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(Throwable cause, String message, double arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(Throwable cause, String message, char arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(Throwable cause, String message, byte arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(Throwable cause, String message, short arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(Throwable cause, String message, float arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void infof(String message, Object... args)
+    {
+        logf(Level.INFO, null, message, args, false);
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(String message, Object arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg1, arg2}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg1, arg2, arg3}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg1, arg2, arg3, arg4}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(String message, int arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(String message, long arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(String message, double arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(String message, char arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(String message, byte arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(String message, short arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infof(String message, float arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a message
+     */
+    public final void info(Throwable cause, String message)
+    {
+        log(Level.INFO, message, cause);
+    }
+
+    /**
+     * Logs a message if INFO logging is enabled.
+     *
+     * @param message a message
+     */
+    public final void info(String message)
+    {
+        log(Level.INFO, message, null);
+    }
+
+    /**
+     * Starts a structured INFO event, e.g., {@code LOG.atInfo("cache.miss").kv("key", key).log();}
+     *
+     * @param message a message
+     * @return a builder for the event's fields; a no-op builder if INFO logging isn't enabled
+     */
+    public final EventBuilder atInfo(String message)
+    {
+        return atLevel(Level.INFO, message);
+    }
+
+    /**
+     * Logs a message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message builds the message, if INFO logging is enabled
+     */
+    public final void info(Throwable cause, MessageSupplier message)
+    {
+        logCallback(Level.INFO, cause, Callback.SUPPLIER, message, null, false);
+    }
+
+    /**
+     * Logs a message if INFO logging is enabled.
+     *
+     * @param message builds the message, if INFO logging is enabled
+     */
+    public final void info(MessageSupplier message)
+    {
+        logCallback(Level.INFO, null, Callback.SUPPLIER, message, null, false);
+    }
+
+    /**
+     * Logs a message and stack trace if INFO logging is enabled.
+     *
+     * @param cause     an exception to print stack trace of
+     * @param formatter builds the message from {@code arg}, if INFO logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void info(Throwable cause, MessageFormatter<? super T> formatter, T arg)
+    {
+        logCallback(Level.INFO, cause, Callback.FORMATTER, formatter, arg, false);
+    }
+
+    /**
+     * Logs a message if INFO logging is enabled.
+     *
+     * @param formatter builds the message from {@code arg}, if INFO logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void info(MessageFormatter<? super T> formatter, T arg)
+    {
+        logCallback(Level.INFO, null, Callback.FORMATTER, formatter, arg, false);
+    }
+
+    /**
+     * Logs a message and stack trace if INFO logging is enabled.
+     *
+     * @param cause  an exception to print stack trace of
+     * @param writer writes the message, if INFO logging is enabled
+     */
+    public final void info(Throwable cause, MessageWriter writer)
+    {
+        logCallback(Level.INFO, cause, Callback.WRITER, writer, null, false);
+    }
+
+    /**
+     * Logs a message if INFO logging is enabled.
+     *
+     * @param writer writes the message, if INFO logging is enabled
+     */
+    public final void info(MessageWriter writer)
+    {
+        logCallback(Level.INFO, null, Callback.WRITER, writer, null, false);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of
+     * @param message a message to log
+     * @deprecated You meant to call {@link #info(Throwable, String)}.
+     */
+    @Deprecated
+    public final void infof(Throwable cause, String message)
+    {
+        log(Level.INFO, message, cause);
+    }
+
+    /**
+     * @param message a message to log
+     * @deprecated You meant to call {@link #info(String)}.
+     */
+    @Deprecated
+    public final void infof(String message)
+    {
+        log(Level.INFO, message, null);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void warnf(Throwable cause, String message, Object... args)
+    {
+        logf(Level.WARN, cause, message, args, false);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(Throwable cause, String message, Object arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg1, arg2}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg1, arg2, arg3}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg1, arg2, arg3, arg4}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(Throwable cause, String message, int arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(Throwable cause, String message, long arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(Throwable cause, String message, double arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(Throwable cause, String message, char arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(Throwable cause, String message, byte arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(Throwable cause, String message, short arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(Throwable cause, String message, float arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void warnf(String message, Object... args)
+    {
+        logf(Level.WARN, null, message, args, false);
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(String message, Object arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg1, arg2}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg1, arg2, arg3}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg1, arg2, arg3, arg4}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(String message, int arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(String message, long arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(String message, double arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(String message, char arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(String message, byte arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(String message, short arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnf(String message, float arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a message
+     */
+    public final void warn(Throwable cause, String message)
+    {
+        log(Level.WARN, message, cause);
+    }
+
+    /**
+     * Logs a message if WARN logging is enabled.
+     *
+     * @param message a message
+     */
+    public final void warn(String message)
+    {
+        log(Level.WARN, message, null);
+    }
+
+    /**
+     * Starts a structured WARN event, e.g., {@code LOG.atWarn("cache.miss").kv("key", key).log();}
+     *
+     * @param message a message
+     * @return a builder for the event's fields; a no-op builder if WARN logging isn't enabled
+     */
+    public final EventBuilder atWarn(String message)
+    {
+        return atLevel(Level.WARN, message);
+    }
+
+    /**
+     * Logs a message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message builds the message, if WARN logging is enabled
+     */
+    public final void warn(Throwable cause, MessageSupplier message)
+    {
+        logCallback(Level.WARN, cause, Callback.SUPPLIER, message, null, false);
+    }
+
+    /**
+     * Logs a message if WARN logging is enabled.
+     *
+     * @param message builds the message, if WARN logging is enabled
+     */
+    public final void warn(MessageSupplier message)
+    {
+        logCallback(Level.WARN, null, Callback.SUPPLIER, message, null, false);
+    }
+
+    /**
+     * Logs a message and stack trace if WARN logging is enabled.
+     *
+     * @param cause     an exception to print stack trace of
+     * @param formatter builds the message from {@code arg}, if WARN logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void warn(Throwable cause, MessageFormatter<? super T> formatter, T arg)
+    {
+        logCallback(Level.WARN, cause, Callback.FORMATTER, formatter, arg, false);
+    }
+
+    /**
+     * Logs a message if WARN logging is enabled.
+     *
+     * @param formatter builds the message from {@code arg}, if WARN logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void warn(MessageFormatter<? super T> formatter, T arg)
+    {
+        logCallback(Level.WARN, null, Callback.FORMATTER, formatter, arg, false);
+    }
+
+    /**
+     * Logs a message and stack trace if WARN logging is enabled.
+     *
+     * @param cause  an exception to print stack trace of
+     * @param writer writes the message, if WARN logging is enabled
+     */
+    public final void warn(Throwable cause, MessageWriter writer)
+    {
+        logCallback(Level.WARN, cause, Callback.WRITER, writer, null, false);
+    }
+
+    /**
+     * Logs a message if WARN logging is enabled.
+     *
+     * @param writer writes the message, if WARN logging is enabled
+     */
+    public final void warn(MessageWriter writer)
+    {
+        logCallback(Level.WARN, null, Callback.WRITER, writer, null, false);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of
+     * @param message a message to log
+     * @deprecated You meant to call {@link #warn(Throwable, String)}.
+     */
+    @Deprecated
+    public final void warnf(Throwable cause, String message)
+    {
+        log(Level.WARN, message, cause);
+    }
+
+    /**
+     * @param message a message to log
+     * @deprecated You meant to call {@link #warn(String)}.
+     */
+    @Deprecated
+    public final void warnf(String message)
+    {
+        log(Level.WARN, message, null);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void errorf(Throwable cause, String message, Object... args)
+    {
+        logf(Level.ERROR, cause, message, args, false);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(Throwable cause, String message, Object arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg1, arg2}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg1, arg2, arg3}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg1, arg2, arg3, arg4}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(Throwable cause, String message, int arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(Throwable cause, String message, long arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(Throwable cause, String message, double arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(Throwable cause, String message, char arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(Throwable cause, String message, byte arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(Throwable cause, String message, short arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(Throwable cause, String message, float arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void errorf(String message, Object... args)
+    {
+        logf(Level.ERROR, null, message, args, false);
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(String message, Object arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg1, arg2}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg1, arg2, arg3}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg1, arg2, arg3, arg4}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(String message, int arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(String message, long arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(String message, double arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, arg, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(String message, char arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(String message, byte arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(String message, short arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorf(String message, float arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg}, false);
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a message
+     */
+    public final void error(Throwable cause, String message)
+    {
+        log(Level.ERROR, message, cause);
+    }
+
+    /**
+     * Logs a message if ERROR logging is enabled.
+     *
+     * @param message a message
+     */
+    public final void error(String message)
+    {
+        log(Level.ERROR, message, null);
+    }
+
+    /**
+     * Starts a structured ERROR event, e.g., {@code LOG.atError("cache.miss").kv("key", key).log();}
+     *
+     * @param message a message
+     * @return a builder for the event's fields; a no-op builder if ERROR logging isn't enabled
+     */
+    public final EventBuilder atError(String message)
+    {
+        return atLevel(Level.ERROR, message);
+    }
+
+    /**
+     * Logs a message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message builds the message, if ERROR logging is enabled
+     */
+    public final void error(Throwable cause, MessageSupplier message)
+    {
+        logCallback(Level.ERROR, cause, Callback.SUPPLIER, message, null, false);
+    }
+
+    /**
+     * Logs a message if ERROR logging is enabled.
+     *
+     * @param message builds the message, if ERROR logging is enabled
+     */
+    public final void error(MessageSupplier message)
+    {
+        logCallback(Level.ERROR, null, Callback.SUPPLIER, message, null, false);
+    }
+
+    /**
+     * Logs a message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause     an exception to print stack trace of
+     * @param formatter builds the message from {@code arg}, if ERROR logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void error(Throwable cause, MessageFormatter<? super T> formatter, T arg)
+    {
+        logCallback(Level.ERROR, cause, Callback.FORMATTER, formatter, arg, false);
+    }
+
+    /**
+     * Logs a message if ERROR logging is enabled.
+     *
+     * @param formatter builds the message from {@code arg}, if ERROR logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void error(MessageFormatter<? super T> formatter, T arg)
+    {
+        logCallback(Level.ERROR, null, Callback.FORMATTER, formatter, arg, false);
+    }
+
+    /**
+     * Logs a message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause  an exception to print stack trace of
+     * @param writer writes the message, if ERROR logging is enabled
+     */
+    public final void error(Throwable cause, MessageWriter writer)
+    {
+        logCallback(Level.ERROR, cause, Callback.WRITER, writer, null, false);
+    }
+
+    /**
+     * Logs a message if ERROR logging is enabled.
+     *
+     * @param writer writes the message, if ERROR logging is enabled
+     */
+    public final void error(MessageWriter writer)
+    {
+        logCallback(Level.ERROR, null, Callback.WRITER, writer, null, false);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of
+     * @param message a message to log
+     * @deprecated You meant to call {@link #error(Throwable, String)}.
+     */
+    @Deprecated
+    public final void errorf(Throwable cause, String message)
+    {
+        log(Level.ERROR, message, cause);
+    }
+
+    /**
+     * @param message a message to log
+     * @deprecated You meant to call {@link #error(String)}.
+     */
+    @Deprecated
+    public final void errorf(String message)
+    {
+        log(Level.ERROR, message, null);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final Object... args)
+    {
+        logf(Level.INFO, cause, message, args, true);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final Object arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg1, arg2}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg1, arg2, arg3}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3, final Object arg4)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg1, arg2, arg3, arg4}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final int arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, arg, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final long arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, arg, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final double arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, arg, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final char arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final byte arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final short arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final float arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a message
+     */
+    public final void infoDebug(final Throwable cause, final String message)
+    {
+        logDebug(Level.INFO, cause, message);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message builds the message, if INFO logging is enabled
+     */
+    public final void infoDebug(final Throwable cause, final MessageSupplier message)
+    {
+        logCallback(Level.INFO, cause, Callback.SUPPLIER, message, null, true);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a message and exception description if INFO logging is enabled.
+     *
+     * @param cause     an exception to print stack trace of if DEBUG logging is enabled
+     * @param formatter builds the message from {@code arg}, if INFO logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void infoDebug(final Throwable cause, final MessageFormatter<? super T> formatter, final T arg)
+    {
+        logCallback(Level.INFO, cause, Callback.FORMATTER, formatter, arg, true);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a message and exception description if INFO logging is enabled.
+     *
+     * @param cause  an exception to print stack trace of if DEBUG logging is enabled
+     * @param writer writes the message, if INFO logging is enabled
+     */
+    public final void infoDebug(final Throwable cause, final MessageWriter writer)
+    {
+        logCallback(Level.INFO, cause, Callback.WRITER, writer, null, true);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of if DEBUG level is enabled
+     * @param message a message to log
+     * @deprecated You meant to call {@link #infoDebug(Throwable, String)}.
+     */
+    @Deprecated
+    public final void infoDebugf(Throwable cause, String message)
+    {
+        infoDebug(cause, message);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final Object... args)
+    {
+        logf(Level.WARN, cause, message, args, true);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final Object arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg1, arg2}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg1, arg2, arg3}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3, final Object arg4)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg1, arg2, arg3, arg4}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final int arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, arg, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final long arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, arg, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final double arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, arg, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final char arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final byte arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final short arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final float arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a message
+     */
+    public final void warnDebug(final Throwable cause, final String message)
+    {
+        logDebug(Level.WARN, cause, message);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message builds the message, if WARN logging is enabled
+     */
+    public final void warnDebug(final Throwable cause, final MessageSupplier message)
+    {
+        logCallback(Level.WARN, cause, Callback.SUPPLIER, message, null, true);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a message and exception description if WARN logging is enabled.
+     *
+     * @param cause     an exception to print stack trace of if DEBUG logging is enabled
+     * @param formatter builds the message from {@code arg}, if WARN logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void warnDebug(final Throwable cause, final MessageFormatter<? super T> formatter, final T arg)
+    {
+        logCallback(Level.WARN, cause, Callback.FORMATTER, formatter, arg, true);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a message and exception description if WARN logging is enabled.
+     *
+     * @param cause  an exception to print stack trace of if DEBUG logging is enabled
+     * @param writer writes the message, if WARN logging is enabled
+     */
+    public final void warnDebug(final Throwable cause, final MessageWriter writer)
+    {
+        logCallback(Level.WARN, cause, Callback.WRITER, writer, null, true);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of if DEBUG level is enabled
+     * @param message a message to log
+     * @deprecated You meant to call {@link #warnDebug(Throwable, String)}.
+     */
+    @Deprecated
+    public final void warnDebugf(Throwable cause, String message)
+    {
+        warnDebug(cause, message);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final Object... args)
+    {
+        logf(Level.ERROR, cause, message, args, true);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final Object arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg1, arg2}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg1, arg2, arg3}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3, final Object arg4)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg1, arg2, arg3, arg4}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final int arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, arg, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final long arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, arg, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final double arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, arg, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final char arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final byte arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final short arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifier in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final float arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg}, true);
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a message
+     */
+    public final void errorDebug(final Throwable cause, final String message)
+    {
+        logDebug(Level.ERROR, cause, message);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message builds the message, if ERROR logging is enabled
+     */
+    public final void errorDebug(final Throwable cause, final MessageSupplier message)
+    {
+        logCallback(Level.ERROR, cause, Callback.SUPPLIER, message, null, true);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a message and exception description if ERROR logging is enabled.
+     *
+     * @param cause     an exception to print stack trace of if DEBUG logging is enabled
+     * @param formatter builds the message from {@code arg}, if ERROR logging is enabled
+     * @param arg       the argument to pass to {@code formatter}
+     * @param <T>       type of the argument
+     */
+    public final <T> void errorDebug(final Throwable cause, final MessageFormatter<? super T> formatter, final T arg)
+    {
+        logCallback(Level.ERROR, cause, Callback.FORMATTER, formatter, arg, true);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a message and exception description if ERROR logging is enabled.
+     *
+     * @param cause  an exception to print stack trace of if DEBUG logging is enabled
+     * @param writer writes the message, if ERROR logging is enabled
+     */
+    public final void errorDebug(final Throwable cause, final MessageWriter writer)
+    {
+        logCallback(Level.ERROR, cause, Callback.WRITER, writer, null, true);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of if DEBUG level is enabled
      * @param message a message to log
      * @deprecated You meant to call {@link #errorDebug(Throwable, String)}.
      */
@@ -430,91 +2782,434 @@ public class Logger
         errorDebug(cause, message);
     }
 
-    private void logf(final Level level, final Throwable cause, final String message, final Object... args)
+    /**
+     * Checks the level at the start of a log call, counting the call if metrics are enabled.
+     */
+    private boolean isEnabled(final Level level)
     {
-        if (log4j.isEnabledFor(level)) {
-            String renderedMessage;
+        if (isLevelEnabled(level)) {
+            if (LoggingMetrics.ENABLED) {
+                LoggingMetrics.begin();
+            }
 
-            try {
-                renderedMessage = String.format(message, args);
+            return true;
+        }
+
+        if (LoggingMetrics.ENABLED) {
+            metrics.suppressed(level);
+        }
+
+        return false;
+    }
+
+    private boolean isLevelEnabled(final Level level)
+    {
+        return backend.isEnabled(level) || LevelOverride.forces(level);
+    }
+
+    private EventBuilder atLevel(final Level level, final String message)
+    {
+        if (isEnabled(level) && admitCaller(level)) {
+            if (LoggingMetrics.ENABLED) {
+                // timed from when it's logged instead, as it may never be
+                LoggingMetrics.abandon();
             }
-            catch (RuntimeException e) {
-                log4j.log(
-                    level.toInt() < Level.WARN_INT ? Level.WARN : level,
-                    String.format("Bogus format string: %s %s [%s] (%s)", level, message, safeToString(args), safeToString(e)),
-                    cause
-                );
 
-                return;
+            return PooledEventBuilder.acquire(this, level, message);
+        }
+
+        return NoopEventBuilder.INSTANCE;
+    }
+
+    /**
+     * @return false if the format string is being rate limited at this level
+     */
+    private boolean admit(final Level level, final String format)
+    {
+        RateLimiter limiter = rateLimiter(level);
+
+        return limiter == null || admitted(limiter.admit(format));
+    }
+
+    /**
+     * Messages that aren't format strings can be anything, so they're limited by the line of code logging them.
+     *
+     * @return false if the calling code is being rate limited at this level
+     */
+    private boolean admitCaller(final Level level)
+    {
+        RateLimiter limiter = rateLimiter(level);
+
+        if (limiter == null) {
+            return true;
+        }
+
+        StackTraceElement caller = CallerResolver.INSTANCE.callerOf(Logger.class.getName());
+
+        // keyed by the frame itself, so that no key has to be built per call
+        return admitted(limiter.admit(caller == null ? UNKNOWN_CALLER : caller));
+    }
+
+    /**
+     * Lambdas and anonymous classes get a class per call site, so callbacks are limited by their class.
+     *
+     * @return false if the callback is being rate limited at this level
+     */
+    private boolean admitCallback(final Level level, final Object callback)
+    {
+        RateLimiter limiter = rateLimiter(level);
+
+        return limiter == null || admitted(limiter.admit(callback == null ? null : callback.getClass().getName()));
+    }
+
+    /**
+     * Stops timing calls that the rate limiter turns down, as they never reach the backend.
+     */
+    private static boolean admitted(final boolean admitted)
+    {
+        if (!admitted && LoggingMetrics.ENABLED) {
+            LoggingMetrics.abandon();
+        }
+
+        return admitted;
+    }
+
+    private RateLimiter rateLimiter(final Level level)
+    {
+        RateLimiter[] limiters = rateLimiters;
+
+        return limiters == null ? null : limiters[rateLimitIndex(level)];
+    }
+
+    private static int rateLimitIndex(final Level level)
+    {
+        switch (level.toInt()) {
+            case Level.DEBUG_INT:
+                return 0;
+            case Level.INFO_INT:
+                return 1;
+            case Level.WARN_INT:
+                return 2;
+            case Level.ERROR_INT:
+                return 3;
+            default:
+                throw new IllegalArgumentException(String.format("Level %s can't be rate limited", level));
+        }
+    }
+
+    /**
+     * Logs a structured event built by {@link PooledEventBuilder}; the level was checked when the builder was acquired.
+     */
+    void logStructured(final Level level, final StructuredMessage message, final Throwable cause)
+    {
+        if (LoggingMetrics.ENABLED) {
+            LoggingMetrics.begin();
+        }
+
+        try {
+            backend.logStructured(level, message, cause);
+
+            if (LoggingMetrics.ENABLED) {
+                metrics.emitted(level, message);
+            }
+        }
+        finally {
+            if (LoggingMetrics.ENABLED) {
+                LoggingMetrics.end();
             }
+        }
+    }
+
+    /**
+     * Logs a {@link RateLimiter} summary, which isn't itself rate limited.
+     */
+    void logSummary(final Level level, final String message)
+    {
+        if (isEnabled(level)) {
+            dispatch(level, message, null);
+        }
+    }
 
-            log4j.log(level, renderedMessage, cause);
+    private void log(final Level level, final String message, final Throwable cause)
+    {
+        if (isEnabled(level) && admitCaller(level)) {
+            dispatch(level, message, cause);
         }
     }
 
-    private void logDebug(final Level level, final Throwable cause, final String message)
+    /**
+     * Logs a warning about a call that was already let through at {@code level}, in place of its event.
+     */
+    private void dispatchWarning(final Level level, final String message, final Throwable cause, final boolean debug)
+    {
+        Level warnLevel = level.toInt() < Level.WARN_INT ? Level.WARN : level;
+
+        if (isLevelEnabled(warnLevel)) {
+            dispatch(warnLevel, message, cause, debug);
+        }
+        else if (LoggingMetrics.ENABLED) {
+            metrics.suppressed(warnLevel);
+            LoggingMetrics.abandon();
+        }
+    }
+
+    private void dispatch(final Level level, final Object message, final Throwable cause)
     {
-        if (cause == null || log4j.isDebugEnabled()) {
-            log4j.log(level, message, cause);
+        try {
+            backend.log(level, message, cause);
+
+            if (LoggingMetrics.ENABLED) {
+                metrics.emitted(level, message);
+            }
+        }
+        finally {
+            if (LoggingMetrics.ENABLED) {
+                LoggingMetrics.end();
+            }
         }
-        else if (log4j.isEnabledFor(level)) {
-            String causeMessage = cause.getMessage();
+    }
+
+    /**
+     * Renders the message of a callback once the call is let through, logging a warning instead if the callback fails.
+     */
+    private void logCallback(final Level level, final Throwable cause, final Callback type, final Object callback, final Object arg, final boolean debug)
+    {
+        if (isEnabled(level) && admitCallback(level, callback)) {
+            String message;
 
-            if (causeMessage == null) {
-                causeMessage = cause.getClass().getName();
+            try {
+                message = type.render(callback, arg);
+            }
+            catch (RuntimeException e) {
+                logBogusCallback(level, cause, callback, e);
+                return;
             }
-            else {
-                int index = causeMessage.indexOf("\n");
 
-                if (index != -1) {
-                    causeMessage = causeMessage.substring(0, index);
-                }
+            dispatch(level, message, cause, debug);
+        }
+    }
+
+    // the writer appends to the thread's pooled builder; only the finished message is copied out
+    private static String write(final MessageWriter writer)
+    {
+        RenderContext context = RenderContext.acquire();
+
+        try {
+            StringBuilder builder = context.builder();
+            RenderLimits limits = RenderLimits.get();
 
-                causeMessage = cause.getClass().getName() + ": " + causeMessage;
+            writer.write(builder);
+
+            if (limits.exceedsMessage(builder, 0)) {
+                limits.truncateMessage(builder, 0);
             }
 
-            log4j.log(level, message + " (Switch to DEBUG for full stack trace): " + causeMessage);
+            return builder.toString();
+        }
+        finally {
+            context.release();
+        }
+    }
+
+    private void logBogusCallback(final Level level, final Throwable cause, final Object callback, final RuntimeException e)
+    {
+        if (LoggingMetrics.ENABLED) {
+            metrics.formatFailed();
+        }
+
+        RenderContext context = RenderContext.acquire();
+        String description;
+
+        try {
+            StringBuilder builder = context.builder();
+
+            builder.append("Bogus message callback: ").append(level).append(' ').append(callback == null ? null : callback.getClass().getName()).append(" (");
+            appendSafely(builder, e);
+            description = builder.append(')').toString();
+        }
+        finally {
+            context.release();
+        }
+
+        dispatchWarning(level, description, cause, false);
+    }
+
+    private void logf(final Level level, final Throwable cause, final String message, final Object[] args, final boolean debug)
+    {
+        if (isEnabled(level)) {
+            formatAndLog(level, cause, message, args, debug);
+        }
+    }
+
+    // the formatAndLog methods are called once the level is known to be enabled; rate limits are checked before formatting
+    private void formatAndLog(final Level level, final Throwable cause, final String message, final Object[] args, final boolean debug)
+    {
+        if (admit(level, message)) {
+            renderAndLog(level, cause, message, args, debug);
         }
     }
 
-    private void logDebugf(final Level level, final Throwable cause, final String message, final Object... args)
+    private void renderAndLog(final Level level, final Throwable cause, final String message, final Object[] args, final boolean debug)
     {
-        if (log4j.isEnabledFor(level)) {
-            String renderedMessage;
+        FormatTemplate template = message == null ? null : FormatTemplate.forFormat(message);
+        // known-bad argument types skip straight to the fallback instead of throwing again
+        String failure = template == null ? null : template.knownFailure(args);
+        String renderedMessage = null;
+
+        // arguments that are sure not to fit are formatted now, so the failure is reported at WARN as usual
+        if (failure == null && template != null && deferFormatting && template.accepts(args)) {
+            dispatch(level, new FormattedMessage(template, args), cause, debug);
+            return;
+        }
 
+        if (failure == null) {
             try {
-                renderedMessage = String.format(message, args);
+                renderedMessage = template == null ? RenderContext.format(message, args) : template.render(args);
             }
             catch (RuntimeException e) {
-                logDebug(
-                    level.toInt() < Level.WARN_INT ? Level.WARN : level,
-                    cause,
-                    String.format("Bogus format string: %s %s [%s] (%s)", level, message, safeToString(args), safeToString(e))
-                );
+                failure = safeToString(e);
 
-                return;
+                if (template != null) {
+                    template.recordFailure(args, e, failure);
+                }
+            }
+        }
+
+        if (failure != null) {
+            if (LoggingMetrics.ENABLED) {
+                metrics.formatFailed();
             }
 
-            logDebug(level, cause, renderedMessage);
+            dispatchWarning(level, describeBogusFormat(level, message, args, failure), cause, debug);
+
+            return;
+        }
+
+        dispatch(level, renderedMessage, cause, debug);
+    }
+
+    // the primitive overloads only box their argument if the template can't render it directly
+    private void formatAndLog(final Level level, final Throwable cause, final String message, final int arg, final boolean debug)
+    {
+        if (admit(level, message)) {
+            String renderedMessage = renderInteger(message, arg);
+
+            logRendered(level, cause, message, renderedMessage, renderedMessage == null ? new Object[]{arg} : null, debug);
+        }
+    }
+
+    private void formatAndLog(final Level level, final Throwable cause, final String message, final long arg, final boolean debug)
+    {
+        if (admit(level, message)) {
+            String renderedMessage = renderInteger(message, arg);
+
+            logRendered(level, cause, message, renderedMessage, renderedMessage == null ? new Object[]{arg} : null, debug);
+        }
+    }
+
+    private void formatAndLog(final Level level, final Throwable cause, final String message, final double arg, final boolean debug)
+    {
+        if (admit(level, message)) {
+            String renderedMessage = message == null || deferFormatting ? null : FormatTemplate.forFormat(message).renderDouble(arg);
+
+            logRendered(level, cause, message, renderedMessage, renderedMessage == null ? new Object[]{arg} : null, debug);
+        }
+    }
+
+    private String renderInteger(final String message, final long arg)
+    {
+        return message == null || deferFormatting ? null : FormatTemplate.forFormat(message).renderInteger(arg);
+    }
+
+    /**
+     * Logs a message rendered from a primitive argument, or formats the boxed argument the usual way if it couldn't be.
+     */
+    private void logRendered(final Level level, final Throwable cause, final String message, final String renderedMessage, final Object[] args, final boolean debug)
+    {
+        if (renderedMessage == null) {
+            renderAndLog(level, cause, message, args, debug);
+        }
+        else {
+            dispatch(level, renderedMessage, cause, debug);
+        }
+    }
+
+    private void logDebug(final Level level, final Throwable cause, final String message)
+    {
+        if (isEnabled(level) && admitCaller(level)) {
+            dispatchDebug(level, cause, message);
+        }
+    }
+
+    /**
+     * @param debug whether the cause's stack trace is only logged if DEBUG is enabled (see {@link #dispatchDebug})
+     */
+    private void dispatch(final Level level, final Object message, final Throwable cause, final boolean debug)
+    {
+        if (debug) {
+            dispatchDebug(level, cause, message);
+        }
+        else {
+            dispatch(level, message, cause);
+        }
+    }
+
+    private void dispatchDebug(final Level level, final Throwable cause, final Object message)
+    {
+        if (cause == null || isLevelEnabled(Level.DEBUG)) {
+            dispatch(level, message, cause);
+        }
+        else {
+            dispatch(level, new CauseSummaryMessage(message == null ? null : message.toString(), cause), null);
+        }
+    }
+
+    private static String describeBogusFormat(final Level level, final String message, final Object[] args, final String failure)
+    {
+        RenderContext context = RenderContext.acquire();
+
+        try {
+            StringBuilder builder = context.builder();
+
+            builder.append("Bogus format string: ").append(level).append(' ').append(message).append(" [");
+            appendSafely(builder, args);
+
+            return builder.append("] (").append(failure).append(')').toString();
+        }
+        finally {
+            context.release();
+        }
+    }
+
+    private static String safeToString(Object... args)
+    {
+        RenderContext context = RenderContext.acquire();
+
+        try {
+            return appendSafely(context.builder(), args).toString();
+        }
+        finally {
+            context.release();
         }
     }
 
-    private String safeToString(Object... args)
+    private static StringBuilder appendSafely(StringBuilder result, Object... args)
     {
         if (args == null) {
-            return "null";
+            return result.append("null");
         }
 
-        StringBuilder result = new StringBuilder(16 * args.length);
+        RenderLimits limits = RenderLimits.get();
+        int start = result.length();
 
         for (Object arg : args) {
-            if (result.length() > 0) {
+            if (result.length() > start) {
                 result.append(", ");
             }
 
             // guard against some object's toString() throwing an exception
             try {
-                result.append(arg);
+                limits.appendArgument(result, arg);
             }
             catch (RuntimeException e) {
                 try {
@@ -527,6 +3222,41 @@ public class Logger
             }
         }
 
-        return result.toString();
+        return result;
+    }
+
+    /**
+     * How each kind of callback renders its message.
+     */
+    private enum Callback
+    {
+        SUPPLIER
+        {
+            @Override
+            String render(Object callback, Object arg)
+            {
+                return ((MessageSupplier) callback).get();
+            }
+        },
+        FORMATTER
+        {
+            @Override
+            @SuppressWarnings("unchecked")
+            String render(Object callback, Object arg)
+            {
+                // the public methods tie the formatter's type to the argument's
+                return ((MessageFormatter<Object>) callback).format(arg);
+            }
+        },
+        WRITER
+        {
+            @Override
+            String render(Object callback, Object arg)
+            {
+                return write((MessageWriter) callback);
+            }
+        };
+
+        abstract String render(Object callback, Object arg);
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+
+/**
+ * What one {@link Logger} has logged; see {@link LoggingMetrics}.
+ */
+final class LoggerMetrics
+{
+    static final Level[] LEVELS = {Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+
+    // counter indexes; EMITTED and SUPPRESSED are followed by one counter per level
+    private static final int EMITTED = 0;
+    private static final int SUPPRESSED = 4;
+    private static final int CHARACTERS = 8;
+    private static final int FAILURES = 9;
+
+    private final String name;
+    private final StripedCounters counters = new StripedCounters(10);
+
+    LoggerMetrics(String name)
+    {
+        this.name = name;
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Counts an event handed to the backend, and the length of its message if that's known without rendering it.
+     */
+    void emitted(Level level, Object message)
+    {
+        counters.add(EMITTED + levelIndex(level), 1);
+
+        if (message instanceof String) {
+            counters.add(CHARACTERS, ((String) message).length());
+        }
+        else if (message instanceof CauseSummaryMessage) {
+            counters.add(CHARACTERS, ((CauseSummaryMessage) message).length());
+        }
+    }
+
+    /**
+     * Counts a call at a disabled level; approximate, so as to keep the disabled path cheap.
+     */
+    void suppressed(Level level)
+    {
+        counters.incrementApproximately(SUPPRESSED + levelIndex(level));
+    }
+
+    /**
+     * Counts a format string that didn't match its arguments, or a message callback that threw.
+     */
+    void formatFailed()
+    {
+        counters.add(FAILURES, 1);
+    }
+
+    long getEmitted(int levelIndex)
+    {
+        return counters.sum(EMITTED + levelIndex);
+    }
+
+    long getSuppressed(int levelIndex)
+    {
+        return counters.sum(SUPPRESSED + levelIndex);
+    }
+
+    long getEmitted()
+    {
+        long total = 0;
+
+        for (int i = 0; i < LEVELS.length; ++i) {
+            total += getEmitted(i);
+        }
+
+        return total;
+    }
+
+    long getSuppressed()
+    {
+        long total = 0;
+
+        for (int i = 0; i < LEVELS.length; ++i) {
+            total += getSuppressed(i);
+        }
+
+        return total;
+    }
+
+    long getCharacters()
+    {
+        return counters.sum(CHARACTERS);
+    }
+
+    long getFormatFailures()
+    {
+        return counters.sum(FAILURES);
+    }
+
+    void reset()
+    {
+        counters.reset();
+    }
+
+    /**
+     * @param level a level name, e.g., {@code WARN}
+     * @return its index in {@link #LEVELS}
+     * @throws IllegalArgumentException if it isn't DEBUG, INFO, WARN or ERROR
+     */
+    static int levelIndex(String level)
+    {
+        for (int i = 0; i < LEVELS.length; ++i) {
+            if (LEVELS[i].toString().equalsIgnoreCase(level)) {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Unknown level %s", level));
+    }
+
+    private static int levelIndex(Level level)
+    {
+        switch (level.toInt()) {
+            case Level.DEBUG_INT:
+                return 0;
+            case Level.INFO_INT:
+                return 1;
+            case Level.WARN_INT:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+/**
+ * A logging implementation {@link Logger} can send events to, in place of Log4J.
+ * <p/>
+ * Backends are found with {@link java.util.ServiceLoader}: list the implementation class in
+ * {@code META-INF/services/com.mogwee.logging.LoggingBackend}, and give it a public no-argument constructor.
+ * The first backend found is used, or the one named by the {@value BackendLoader#BACKEND_PROPERTY} system property
+ * if there are several (the property may also name a backend that isn't listed, such as {@link NativeBackend});
+ * without any, events go to Log4J ({@link Log4jBackend}). The backend is chosen once, when {@link Logger} is first used.
+ */
+public interface LoggingBackend
+{
+    /**
+     * Called once per name; {@link Logger} keeps the result.
+     *
+     * @param name a logger name, usually a fully-qualified class name
+     * @return the logger to send events logged under that name to
+     */
+    BackendLogger getLogger(String name);
+
+    /**
+     * Writes out whatever events are buffered, as far as the backend is able to.
+     */
+    void flush();
+}
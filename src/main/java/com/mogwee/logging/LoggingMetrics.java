@@ -0,0 +1,318 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.helpers.LogLog;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counts what every {@link Logger} logs, to tell how much logging costs and which classes it comes from.
+ * <p/>
+ * Metrics are off unless the {@value #ENABLED_PROPERTY} system property is true when the library is loaded; when off,
+ * the checks compile away. When on, each logger counts, per level, the events it hands to the backend and the calls
+ * it turns down, plus the characters of the messages it renders and its format failures, in counters striped by thread.
+ * Characters are counted rather than encoded bytes, and only for messages rendered on the logging thread (strings,
+ * including callback and writer output, and cause summaries); messages whose rendering is left to the appenders
+ * (deferred formatting, structured events) aren't counted, as they may never be rendered at all.
+ * The time spent in calls that log is sampled (every {@value #LATENCY_SAMPLE_INTERVAL}th call on each thread, as reading
+ * the clock can cost more than the rest of the bookkeeping) into a histogram shared by all loggers; a call made while
+ * another is in progress on the thread (e.g., from a {@code toString()} it renders) is timed as part of the outer one,
+ * and event builders are timed from {@code log()}. Calls at disabled levels only cost an unsynchronized increment (so
+ * that count is approximate); they aren't timed.
+ * <p/>
+ * The metrics are registered with the platform MBean server as {@value #OBJECT_NAME}.
+ */
+public final class LoggingMetrics implements LoggingMetricsMBean
+{
+    public static final String ENABLED_PROPERTY = "com.mogwee.logging.metrics";
+    public static final String OBJECT_NAME = "com.mogwee.logging:type=LoggingMetrics";
+
+    static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+    static final int LATENCY_SAMPLE_INTERVAL = 16;
+
+    private static final ConcurrentMap<String, LoggerMetrics> LOGGERS = new ConcurrentHashMap<String, LoggerMetrics>();
+    private static final LatencyHistogram LATENCY = new LatencyHistogram();
+    // per thread: when the outermost log call in progress started, or 0 if it isn't timed; the number of outermost calls
+    // so far; and the number of calls in progress, counting those nested in another (e.g., from a toString() it renders)
+    private static final int START = 0;
+    private static final int CALLS = 1;
+    private static final int DEPTH = 2;
+    private static final ThreadLocal<long[]> PROBES = new ThreadLocal<long[]>()
+    {
+        @Override
+        protected long[] initialValue()
+        {
+            return new long[3];
+        }
+    };
+    private static final LoggingMetrics INSTANCE = new LoggingMetrics();
+
+    static {
+        if (ENABLED) {
+            register();
+        }
+    }
+
+    private LoggingMetrics()
+    {
+    }
+
+    /**
+     * @return the metrics, e.g., to read them without going through JMX; all zeros unless enabled
+     */
+    public static LoggingMetrics getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @param name a logger name
+     * @return the metrics of the logger, created if needed
+     */
+    static LoggerMetrics forLogger(String name)
+    {
+        LoggerMetrics metrics = LOGGERS.get(name);
+
+        if (metrics == null) {
+            metrics = new LoggerMetrics(name);
+
+            LoggerMetrics existing = LOGGERS.putIfAbsent(name, metrics);
+
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Marks the start of a log call on the current thread, once its level has been found enabled. Every call must be
+     * followed by {@link #end()} or {@link #abandon()}; a call nested in another is timed as part of the outer one.
+     */
+    static void begin()
+    {
+        long[] probe = PROBES.get();
+
+        if (probe[DEPTH]++ == 0) {
+            probe[START] = ++probe[CALLS] % LATENCY_SAMPLE_INTERVAL == 0 ? System.nanoTime() : 0;
+        }
+    }
+
+    /**
+     * Ends the call marked by {@link #begin()} once its event has been handed to the backend, recording the time since
+     * if it's the outermost call.
+     */
+    static void end()
+    {
+        long[] probe = PROBES.get();
+
+        if (probe[DEPTH] > 0 && --probe[DEPTH] == 0 && probe[START] != 0) {
+            LATENCY.record(System.nanoTime() - probe[START]);
+            probe[START] = 0;
+        }
+    }
+
+    /**
+     * Ends the call marked by {@link #begin()} without recording it, as it never reached the backend (rate limited,
+     * or an event builder that's timed from when it's logged instead).
+     */
+    static void abandon()
+    {
+        long[] probe = PROBES.get();
+
+        if (probe[DEPTH] > 0 && --probe[DEPTH] == 0) {
+            probe[START] = 0;
+        }
+    }
+
+    @Override
+    public long getEmittedEvents()
+    {
+        long total = 0;
+
+        for (LoggerMetrics metrics : LOGGERS.values()) {
+            total += metrics.getEmitted();
+        }
+
+        return total;
+    }
+
+    @Override
+    public long getSuppressedEvents()
+    {
+        long total = 0;
+
+        for (LoggerMetrics metrics : LOGGERS.values()) {
+            total += metrics.getSuppressed();
+        }
+
+        return total;
+    }
+
+    @Override
+    public long getRenderedCharacters()
+    {
+        long total = 0;
+
+        for (LoggerMetrics metrics : LOGGERS.values()) {
+            total += metrics.getCharacters();
+        }
+
+        return total;
+    }
+
+    @Override
+    public long getFormatFailures()
+    {
+        long total = 0;
+
+        for (LoggerMetrics metrics : LOGGERS.values()) {
+            total += metrics.getFormatFailures();
+        }
+
+        return total;
+    }
+
+    @Override
+    public long[] getLatencyHistogram()
+    {
+        return LATENCY.getCounts();
+    }
+
+    @Override
+    public long[] getLatencyBucketBoundsNanos()
+    {
+        return LatencyHistogram.getUpperBounds();
+    }
+
+    @Override
+    public long getLatencyPercentileNanos(double percentile)
+    {
+        return LATENCY.getPercentile(percentile);
+    }
+
+    @Override
+    public String[] getLoggerNames()
+    {
+        List<String> names = new ArrayList<String>(LOGGERS.keySet());
+
+        Collections.sort(names);
+
+        return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public String[] getTopLoggers(int count)
+    {
+        List<LoggerMetrics> loggers = new ArrayList<LoggerMetrics>(LOGGERS.values());
+        final long[] characters = new long[loggers.size()];
+        List<Integer> order = new ArrayList<Integer>(loggers.size());
+
+        // snapshot the sort key, since the counters keep moving
+        for (int i = 0; i < characters.length; ++i) {
+            characters[i] = loggers.get(i).getCharacters();
+            order.add(i);
+        }
+
+        Collections.sort(order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer a, Integer b)
+            {
+                return characters[b] < characters[a] ? -1 : characters[b] == characters[a] ? 0 : 1;
+            }
+        });
+
+        String[] result = new String[Math.max(Math.min(count, order.size()), 0)];
+
+        for (int i = 0; i < result.length; ++i) {
+            LoggerMetrics metrics = loggers.get(order.get(i));
+
+            result[i] = String.format(
+                "%s emitted=%s suppressed=%s characters=%s failures=%s",
+                metrics.getName(),
+                metrics.getEmitted(),
+                metrics.getSuppressed(),
+                characters[order.get(i)],
+                metrics.getFormatFailures()
+            );
+        }
+
+        return result;
+    }
+
+    @Override
+    public long getEmittedEvents(String loggerName, String level)
+    {
+        LoggerMetrics metrics = LOGGERS.get(loggerName);
+
+        return metrics == null ? 0 : metrics.getEmitted(LoggerMetrics.levelIndex(level));
+    }
+
+    @Override
+    public long getSuppressedEvents(String loggerName, String level)
+    {
+        LoggerMetrics metrics = LOGGERS.get(loggerName);
+
+        return metrics == null ? 0 : metrics.getSuppressed(LoggerMetrics.levelIndex(level));
+    }
+
+    @Override
+    public long getRenderedCharacters(String loggerName)
+    {
+        LoggerMetrics metrics = LOGGERS.get(loggerName);
+
+        return metrics == null ? 0 : metrics.getCharacters();
+    }
+
+    @Override
+    public long getFormatFailures(String loggerName)
+    {
+        LoggerMetrics metrics = LOGGERS.get(loggerName);
+
+        return metrics == null ? 0 : metrics.getFormatFailures();
+    }
+
+    @Override
+    public void reset()
+    {
+        for (LoggerMetrics metrics : LOGGERS.values()) {
+            metrics.reset();
+        }
+
+        LATENCY.reset();
+    }
+
+    private static void register()
+    {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        }
+        catch (Exception e) {
+            LogLog.warn(String.format("Unable to register %s", OBJECT_NAME), e);
+        }
+    }
+}
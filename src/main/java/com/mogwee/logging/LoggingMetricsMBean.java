@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * JMX view of {@link LoggingMetrics}. Levels are given by name: DEBUG, INFO, WARN or ERROR.
+ */
+public interface LoggingMetricsMBean
+{
+    /**
+     * @return the number of events handed to the backend
+     */
+    long getEmittedEvents();
+
+    /**
+     * @return the number of calls at disabled levels (approximate)
+     */
+    long getSuppressedEvents();
+
+    /**
+     * @return the number of message characters rendered on logging threads; an approximation of the text logged, as
+     *         characters aren't encoded bytes, and messages left for the appenders to render aren't counted
+     */
+    long getRenderedCharacters();
+
+    /**
+     * @return the number of format strings that didn't match their arguments, and of message callbacks that threw
+     */
+    long getFormatFailures();
+
+    /**
+     * @return the number of sampled log calls in each latency bucket; see {@link #getLatencyBucketBoundsNanos()}
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * @return the exclusive upper bound of each latency bucket, in nanoseconds
+     */
+    long[] getLatencyBucketBoundsNanos();
+
+    /**
+     * @param percentile a percentile, e.g., 99.9
+     * @return an upper bound for that percentile of the time spent in log calls, in nanoseconds
+     */
+    long getLatencyPercentileNanos(double percentile);
+
+    /**
+     * @return the names of the loggers that have logged or been called at a disabled level
+     */
+    String[] getLoggerNames();
+
+    /**
+     * @param count how many loggers to list
+     * @return the loggers that rendered the most characters, as {@code name emitted=... suppressed=... characters=... failures=...}
+     */
+    String[] getTopLoggers(int count);
+
+    /**
+     * @param loggerName a logger name
+     * @param level      a level name
+     * @return the number of events the logger handed to the backend at that level
+     */
+    long getEmittedEvents(String loggerName, String level);
+
+    /**
+     * @param loggerName a logger name
+     * @param level      a level name
+     * @return the number of calls to the logger at that level while it was disabled (approximate)
+     */
+    long getSuppressedEvents(String loggerName, String level);
+
+    /**
+     * @param loggerName a logger name
+     * @return the number of message characters the logger rendered on logging threads; see {@link #getRenderedCharacters()}
+     */
+    long getRenderedCharacters(String loggerName);
+
+    /**
+     * @param loggerName a logger name
+     * @return the number of format failures in the logger's calls
+     */
+    long getFormatFailures(String loggerName);
+
+    /**
+     * Zeroes every counter and the latency histogram.
+     */
+    void reset();
+}
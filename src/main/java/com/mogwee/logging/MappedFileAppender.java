@@ -0,0 +1,519 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Layout;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.helpers.OptionConverter;
+import org.apache.log4j.spi.ErrorCode;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends events to memory-mapped, pre-sized segment files, {@code File.000001}, {@code File.000002}, etc.
+ * <p/>
+ * Appending is a copy into the mapping; nothing is flushed per event. A background thread forces the current
+ * segment to disk every {@code FlushIntervalMillis} (default 1000), and sooner once {@code FlushBytes} (default 1MB)
+ * have been written since the last flush. When an event doesn't fit in what's left of a segment, the segment
+ * is flushed, truncated to its contents, unmapped and closed, and the next one is created.
+ * <p/>
+ * Segments are zero-filled when created (by growing the file, which doesn't write the zeros), and the layout must end
+ * every event with a line separator. On startup, the appender reopens the newest segment and resumes after the last
+ * complete line that isn't preceded by a zero byte, truncating whatever a crash left after it. Text that was written but not yet flushed when the machine
+ * (as opposed to the process) crashed can therefore be lost, up to one flush interval's worth.
+ * <p/>
+ * With a {@link JsonLayout}, events are copied from the layout's byte buffer without going through a string.
+ * Other layouts are encoded with {@code Encoding} (default UTF-8).
+ */
+public class MappedFileAppender extends AppenderSkeleton implements Flushable
+{
+    static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    static final long DEFAULT_FLUSH_BYTES = 1024L * 1024;
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    private static final int RECOVERY_CHUNK_SIZE = 64 * 1024;
+
+    private String fileName = null;
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+    private long flushBytes = DEFAULT_FLUSH_BYTES;
+    private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private Charset encoding = Charset.forName("UTF-8");
+
+    private int segmentIndex = 0;
+    private volatile Segment segment = null;
+    private long unflushedBytes = 0;
+    private volatile boolean dirty = false;
+    private Thread flusher = null;
+
+    public MappedFileAppender()
+    {
+    }
+
+    public MappedFileAppender(Layout layout, String fileName)
+    {
+        this.layout = layout;
+        this.fileName = fileName;
+        activateOptions();
+    }
+
+    public String getFile()
+    {
+        return fileName;
+    }
+
+    /**
+     * @param fileName path segment files are named after
+     */
+    public void setFile(String fileName)
+    {
+        this.fileName = fileName == null ? null : fileName.trim();
+    }
+
+    public long getSegmentSize()
+    {
+        return segmentSize;
+    }
+
+    /**
+     * @param segmentSize size of each segment, e.g., {@code 64MB}; at most 2GB
+     */
+    public void setSegmentSize(String segmentSize)
+    {
+        this.segmentSize = Math.min(OptionConverter.toFileSize(segmentSize, DEFAULT_SEGMENT_SIZE), Integer.MAX_VALUE);
+    }
+
+    public long getFlushBytes()
+    {
+        return flushBytes;
+    }
+
+    /**
+     * @param flushBytes how much can be written before a flush is requested, e.g., {@code 1MB}; zero or less to only flush periodically
+     */
+    public void setFlushBytes(String flushBytes)
+    {
+        this.flushBytes = OptionConverter.toFileSize(flushBytes, DEFAULT_FLUSH_BYTES);
+    }
+
+    public long getFlushIntervalMillis()
+    {
+        return flushIntervalMillis;
+    }
+
+    /**
+     * @param flushIntervalMillis how often written events are forced to disk; zero or less to only flush by size
+     */
+    public void setFlushIntervalMillis(long flushIntervalMillis)
+    {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public String getEncoding()
+    {
+        return encoding.name();
+    }
+
+    public void setEncoding(String encoding)
+    {
+        this.encoding = Charset.forName(encoding);
+    }
+
+    @Override
+    public synchronized void activateOptions()
+    {
+        if (fileName == null) {
+            LogLog.error(String.format("File option not set for appender [%s]", name));
+            return;
+        }
+
+        try {
+            segmentIndex = findNewestSegment(fileName);
+            segment = Segment.open(segmentFile(segmentIndex), segmentSize);
+            LogLog.debug(String.format("Appender [%s] resuming %s at offset %s", name, segmentFile(segmentIndex), segment.buffer.position()));
+        }
+        catch (IOException e) {
+            errorHandler.error(String.format("Unable to open %s", segmentFile(segmentIndex)), e, ErrorCode.FILE_OPEN_FAILURE);
+            segment = null;
+            return;
+        }
+
+        startFlusher();
+    }
+
+    @Override
+    protected void append(LoggingEvent event)
+    {
+        if (segment == null) {
+            errorHandler.error(String.format("No segment open for appender [%s]", name));
+            return;
+        }
+
+        ByteBuffer record = encode(event);
+
+        try {
+            if (record.remaining() > segment.buffer.remaining()) {
+                roll(record.remaining());
+            }
+        }
+        catch (IOException e) {
+            errorHandler.error(String.format("Unable to roll %s", segmentFile(segmentIndex)), e, ErrorCode.WRITE_FAILURE);
+            segment = null;
+            return;
+        }
+
+        unflushedBytes += record.remaining();
+        segment.buffer.put(record);
+        dirty = true;
+
+        if (flushBytes > 0 && unflushedBytes >= flushBytes) {
+            unflushedBytes = 0;
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    private ByteBuffer encode(LoggingEvent event)
+    {
+        if (layout instanceof JsonLayout) {
+            return ((JsonLayout) layout).encode(event);
+        }
+
+        String text = layout.format(event);
+
+        if (layout.ignoresThrowable()) {
+            String[] throwable = event.getThrowableStrRep();
+
+            if (throwable != null) {
+                StringBuilder builder = new StringBuilder(text);
+
+                for (String line : throwable) {
+                    builder.append(line).append(Layout.LINE_SEP);
+                }
+
+                text = builder.toString();
+            }
+        }
+
+        return ByteBuffer.wrap(text.getBytes(encoding));
+    }
+
+    private void roll(int recordLength) throws IOException
+    {
+        segment.close();
+        ++segmentIndex;
+        // an event larger than a segment gets a segment of its own
+        segment = Segment.open(segmentFile(segmentIndex), Math.max(segmentSize, recordLength));
+        unflushedBytes = 0;
+    }
+
+    /**
+     * Forces the current segment to disk now, rather than waiting for the flusher thread.
+     */
+    @Override
+    public void flush()
+    {
+        Segment current = segment;
+
+        if (current != null) {
+            dirty = false;
+            current.force();
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher = null;
+        }
+
+        if (segment != null) {
+            try {
+                segment.close();
+            }
+            catch (IOException e) {
+                errorHandler.error(String.format("Unable to close %s", segmentFile(segmentIndex)), e, ErrorCode.CLOSE_FAILURE);
+            }
+
+            segment = null;
+        }
+    }
+
+    @Override
+    public boolean requiresLayout()
+    {
+        return true;
+    }
+
+    File segmentFile(int index)
+    {
+        return new File(String.format("%s.%06d", fileName, index));
+    }
+
+    /**
+     * @param fileName path segment files are named after
+     * @return the highest index of the existing segments, or 1 if there are none; creates the directory if needed
+     */
+    static int findNewestSegment(String fileName)
+    {
+        return findNewestSegment(fileName, "");
+    }
+
+    /**
+     * @param fileName path segment files are named after
+     * @param suffix   what segment file names end with after their index, e.g., {@code .gz}
+     * @return the highest index of the existing segments, or 1 if there are none; creates the directory if needed
+     */
+    static int findNewestSegment(String fileName, String suffix)
+    {
+        File base = new File(fileName).getAbsoluteFile();
+        File[] files = base.getParentFile().listFiles();
+        String prefix = base.getName() + ".";
+        int newest = 1;
+
+        if (files == null) {
+            base.getParentFile().mkdirs();
+            return newest;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+
+            if (name.startsWith(prefix) && name.endsWith(suffix) && name.length() > prefix.length() + suffix.length()) {
+                try {
+                    newest = Math.max(newest, Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length())));
+                }
+                catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+
+        return newest;
+    }
+
+    private void startFlusher()
+    {
+        if (flusher != null) {
+            return;
+        }
+
+        flusher = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (!Thread.currentThread().isInterrupted()) {
+                    if (flushIntervalMillis > 0) {
+                        LockSupport.parkNanos(flushIntervalMillis * 1000000L);
+                    }
+                    else {
+                        LockSupport.park();
+                    }
+
+                    Segment current = segment;
+
+                    if (dirty && current != null) {
+                        dirty = false;
+
+                        try {
+                            current.force();
+                        }
+                        catch (RuntimeException e) {
+                            LogLog.error(String.format("Unable to flush %s", current.file), e);
+                        }
+                    }
+                }
+            }
+        }, "mogwee-logging-mmap-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * A mapped segment file. Writes go through {@link #buffer} under the appender's lock; flushing and closing
+     * are synchronized on the segment so the flusher thread never forces a closed segment.
+     */
+    static final class Segment
+    {
+        private final File file;
+        private final RandomAccessFile raf;
+        private final MappedByteBuffer buffer;
+        private boolean closed = false;
+
+        private Segment(File file, RandomAccessFile raf, MappedByteBuffer buffer)
+        {
+            this.file = file;
+            this.raf = raf;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Opens (or creates) a segment, positioned after its last complete record.
+         *
+         * @param file the segment's file
+         * @param size how big to make the segment, if it isn't bigger already
+         * @return the segment
+         * @throws IOException if the file can't be mapped
+         */
+        static Segment open(File file, long size) throws IOException
+        {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+            try {
+                int end = recover(raf.getChannel(), (int) Math.min(raf.length(), Integer.MAX_VALUE));
+
+                // discard the incomplete record and anything after it; mapping grows the file back with zeros
+                raf.setLength(end);
+
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, end));
+
+                buffer.position(end);
+
+                return new Segment(file, raf, buffer);
+            }
+            catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @param channel a segment file
+         * @param length  how much of it to look at
+         * @return the offset just past the last newline that isn't preceded by a zero byte
+         * @throws IOException if the file can't be read
+         */
+        static int recover(FileChannel channel, int length) throws IOException
+        {
+            ByteBuffer chunk = ByteBuffer.allocate(RECOVERY_CHUNK_SIZE);
+            int end = 0;
+            int offset = 0;
+
+            while (offset < length) {
+                chunk.clear();
+                chunk.limit(Math.min(chunk.capacity(), length - offset));
+
+                int read = channel.read(chunk, offset);
+
+                if (read <= 0) {
+                    break;
+                }
+
+                for (int i = 0; i < read; ++i) {
+                    byte b = chunk.get(i);
+
+                    if (b == 0) {
+                        return end;
+                    }
+
+                    if (b == '\n') {
+                        end = offset + i + 1;
+                    }
+                }
+
+                offset += read;
+            }
+
+            return end;
+        }
+
+        synchronized void force()
+        {
+            if (!closed) {
+                buffer.force();
+            }
+        }
+
+        /**
+         * Flushes the segment, unmaps it and truncates it to what was written, so that closed segments are plain
+         * text files.
+         */
+        synchronized void close() throws IOException
+        {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+
+            try {
+                int length = buffer.position();
+
+                buffer.force();
+                unmap(buffer);
+                raf.getChannel().truncate(length);
+            }
+            catch (IOException e) {
+                // e.g., Windows won't truncate a file that's still mapped; the trailing zeros are harmless
+                LogLog.warn(String.format("Unable to truncate %s", file), e);
+            }
+            finally {
+                raf.close();
+            }
+        }
+
+        /**
+         * Releases a mapping now rather than whenever the buffer is collected, where the JVM allows it. The buffer
+         * must not be touched afterwards.
+         */
+        private static void unmap(MappedByteBuffer buffer)
+        {
+            try {
+                try {
+                    // Java 9 and later
+                    Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                    Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                    Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+
+                    theUnsafe.setAccessible(true);
+                    invokeCleaner.invoke(theUnsafe.get(null), buffer);
+                }
+                catch (NoSuchMethodException e) {
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+
+                    cleanerMethod.setAccessible(true);
+
+                    Object cleaner = cleanerMethod.invoke(buffer);
+
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+            catch (Exception e) {
+                // left to the garbage collector
+                LogLog.debug("Unable to unmap segment", e);
+            }
+        }
+    }
+}
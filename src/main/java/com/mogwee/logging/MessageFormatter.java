@@ -0,0 +1,34 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * Builds a log message from an argument; only called if the level being logged at is enabled.
+ * <p/>
+ * Passing the argument separately keeps the callback from capturing it, so on Java 8 and later a lambda such as
+ * {@code LOG.debug(request -> "Request: " + request.dump(), request)} is a constant, and a disabled call allocates nothing.
+ *
+ * @param <T> type of the argument
+ */
+public interface MessageFormatter<T>
+{
+    /**
+     * @param arg the argument passed along with this formatter
+     * @return the message to log
+     */
+    String format(T arg);
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * Writes a log message straight into a builder, instead of building a string of its own; only called if the level
+ * being logged at is enabled.
+ * <p/>
+ * On Java 8 and later this can be a lambda, e.g., {@code LOG.info(w -> w.append("id=").append(id))}. The builder
+ * is reused by every message the thread renders, so it's handed to the writer empty, and mustn't be kept once
+ * {@link #write(StringBuilder)} returns. As with {@link MessageSupplier}, a lambda that captures variables is
+ * allocated on every call, enabled or not.
+ */
+public interface MessageWriter
+{
+    /**
+     * @param message an empty builder to append the message to
+     */
+    void write(StringBuilder message);
+}
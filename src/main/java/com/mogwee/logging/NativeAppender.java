@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.nio.ByteBuffer;
+
+/**
+ * An output of {@link NativeBackend}.
+ * <p/>
+ * The backend renders each event into bytes once and hands them to every appender, which typically copies them into
+ * a buffer of its own. Appenders are called concurrently from the threads that log, and report their own write
+ * errors (to {@link org.apache.log4j.helpers.LogLog}, say) rather than throwing.
+ */
+public interface NativeAppender extends Flushable, Closeable
+{
+    /**
+     * @param event  the event; reused once this call returns, so copy anything that's needed later
+     * @param record the event rendered as a line of text, plus stack trace lines, from its position to its limit;
+     *               may be consumed
+     */
+    void append(NativeEvent event, ByteBuffer record);
+}
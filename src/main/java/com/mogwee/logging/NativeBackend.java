@@ -0,0 +1,334 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.helpers.LogLog;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link LoggingBackend} that doesn't go through Log4J at all: it has its own level hierarchy and its own appenders,
+ * and renders each event straight into bytes, without the {@code LoggingEvent}, {@code ThrowableInformation} and
+ * {@code LocationInfo} objects Log4J allocates per call (see {@link NativeEvent} and {@link NativeAppender}).
+ * <p/>
+ * Levels are set per logger name prefix, Log4J style: "com.example" covers "com.example.Foo", but not
+ * "com.examples.Foo". Every logger caches its effective level, and {@link #setLevel} invalidates the caches.
+ * The *Debug methods of {@link Logger} behave as with Log4J, since the cause summary is built before the event
+ * reaches any backend.
+ * <p/>
+ * This backend isn't registered as a service; pick it with
+ * {@code -Dcom.mogwee.logging.backend=com.mogwee.logging.NativeBackend}, which configures it from system properties:
+ * <ul>
+ * <li>{@value #LEVEL_PROPERTY}: the root level (default INFO); {@value #LEVEL_PROPERTY}.<i>name</i> sets the level
+ * of a logger name prefix;</li>
+ * <li>{@value #FILE_PROPERTY}: the file to append to; without it, events go to standard output;</li>
+ * <li>{@value #BUFFER_SIZE_PROPERTY}: the size of the output buffer, in bytes (default 64KB for a file, 8KB for the
+ * console);</li>
+ * <li>{@value #IMMEDIATE_FLUSH_PROPERTY}: whether to write out every event as soon as it's logged (default true);
+ * buffered events are flushed by {@link Logger#flush()} and when the JVM exits.</li>
+ * </ul>
+ * Alternatively, create and configure an instance in code and return it from a backend of your own.
+ */
+public class NativeBackend implements LoggingBackend
+{
+    static final String PROPERTY_PREFIX = "com.mogwee.logging.native.";
+    static final String LEVEL_PROPERTY = PROPERTY_PREFIX + "level";
+    static final String FILE_PROPERTY = PROPERTY_PREFIX + "file";
+    static final String BUFFER_SIZE_PROPERTY = PROPERTY_PREFIX + "bufferSize";
+    static final String IMMEDIATE_FLUSH_PROPERTY = PROPERTY_PREFIX + "immediateFlush";
+
+    private static final NativeAppender[] NO_APPENDERS = new NativeAppender[0];
+
+    private final ConcurrentMap<String, NativeLogger> loggers = new ConcurrentHashMap<String, NativeLogger>();
+    private final AtomicInteger generation = new AtomicInteger();
+    // copied on write, so that lookups need no locking
+    private volatile Map<String, Level> levels = Collections.emptyMap();
+    private volatile NativeAppender[] appenders = NO_APPENDERS;
+
+    /**
+     * Configured from system properties (see above), and flushed when the JVM exits.
+     */
+    public NativeBackend()
+    {
+        this(System.getProperties());
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                flush();
+            }
+        }, "mogwee-logging-native-flush"));
+    }
+
+    /**
+     * @param rootLevel level of every logger without a level of its own
+     * @param appenders where to write events
+     */
+    public NativeBackend(Level rootLevel, NativeAppender... appenders)
+    {
+        setLevel("", rootLevel);
+        this.appenders = appenders.clone();
+    }
+
+    NativeBackend(Properties properties)
+    {
+        setLevel("", Level.toLevel(properties.getProperty(LEVEL_PROPERTY), Level.INFO));
+
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(LEVEL_PROPERTY + ".")) {
+                setLevel(key.substring(LEVEL_PROPERTY.length() + 1), Level.toLevel(properties.getProperty(key), Level.INFO));
+            }
+        }
+
+        String file = properties.getProperty(FILE_PROPERTY);
+        int bufferSize = file == null ? 8192 : ChannelAppender.DEFAULT_BUFFER_SIZE;
+        boolean immediateFlush = Boolean.valueOf(properties.getProperty(IMMEDIATE_FLUSH_PROPERTY, "true"));
+
+        try {
+            bufferSize = Integer.parseInt(properties.getProperty(BUFFER_SIZE_PROPERTY, String.valueOf(bufferSize)));
+        }
+        catch (RuntimeException e) {
+            LogLog.warn(String.format("Invalid %s, using %s", BUFFER_SIZE_PROPERTY, bufferSize), e);
+        }
+
+        if (file != null) {
+            try {
+                addAppender(new NativeFileAppender(new File(file), true, bufferSize, immediateFlush));
+                return;
+            }
+            catch (IOException e) {
+                LogLog.error(String.format("Unable to open %s, logging to standard output", file), e);
+            }
+        }
+
+        addAppender(new NativeConsoleAppender(FileDescriptor.out, bufferSize, immediateFlush));
+    }
+
+    @Override
+    public BackendLogger getLogger(String name)
+    {
+        NativeLogger logger = loggers.get(name);
+
+        if (logger == null) {
+            NativeLogger existing = loggers.putIfAbsent(name, logger = new NativeLogger(this, name));
+
+            if (existing != null) {
+                logger = existing;
+            }
+        }
+
+        return logger;
+    }
+
+    /**
+     * @param name  a logger name or prefix thereof; "" for the root
+     * @param level the level of loggers under that name; null to inherit it (not allowed for the root)
+     */
+    public synchronized void setLevel(String name, Level level)
+    {
+        if (level == null && "".equals(name)) {
+            throw new IllegalArgumentException("The root level can't be removed");
+        }
+
+        Map<String, Level> updated = new HashMap<String, Level>(levels);
+
+        if (level == null) {
+            updated.remove(name);
+        }
+        else {
+            updated.put(name, level);
+        }
+
+        levels = updated;
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @param name a logger name or prefix thereof; "" for the root
+     * @return the level set for exactly that name, or null if it inherits its level
+     */
+    public Level getLevel(String name)
+    {
+        return levels.get(name);
+    }
+
+    /**
+     * @return the levels set, by logger name prefix ("" for the root)
+     */
+    Map<String, Level> getLevels()
+    {
+        return Collections.unmodifiableMap(levels);
+    }
+
+    /**
+     * @param name a logger name
+     * @return the level of its longest configured prefix, or the root level
+     */
+    public Level getEffectiveLevel(String name)
+    {
+        Map<String, Level> current = levels;
+
+        for (String prefix = name; ; ) {
+            Level level = current.get(prefix);
+
+            if (level != null) {
+                return level;
+            }
+
+            int dot = prefix.lastIndexOf('.');
+
+            prefix = dot < 0 ? "" : prefix.substring(0, dot);
+        }
+    }
+
+    public synchronized void addAppender(NativeAppender appender)
+    {
+        List<NativeAppender> updated = new ArrayList<NativeAppender>(Arrays.asList(appenders));
+
+        updated.add(appender);
+        appenders = updated.toArray(new NativeAppender[updated.size()]);
+    }
+
+    /**
+     * @return true if the appender was removed; it isn't closed
+     */
+    public synchronized boolean removeAppender(NativeAppender appender)
+    {
+        List<NativeAppender> updated = new ArrayList<NativeAppender>(Arrays.asList(appenders));
+        boolean removed = updated.remove(appender);
+
+        appenders = updated.toArray(new NativeAppender[updated.size()]);
+
+        return removed;
+    }
+
+    @Override
+    public void flush()
+    {
+        for (NativeAppender appender : appenders) {
+            try {
+                appender.flush();
+            }
+            catch (IOException e) {
+                LogLog.error(String.format("Unable to flush %s", appender), e);
+            }
+        }
+    }
+
+    /**
+     * Closes and removes every appender; events logged afterwards are dropped.
+     */
+    public void close()
+    {
+        NativeAppender[] closed;
+
+        synchronized (this) {
+            closed = appenders;
+            appenders = NO_APPENDERS;
+        }
+
+        for (NativeAppender appender : closed) {
+            try {
+                appender.close();
+            }
+            catch (IOException e) {
+                LogLog.error(String.format("Unable to close %s", appender), e);
+            }
+        }
+    }
+
+    private void append(NativeEvent event)
+    {
+        NativeAppender[] current = appenders;
+
+        if (current.length == 0) {
+            return;
+        }
+
+        ByteBuffer record = event.render();
+
+        for (NativeAppender appender : current) {
+            record.position(0);
+            appender.append(event, record);
+        }
+    }
+
+    static final class NativeLogger implements BackendLogger
+    {
+        private final NativeBackend backend;
+        private final String name;
+        // immutable, so a plain field is enough; a stale read just means one extra lookup
+        private LevelCache.Snapshot levels = LevelCache.Snapshot.STALE;
+
+        NativeLogger(NativeBackend backend, String name)
+        {
+            this.backend = backend;
+            this.name = name;
+        }
+
+        @Override
+        public boolean isEnabled(final Level level)
+        {
+            LevelCache.Snapshot snapshot = levels;
+
+            if (snapshot.generation != backend.generation.get()) {
+                // read the generation first, so a change racing with the lookup leaves the snapshot stale
+                int generation = backend.generation.get();
+
+                snapshot = new LevelCache.Snapshot(generation, backend.getEffectiveLevel(name).toInt());
+                levels = snapshot;
+            }
+
+            return level.toInt() >= snapshot.threshold;
+        }
+
+        @Override
+        public void log(final Level level, final Object message, final Throwable cause)
+        {
+            NativeEvent event = NativeEvent.acquire();
+
+            try {
+                event.set(System.currentTimeMillis(), level, name, message, cause);
+                backend.append(event);
+            }
+            finally {
+                event.release();
+            }
+        }
+
+        @Override
+        public void logStructured(final Level level, final StructuredMessage message, final Throwable cause)
+        {
+            log(level, message, cause);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the events of a {@link NativeBackend} to standard output or standard error, through a direct buffer
+ * (see {@link ChannelAppender}).
+ * <p/>
+ * Bytes go straight to the file descriptor, bypassing {@link System#out} and {@link System#err}, so replacing those
+ * streams doesn't redirect this appender. The descriptor is left open on {@link #close()}.
+ */
+public final class NativeConsoleAppender extends ChannelAppender
+{
+    /**
+     * Writes every event to standard output as soon as it's logged.
+     */
+    public NativeConsoleAppender()
+    {
+        this(FileDescriptor.out, 8192, true);
+    }
+
+    /**
+     * @param descriptor     {@link FileDescriptor#out} or {@link FileDescriptor#err}
+     * @param bufferSize     size of the buffer, in bytes
+     * @param immediateFlush true to write out every event as soon as it's logged
+     */
+    public NativeConsoleAppender(FileDescriptor descriptor, int bufferSize, boolean immediateFlush)
+    {
+        super(descriptor == FileDescriptor.err ? "standard error" : "standard output", new FileOutputStream(descriptor).getChannel(), bufferSize, immediateFlush);
+    }
+
+    @Override
+    void closeChannel(WritableByteChannel channel) throws IOException
+    {
+        // the descriptor belongs to the JVM
+    }
+}
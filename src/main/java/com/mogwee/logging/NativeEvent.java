@@ -0,0 +1,144 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An event logged through {@link NativeBackend}.
+ * <p/>
+ * Each thread keeps one event and fills it in on every call, so logging allocates no event objects; the event is only
+ * valid while it's being handed to the appenders.
+ */
+public final class NativeEvent
+{
+    private static final ThreadLocal<NativeEvent> EVENT = new ThreadLocal<NativeEvent>()
+    {
+        @Override
+        protected NativeEvent initialValue()
+        {
+            return new NativeEvent();
+        }
+    };
+
+    private final NativeLayout layout = new NativeLayout();
+    private long timestamp;
+    private Level level;
+    private String loggerName;
+    private String threadName;
+    private Object message;
+    private String renderedMessage;
+    private Throwable throwable;
+    private boolean inUse = false;
+
+    private NativeEvent()
+    {
+    }
+
+    // rendering a message may log through the same thread, so never hand out an event that's already in use
+    static NativeEvent acquire()
+    {
+        NativeEvent event = EVENT.get();
+
+        if (event.inUse) {
+            event = new NativeEvent();
+        }
+
+        event.inUse = true;
+
+        return event;
+    }
+
+    void release()
+    {
+        threadName = null;
+        message = null;
+        renderedMessage = null;
+        throwable = null;
+        layout.release();
+        inUse = false;
+    }
+
+    void set(long timestamp, Level level, String loggerName, Object message, Throwable throwable)
+    {
+        this.threadName = Thread.currentThread().getName();
+        this.timestamp = timestamp;
+        this.level = level;
+        this.loggerName = loggerName;
+        this.message = message;
+        this.renderedMessage = null;
+        this.throwable = throwable;
+    }
+
+    ByteBuffer render()
+    {
+        return layout.format(this);
+    }
+
+    /**
+     * @return when the event was logged, in milliseconds since the epoch
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    public Level getLevel()
+    {
+        return level;
+    }
+
+    public String getLoggerName()
+    {
+        return loggerName;
+    }
+
+    public String getThreadName()
+    {
+        return threadName;
+    }
+
+    /**
+     * @return the message as it was logged: a String, a {@link StructuredMessage}, a {@link FormattedMessage}, etc.; may be null
+     */
+    public Object getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * @return the message's {@code toString()}, computed once per event; "null" for a null message
+     */
+    public String getRenderedMessage()
+    {
+        if (renderedMessage == null) {
+            renderedMessage = String.valueOf(message);
+        }
+
+        return renderedMessage;
+    }
+
+    /**
+     * @return the exception logged with the event, or null
+     */
+    public Throwable getThrowable()
+    {
+        return throwable;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Appends the events of a {@link NativeBackend} to a file, through a direct buffer (see {@link ChannelAppender}).
+ */
+public final class NativeFileAppender extends ChannelAppender
+{
+    /**
+     * Appends to {@code file} through a 64KB buffer that's written when full or flushed.
+     *
+     * @param file the file to append to; missing parent directories are created
+     * @throws IOException if the file can't be opened
+     */
+    public NativeFileAppender(File file) throws IOException
+    {
+        this(file, true, DEFAULT_BUFFER_SIZE, false);
+    }
+
+    /**
+     * @param file           the file to write to; missing parent directories are created
+     * @param append         false to truncate the file
+     * @param bufferSize     size of the buffer, in bytes
+     * @param immediateFlush true to write out every event as soon as it's logged
+     * @throws IOException if the file can't be opened
+     */
+    public NativeFileAppender(File file, boolean append, int bufferSize, boolean immediateFlush) throws IOException
+    {
+        super(file.getPath(), open(file, append), bufferSize, immediateFlush);
+    }
+
+    private static WritableByteChannel open(File file, boolean append) throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException(String.format("Unable to create directory %s", parent));
+        }
+
+        return new FileOutputStream(file, append).getChannel();
+    }
+
+    @Override
+    void closeChannel(WritableByteChannel channel) throws IOException
+    {
+        channel.close();
+    }
+}
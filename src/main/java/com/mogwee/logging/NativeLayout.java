@@ -0,0 +1,267 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.nio.ByteBuffer;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Renders a {@link NativeEvent} as UTF-8 text, in the same line format as {@link BinaryLogRenderer}:
+ * {@code yyyy-MM-dd HH:mm:ss,SSS [thread] LEVEL logger - message}, followed by the stack trace, if any,
+ * as {@link Throwable#printStackTrace()} prints it.
+ * <p/>
+ * Each event owns a layout, so the bytes are written into a reused array without any locking. The date and time
+ * up to the second are only recomputed when the second changes.
+ */
+final class NativeLayout
+{
+    private static final int INITIAL_CAPACITY = 512;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private ByteBuffer view = ByteBuffer.wrap(bytes);
+    private int count = 0;
+    private final Calendar calendar = new GregorianCalendar();
+    private final byte[] secondText = new byte["yyyy-MM-dd HH:mm:ss".length()];
+    private long cachedSecond = Long.MIN_VALUE;
+
+    /**
+     * @return the rendered event, from position zero to the limit; valid until the next call
+     */
+    ByteBuffer format(NativeEvent event)
+    {
+        count = 0;
+        writeTimestamp(event.getTimestamp());
+        writeAscii(" [");
+        writeString(event.getThreadName());
+        writeAscii("] ");
+
+        String level = String.valueOf(event.getLevel());
+
+        writeAscii(level);
+
+        for (int i = level.length(); i < 5; ++i) {
+            writeByte(' ');
+        }
+
+        writeByte(' ');
+        writeString(event.getLoggerName());
+        writeAscii(" - ");
+        writeString(event.getRenderedMessage());
+        writeAscii(LINE_SEPARATOR);
+
+        if (event.getThrowable() != null) {
+            writeThrowable(event.getThrowable());
+        }
+
+        view.clear();
+        view.limit(count);
+
+        return view;
+    }
+
+    void release()
+    {
+        if (bytes.length > MAX_RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+            view = ByteBuffer.wrap(bytes);
+        }
+    }
+
+    private void writeTimestamp(long timestamp)
+    {
+        int millis = (int) (timestamp % 1000);
+
+        if (millis < 0) {
+            millis += 1000;
+        }
+
+        long second = (timestamp - millis) / 1000;
+
+        if (second != cachedSecond) {
+            calendar.setTimeInMillis(timestamp - millis);
+            writeDigits(secondText, 0, calendar.get(Calendar.YEAR), 4);
+            secondText[4] = '-';
+            writeDigits(secondText, 5, calendar.get(Calendar.MONTH) + 1, 2);
+            secondText[7] = '-';
+            writeDigits(secondText, 8, calendar.get(Calendar.DAY_OF_MONTH), 2);
+            secondText[10] = ' ';
+            writeDigits(secondText, 11, calendar.get(Calendar.HOUR_OF_DAY), 2);
+            secondText[13] = ':';
+            writeDigits(secondText, 14, calendar.get(Calendar.MINUTE), 2);
+            secondText[16] = ':';
+            writeDigits(secondText, 17, calendar.get(Calendar.SECOND), 2);
+            cachedSecond = second;
+        }
+
+        ensureCapacity(secondText.length + 4);
+        System.arraycopy(secondText, 0, bytes, count, secondText.length);
+        count += secondText.length;
+        bytes[count++] = ',';
+        writeDigits(bytes, count, millis, 3);
+        count += 3;
+    }
+
+    private static void writeDigits(byte[] buffer, int offset, int value, int digits)
+    {
+        for (int i = offset + digits - 1; i >= offset; --i) {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+    }
+
+    // mirrors Throwable.printStackTrace(), including the "... n more" elision of frames shared with the enclosing trace
+    private void writeThrowable(Throwable throwable)
+    {
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+        StackTraceElement[] enclosing = throwable.getStackTrace();
+
+        writeString(String.valueOf(throwable));
+        writeAscii(LINE_SEPARATOR);
+        writeFrames(enclosing, enclosing.length);
+        seen.add(throwable);
+
+        for (Throwable cause = throwable.getCause(); cause != null && seen.add(cause); cause = cause.getCause()) {
+            StackTraceElement[] trace = cause.getStackTrace();
+            int unique = trace.length;
+
+            for (int i = enclosing.length - 1; unique > 0 && i >= 0 && trace[unique - 1].equals(enclosing[i]); --i) {
+                --unique;
+            }
+
+            writeAscii("Caused by: ");
+            writeString(String.valueOf(cause));
+            writeAscii(LINE_SEPARATOR);
+            writeFrames(trace, unique);
+
+            if (unique < trace.length) {
+                writeAscii("\t... ");
+                writeAscii(String.valueOf(trace.length - unique));
+                writeAscii(" more");
+                writeAscii(LINE_SEPARATOR);
+            }
+
+            enclosing = trace;
+        }
+    }
+
+    private void writeFrames(StackTraceElement[] trace, int frames)
+    {
+        for (int i = 0; i < frames; ++i) {
+            writeAscii("\tat ");
+            writeString(String.valueOf(trace[i]));
+            writeAscii(LINE_SEPARATOR);
+        }
+    }
+
+    private void writeString(String value)
+    {
+        if (value == null) {
+            writeAscii("null");
+            return;
+        }
+
+        int end = value.length();
+
+        ensureCapacity(end);
+
+        byte[] buffer = bytes;
+        int position = count;
+        int i = 0;
+
+        // fast path: ASCII is one byte per char
+        for (; i < end; ++i) {
+            char c = value.charAt(i);
+
+            if (c >= 0x80) {
+                break;
+            }
+
+            buffer[position++] = (byte) c;
+        }
+
+        count = position;
+
+        for (; i < end; ++i) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                ensureCapacity(1);
+                bytes[count++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                ensureCapacity(2);
+                bytes[count++] = (byte) (0xc0 | (c >> 6));
+                bytes[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                ensureCapacity(4);
+                bytes[count++] = (byte) (0xf0 | (codePoint >> 18));
+                bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[count++] = (byte) (0x80 | (codePoint & 0x3f));
+            }
+            else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // unpaired surrogate; replaced like String.getBytes() does
+                ensureCapacity(1);
+                bytes[count++] = '?';
+            }
+            else {
+                ensureCapacity(3);
+                bytes[count++] = (byte) (0xe0 | (c >> 12));
+                bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    // only for strings known to be ASCII
+    private void writeAscii(String value)
+    {
+        int length = value.length();
+
+        ensureCapacity(length);
+
+        for (int i = 0; i < length; ++i) {
+            bytes[count++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeByte(char c)
+    {
+        ensureCapacity(1);
+        bytes[count++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra)
+    {
+        if (count + extra > bytes.length) {
+            byte[] grown = new byte[Math.max(bytes.length * 2, count + extra)];
+
+            System.arraycopy(bytes, 0, grown, 0, count);
+            bytes = grown;
+            view = ByteBuffer.wrap(bytes);
+        }
+    }
+}
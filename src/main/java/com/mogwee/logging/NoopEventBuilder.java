@@ -0,0 +1,64 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * Returned when the level isn't enabled; ignores everything.
+ */
+final class NoopEventBuilder implements EventBuilder
+{
+    static final NoopEventBuilder INSTANCE = new NoopEventBuilder();
+
+    private NoopEventBuilder()
+    {
+    }
+
+    @Override
+    public EventBuilder kv(String key, long value)
+    {
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, double value)
+    {
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, boolean value)
+    {
+        return this;
+    }
+
+    @Override
+    public EventBuilder kv(String key, Object value)
+    {
+        return this;
+    }
+
+    @Override
+    public EventBuilder cause(Throwable cause)
+    {
+        return this;
+    }
+
+    @Override
+    public void log()
+    {
+    }
+}
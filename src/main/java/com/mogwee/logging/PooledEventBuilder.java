@@ -0,0 +1,204 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+
+/**
+ * A per-thread, reusable {@link EventBuilder}.
+ * <p/>
+ * {@link #log()} copies the fields into a right-sized {@link StructuredMessage} and hands the builder back to its thread.
+ * A builder that's still in use when its thread asks for another one (because it's being built, or was never logged)
+ * is left to whoever holds it, and a new one takes its place.
+ */
+final class PooledEventBuilder implements EventBuilder
+{
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int MAX_RETAINED_CAPACITY = 64;
+    private static final ThreadLocal<PooledEventBuilder> POOL = new ThreadLocal<PooledEventBuilder>()
+    {
+        @Override
+        protected PooledEventBuilder initialValue()
+        {
+            return new PooledEventBuilder();
+        }
+    };
+
+    private boolean inUse = false;
+    private Logger logger;
+    private Level level;
+    private String message;
+    private Throwable cause;
+    private int size;
+    private String[] keys;
+    private byte[] types;
+    private long[] values;
+    private Object[] objects;
+    private boolean hasObjects;
+
+    /**
+     * @param logger  logger to log to
+     * @param level   an enabled level
+     * @param message message of the event
+     * @return this thread's builder, or a new one if it's already in use (e.g., a field's value logs while being built)
+     */
+    static PooledEventBuilder acquire(Logger logger, Level level, String message)
+    {
+        PooledEventBuilder builder = POOL.get();
+
+        if (builder.inUse) {
+            // replaced rather than bypassed, so that an abandoned builder doesn't make every later call allocate
+            // (or keep what it was given reachable)
+            builder = new PooledEventBuilder();
+            POOL.set(builder);
+        }
+
+        builder.inUse = true;
+        builder.logger = logger;
+        builder.level = level;
+        builder.message = message;
+
+        return builder;
+    }
+
+    private PooledEventBuilder()
+    {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public EventBuilder kv(String key, long value)
+    {
+        return add(key, StructuredMessage.FieldType.LONG, value);
+    }
+
+    @Override
+    public EventBuilder kv(String key, double value)
+    {
+        return add(key, StructuredMessage.FieldType.DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    public EventBuilder kv(String key, boolean value)
+    {
+        return add(key, StructuredMessage.FieldType.BOOLEAN, value ? 1 : 0);
+    }
+
+    @Override
+    public EventBuilder kv(String key, Object value)
+    {
+        add(key, StructuredMessage.FieldType.OBJECT, 0);
+        objects[size - 1] = value;
+        hasObjects = true;
+
+        return this;
+    }
+
+    @Override
+    public EventBuilder cause(Throwable cause)
+    {
+        this.cause = cause;
+
+        return this;
+    }
+
+    @Override
+    public void log()
+    {
+        if (!inUse) {
+            throw new IllegalStateException("EventBuilder used after log()");
+        }
+
+        String[] messageKeys = new String[size];
+        byte[] messageTypes = new byte[size];
+        long[] messageValues = new long[size];
+        Object[] messageObjects = hasObjects ? new Object[size] : null;
+
+        System.arraycopy(keys, 0, messageKeys, 0, size);
+        System.arraycopy(types, 0, messageTypes, 0, size);
+        System.arraycopy(values, 0, messageValues, 0, size);
+
+        if (hasObjects) {
+            System.arraycopy(objects, 0, messageObjects, 0, size);
+        }
+
+        Logger target = logger;
+        Level targetLevel = level;
+        Throwable targetCause = cause;
+        StructuredMessage structuredMessage = new StructuredMessage(message, messageKeys, messageTypes, messageValues, messageObjects);
+
+        release();
+        target.logStructured(targetLevel, structuredMessage, targetCause);
+    }
+
+    private EventBuilder add(String key, StructuredMessage.FieldType type, long value)
+    {
+        if (size == keys.length) {
+            grow();
+        }
+
+        keys[size] = key;
+        types[size] = (byte) type.ordinal();
+        values[size] = value;
+        ++size;
+
+        return this;
+    }
+
+    private void grow()
+    {
+        String[] oldKeys = keys;
+        byte[] oldTypes = types;
+        long[] oldValues = values;
+        Object[] oldObjects = objects;
+
+        allocate(keys.length * 2);
+        System.arraycopy(oldKeys, 0, keys, 0, size);
+        System.arraycopy(oldTypes, 0, types, 0, size);
+        System.arraycopy(oldValues, 0, values, 0, size);
+        System.arraycopy(oldObjects, 0, objects, 0, size);
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new String[capacity];
+        types = new byte[capacity];
+        values = new long[capacity];
+        objects = new Object[capacity];
+    }
+
+    private void release()
+    {
+        if (keys.length > MAX_RETAINED_CAPACITY) {
+            allocate(INITIAL_CAPACITY);
+        }
+        else {
+            for (int i = 0; i < size; ++i) {
+                keys[i] = null;
+                objects[i] = null;
+            }
+        }
+
+        logger = null;
+        level = null;
+        message = null;
+        cause = null;
+        size = 0;
+        hasObjects = false;
+        inUse = false;
+    }
+}
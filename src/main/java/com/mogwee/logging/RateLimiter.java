@@ -0,0 +1,289 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.helpers.LogLog;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Limits how often each distinct key (a format string, call site or callback class; see {@link Logger#setRateLimit})
+ * is logged at one level of one {@link Logger}.
+ * <p/>
+ * Every key gets a token bucket, kept as a single theoretical arrival time (the generic cell rate algorithm),
+ * so admitting an event is one compare-and-set and rejecting one is a plain read. Buckets live in a fixed-size,
+ * open-addressed table of {@value #TABLE_SIZE} slots claimed by compare-and-set; when the slots a key hashes to
+ * are all taken, its events are admitted rather than limited.
+ * Suppressed events are counted in per-thread stripes, and a daemon thread logs a summary for every bucket
+ * that suppressed anything every {@value #SUMMARY_MILLIS_PROPERTY} milliseconds (default {@value #DEFAULT_SUMMARY_MILLIS}).
+ * Summarizing also frees the slots of buckets that have refilled completely, as such a bucket admits exactly what
+ * a new one would; so the table only has to hold the keys that are being limited right now.
+ */
+final class RateLimiter
+{
+    static final String SUMMARY_MILLIS_PROPERTY = "com.mogwee.logging.rateLimitSummaryMillis";
+    static final long DEFAULT_SUMMARY_MILLIS = 10000;
+    static final int TABLE_SIZE = 256;
+
+    private static final int MAX_PROBES = 8;
+    private static final int STRIPES = Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors()));
+    // longs per stripe, so that stripes don't share cache lines
+    private static final int STRIPE_PADDING = 8;
+    private static final List<RateLimiter> LIMITERS = new CopyOnWriteArrayList<RateLimiter>();
+    private static final long SUMMARY_MILLIS;
+
+    static {
+        long summaryMillis = DEFAULT_SUMMARY_MILLIS;
+
+        try {
+            summaryMillis = Long.parseLong(System.getProperty(SUMMARY_MILLIS_PROPERTY, String.valueOf(DEFAULT_SUMMARY_MILLIS)));
+        }
+        catch (RuntimeException e) {
+            LogLog.warn(String.format("Invalid %s, using %s", SUMMARY_MILLIS_PROPERTY, DEFAULT_SUMMARY_MILLIS), e);
+        }
+
+        SUMMARY_MILLIS = summaryMillis > 0 ? summaryMillis : DEFAULT_SUMMARY_MILLIS;
+        startSummarizer();
+    }
+
+    private final Logger logger;
+    private final Level level;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicReferenceArray<Bucket> table = new AtomicReferenceArray<Bucket>(TABLE_SIZE);
+    private long lastSummaryNanos = System.nanoTime();
+
+    /**
+     * Creates a limiter and registers it for periodic summaries.
+     *
+     * @param logger          the logger being limited, which summaries are logged to
+     * @param level           the level being limited
+     * @param eventsPerSecond sustained rate allowed for each message
+     * @param burst           how many events of a message can be logged back to back
+     * @return the limiter
+     */
+    static RateLimiter create(Logger logger, Level level, double eventsPerSecond, int burst)
+    {
+        if (!(eventsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException(String.format("Invalid rate limit: %s events per second, burst of %s", eventsPerSecond, burst));
+        }
+
+        RateLimiter limiter = new RateLimiter(logger, level, eventsPerSecond, burst);
+
+        LIMITERS.add(limiter);
+
+        return limiter;
+    }
+
+    private RateLimiter(Logger logger, Level level, double eventsPerSecond, int burst)
+    {
+        this.logger = logger;
+        this.level = level;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / eventsPerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+    }
+
+    /**
+     * Stops summarizing; whatever was suppressed since the last summary is summarized one last time.
+     */
+    void retire()
+    {
+        LIMITERS.remove(this);
+        summarize();
+    }
+
+    /**
+     * @param key what the event is limited by: a string, or the {@link StackTraceElement} of a call site
+     * @return true if the event should be logged
+     */
+    boolean admit(Object key)
+    {
+        Bucket bucket = bucketFor(key == null ? "null" : key);
+
+        if (bucket == null) {
+            // the table is full; limiting this key together with others would suppress unrelated events
+            return true;
+        }
+
+        long now = System.nanoTime();
+
+        while (true) {
+            long arrival = bucket.arrival.get();
+
+            if (now - (arrival - toleranceNanos) < 0) {
+                bucket.suppressed.incrementAndGet((int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_PADDING);
+                return false;
+            }
+
+            long next = (now - arrival > 0 ? now : arrival) + intervalNanos;
+
+            if (bucket.arrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    // returns null if the key has no bucket and there's no room for one
+    private Bucket bucketFor(Object key)
+    {
+        int hash = key.hashCode();
+        int free = -1;
+
+        hash ^= (hash >>> 16);
+
+        // freed slots can precede the key's bucket, so look at every probe before claiming one
+        for (int probe = 0; probe < MAX_PROBES; ++probe) {
+            int index = (hash + probe) & (TABLE_SIZE - 1);
+            Bucket bucket = table.get(index);
+
+            if (bucket == null) {
+                if (free < 0) {
+                    free = index;
+                }
+            }
+            else if (bucket.key.equals(key)) {
+                return bucket;
+            }
+        }
+
+        if (free < 0) {
+            return null;
+        }
+
+        Bucket created = new Bucket(key, System.nanoTime());
+
+        if (table.compareAndSet(free, null, created)) {
+            return created;
+        }
+
+        Bucket raced = table.get(free);
+
+        return raced != null && raced.key.equals(key) ? raced : null;
+    }
+
+    /**
+     * @return the number of keys that have a bucket
+     */
+    int bucketCount()
+    {
+        int count = 0;
+
+        for (int i = 0; i < TABLE_SIZE; ++i) {
+            if (table.get(i) != null) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Logs a summary line for every bucket that suppressed events since the last summary, and frees the buckets
+     * that have refilled.
+     */
+    synchronized void summarize()
+    {
+        long now = System.nanoTime();
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(now - lastSummaryNanos + TimeUnit.MILLISECONDS.toNanos(500)));
+
+        lastSummaryNanos = now;
+
+        for (int i = 0; i < TABLE_SIZE; ++i) {
+            Bucket bucket = table.get(i);
+
+            if (bucket == null) {
+                continue;
+            }
+
+            long suppressed = bucket.drainSuppressed();
+
+            if (suppressed > 0) {
+                logger.logSummary(level, String.format("suppressed %d similar messages in last %ds: %s", suppressed, seconds, describe(bucket.key)));
+            }
+            // at worst, an event admitted concurrently through the freed bucket lets the next one start a fresh burst
+            else if (now - bucket.arrival.get() >= 0) {
+                table.compareAndSet(i, bucket, null);
+            }
+        }
+    }
+
+    private static String describe(Object key)
+    {
+        return key instanceof StackTraceElement ? "at " + key : String.valueOf(key);
+    }
+
+    private static void startSummarizer()
+    {
+        Thread summarizer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (true) {
+                    try {
+                        Thread.sleep(SUMMARY_MILLIS);
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (RateLimiter limiter : LIMITERS) {
+                        try {
+                            limiter.summarize();
+                        }
+                        catch (RuntimeException e) {
+                            LogLog.error("Unable to summarize suppressed messages", e);
+                        }
+                    }
+                }
+            }
+        }, "mogwee-logging-rate-limit-summary");
+
+        summarizer.setDaemon(true);
+        summarizer.start();
+    }
+
+    private static final class Bucket
+    {
+        private final Object key;
+        private final AtomicLong arrival;
+        private final AtomicLongArray suppressed = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+
+        private Bucket(Object key, long arrival)
+        {
+            this.key = key;
+            this.arrival = new AtomicLong(arrival);
+        }
+
+        private long drainSuppressed()
+        {
+            long total = 0;
+
+            for (int i = 0; i < STRIPES; ++i) {
+                total += suppressed.getAndSet(i * STRIPE_PADDING, 0);
+            }
+
+            return total;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.lang.reflect.Method;
+import java.util.Formatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A reusable {@link StringBuilder}, and a {@link Formatter} writing into it, so that rendering a message doesn't
+ * allocate either.
+ * <p/>
+ * Platform threads each keep a context of their own. Virtual threads can number in the millions, so instead of
+ * a context per thread, they share a small pool, and make do with a throwaway context when it's empty. An argument's
+ * {@code toString()} may itself log, so a context that's already in use is never handed out again; the nested call
+ * gets a throwaway one. Builders that have grown past {@value #MAX_RETAINED_CAPACITY} characters are dropped on release,
+ * so that one huge message doesn't pin its buffer for the life of the thread.
+ */
+final class RenderContext
+{
+    static final int MAX_RETAINED_CAPACITY = 4096;
+    static final int POOL_SIZE = Integer.highestOneBit(Math.max(Math.min(Runtime.getRuntime().availableProcessors(), 32) * 4 - 1, 1));
+
+    private static final int INITIAL_CAPACITY = 256;
+    // the superclass of virtual threads, or null before Java 21
+    private static final Class<?> VIRTUAL_THREAD_CLASS = virtualThreadClass();
+    // Locale.getDefault(Locale.Category) and Locale.Category.FORMAT, or nulls before Java 7
+    private static final Method GET_DEFAULT_LOCALE;
+    private static final Object FORMAT_CATEGORY;
+    private static final ThreadLocal<RenderContext> CONTEXT = new ThreadLocal<RenderContext>()
+    {
+        @Override
+        protected RenderContext initialValue()
+        {
+            return new RenderContext(Owner.THREAD);
+        }
+    };
+    private static final AtomicReferenceArray<RenderContext> POOL = new AtomicReferenceArray<RenderContext>(POOL_SIZE);
+
+    static {
+        Method getDefault = null;
+        Object format = null;
+
+        try {
+            Class<?> categoryClass = Class.forName("java.util.Locale$Category");
+
+            getDefault = Locale.class.getMethod("getDefault", categoryClass);
+            format = categoryClass.getField("FORMAT").get(null);
+        }
+        catch (Exception e) {
+            getDefault = null;
+        }
+
+        GET_DEFAULT_LOCALE = getDefault;
+        FORMAT_CATEGORY = format;
+    }
+
+    private enum Owner
+    {
+        THREAD, POOL, NONE
+    }
+
+    private final Owner owner;
+    private StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+    private Formatter formatter = null;
+    private boolean inUse = false;
+    // how long the formatter may make the builder before giving up
+    private int limit = Integer.MAX_VALUE;
+
+    private RenderContext(Owner owner)
+    {
+        this.owner = owner;
+    }
+
+    /**
+     * @return a context for the current thread, with an empty builder; must be {@link #release() released}
+     */
+    static RenderContext acquire()
+    {
+        Thread thread = Thread.currentThread();
+        RenderContext context;
+
+        if (VIRTUAL_THREAD_CLASS != null && VIRTUAL_THREAD_CLASS.isInstance(thread)) {
+            context = take((int) thread.getId());
+        }
+        else {
+            context = CONTEXT.get();
+
+            if (context.inUse) {
+                context = new RenderContext(Owner.NONE);
+            }
+        }
+
+        context.inUse = true;
+        context.builder.setLength(0);
+
+        return context;
+    }
+
+    /**
+     * Formats a message as {@link String#format(String, Object...)} would, exceptions included, within the
+     * {@link RenderLimits} in effect: arguments rendered through their {@code toString()} are rendered within the
+     * argument limits, and formatting stops once the message is over the message limit.
+     *
+     * @param format a format string
+     * @param args   arguments referenced by the format specifiers in the format string
+     * @return the formatted message
+     */
+    static String format(String format, Object... args)
+    {
+        RenderLimits limits = RenderLimits.get();
+        RenderContext context = acquire();
+
+        try {
+            context.limit = limits.getMaxMessageLength();
+
+            try {
+                context.formatter().format(format, limits.bound(args));
+            }
+            catch (MessageTooLong e) {
+                limits.truncateMessage(context.builder, 0);
+            }
+
+            return context.builder.toString();
+        }
+        finally {
+            context.limit = Integer.MAX_VALUE;
+            context.release();
+        }
+    }
+
+    /**
+     * @return the builder, empty when the context was acquired
+     */
+    StringBuilder builder()
+    {
+        return builder;
+    }
+
+    /**
+     * @return a formatter appending to {@link #builder()} in the default locale for formatting, as {@code String.format}
+     *         would
+     */
+    Formatter formatter()
+    {
+        Locale locale = formatLocale();
+
+        // pick up changes to the default locale, as String.format would
+        if (formatter == null || !formatter.locale().equals(locale)) {
+            formatter = new Formatter(new Sink(), locale);
+        }
+
+        return formatter;
+    }
+
+    // the locale String.format uses, which can differ from Locale.getDefault() since Java 7
+    private static Locale formatLocale()
+    {
+        if (GET_DEFAULT_LOCALE != null) {
+            try {
+                return (Locale) GET_DEFAULT_LOCALE.invoke(null, FORMAT_CATEGORY);
+            }
+            catch (Exception e) {
+                // fall back to the default locale
+            }
+        }
+
+        return Locale.getDefault();
+    }
+
+    /**
+     * Hands the context back; neither it nor its builder may be used afterwards.
+     */
+    void release()
+    {
+        if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+            builder = new StringBuilder(INITIAL_CAPACITY);
+        }
+
+        inUse = false;
+
+        if (owner == Owner.POOL) {
+            give(this, (int) Thread.currentThread().getId());
+        }
+    }
+
+    private static RenderContext take(int hint)
+    {
+        for (int i = 0; i < POOL_SIZE; ++i) {
+            int index = (hint + i) & (POOL_SIZE - 1);
+            RenderContext context = POOL.get(index);
+
+            if (context != null && POOL.compareAndSet(index, context, null)) {
+                return context;
+            }
+        }
+
+        return new RenderContext(Owner.POOL);
+    }
+
+    private static void give(RenderContext context, int hint)
+    {
+        for (int i = 0; i < POOL_SIZE; ++i) {
+            if (POOL.compareAndSet((hint + i) & (POOL_SIZE - 1), null, context)) {
+                return;
+            }
+        }
+
+        // the pool is full; let this one go
+    }
+
+    // appends to the current builder, and aborts formatting once the builder is over the limit
+    private final class Sink implements Appendable
+    {
+        @Override
+        public Appendable append(CharSequence text)
+        {
+            builder.append(text);
+            checkLimit();
+
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end)
+        {
+            builder.append(text, start, end);
+            checkLimit();
+
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c)
+        {
+            builder.append(c);
+            checkLimit();
+
+            return this;
+        }
+
+        private void checkLimit()
+        {
+            if (builder.length() > limit) {
+                throw MessageTooLong.INSTANCE;
+            }
+        }
+    }
+
+    // thrown through Formatter, which only catches IOExceptions; preallocated, as there's nothing to learn from its stack
+    private static final class MessageTooLong extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+        private static final MessageTooLong INSTANCE = new MessageTooLong();
+
+        @Override
+        public synchronized Throwable fillInStackTrace()
+        {
+            return this;
+        }
+    }
+
+    private static Class<?> virtualThreadClass()
+    {
+        try {
+            return Class.forName("java.lang.BaseVirtualThread");
+        }
+        catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.helpers.LogLog;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.FormatFlagsConversionMismatchException;
+import java.util.Formattable;
+import java.util.FormattableFlags;
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caps how much of a message, and of each argument, gets rendered, so that a {@code %s} on a huge collection or string
+ * costs a bounded amount of memory and produces a readable line.
+ * <p/>
+ * Arguments are rendered as {@code String.format} would, except that
+ * <ul>
+ * <li>collections and maps with more than {@link #getMaxElements()} entries only get their first entries rendered,
+ * followed by the number left out, e.g. {@code [1, 2, 3, ...(1999997 more)]}, without iterating over the rest;</li>
+ * <li>text longer than {@link #getMaxArgumentLength()} characters is cut, followed by its length,
+ * e.g. {@code abc...(52428800 chars)};</li>
+ * </ul>
+ * These limits apply all the way down: collections and maps that render the standard way are rendered entry by entry,
+ * each entry within what's left of the argument limit, so a small map of huge lists stops as early as a huge list.
+ * and rendering stops as soon as the message is longer than {@link #getMaxMessageLength()} characters, which is then
+ * cut and followed by {@value #TRUNCATED}. Arrays need no special handling, as {@code %s} renders them as their type and
+ * identity hash code. A limit of zero or less disables that limit.
+ * <p/>
+ * The initial limits are read from the {@value #MAX_ARGUMENT_LENGTH_PROPERTY} (default {@value #DEFAULT_MAX_ARGUMENT_LENGTH}),
+ * {@value #MAX_MESSAGE_LENGTH_PROPERTY} (default {@value #DEFAULT_MAX_MESSAGE_LENGTH}) and {@value #MAX_ELEMENTS_PROPERTY}
+ * (default {@value #DEFAULT_MAX_ELEMENTS}) system properties, and can be replaced at runtime with {@link #set(RenderLimits)}.
+ */
+public final class RenderLimits
+{
+    public static final String MAX_ARGUMENT_LENGTH_PROPERTY = "com.mogwee.logging.maxArgumentLength";
+    public static final String MAX_MESSAGE_LENGTH_PROPERTY = "com.mogwee.logging.maxMessageLength";
+    public static final String MAX_ELEMENTS_PROPERTY = "com.mogwee.logging.maxElements";
+    public static final int DEFAULT_MAX_ARGUMENT_LENGTH = 16384;
+    public static final int DEFAULT_MAX_MESSAGE_LENGTH = 65536;
+    public static final int DEFAULT_MAX_ELEMENTS = 100;
+    public static final String TRUNCATED = "...(truncated)";
+
+    // whether a collection or map class renders as AbstractCollection and AbstractMap do
+    private static final ConcurrentMap<Class<?>, Boolean> STANDARD_RENDERING = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    private static volatile RenderLimits current = new RenderLimits(
+        intProperty(MAX_ARGUMENT_LENGTH_PROPERTY, DEFAULT_MAX_ARGUMENT_LENGTH),
+        intProperty(MAX_MESSAGE_LENGTH_PROPERTY, DEFAULT_MAX_MESSAGE_LENGTH),
+        intProperty(MAX_ELEMENTS_PROPERTY, DEFAULT_MAX_ELEMENTS)
+    );
+
+    private final int maxArgumentLength;
+    private final int maxMessageLength;
+    private final int maxElements;
+
+    /**
+     * @param maxArgumentLength the most characters rendered for a single argument, or zero or less for no limit
+     * @param maxMessageLength  the most characters rendered for a whole message, or zero or less for no limit
+     * @param maxElements       the most entries rendered for a collection or map, or zero or less for no limit
+     */
+    public RenderLimits(int maxArgumentLength, int maxMessageLength, int maxElements)
+    {
+        this.maxArgumentLength = maxArgumentLength <= 0 ? Integer.MAX_VALUE : maxArgumentLength;
+        this.maxMessageLength = maxMessageLength <= 0 ? Integer.MAX_VALUE : maxMessageLength;
+        this.maxElements = maxElements <= 0 ? Integer.MAX_VALUE : maxElements;
+    }
+
+    /**
+     * @return the limits in effect
+     */
+    public static RenderLimits get()
+    {
+        return current;
+    }
+
+    /**
+     * Replaces the limits for all messages rendered from now on.
+     *
+     * @param limits the new limits
+     * @return the limits previously in effect
+     */
+    public static RenderLimits set(RenderLimits limits)
+    {
+        if (limits == null) {
+            throw new IllegalArgumentException("limits may not be null");
+        }
+
+        RenderLimits previous = current;
+
+        current = limits;
+
+        return previous;
+    }
+
+    public int getMaxArgumentLength()
+    {
+        return maxArgumentLength;
+    }
+
+    public int getMaxMessageLength()
+    {
+        return maxMessageLength;
+    }
+
+    public int getMaxElements()
+    {
+        return maxElements;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("RenderLimits[maxArgumentLength=%s, maxMessageLength=%s, maxElements=%s]", maxArgumentLength, maxMessageLength, maxElements);
+    }
+
+    /**
+     * Appends an argument the way {@code %s} renders it, within the argument limits. Exceptions thrown by its
+     * {@code toString()} are passed on, as {@code String.format} would.
+     *
+     * @param builder where to render the argument
+     * @param arg     a non-{@link Formattable} argument
+     */
+    void appendArgument(StringBuilder builder, Object arg)
+    {
+        appendBounded(builder, arg, maxArgumentLength);
+    }
+
+    // renders at most about limit characters of arg, recursing into collections and maps with what's left
+    private void appendBounded(StringBuilder builder, Object arg, int limit)
+    {
+        if (arg instanceof CharSequence) {
+            appendText(builder, (CharSequence) arg, limit);
+        }
+        else if (arg instanceof Collection && (((Collection<?>) arg).size() > maxElements || rendersStandard(arg))) {
+            appendElements(builder, (Collection<?>) arg, limit);
+        }
+        else if (arg instanceof Map && (((Map<?, ?>) arg).size() > maxElements || rendersStandard(arg))) {
+            appendEntries(builder, (Map<?, ?>) arg, limit);
+        }
+        else {
+            appendText(builder, String.valueOf(arg), limit);
+        }
+    }
+
+    /**
+     * @param arg an argument
+     * @return the argument as {@code %s} renders it, within the argument limits
+     */
+    String toString(Object arg)
+    {
+        if (arg instanceof String && ((String) arg).length() <= maxArgumentLength) {
+            return (String) arg;
+        }
+
+        StringBuilder builder = new StringBuilder();
+
+        appendArgument(builder, arg);
+
+        return builder.toString();
+    }
+
+    /**
+     * Wraps the arguments a {@link Formatter} would render through their {@code toString()}, so that {@code %s} renders
+     * them within the argument limits, as {@link #appendArgument} does. Numbers, dates and the like, which other
+     * conversions need as they are, short text, and {@link Formattable} arguments are left alone; {@code %h} and
+     * {@code %b} render the wrapped arguments as they would the originals.
+     *
+     * @param args arguments referenced by the format specifiers
+     * @return the same array if no argument needs wrapping, a copy otherwise
+     */
+    Object[] bound(Object[] args)
+    {
+        if (args == null) {
+            return null;
+        }
+
+        Object[] result = args;
+
+        for (int i = 0; i < args.length; ++i) {
+            if (needsBounding(args[i])) {
+                if (result == args) {
+                    result = args.clone();
+                }
+
+                result[i] = new Bounded(args[i]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param builder a message being rendered
+     * @param start   where the message starts in the builder
+     * @return true if the message is over the message limit
+     */
+    boolean exceedsMessage(StringBuilder builder, int start)
+    {
+        return builder.length() - start > maxMessageLength;
+    }
+
+    /**
+     * Cuts a message that's over the message limit, and marks it as {@value #TRUNCATED}.
+     *
+     * @param builder a message being rendered
+     * @param start   where the message starts in the builder
+     */
+    void truncateMessage(StringBuilder builder, int start)
+    {
+        builder.setLength(cutPoint(builder, start + maxMessageLength));
+        builder.append(TRUNCATED);
+    }
+
+    private boolean needsBounding(Object arg)
+    {
+        if (arg instanceof CharSequence) {
+            return ((CharSequence) arg).length() > maxArgumentLength;
+        }
+
+        return arg != null && !(arg instanceof Formattable || arg instanceof Number || arg instanceof Character || arg instanceof Boolean ||
+            arg instanceof Date || arg instanceof Calendar || arg.getClass().getName().startsWith("java.time."));
+    }
+
+    private static boolean rendersStandard(Object arg)
+    {
+        Class<?> type = arg.getClass();
+        Boolean result = STANDARD_RENDERING.get(type);
+
+        if (result == null) {
+            try {
+                // the java.util implementations all render like AbstractCollection and AbstractMap
+                result = type.getMethod("toString").getDeclaringClass().getName().startsWith("java.util.");
+            }
+            catch (NoSuchMethodException e) {
+                result = false;
+            }
+
+            STANDARD_RENDERING.put(type, result);
+        }
+
+        return result;
+    }
+
+    // same format as AbstractCollection.toString()
+    private void appendElements(StringBuilder builder, Collection<?> collection, int limit)
+    {
+        int start = builder.length();
+        int size = collection.size();
+        int rendered = 0;
+        Iterator<?> iterator = collection.iterator();
+
+        builder.append('[');
+
+        while (rendered < maxElements && iterator.hasNext() && builder.length() - start < limit) {
+            Object element = iterator.next();
+
+            if (rendered > 0) {
+                builder.append(", ");
+            }
+
+            appendBounded(builder, element == collection ? "(this Collection)" : element, limit - (builder.length() - start));
+            ++rendered;
+        }
+
+        appendRemainder(builder, rendered, size, ']');
+    }
+
+    // same format as AbstractMap.toString()
+    private void appendEntries(StringBuilder builder, Map<?, ?> map, int limit)
+    {
+        int start = builder.length();
+        int size = map.size();
+        int rendered = 0;
+        Iterator<? extends Map.Entry<?, ?>> iterator = map.entrySet().iterator();
+
+        builder.append('{');
+
+        while (rendered < maxElements && iterator.hasNext() && builder.length() - start < limit) {
+            Map.Entry<?, ?> entry = iterator.next();
+            Object key = entry.getKey();
+            Object value = entry.getValue();
+
+            if (rendered > 0) {
+                builder.append(", ");
+            }
+
+            appendBounded(builder, key == map ? "(this Map)" : key, limit - (builder.length() - start));
+            builder.append('=');
+            appendBounded(builder, value == map ? "(this Map)" : value, limit - (builder.length() - start));
+            ++rendered;
+        }
+
+        appendRemainder(builder, rendered, size, '}');
+    }
+
+    private static void appendRemainder(StringBuilder builder, int rendered, int size, char close)
+    {
+        // the size may have changed while iterating over a concurrent collection
+        if (size > rendered) {
+            builder.append(rendered > 0 ? ", ...(" : "...(").append(size - rendered).append(" more)");
+        }
+
+        builder.append(close);
+    }
+
+    private static void appendText(StringBuilder builder, CharSequence text, int limit)
+    {
+        int length = text.length();
+
+        if (length <= limit) {
+            builder.append(text);
+        }
+        else {
+            int end = Math.max(limit, 0);
+
+            // don't split a surrogate pair
+            if (end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) {
+                --end;
+            }
+
+            builder.append(text, 0, end).append("...(").append(length).append(" chars)");
+        }
+    }
+
+    private static int cutPoint(StringBuilder builder, int end)
+    {
+        return end > 0 && Character.isHighSurrogate(builder.charAt(end - 1)) ? end - 1 : end;
+    }
+
+    // an argument handed to a Formatter in place of one that has to be rendered within the limits
+    private final class Bounded implements Formattable
+    {
+        private final Object arg;
+
+        private Bounded(Object arg)
+        {
+            this.arg = arg;
+        }
+
+        @Override
+        public void formatTo(Formatter formatter, int flags, int width, int precision)
+        {
+            // as Formatter treats %s of anything that isn't Formattable
+            if ((flags & FormattableFlags.ALTERNATE) != 0) {
+                throw new FormatFlagsConversionMismatchException("#", 's');
+            }
+
+            StringBuilder text = new StringBuilder();
+
+            appendArgument(text, arg);
+
+            if (precision >= 0 && precision < text.length()) {
+                text.setLength(precision);
+            }
+
+            String rendered = (flags & FormattableFlags.UPPERCASE) != 0 ? text.toString().toUpperCase() : text.toString();
+            StringBuilder padding = new StringBuilder();
+
+            for (int i = rendered.length(); i < width; ++i) {
+                padding.append(' ');
+            }
+
+            formatter.format("%s", (flags & FormattableFlags.LEFT_JUSTIFY) != 0 ? rendered + padding : padding + rendered);
+        }
+
+        // for %h
+        @Override
+        public int hashCode()
+        {
+            return arg.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof Bounded && arg.equals(((Bounded) other).arg);
+        }
+    }
+
+    private static int intProperty(String name, int defaultValue)
+    {
+        try {
+            return Integer.parseInt(System.getProperty(name, String.valueOf(defaultValue)));
+        }
+        catch (RuntimeException e) {
+            LogLog.warn(String.format("Invalid %s, using %s", name, defaultValue), e);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.spi.ThrowableInformation;
+
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.Map;
+
+/**
+ * The parts of an event an {@link AsyncDispatcher} stages off the heap, encoded with {@link BinaryEncoder}: thread name,
+ * NDC, MDC, message and stack trace. Level, logger and timestamp stay in the dispatcher's slot.
+ * <p/>
+ * Messages are encoded so that nothing logged stays reachable: a {@link FormattedMessage} as its format string plus
+ * arguments where {@link BinaryEncoder#writeArguments} can, a {@link StructuredMessage} as its message plus fields
+ * (objects become strings unless they're numbers, booleans or characters), anything else as its {@code toString()}.
+ * The cause is rendered to the lines of its stack trace, and the MDC's values to strings.
+ */
+final class StagedEvent
+{
+    private static final int TEXT = 0;
+    private static final int FORMATTED = 1;
+    private static final int STRUCTURED = 2;
+
+    private static final int INITIAL_CAPACITY = 512;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>()
+    {
+        @Override
+        protected Scratch initialValue()
+        {
+            return new Scratch();
+        }
+    };
+
+    private final String threadName;
+    private final String ndc;
+    private final Map<?, ?> mdc;
+    private final Object message;
+    private final String[] throwableStrRep;
+
+    private StagedEvent(String threadName, String ndc, Map<?, ?> mdc, Object message, String[] throwableStrRep)
+    {
+        this.threadName = threadName;
+        this.ndc = ndc;
+        this.mdc = mdc;
+        this.message = message;
+        this.throwableStrRep = throwableStrRep;
+    }
+
+    String getThreadName()
+    {
+        return threadName;
+    }
+
+    String getNDC()
+    {
+        return ndc;
+    }
+
+    /**
+     * @return the MDC, or null if it was empty
+     */
+    Map<?, ?> getMDC()
+    {
+        return mdc;
+    }
+
+    Object getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * @return the lines of the cause's stack trace, or null if there was no cause
+     */
+    String[] getThrowableStrRep()
+    {
+        return throwableStrRep;
+    }
+
+    /**
+     * Encodes an event into a per-thread buffer; call {@link #release(BinaryEncoder)} once the bytes are copied.
+     *
+     * @return the encoder holding the bytes
+     */
+    static BinaryEncoder encode(String threadName, String ndc, Hashtable<?, ?> mdc, Object message, Throwable cause)
+    {
+        Scratch scratch = SCRATCH.get();
+        BinaryEncoder encoder;
+
+        // rendering a message may log through the same thread, so never hand out a buffer that's already in use
+        if (scratch.inUse) {
+            encoder = new BinaryEncoder(INITIAL_CAPACITY);
+        }
+        else {
+            scratch.inUse = true;
+            encoder = scratch.encoder;
+            encoder.truncate(0);
+        }
+
+        encoder.writeString(threadName);
+        encoder.writeString(ndc);
+
+        if (mdc == null || mdc.isEmpty()) {
+            encoder.writeVarint(0);
+        }
+        else {
+            encoder.writeVarint(mdc.size());
+
+            for (Map.Entry<?, ?> entry : mdc.entrySet()) {
+                encoder.writeString(StructuredMessage.safeToString(entry.getKey()));
+                encoder.writeString(StructuredMessage.safeToString(entry.getValue()));
+            }
+        }
+
+        writeMessage(encoder, message);
+
+        String[] lines = cause == null ? null : new ThrowableInformation(cause).getThrowableStrRep();
+
+        if (lines == null) {
+            encoder.writeVarint(0);
+        }
+        else {
+            encoder.writeVarint(lines.length + 1);
+
+            for (String line : lines) {
+                encoder.writeString(line);
+            }
+        }
+
+        return encoder;
+    }
+
+    static void release(BinaryEncoder encoder)
+    {
+        Scratch scratch = SCRATCH.get();
+
+        if (scratch.encoder == encoder) {
+            encoder.shrink(MAX_RETAINED_CAPACITY, INITIAL_CAPACITY);
+            scratch.inUse = false;
+        }
+    }
+
+    private static void writeMessage(BinaryEncoder encoder, Object message)
+    {
+        if (message instanceof FormattedMessage) {
+            FormattedMessage formatted = (FormattedMessage) message;
+            int start = encoder.length();
+
+            encoder.writeVarint(FORMATTED);
+            encoder.writeString(formatted.getFormat());
+
+            if (encoder.writeArguments(formatted)) {
+                return;
+            }
+
+            encoder.truncate(start);
+        }
+        else if (message instanceof StructuredMessage) {
+            StructuredMessage structured = (StructuredMessage) message;
+
+            encoder.writeVarint(STRUCTURED);
+            encoder.writeString(structured.getMessage());
+            encoder.writeVarint(structured.getFieldCount());
+
+            for (int i = 0; i < structured.getFieldCount(); ++i) {
+                encoder.writeString(structured.getKey(i));
+                encoder.writeVarint(structured.getType(i).ordinal());
+
+                if (structured.getType(i) == StructuredMessage.FieldType.OBJECT) {
+                    encoder.writeValue(structured.getObject(i));
+                }
+                else {
+                    encoder.writeVarint(BinaryLogFormat.zigZag(structured.getLong(i)));
+                }
+            }
+
+            return;
+        }
+
+        encoder.writeVarint(TEXT);
+        encoder.writeString(message == null ? null : StructuredMessage.safeToString(message));
+    }
+
+    /**
+     * @param decoder reading what {@link #encode} wrote
+     * @throws IOException if the bytes are corrupt
+     */
+    static StagedEvent decode(BinaryDecoder decoder) throws IOException
+    {
+        String threadName = decoder.readString();
+        String ndc = decoder.readString();
+        int mdcSize = (int) decoder.readVarint();
+        Hashtable<String, String> mdc = null;
+
+        if (mdcSize > 0) {
+            mdc = new Hashtable<String, String>();
+
+            for (int i = 0; i < mdcSize; ++i) {
+                String key = decoder.readString();
+                String value = decoder.readString();
+
+                if (key != null && value != null) {
+                    mdc.put(key, value);
+                }
+            }
+        }
+
+        Object message = readMessage(decoder);
+        int lineCount = (int) decoder.readVarint();
+        String[] lines = null;
+
+        if (lineCount > 0) {
+            lines = new String[lineCount - 1];
+
+            for (int i = 0; i < lines.length; ++i) {
+                lines[i] = decoder.readString();
+            }
+        }
+
+        return new StagedEvent(threadName, ndc, mdc, message, lines);
+    }
+
+    private static Object readMessage(BinaryDecoder decoder) throws IOException
+    {
+        int kind = (int) decoder.readVarint();
+
+        switch (kind) {
+            case TEXT:
+                return decoder.readString();
+            case FORMATTED:
+                String format = decoder.readString();
+
+                return new FormattedMessage(FormatTemplate.forFormat(format), decoder.readArguments());
+            case STRUCTURED:
+                String text = decoder.readString();
+                int count = (int) decoder.readVarint();
+                String[] keys = new String[count];
+                byte[] types = new byte[count];
+                long[] values = new long[count];
+                Object[] objects = null;
+
+                for (int i = 0; i < count; ++i) {
+                    keys[i] = decoder.readString();
+                    types[i] = (byte) decoder.readVarint();
+
+                    if (types[i] == StructuredMessage.FieldType.OBJECT.ordinal()) {
+                        if (objects == null) {
+                            objects = new Object[count];
+                        }
+
+                        objects[i] = decoder.readValue();
+                    }
+                    else {
+                        values[i] = BinaryLogFormat.unZigZag(decoder.readVarint());
+                    }
+                }
+
+                return new StructuredMessage(text, keys, types, values, objects);
+            default:
+                throw new IOException(String.format("Unknown message kind %d", kind));
+        }
+    }
+
+    private static final class Scratch
+    {
+        private final BinaryEncoder encoder = new BinaryEncoder(INITIAL_CAPACITY);
+        private boolean inUse = false;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed set of counters, striped by thread the way {@code LongAdder} is, so that threads logging concurrently
+ * don't all contend on the same cache line.
+ * <p/>
+ * Every stripe holds a copy of each counter; a thread always updates the copies in the stripe its id maps to,
+ * and reads add up all the stripes. Reads are therefore not atomic across counters, which is fine for metrics.
+ */
+final class StripedCounters
+{
+    static final int STRIPES = stripes();
+
+    private final int width;
+    private final AtomicLongArray cells;
+
+    /**
+     * @param count number of counters
+     */
+    StripedCounters(int count)
+    {
+        // round rows up to whole cache lines (8 longs)
+        width = (count + 7) & ~7;
+        cells = new AtomicLongArray(STRIPES * width);
+    }
+
+    /**
+     * @param counter index of a counter
+     * @param delta   what to add to it
+     */
+    void add(int counter, long delta)
+    {
+        cells.getAndAdd(stripe() + counter, delta);
+    }
+
+    /**
+     * Adds one without a locked instruction; concurrent increments from threads sharing a stripe can be lost,
+     * so only use this where cost matters more than exactness.
+     *
+     * @param counter index of a counter
+     */
+    void incrementApproximately(int counter)
+    {
+        int index = stripe() + counter;
+
+        cells.lazySet(index, cells.get(index) + 1);
+    }
+
+    /**
+     * @param counter index of a counter
+     * @return its current total
+     */
+    long sum(int counter)
+    {
+        long sum = 0;
+
+        for (int i = counter; i < cells.length(); i += width) {
+            sum += cells.get(i);
+        }
+
+        return sum;
+    }
+
+    void reset()
+    {
+        for (int i = 0; i < cells.length(); ++i) {
+            cells.set(i, 0);
+        }
+    }
+
+    private int stripe()
+    {
+        return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * width;
+    }
+
+    private static int stripes()
+    {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+
+        return Integer.highestOneBit(Math.max(processors * 2 - 1, 1));
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * The message of a structured log event: a message plus typed key/value fields.
+ * <p/>
+ * This is what {@link EventBuilder#log()} hands to Log4J as the event's message. Fields are kept in primitive
+ * parallel arrays and are only rendered when an appender asks for them: {@link #toString()} (which is what
+ * Log4J's {@code getRenderedMessage()} uses) renders {@code message key=value ...}, and {@link #toJson()}
+ * renders a JSON object. Layouts that know about this class can read the fields directly instead.
+ */
+public final class StructuredMessage
+{
+    /**
+     * Type of a field's value.
+     */
+    public enum FieldType
+    {
+        LONG,
+        DOUBLE,
+        BOOLEAN,
+        OBJECT
+    }
+
+    private static final FieldType[] FIELD_TYPES = FieldType.values();
+
+    private final String message;
+    private final String[] keys;
+    private final byte[] types;
+    // long values, raw double bits, or 0/1 for booleans
+    private final long[] values;
+    // null unless there are OBJECT fields
+    private final Object[] objects;
+
+    private String text = null;
+
+    StructuredMessage(String message, String[] keys, byte[] types, long[] values, Object[] objects)
+    {
+        this.message = message;
+        this.keys = keys;
+        this.types = types;
+        this.values = values;
+        this.objects = objects;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public int getFieldCount()
+    {
+        return keys.length;
+    }
+
+    public String getKey(int index)
+    {
+        return keys[index];
+    }
+
+    public FieldType getType(int index)
+    {
+        return FIELD_TYPES[types[index]];
+    }
+
+    public long getLong(int index)
+    {
+        return values[index];
+    }
+
+    public double getDouble(int index)
+    {
+        return Double.longBitsToDouble(values[index]);
+    }
+
+    public boolean getBoolean(int index)
+    {
+        return values[index] != 0;
+    }
+
+    public Object getObject(int index)
+    {
+        return objects == null ? null : objects[index];
+    }
+
+    /**
+     * Renders {@code message key=value ...}; values containing spaces, quotes or {@code =} are quoted.
+     *
+     * @return the rendered message
+     */
+    @Override
+    public String toString()
+    {
+        String result = text;
+
+        if (result == null) {
+            StringBuilder builder = new StringBuilder(message == null ? 16 : message.length() + 16 * keys.length);
+
+            appendText(builder);
+            result = builder.toString();
+            text = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Renders {@code {"message":..., key:value, ...}}.
+     *
+     * @return the rendered message
+     */
+    public String toJson()
+    {
+        StringBuilder builder = new StringBuilder(32 + (message == null ? 0 : message.length()) + 24 * keys.length);
+
+        builder.append("{\"message\":");
+        appendJsonString(builder, message);
+
+        if (keys.length > 0) {
+            builder.append(',');
+            appendJsonFields(builder);
+        }
+
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Appends {@code message key=value ...}.
+     *
+     * @param builder where to render to
+     */
+    public void appendText(StringBuilder builder)
+    {
+        builder.append(message);
+
+        for (int i = 0; i < keys.length; ++i) {
+            builder.append(' ').append(keys[i]).append('=');
+
+            if (types[i] == FieldType.OBJECT.ordinal()) {
+                appendQuotedIfNeeded(builder, safeToString(objects[i]));
+            }
+            else {
+                appendPrimitive(builder, i);
+            }
+        }
+    }
+
+    /**
+     * Appends the fields as JSON object members, {@code "key":value,...}, without the enclosing braces.
+     *
+     * @param builder where to render to
+     */
+    public void appendJsonFields(StringBuilder builder)
+    {
+        for (int i = 0; i < keys.length; ++i) {
+            if (i > 0) {
+                builder.append(',');
+            }
+
+            appendJsonString(builder, keys[i]);
+            builder.append(':');
+
+            FieldType type = FIELD_TYPES[types[i]];
+
+            if (type == FieldType.OBJECT) {
+                Object value = objects[i];
+
+                if (value == null) {
+                    builder.append("null");
+                }
+                else if (isJsonLiteral(value)) {
+                    builder.append(value);
+                }
+                else {
+                    appendJsonString(builder, safeToString(value));
+                }
+            }
+            else if (type == FieldType.DOUBLE && !isFinite(getDouble(i))) {
+                builder.append('"').append(getDouble(i)).append('"');
+            }
+            else {
+                appendPrimitive(builder, i);
+            }
+        }
+    }
+
+    private void appendPrimitive(StringBuilder builder, int index)
+    {
+        switch (FIELD_TYPES[types[index]]) {
+            case LONG:
+                builder.append(values[index]);
+                break;
+            case DOUBLE:
+                builder.append(getDouble(index));
+                break;
+            default:
+                builder.append(values[index] != 0);
+                break;
+        }
+    }
+
+    /**
+     * @param value a field value
+     * @return true if the value's {@code toString()} is valid JSON and should be written unquoted
+     */
+    static boolean isJsonLiteral(Object value)
+    {
+        return value instanceof Boolean || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    static boolean isFinite(double value)
+    {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    private static void appendQuotedIfNeeded(StringBuilder builder, String value)
+    {
+        boolean quote = value.length() == 0;
+
+        for (int i = 0; i < value.length() && !quote; ++i) {
+            char c = value.charAt(i);
+
+            quote = c == ' ' || c == '"' || c == '=' || c < 0x20;
+        }
+
+        if (!quote) {
+            builder.append(value);
+            return;
+        }
+
+        appendEscaped(builder, value);
+    }
+
+    static void appendJsonString(StringBuilder builder, String value)
+    {
+        if (value == null) {
+            builder.append("null");
+            return;
+        }
+
+        appendEscaped(builder, value);
+    }
+
+    // quotes the value, escaping it the way JSON does, which also makes it a valid logfmt value
+    private static void appendEscaped(StringBuilder builder, String value)
+    {
+        builder.append('"');
+
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append("\\u00");
+                        builder.append(Character.forDigit(c >> 4, 16));
+                        builder.append(Character.forDigit(c & 0xf, 16));
+                    }
+                    else {
+                        builder.append(c);
+                    }
+                    break;
+            }
+        }
+
+        builder.append('"');
+    }
+
+    static String safeToString(Object value)
+    {
+        try {
+            return RenderLimits.get().toString(value);
+        }
+        catch (RuntimeException e) {
+            try {
+                return "toString():" + e.toString();
+            }
+            catch (RuntimeException e2) {
+                return "???";
+            }
+        }
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.MDC;
+import org.apache.log4j.NDC;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestAsyncDispatcher
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestAsyncDispatcher.class.getName());
+
+    private static class CollectingAppender extends AppenderSkeleton
+    {
+        private final List<LoggingEvent> events = Collections.synchronizedList(new ArrayList<LoggingEvent>());
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        @Override
+        protected void append(LoggingEvent event)
+        {
+            try {
+                gate.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            events.add(event);
+        }
+
+        @Override
+        public boolean requiresLayout()
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    private CollectingAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        appender = new CollectingAppender();
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.addAppender(appender);
+        LOG4J_LOGGER.setAdditivity(false);
+        LOG4J_LOGGER.setLevel(Level.ALL);
+        Logger.refreshLevels();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        Logger.setAsyncDispatcher(null);
+        LOG4J_LOGGER.removeAllAppenders();
+    }
+
+    @Test
+    public void testDeliversInOrderWithCallerContext() throws Exception
+    {
+        for (AsyncDispatcher.WaitStrategy waitStrategy : AsyncDispatcher.WaitStrategy.values()) {
+            final int threads = 4;
+            final int perThread = 1000;
+            AsyncDispatcher dispatcher = new AsyncDispatcher(64, waitStrategy, AsyncDispatcher.OverflowPolicy.BLOCK);
+            List<Thread> producers = new ArrayList<Thread>();
+
+            appender.events.clear();
+            dispatcher.start();
+            Logger.setAsyncDispatcher(dispatcher);
+
+            for (int i = 0; i < threads; ++i) {
+                final int id = i;
+                Thread producer = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        MDC.put("producer", id);
+
+                        for (int j = 0; j < perThread; ++j) {
+                            LOG.infof("%s %s", id, j);
+                        }
+
+                        MDC.remove("producer");
+                    }
+                }, "producer-" + i);
+
+                producers.add(producer);
+                producer.start();
+            }
+
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+            Assert.assertEquals(dispatcher.getPendingCount(), 0);
+            Assert.assertEquals(appender.events.size(), threads * perThread, waitStrategy.toString());
+
+            Map<String, Integer> lastSeen = new HashMap<String, Integer>();
+
+            for (LoggingEvent event : appender.events) {
+                String[] parts = event.getRenderedMessage().split(" ");
+                Integer previous = lastSeen.put(parts[0], Integer.valueOf(parts[1]));
+
+                Assert.assertEquals(event.getThreadName(), "producer-" + parts[0]);
+                Assert.assertEquals(String.valueOf(event.getMDC("producer")), parts[0]);
+                Assert.assertEquals(Integer.parseInt(parts[1]), previous == null ? 0 : previous + 1);
+            }
+        }
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(4, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.DROP);
+
+        appender.gate = new CountDownLatch(1);
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+
+        for (int i = 0; i < 100; ++i) {
+            LOG.info("message");
+        }
+
+        Assert.assertTrue(dispatcher.getDroppedCount() >= 100 - 4 - 1);
+        appender.gate.countDown();
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+        Assert.assertEquals(appender.events.size() + dispatcher.getDroppedCount(), 100);
+    }
+
+    @Test
+    public void testSampleWhenFull() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(1, AsyncDispatcher.WaitStrategy.YIELDING, AsyncDispatcher.OverflowPolicy.SAMPLE, 10);
+
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+
+        for (int i = 0; i < 1000; ++i) {
+            LOG.info("message");
+        }
+
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+        Assert.assertEquals(appender.events.size() + dispatcher.getDroppedCount(), 1000);
+        Assert.assertTrue(appender.events.size() >= 1000 / 10);
+    }
+
+    @Test(timeOut = 30000)
+    public void testConsumerLoggingIsSynchronous() throws Exception
+    {
+        for (AsyncDispatcher.OverflowPolicy policy : new AsyncDispatcher.OverflowPolicy[]{AsyncDispatcher.OverflowPolicy.BLOCK, AsyncDispatcher.OverflowPolicy.SAMPLE}) {
+            final org.apache.log4j.Logger selfLogging = org.apache.log4j.Logger.getLogger(TestAsyncDispatcher.class.getName() + ".selfLogging");
+            final Logger nested = Logger.getLogger(TestAsyncDispatcher.class.getName() + ".nested");
+            AsyncDispatcher dispatcher = new AsyncDispatcher(2, AsyncDispatcher.WaitStrategy.SLEEPING, policy, 1);
+
+            // an appender that logs more than the buffer holds, through a logger that's dispatched asynchronously too
+            // (and inherits the collecting appender)
+            selfLogging.removeAllAppenders();
+            selfLogging.setAdditivity(false);
+            selfLogging.setLevel(Level.INFO);
+            selfLogging.addAppender(new AppenderSkeleton()
+            {
+                @Override
+                protected void append(LoggingEvent event)
+                {
+                    for (int i = 0; i < 10; ++i) {
+                        nested.infof("nested %s", i);
+                    }
+                }
+
+                @Override
+                public boolean requiresLayout()
+                {
+                    return false;
+                }
+
+                @Override
+                public void close()
+                {
+                }
+            });
+            Logger.refreshLevels();
+            appender.events.clear();
+            dispatcher.start();
+            Logger.setAsyncDispatcher(dispatcher);
+
+            try {
+                Logger.getLogger(selfLogging.getName()).info("trigger");
+                // the consumer mustn't wait for itself to free a slot
+                Assert.assertTrue(dispatcher.awaitDelivery(10, TimeUnit.SECONDS), policy.toString());
+                Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS), policy.toString());
+                Assert.assertEquals(appender.events.size(), 10, policy.toString());
+            }
+            finally {
+                Logger.setAsyncDispatcher(null);
+                selfLogging.removeAllAppenders();
+            }
+        }
+    }
+
+    @Test
+    public void testSynchronousAfterShutdown() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.BLOCKING, AsyncDispatcher.OverflowPolicy.BLOCK);
+
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+
+        LOG.warn("after shutdown");
+        Assert.assertEquals(appender.events.size(), 1);
+        Assert.assertEquals(appender.events.get(0).getThreadName(), Thread.currentThread().getName());
+    }
+
+    @Test
+    public void testDisabledLevelIsNotPublished() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.BLOCK);
+
+        LOG4J_LOGGER.setLevel(Level.WARN);
+        Logger.refreshLevels();
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+        LOG.debugf("debug %s", 1);
+        LOG.info("info");
+        LOG.error("error");
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+        Assert.assertEquals(appender.events.size(), 1);
+        Assert.assertEquals(appender.events.get(0).getRenderedMessage(), "error");
+    }
+
+    @Test
+    public void testShardedDeliversMergedAndNumbered() throws Exception
+    {
+        for (AsyncDispatcher.WaitStrategy waitStrategy : AsyncDispatcher.WaitStrategy.values()) {
+            final int threads = 8;
+            final int perThread = 1000;
+            AsyncDispatcher dispatcher = new AsyncDispatcher(16, waitStrategy, AsyncDispatcher.OverflowPolicy.BLOCK, 100, 4, 2);
+            List<Thread> producers = new ArrayList<Thread>();
+
+            Assert.assertEquals(dispatcher.getStripeCount(), 4);
+            Assert.assertEquals(dispatcher.getCapacity(), 64);
+            appender.events.clear();
+            dispatcher.start();
+            Logger.setAsyncDispatcher(dispatcher);
+
+            for (int i = 0; i < threads; ++i) {
+                final int id = i;
+                Thread producer = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for (int j = 0; j < perThread; ++j) {
+                            LOG.infof("%s %s", id, j);
+                        }
+                    }
+                }, "producer-" + i);
+
+                producers.add(producer);
+                producer.start();
+            }
+
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            Assert.assertTrue(dispatcher.awaitDelivery(10, TimeUnit.SECONDS));
+            Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+            Assert.assertEquals(appender.events.size(), threads * perThread, waitStrategy.toString());
+
+            Map<String, Integer> lastSeen = new HashMap<String, Integer>();
+            long latest = Long.MIN_VALUE;
+            long reordered = 0;
+
+            for (int i = 0; i < appender.events.size(); ++i) {
+                LoggingEvent event = appender.events.get(i);
+                String[] parts = event.getRenderedMessage().split(" ");
+                Integer previous = lastSeen.put(parts[0], Integer.valueOf(parts[1]));
+
+                Assert.assertEquals(event.getMDC(AsyncDispatcher.SEQUENCE_KEY), (long) i);
+                Assert.assertEquals(Integer.parseInt(parts[1]), previous == null ? 0 : previous + 1);
+
+                if (event.timeStamp < latest) {
+                    ++reordered;
+                }
+
+                latest = Math.max(latest, event.timeStamp);
+            }
+
+            Assert.assertEquals(dispatcher.getReorderedCount(), reordered);
+        }
+    }
+
+    @Test
+    public void testShardedHoldsEventsForReorderWindow() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.BLOCKING, AsyncDispatcher.OverflowPolicy.BLOCK, 100, 2, 60000);
+
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+        LOG.info("held");
+        Thread.sleep(50);
+        Assert.assertEquals(appender.events.size(), 0);
+        Assert.assertEquals(dispatcher.getPendingCount(), 1);
+
+        Assert.assertTrue(dispatcher.awaitDelivery(10, TimeUnit.SECONDS));
+        Assert.assertEquals(appender.events.size(), 1);
+        Assert.assertEquals(appender.events.get(0).getMDC(AsyncDispatcher.SEQUENCE_KEY), 0L);
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSingleStripeIsNotNumbered() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.BLOCK);
+
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+        LOG.info("plain");
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+        Assert.assertEquals(appender.events.size(), 1);
+        Assert.assertNull(appender.events.get(0).getMDC(AsyncDispatcher.SEQUENCE_KEY));
+    }
+
+    @Test
+    public void testStagedEventsRoundTrip() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(64, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.BLOCK, 100, 1, 0, 64 * 1024);
+        Exception cause = new IllegalStateException("broken");
+        boolean wasDeferred = Logger.setDeferredFormatting(true);
+
+        Assert.assertEquals(dispatcher.getStagingCapacity(), 64 * 1024);
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+        MDC.put("request", 42);
+        NDC.push("outer");
+
+        try {
+            LOG.info("plain");
+            LOG.infof("formatted %s %d %.1f", "x", 7, 1.25);
+            LOG.infof("object %s", new StringBuilder("builder"));
+            LOG.atInfo("structured").kv("count", 3).kv("ratio", 0.5).kv("ok", true).kv("name", "bob").log();
+            LOG.warn(cause, "failed");
+        }
+        finally {
+            NDC.pop();
+            MDC.remove("request");
+            Logger.setDeferredFormatting(wasDeferred);
+        }
+
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+        Assert.assertEquals(dispatcher.getStagedBytes(), 0);
+        Assert.assertEquals(appender.events.size(), 5);
+
+        List<String> messages = new ArrayList<String>();
+
+        for (LoggingEvent event : appender.events) {
+            messages.add(event.getRenderedMessage());
+            Assert.assertEquals(event.getThreadName(), Thread.currentThread().getName());
+            Assert.assertEquals(event.getMDC("request"), "42");
+            Assert.assertEquals(event.getNDC(), "outer");
+        }
+
+        Assert.assertEquals(messages.subList(0, 4), java.util.Arrays.asList("plain", "formatted x 7 1.3", "object builder", "structured count=3 ratio=0.5 ok=true name=bob"));
+        Assert.assertTrue(appender.events.get(1).getMessage() instanceof FormattedMessage);
+
+        StructuredMessage structured = (StructuredMessage) appender.events.get(3).getMessage();
+
+        Assert.assertEquals(structured.getType(1), StructuredMessage.FieldType.DOUBLE);
+        Assert.assertEquals(structured.getDouble(1), 0.5);
+        Assert.assertEquals(structured.getObject(3), "bob");
+
+        LoggingEvent failure = appender.events.get(4);
+
+        Assert.assertNull(failure.getThrowableInformation());
+        Assert.assertEquals(failure.getThrowableStrRep(), new org.apache.log4j.spi.ThrowableInformation(cause).getThrowableStrRep());
+    }
+
+    @Test
+    public void testStagingIsBoundedInBytes() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(1024, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.DROP, 100, 1, 0, 2048);
+        String message = String.format("%0100d", 0);
+
+        appender.gate = new CountDownLatch(1);
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+
+        for (int i = 0; i < 100; ++i) {
+            LOG.info(message);
+            Assert.assertTrue(dispatcher.getStagedBytes() <= 2048);
+        }
+
+        Assert.assertTrue(dispatcher.getStagedBytes() > 2048 - 200, String.valueOf(dispatcher.getStagedBytes()));
+        Assert.assertTrue(dispatcher.getDroppedCount() > 0);
+        appender.gate.countDown();
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+        Assert.assertEquals(dispatcher.getStagedBytes(), 0);
+        Assert.assertEquals(appender.events.size() + dispatcher.getDroppedCount(), 100);
+    }
+
+    @Test
+    public void testOversizedStagedEventIsLoggedSynchronously() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.BLOCK, 100, 1, 0, 1024);
+        String message = String.format("%02000d", 0);
+
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+        LOG.info(message);
+        Assert.assertEquals(appender.events.size(), 1);
+        Assert.assertFalse(appender.events.get(0) instanceof AsyncLoggingEvent);
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+    }
+
+    @Test(timeOut = 30000)
+    public void testConsumerSurvivesFailingEvents() throws Exception
+    {
+        AppenderSkeleton failing = new AppenderSkeleton()
+        {
+            @Override
+            protected void append(LoggingEvent event)
+            {
+                if ("fatal".equals(event.getRenderedMessage())) {
+                    throw new AssertionError("appender failure");
+                }
+            }
+
+            @Override
+            public boolean requiresLayout()
+            {
+                return false;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+
+        LOG4J_LOGGER.addAppender(failing);
+
+        // on the heap, and staged off it
+        for (int stagingBytes : new int[]{0, 4096}) {
+            AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.BLOCK, 100, 1, 0, stagingBytes);
+
+            appender.events.clear();
+            dispatcher.start();
+            Logger.setAsyncDispatcher(dispatcher);
+            LOG.info("before");
+            LOG.info("fatal");
+            LOG.info("after");
+
+            Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+            Assert.assertEquals(appender.events.size(), 3);
+            Assert.assertEquals(appender.events.get(2).getRenderedMessage(), "after");
+            Logger.setAsyncDispatcher(null);
+        }
+    }
+
+    @Test(timeOut = 30000)
+    public void testShutdownWithoutStartDelivers() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.BLOCK);
+
+        Logger.setAsyncDispatcher(dispatcher);
+
+        for (int i = 0; i < 3; ++i) {
+            LOG.infof("never started %s", i);
+        }
+
+        Assert.assertEquals(appender.events.size(), 0);
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+        Assert.assertEquals(appender.events.size(), 3);
+        Assert.assertEquals(appender.events.get(2).getRenderedMessage(), "never started 2");
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+
+public class TestBackendLoader
+{
+    private static class FirstBackend implements LoggingBackend
+    {
+        @Override
+        public BackendLogger getLogger(String name)
+        {
+            return new BackendLogger()
+            {
+                @Override
+                public boolean isEnabled(Level level)
+                {
+                    return false;
+                }
+
+                @Override
+                public void log(Level level, Object message, Throwable cause)
+                {
+                }
+
+                @Override
+                public void logStructured(Level level, StructuredMessage message, Throwable cause)
+                {
+                }
+            };
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+    }
+
+    private static class SecondBackend extends FirstBackend
+    {
+    }
+
+    @Test
+    public void testDefaultsToLog4j()
+    {
+        Assert.assertTrue(BackendLoader.select(null, Collections.<LoggingBackend>emptyList().iterator()) instanceof Log4jBackend);
+    }
+
+    @Test
+    public void testFirstProviderWins()
+    {
+        Assert.assertTrue(BackendLoader.select(null, providers(new FirstBackend(), new SecondBackend())).getClass() == FirstBackend.class);
+    }
+
+    @Test
+    public void testPropertyPicksProvider()
+    {
+        Assert.assertTrue(BackendLoader.select(SecondBackend.class.getName(), providers(new FirstBackend(), new SecondBackend())) instanceof SecondBackend);
+        Assert.assertTrue(BackendLoader.select(Log4jBackend.class.getName(), providers(new FirstBackend())) instanceof Log4jBackend);
+        Assert.assertTrue(BackendLoader.select("no.such.Backend", providers(new FirstBackend())) instanceof Log4jBackend);
+    }
+
+    @Test
+    public void testPropertyLoadsUnlistedBackendByName()
+    {
+        Assert.assertTrue(BackendLoader.select(NativeBackend.class.getName(), providers(new FirstBackend())) instanceof NativeBackend);
+        Assert.assertTrue(BackendLoader.select(String.class.getName(), providers(new FirstBackend())) instanceof Log4jBackend);
+    }
+
+    @Test
+    public void testBrokenProviderIsSkipped()
+    {
+        final Iterator<LoggingBackend> working = providers(new SecondBackend());
+        Iterator<LoggingBackend> providers = new Iterator<LoggingBackend>()
+        {
+            private boolean failed = false;
+
+            @Override
+            public boolean hasNext()
+            {
+                return !failed || working.hasNext();
+            }
+
+            @Override
+            public LoggingBackend next()
+            {
+                if (!failed) {
+                    failed = true;
+                    throw new ServiceConfigurationError("broken");
+                }
+
+                return working.next();
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        Assert.assertTrue(BackendLoader.select(null, providers) instanceof SecondBackend);
+    }
+
+    @Test(timeOut = 10000)
+    public void testFailingIteratorIsGivenUpOn()
+    {
+        Iterator<LoggingBackend> failingLookup = new Iterator<LoggingBackend>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                throw new ServiceConfigurationError("malformed services file");
+            }
+
+            @Override
+            public LoggingBackend next()
+            {
+                throw new ServiceConfigurationError("malformed services file");
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        Iterator<LoggingBackend> failingLoads = new Iterator<LoggingBackend>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return true;
+            }
+
+            @Override
+            public LoggingBackend next()
+            {
+                throw new ServiceConfigurationError("broken");
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        Assert.assertTrue(BackendLoader.select(null, failingLookup) instanceof Log4jBackend);
+        Assert.assertTrue(BackendLoader.select(null, failingLoads) instanceof Log4jBackend);
+    }
+
+    private static Iterator<LoggingBackend> providers(LoggingBackend... backends)
+    {
+        return Arrays.asList(backends).iterator();
+    }
+}
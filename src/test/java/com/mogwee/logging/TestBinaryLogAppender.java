@@ -0,0 +1,302 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestBinaryLogAppender
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestBinaryLogAppender.class.getName());
+
+    private File directory;
+    private String fileName;
+
+    private static class Thing
+    {
+        private int toStringCalls = 0;
+
+        @Override
+        public String toString()
+        {
+            ++toStringCalls;
+            return "thing";
+        }
+    }
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        directory = File.createTempFile("binary", "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+        fileName = new File(directory, "test.bin").getPath();
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.setAdditivity(false);
+        LOG4J_LOGGER.setLevel(Level.ALL);
+        Logger.refreshLevels();
+        Logger.setDeferredFormatting(true);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        Logger.setDeferredFormatting(false);
+        LOG4J_LOGGER.removeAllAppenders();
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    @Test
+    public void testDeferredFormatting()
+    {
+        final List<LoggingEvent> events = new ArrayList<LoggingEvent>();
+        Thing thing = new Thing();
+
+        LOG4J_LOGGER.setLevel(Level.INFO);
+        Logger.refreshLevels();
+        LOG4J_LOGGER.addAppender(new AppenderSkeleton()
+        {
+            @Override
+            protected void append(LoggingEvent event)
+            {
+                events.add(event);
+            }
+
+            @Override
+            public boolean requiresLayout()
+            {
+                return false;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        });
+
+        LOG.infof("a %s", thing);
+        LOG.infof("an int %d", 5);
+        LOG.warnDebugf(new RuntimeException("boom"), "a %s", thing);
+        Assert.assertEquals(events.size(), 3);
+        Assert.assertTrue(events.get(0).getMessage() instanceof FormattedMessage);
+        Assert.assertTrue(events.get(1).getMessage() instanceof FormattedMessage);
+        Assert.assertEquals(thing.toStringCalls, 1);
+        Assert.assertEquals(((FormattedMessage) events.get(0).getMessage()).getFormat(), "a %s");
+        Assert.assertEquals(events.get(0).getRenderedMessage(), "a thing");
+        Assert.assertEquals(events.get(0).getRenderedMessage(), "a thing");
+        Assert.assertEquals(events.get(1).getRenderedMessage(), "an int 5");
+        Assert.assertEquals(events.get(2).getRenderedMessage(), "a thing" + CauseSummaryMessage.SEPARATOR + "java.lang.RuntimeException: boom");
+        Assert.assertEquals(thing.toStringCalls, 2);
+
+        // a mismatch that can be seen when logging is reported right away, as without deferral
+        LOG.infof("%d", "not a number");
+        Assert.assertFalse(events.get(3).getMessage() instanceof FormattedMessage);
+        Assert.assertEquals(events.get(3).getLevel(), Level.WARN);
+        Assert.assertEquals(events.get(3).getRenderedMessage(), "Bogus format string: INFO %d [not a number] (java.util.IllegalFormatConversionException: d != java.lang.String)");
+
+        // others are only described in the message
+        LOG.infof("%5d", "not a number");
+        Assert.assertTrue(events.get(4).getMessage() instanceof FormattedMessage);
+        Assert.assertEquals(events.get(4).getLevel(), Level.INFO);
+        Assert.assertEquals(events.get(4).getRenderedMessage(), "Bogus format string: %5d [not a number] (java.util.IllegalFormatConversionException: d != java.lang.String)");
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        Object[][] calls = {
+            {"%s and %d", "a string", 5},
+            {"%x %x %o", (byte) -1, (short) -2, -3L},
+            {"%08.3f|%e|%s", 3.14159, 2.5f, 1.1f},
+            {"%,d %s", new BigInteger("-123456789012345678901234567890"), new BigDecimal("-1.2300")},
+            {"%.2f", new BigDecimal("12345.6789")},
+            {"%c%C %b %B", 'x', 'y', null, true},
+            {"%s|%s", new Thing(), new Thing()},
+            {"%S", "upper"},
+            {"unused %s", "a", new Thing()},
+            {"%2$s %1$s %<s%n%%", "first", "second"},
+            {"%s", "lone \ud800 surrogate, pair \ud83d\ude00, \u00e9\u4e2d"},
+            {"%s %s", null, null},
+            {"bogus %5d", "bogus"},
+            {"missing %2$s", "argument"},
+        };
+        BinaryLogAppender appender = new BinaryLogAppender(fileName);
+        List<String> expected = new ArrayList<String>();
+
+        LOG4J_LOGGER.addAppender(appender);
+
+        for (Object[] call : calls) {
+            Object[] args = new Object[call.length - 1];
+
+            System.arraycopy(call, 1, args, 0, args.length);
+            LOG.infof((String) call[0], args);
+
+            try {
+                expected.add(String.format((String) call[0], args));
+            }
+            catch (RuntimeException e) {
+                expected.add(FormattedMessage.describeFailure((String) call[0], args, e.toString()));
+            }
+        }
+
+        LOG.info("plain");
+        LOG.errorf(new IllegalStateException("boom"), "with %s", "cause");
+        LOG.infof("%5s", new Thing());
+        LOG.debugf("%s", (Object[]) null);
+        LOG4J_LOGGER.removeAppender(appender);
+        appender.close();
+
+        BinaryLogReader reader = new BinaryLogReader(new FileInputStream(appender.segmentFile(1)));
+        long previousTimestamp = 0;
+
+        for (String message : expected) {
+            BinaryLogReader.Event event = reader.read();
+
+            Assert.assertEquals(event.getMessage(), message);
+            Assert.assertTrue(event.isFormatted(), message);
+            Assert.assertEquals(event.getLevel(), Level.INFO);
+            Assert.assertEquals(event.getLoggerName(), TestBinaryLogAppender.class.getName());
+            Assert.assertEquals(event.getThreadName(), Thread.currentThread().getName());
+            Assert.assertTrue(event.getTimestamp() >= previousTimestamp);
+            Assert.assertNull(event.getThrowableStrRep());
+            previousTimestamp = event.getTimestamp();
+        }
+
+        BinaryLogReader.Event plain = reader.read();
+
+        Assert.assertFalse(plain.isFormatted());
+        Assert.assertEquals(plain.getMessage(), "plain");
+
+        BinaryLogReader.Event withCause = reader.read();
+
+        Assert.assertEquals(withCause.getLevel(), Level.ERROR);
+        Assert.assertEquals(withCause.getMessage(), "with cause");
+        Assert.assertEquals(withCause.getThrowableStrRep()[0], "java.lang.IllegalStateException: boom");
+        Assert.assertTrue(withCause.getThrowableStrRep().length > 1);
+
+        // a padded toString() can't be deferred
+        BinaryLogReader.Event padded = reader.read();
+
+        Assert.assertFalse(padded.isFormatted());
+        Assert.assertEquals(padded.getMessage(), "thing");
+
+        BinaryLogReader.Event nullArgs = reader.read();
+
+        Assert.assertEquals(nullArgs.getLevel(), Level.DEBUG);
+        Assert.assertNull(nullArgs.getArguments());
+        Assert.assertEquals(nullArgs.getMessage(), "null");
+
+        Assert.assertNull(reader.read());
+        Assert.assertFalse(reader.isTruncated());
+        reader.close();
+    }
+
+    @Test
+    public void testRolling() throws Exception
+    {
+        BinaryLogAppender appender = new BinaryLogAppender();
+
+        appender.setFile(fileName);
+        appender.setMaxFileSize("1KB");
+        appender.activateOptions();
+        LOG4J_LOGGER.addAppender(appender);
+
+        for (int i = 0; i < 500; ++i) {
+            LOG.infof("event number %d of %s", i, "many");
+        }
+
+        LOG4J_LOGGER.removeAppender(appender);
+        appender.close();
+
+        int count = 0;
+        int files = 0;
+
+        for (int index = 1; appender.segmentFile(index).exists(); ++index) {
+            BinaryLogReader reader = new BinaryLogReader(new FileInputStream(appender.segmentFile(index)));
+            BinaryLogReader.Event event;
+
+            Assert.assertTrue(appender.segmentFile(index).length() < 1024 + 64);
+
+            while ((event = reader.read()) != null) {
+                Assert.assertEquals(event.getMessage(), String.format("event number %d of many", count++));
+            }
+
+            reader.close();
+            ++files;
+        }
+
+        Assert.assertEquals(count, 500);
+        Assert.assertTrue(files > 1);
+
+        // a new file on every activation
+        appender = new BinaryLogAppender(fileName);
+        appender.close();
+        Assert.assertTrue(appender.segmentFile(files + 1).exists());
+    }
+
+    @Test
+    public void testTruncatedFile() throws Exception
+    {
+        BinaryLogAppender appender = new BinaryLogAppender(fileName);
+
+        LOG4J_LOGGER.addAppender(appender);
+        LOG.infof("first %s", "event");
+        LOG.infof("second %s", "event");
+        LOG4J_LOGGER.removeAppender(appender);
+        appender.close();
+
+        RandomAccessFile file = new RandomAccessFile(appender.segmentFile(1), "rw");
+
+        file.setLength(file.length() - 2);
+        file.close();
+
+        BinaryLogReader reader = new BinaryLogReader(new FileInputStream(appender.segmentFile(1)));
+
+        Assert.assertEquals(reader.read().getMessage(), "first event");
+        Assert.assertNull(reader.read());
+        Assert.assertTrue(reader.isTruncated());
+        reader.close();
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testNotABinaryLog() throws Exception
+    {
+        new BinaryLogReader(new ByteArrayInputStream("INFO plain text\n".getBytes("UTF-8")));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestBinaryLogRenderer
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestBinaryLogRenderer.class.getName());
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private File directory;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        directory = File.createTempFile("renderer", "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.setAdditivity(false);
+        LOG4J_LOGGER.setLevel(Level.ALL);
+        Logger.refreshLevels();
+        Logger.setDeferredFormatting(true);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        Logger.setDeferredFormatting(false);
+        LOG4J_LOGGER.removeAllAppenders();
+        delete(directory);
+    }
+
+    @Test
+    public void testRender() throws Exception
+    {
+        File file = write("render", 0, 2);
+        StringWriter out = new StringWriter();
+
+        BinaryLogRenderer.render(file, out);
+
+        String[] lines = out.toString().split(LINE_SEPARATOR);
+        String prefix = "\\d{4}-\\d\\d-\\d\\d \\d\\d:\\d\\d:\\d\\d,\\d{3} \\[" + Thread.currentThread().getName() + "\\] ";
+
+        Assert.assertEquals(lines.length, 2);
+        Assert.assertTrue(lines[0].matches(prefix + "INFO  " + TestBinaryLogRenderer.class.getName() + " - line 0 of render"), lines[0]);
+        Assert.assertTrue(lines[1].matches(prefix + "INFO  " + TestBinaryLogRenderer.class.getName() + " - line 1 of render"), lines[1]);
+    }
+
+    @Test
+    public void testRenderAllInOrder() throws Exception
+    {
+        List<File> files = new ArrayList<File>();
+
+        for (int i = 0; i < 6; ++i) {
+            files.add(write("file" + i, 100 * i, 100));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        BinaryLogRenderer.renderAll(files, out, 3);
+
+        String[] lines = out.toString("UTF-8").split(LINE_SEPARATOR);
+
+        Assert.assertEquals(lines.length, 600);
+
+        for (int i = 0; i < lines.length; ++i) {
+            Assert.assertTrue(lines[i].endsWith(String.format(" - line %d of file%d", i, i / 100)), lines[i]);
+        }
+
+        File output = new File(directory, "out");
+
+        BinaryLogRenderer.renderAll(files, output, 3);
+
+        for (int i = 0; i < files.size(); ++i) {
+            String text = read(new File(output, files.get(i).getName() + ".log"));
+
+            Assert.assertTrue(text.endsWith(String.format(" - line %d of file%d%s", 100 * i + 99, i, LINE_SEPARATOR)));
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testCorruptFile() throws Exception
+    {
+        File file = write("corrupt", 0, 1);
+        java.io.RandomAccessFile raw = new java.io.RandomAccessFile(file, "rw");
+
+        // an unknown record type
+        raw.seek(raw.length());
+        raw.write(0x7f);
+        raw.close();
+
+        BinaryLogRenderer.render(file, new StringWriter());
+    }
+
+    private File write(String name, int first, int count)
+    {
+        BinaryLogAppender appender = new BinaryLogAppender(new File(directory, name).getPath());
+
+        LOG4J_LOGGER.addAppender(appender);
+
+        for (int i = first; i < first + count; ++i) {
+            LOG.infof("line %d of %s", i, name);
+        }
+
+        LOG4J_LOGGER.removeAppender(appender);
+        appender.close();
+
+        return appender.segmentFile(1);
+    }
+
+    private static String read(File file) throws IOException
+    {
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[4096];
+        int count;
+
+        while ((count = reader.read(buffer)) >= 0) {
+            builder.append(buffer, 0, count);
+        }
+
+        reader.close();
+
+        return builder.toString();
+    }
+
+    private static void delete(File file)
+    {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
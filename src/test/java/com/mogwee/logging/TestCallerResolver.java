@@ -0,0 +1,98 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestCallerResolver
+{
+    private static class Callee
+    {
+        private final CallerResolver resolver;
+
+        private Callee(CallerResolver resolver)
+        {
+            this.resolver = resolver;
+        }
+
+        private StackTraceElement whoCalledMe()
+        {
+            return nested();
+        }
+
+        private StackTraceElement nested()
+        {
+            return resolver.callerOf(Callee.class.getName());
+        }
+    }
+
+    private List<CallerResolver> resolvers()
+    {
+        List<CallerResolver> resolvers = new ArrayList<CallerResolver>();
+
+        resolvers.add(new CallerResolver.StackTraceResolver());
+
+        try {
+            resolvers.add(new CallerResolver.StackWalkerResolver());
+        }
+        catch (Exception e) {
+            // pre-Java 9 JVM
+        }
+
+        return resolvers;
+    }
+
+    @Test
+    public void testFindsCallerOfCallee()
+    {
+        for (CallerResolver resolver : resolvers()) {
+            StackTraceElement caller = new Callee(resolver).whoCalledMe();
+
+            Assert.assertEquals(caller.getClassName(), TestCallerResolver.class.getName(), resolver.getClass().getName());
+            Assert.assertEquals(caller.getMethodName(), "testFindsCallerOfCallee", resolver.getClass().getName());
+            Assert.assertEquals(caller.getFileName(), "TestCallerResolver.java", resolver.getClass().getName());
+        }
+    }
+
+    @Test
+    public void testCalleeNotOnStack()
+    {
+        for (CallerResolver resolver : resolvers()) {
+            Assert.assertNull(resolver.callerOf("no.such.Class"), resolver.getClass().getName());
+        }
+    }
+
+    @Test
+    public void testDefaultResolverMatchesJvm()
+    {
+        boolean hasStackWalker;
+
+        try {
+            Class.forName("java.lang.StackWalker");
+            hasStackWalker = true;
+        }
+        catch (ClassNotFoundException e) {
+            hasStackWalker = false;
+        }
+
+        Assert.assertEquals(CallerResolver.INSTANCE instanceof CallerResolver.StackWalkerResolver, hasStackWalker);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+public class TestCompressedFileAppender
+{
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestCompressedFileAppender.class.getName());
+
+    private File directory;
+    private String fileName;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        directory = File.createTempFile("compressed", "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+        fileName = new File(directory, "test.log").getPath();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    @Test
+    public void testFramesDecodeIndependently() throws Exception
+    {
+        CompressedFileAppender appender = appender("64", "64MB", 0);
+        StringBuilder expected = new StringBuilder();
+
+        for (int i = 0; i < 20; ++i) {
+            appender.doAppend(event(Level.INFO, "message " + i));
+            expected.append("INFO message ").append(i).append('\n');
+        }
+
+        appender.close();
+
+        List<String> frames = frames(appender.segmentFile(1));
+        StringBuilder all = new StringBuilder();
+
+        Assert.assertTrue(frames.size() > 1, frames.toString());
+
+        for (String frame : frames) {
+            Assert.assertTrue(frame.length() <= 64, frame);
+            Assert.assertTrue(frame.endsWith("\n"), frame);
+            all.append(frame);
+        }
+
+        Assert.assertEquals(all.toString(), expected.toString());
+        Assert.assertEquals(gunzip(appender.segmentFile(1)), expected.toString());
+    }
+
+    @Test
+    public void testFlushWritesPartialBlock() throws Exception
+    {
+        CompressedFileAppender appender = appender("64KB", "64MB", 0);
+
+        appender.doAppend(event(Level.INFO, "first"));
+        Assert.assertEquals(appender.segmentFile(1).length(), 0);
+
+        appender.flush();
+        Assert.assertEquals(frames(appender.segmentFile(1)).toString(), "[INFO first\n]");
+
+        appender.doAppend(event(Level.WARN, "second"));
+        appender.close();
+        Assert.assertEquals(gunzip(appender.segmentFile(1)), "INFO first\nWARN second\n");
+
+        // a new file is started on activation
+        appender = appender("64KB", "64MB", 0);
+        appender.doAppend(event(Level.ERROR, "third"));
+        appender.close();
+        Assert.assertEquals(gunzip(appender.segmentFile(2)), "ERROR third\n");
+    }
+
+    @Test
+    public void testEventLargerThanBlock() throws Exception
+    {
+        CompressedFileAppender appender = appender("16", "64MB", 0);
+
+        appender.doAppend(event(Level.INFO, "a"));
+        appender.doAppend(event(Level.INFO, "a message longer than a block"));
+        appender.doAppend(event(Level.INFO, "b"));
+        appender.close();
+
+        Assert.assertEquals(frames(appender.segmentFile(1)).toString(), "[INFO a\n, INFO a message longer than a block\n, INFO b\n]");
+    }
+
+    @Test
+    public void testRollingAndRecompression() throws Exception
+    {
+        CompressedFileAppender appender = appender("64", "256", 9);
+        StringBuilder expected = new StringBuilder();
+
+        for (int i = 0; i < 100; ++i) {
+            appender.doAppend(event(Level.INFO, "message " + i));
+            expected.append("INFO message ").append(i).append('\n');
+        }
+
+        appender.close();
+        Assert.assertTrue(appender.awaitRecompression(10, TimeUnit.SECONDS));
+
+        StringBuilder all = new StringBuilder();
+        int files = 0;
+
+        for (int i = 1; appender.segmentFile(i).exists(); ++i) {
+            List<String> frames = frames(appender.segmentFile(i));
+
+            ++files;
+
+            // rolled files are recompressed into a single frame; the last one is left as written
+            if (appender.segmentFile(i + 1).exists()) {
+                Assert.assertEquals(frames.size(), 1, frames.toString());
+            }
+
+            for (String frame : frames) {
+                all.append(frame);
+            }
+        }
+
+        Assert.assertTrue(files > 2, String.valueOf(files));
+        Assert.assertEquals(all.toString(), expected.toString());
+        Assert.assertEquals(directory.listFiles().length, files);
+    }
+
+    private CompressedFileAppender appender(String blockSize, String maxFileSize, int recompressionLevel)
+    {
+        CompressedFileAppender appender = new CompressedFileAppender();
+
+        appender.setLayout(new PatternLayout("%p %m%n"));
+        appender.setFile(fileName);
+        appender.setBlockSize(blockSize);
+        appender.setMaxFileSize(maxFileSize);
+        appender.setRecompressionLevel(recompressionLevel);
+        appender.setFlushIntervalMillis(0);
+        appender.activateOptions();
+
+        return appender;
+    }
+
+    private static LoggingEvent event(Level level, String message)
+    {
+        return new LoggingEvent(TestCompressedFileAppender.class.getName(), LOG4J_LOGGER, level, message, null);
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException
+    {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+
+            while ((count = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, count);
+            }
+
+            return bytes.toByteArray();
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static String gunzip(File file) throws IOException
+    {
+        return new String(readBytes(new GZIPInputStream(new FileInputStream(file))), "UTF-8");
+    }
+
+    /**
+     * Decodes every gzip member of a file separately.
+     */
+    private static List<String> frames(File file) throws IOException, DataFormatException
+    {
+        byte[] bytes = readBytes(new FileInputStream(file));
+        List<String> frames = new ArrayList<String>();
+        int offset = 0;
+
+        while (offset < bytes.length) {
+            Inflater inflater = new Inflater(true);
+            ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+
+            Assert.assertEquals(bytes[offset] & 0xff, 0x1f);
+            Assert.assertEquals(bytes[offset + 1] & 0xff, 0x8b);
+            inflater.setInput(bytes, offset + 10, bytes.length - offset - 10);
+
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+
+                Assert.assertFalse(count == 0 && inflater.needsInput(), "truncated frame");
+                frame.write(buffer, 0, count);
+            }
+
+            offset = bytes.length - inflater.getRemaining() + 8;
+            inflater.end();
+            frames.add(new String(frame.toByteArray(), "UTF-8"));
+        }
+
+        return frames;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Formattable;
+import java.util.Formatter;
+
+public class TestFormatTemplate
+{
+    private static class SelfFormatting implements Formattable
+    {
+        @Override
+        public void formatTo(Formatter formatter, int flags, int width, int precision)
+        {
+            formatter.format("formatted");
+        }
+
+        @Override
+        public String toString()
+        {
+            return "toString";
+        }
+    }
+
+    private static class Reentrant
+    {
+        @Override
+        public String toString()
+        {
+            return FormatTemplate.format("inner %s %d", "value", 7);
+        }
+    }
+
+    private void assertSameAsStringFormat(String format, Object... args)
+    {
+        Assert.assertEquals(FormatTemplate.format(format, args), String.format(format, args), format);
+    }
+
+    private void assertSameException(String format, Object... args)
+    {
+        RuntimeException expected = null;
+        RuntimeException actual = null;
+
+        try {
+            String.format(format, args);
+        }
+        catch (RuntimeException e) {
+            expected = e;
+        }
+
+        try {
+            FormatTemplate.format(format, args);
+        }
+        catch (RuntimeException e) {
+            actual = e;
+        }
+
+        Assert.assertNotNull(expected);
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(actual.toString(), expected.toString());
+    }
+
+    @Test
+    public void testSimpleSpecifiers()
+    {
+        assertSameAsStringFormat("");
+        assertSameAsStringFormat("no specifiers");
+        assertSameAsStringFormat("Hello %s", "world");
+        assertSameAsStringFormat("%s", (Object) null);
+        assertSameAsStringFormat("%d", (Object) null);
+        assertSameAsStringFormat("%d %d %d %d", 1, -2L, (short) 3, (byte) -4);
+        assertSameAsStringFormat("%d", Long.MIN_VALUE);
+        assertSameAsStringFormat("100%% done%n");
+        assertSameAsStringFormat("%s and %s", "one", Arrays.asList(1, 2), "ignored");
+        assertSameAsStringFormat("%s %s", "only one", null, null);
+        assertSameAsStringFormat("Foo %s", (Object[]) null);
+    }
+
+    @Test
+    public void testFallbackSpecifiers()
+    {
+        assertSameAsStringFormat("%5s|%-5d|%05d", "a", 1, 2);
+        assertSameAsStringFormat("%2$s %1$s", "a", "b");
+        assertSameAsStringFormat("%.3f %x %S", 1.5, 255, "up");
+        assertSameAsStringFormat("%d", BigInteger.TEN);
+        assertSameAsStringFormat("%s", new SelfFormatting());
+    }
+
+    @Test
+    public void testBogusFormats()
+    {
+        assertSameException("Foo %d", "bar");
+        assertSameException("Foo %d", 1.5);
+        assertSameException("Foo %s %s", "bar");
+        assertSameException("Foo %q", (Object[]) null);
+        assertSameException("Foo %q", "bar");
+        assertSameException("Foo %", "bar");
+        assertSameException(null, "bar");
+    }
+
+    @Test
+    public void testReentrantRendering()
+    {
+        Assert.assertEquals(FormatTemplate.format("outer %s done", new Reentrant()), "outer inner value 7 done");
+    }
+
+    @Test
+    public void testTemplateIsCached()
+    {
+        FormatTemplate template = FormatTemplate.forFormat("cached %s");
+
+        Assert.assertSame(FormatTemplate.forFormat("cached %s"), template);
+        Assert.assertTrue(template.isSimple());
+        Assert.assertEquals(template.getArgumentCount(), 1);
+        Assert.assertFalse(FormatTemplate.forFormat("cached %5s").isSimple());
+        Assert.assertTrue(FormatTemplate.cachedTemplateCount() <= FormatTemplate.MAX_CACHED_TEMPLATES);
+    }
+
+    @Test
+    public void testKnownFailures()
+    {
+        FormatTemplate template = FormatTemplate.forFormat("known %d %s");
+        Object[] bad = {"not a number", 1};
+
+        Assert.assertNull(template.knownFailure(bad));
+
+        try {
+            template.render(bad);
+            Assert.fail();
+        }
+        catch (RuntimeException e) {
+            template.recordFailure(bad, e, e.toString());
+        }
+
+        Assert.assertEquals(template.knownFailure(new Object[]{"other string", 2}), "java.util.IllegalFormatConversionException: d != java.lang.String");
+        Assert.assertNull(template.knownFailure(new Object[]{"other string", null}));
+        Assert.assertNull(template.knownFailure(new Object[]{3, "fine"}));
+        Assert.assertNull(template.knownFailure(new Object[]{"too", "many", "args"}));
+        Assert.assertNull(template.knownFailure(null));
+
+        template.recordFailure(null, new java.util.MissingFormatArgumentException("%d"), "missing");
+        Assert.assertEquals(template.knownFailure(null), "missing");
+    }
+
+    @Test
+    public void testValueDependentFailuresAreNotRemembered()
+    {
+        FormatTemplate template = FormatTemplate.forFormat("value %c %s");
+        Object[] args = {-1, new SelfFormatting()};
+
+        template.recordFailure(new Object[]{-1, "x"}, new java.util.IllegalFormatCodePointException(-1), "code point");
+        template.recordFailure(args, new java.util.IllegalFormatConversionException('c', String.class), "formattable");
+        template.recordFailure(new Object[]{'c', "x"}, new IllegalStateException("toString() failed"), "toString");
+
+        Assert.assertNull(template.knownFailure(new Object[]{-1, "x"}));
+        Assert.assertNull(template.knownFailure(args));
+        Assert.assertNull(template.knownFailure(new Object[]{'c', "x"}));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.MDC;
+import org.apache.log4j.NDC;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+public class TestJsonLayout
+{
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestJsonLayout.class.getName());
+    private static final String PREFIX = "{\"timestamp\":1316131200000,\"level\":\"INFO\",\"logger\":\"com.mogwee.logging.TestJsonLayout\",\"thread\":\"" + Thread.currentThread().getName() + "\",";
+
+    private final JsonLayout layout = new JsonLayout();
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        MDC.remove("request");
+        NDC.remove();
+    }
+
+    @Test
+    public void testPlainMessage()
+    {
+        Assert.assertEquals(layout.format(event("Hello world", null)), PREFIX + "\"message\":\"Hello world\"}\n");
+        Assert.assertEquals(layout.format(event(null, null)), PREFIX + "\"message\":null}\n");
+    }
+
+    @Test
+    public void testEscaping()
+    {
+        Assert.assertEquals(
+            layout.format(event("say \"hi\"\\\n\ttab\u0001", null)),
+            PREFIX + "\"message\":\"say \\\"hi\\\"\\\\\\n\\ttab\\u0001\"}\n"
+        );
+    }
+
+    @Test
+    public void testUnicode() throws Exception
+    {
+        String message = "caf\u00e9 \u20ac \ud83d\ude00 \ud800 done";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        layout.writeTo(event(message, null), out);
+        Assert.assertEquals(out.toByteArray(), (PREFIX + "\"message\":\"" + message + "\"}\n").getBytes("UTF-8"));
+        Assert.assertEquals(layout.format(event(message, null)), PREFIX + "\"message\":\"caf\u00e9 \u20ac \ud83d\ude00 ? done\"}\n");
+    }
+
+    @Test
+    public void testEncode() throws Exception
+    {
+        StringBuilder message = new StringBuilder();
+
+        for (int i = 0; i < 10000; ++i) {
+            message.append("0123456789");
+        }
+
+        ByteBuffer buffer = layout.encode(event(message.toString(), null));
+        byte[] bytes = new byte[buffer.remaining()];
+
+        buffer.get(bytes);
+        Assert.assertEquals(new String(bytes, "UTF-8"), PREFIX + "\"message\":\"" + message + "\"}\n");
+
+        buffer = layout.encode(event("short", null));
+        Assert.assertEquals(buffer.remaining(), (PREFIX + "\"message\":\"short\"}\n").length());
+    }
+
+    @Test
+    public void testStructuredMessage()
+    {
+        StructuredMessage message = new StructuredMessage(
+            "request.done",
+            new String[]{"latencyMs", "ratio", "ok", "user", "nan", "count"},
+            new byte[]{0, 1, 2, 3, 1, 3},
+            new long[]{-12, Double.doubleToRawLongBits(0.5), 1, 0, Double.doubleToRawLongBits(Double.NaN), 0},
+            new Object[]{null, null, null, "b\u00f6b", null, Integer.valueOf(Integer.MIN_VALUE)}
+        );
+
+        Assert.assertEquals(
+            layout.format(event(message, null)),
+            PREFIX + "\"message\":\"request.done\",\"fields\":{\"latencyMs\":-12,\"ratio\":0.5,\"ok\":true,\"user\":\"b\u00f6b\",\"nan\":\"NaN\",\"count\":-2147483648}}\n"
+        );
+    }
+
+    @Test
+    public void testCauseSummary()
+    {
+        LoggingEvent event = event(new CauseSummaryMessage("Failed", new IllegalStateException("first\nsecond")), null);
+
+        Assert.assertEquals(event.getRenderedMessage(), "Failed (Switch to DEBUG for full stack trace): java.lang.IllegalStateException: first");
+        Assert.assertEquals(
+            layout.format(event),
+            PREFIX + "\"message\":\"Failed (Switch to DEBUG for full stack trace): java.lang.IllegalStateException: first\"}\n"
+        );
+    }
+
+    @Test
+    public void testContextAndException()
+    {
+        MDC.put("request", "abc");
+        NDC.push("outer");
+
+        String json = layout.format(event("failed", new RuntimeException("boom")));
+
+        Assert.assertTrue(json.startsWith(PREFIX + "\"message\":\"failed\",\"ndc\":\"outer\",\"mdc\":{\"request\":\"abc\"},\"exception\":\"java.lang.RuntimeException: boom\\n\\tat "), json);
+        Assert.assertTrue(json.endsWith("\"}\n"), json);
+        Assert.assertEquals(json.indexOf('\n'), json.length() - 1);
+    }
+
+    private static LoggingEvent event(Object message, Throwable cause)
+    {
+        return new LoggingEvent(TestJsonLayout.class.getName(), LOG4J_LOGGER, 1316131200000L, Level.INFO, message, cause);
+    }
+}
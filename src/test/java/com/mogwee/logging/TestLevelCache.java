@@ -0,0 +1,98 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.varia.NullAppender;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class TestLevelCache
+{
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestLevelCache.class.getName());
+    private static final BackendLogger BACKEND_LOGGER = new Log4jBackend().getLogger(TestLevelCache.class.getName());
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        LOG4J_LOGGER.setLevel(null);
+        LOG4J_LOGGER.removeAllAppenders();
+        LogManager.getLoggerRepository().setThreshold(Level.ALL);
+        Logger.refreshLevels();
+    }
+
+    @Test
+    public void testSnapshotUsesEffectiveLevelAndRepositoryThreshold()
+    {
+        LOG4J_LOGGER.setLevel(Level.INFO);
+        Assert.assertEquals(LevelCache.snapshot(LOG4J_LOGGER).threshold, Level.INFO_INT);
+
+        LogManager.getLoggerRepository().setThreshold(Level.ERROR);
+        Assert.assertEquals(LevelCache.snapshot(LOG4J_LOGGER).threshold, Level.ERROR_INT);
+
+        LogManager.getLoggerRepository().setThreshold(Level.ALL);
+        LOG4J_LOGGER.setLevel(null);
+        Assert.assertEquals(LevelCache.snapshot(LOG4J_LOGGER).threshold, LOG4J_LOGGER.getEffectiveLevel().toInt());
+    }
+
+    @Test
+    public void testDirectLevelChanges()
+    {
+        LOG4J_LOGGER.setLevel(Level.INFO);
+        Logger.refreshLevels();
+        Assert.assertTrue(BACKEND_LOGGER.isEnabled(Level.INFO));
+
+        LOG4J_LOGGER.setLevel(Level.WARN);
+
+        if (LevelCache.ENABLED) {
+            // only noticed once the generation moves on
+            Assert.assertTrue(BACKEND_LOGGER.isEnabled(Level.INFO));
+            Logger.refreshLevels();
+        }
+
+        Assert.assertFalse(BACKEND_LOGGER.isEnabled(Level.INFO));
+    }
+
+    @Test
+    public void testGenerationBumps()
+    {
+        int generation = LevelCache.generation();
+
+        Logger.refreshLevels();
+        Assert.assertTrue(LevelCache.generation() != generation);
+
+        if (LevelCache.ENABLED) {
+            generation = LevelCache.generation();
+            // configurators add appenders when they (re)load, so that invalidates too
+            LOG4J_LOGGER.addAppender(new NullAppender());
+            Assert.assertTrue(LevelCache.generation() != generation);
+        }
+    }
+
+    @Test
+    public void testSnapshotIsStaleAfterInvalidation()
+    {
+        LevelCache.Snapshot snapshot = LevelCache.snapshot(LOG4J_LOGGER);
+
+        Assert.assertEquals(snapshot.generation, LevelCache.generation());
+        LevelCache.invalidate();
+        Assert.assertTrue(snapshot.generation != LevelCache.generation());
+        Assert.assertTrue(LevelCache.Snapshot.STALE.generation != LevelCache.generation());
+    }
+}
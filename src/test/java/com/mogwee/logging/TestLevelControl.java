@@ -0,0 +1,245 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class TestLevelControl
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final String NAME = TestLevelControl.class.getName();
+    private static final String PREFIX = TestLevelControl.class.getPackage().getName();
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(NAME);
+
+    private final LevelControl control = LevelControl.getInstance();
+    private final List<LoggingEvent> events = new CopyOnWriteArrayList<LoggingEvent>();
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        events.clear();
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.setAdditivity(false);
+        LOG4J_LOGGER.setLevel(null);
+        LOG4J_LOGGER.addAppender(new AppenderSkeleton()
+        {
+            @Override
+            protected void append(LoggingEvent event)
+            {
+                events.add(event);
+            }
+
+            @Override
+            public boolean requiresLayout()
+            {
+                return false;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        });
+        control.setLevel(PREFIX, Level.INFO);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        control.resetAll();
+        LOG4J_LOGGER.removeAllAppenders();
+        Logger.refreshLevels();
+    }
+
+    @Test
+    public void testPrefixChangeIsSeenOnNextCall()
+    {
+        LOG.debug("before");
+        control.setLevel(PREFIX, "debug");
+        // no refreshLevels(): the change itself invalidates cached levels
+        LOG.debug("after");
+
+        Assert.assertEquals(events.size(), 1);
+        Assert.assertEquals(events.get(0).getRenderedMessage(), "after");
+        Assert.assertEquals(control.getLevel(PREFIX), "DEBUG");
+        Assert.assertNull(control.getLevel(NAME));
+        Assert.assertEquals(control.getEffectiveLevel(NAME), "DEBUG");
+    }
+
+    @Test
+    public void testResetPutsBackOriginalLevel()
+    {
+        control.resetLevel(PREFIX);
+
+        Level original = org.apache.log4j.Logger.getLogger(PREFIX).getLevel();
+
+        control.setLevel(PREFIX, Level.WARN);
+        control.setLevel(PREFIX, Level.ERROR);
+        Assert.assertEquals(control.getChangedLevels(), new String[]{String.format("%s: ERROR (was %s)", PREFIX, original)});
+
+        control.resetLevel(PREFIX);
+        Assert.assertEquals(org.apache.log4j.Logger.getLogger(PREFIX).getLevel(), original);
+        Assert.assertEquals(control.getChangedLevels().length, 0);
+    }
+
+    @Test
+    public void testPrefixChangeAppliesToLoggersBelowIt()
+    {
+        control.resetLevel(PREFIX);
+
+        Level original = org.apache.log4j.Logger.getLogger(PREFIX).getLevel();
+
+        LOG4J_LOGGER.setLevel(Level.WARN);
+        control.setLevel(PREFIX, Level.DEBUG);
+        LOG.debug("below the prefix");
+
+        Assert.assertEquals(events.size(), 1);
+        Assert.assertEquals(control.getLevel(NAME), "DEBUG");
+        Assert.assertEquals(control.getLevel(PREFIX), "DEBUG");
+
+        control.resetLevel(PREFIX);
+        Assert.assertEquals(LOG4J_LOGGER.getLevel(), Level.WARN);
+        Assert.assertEquals(org.apache.log4j.Logger.getLogger(PREFIX).getLevel(), original);
+    }
+
+    @Test
+    public void testTemporaryChangeRevertsLoggersBelowIt() throws Exception
+    {
+        LOG4J_LOGGER.setLevel(Level.WARN);
+        control.setLevel(PREFIX, Level.DEBUG, 100, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(control.getLevel(NAME), "DEBUG");
+
+        awaitLevel("INFO");
+        Assert.assertFalse(control.getChangedLevels()[0].contains("reverts in"), control.getChangedLevels()[0]);
+        Assert.assertEquals(LOG4J_LOGGER.getLevel(), Level.WARN);
+    }
+
+    @Test
+    public void testTemporaryChangeReverts() throws Exception
+    {
+        control.setLevel(PREFIX, Level.DEBUG, 200, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(control.getChangedLevels()[0].contains("reverts in"), control.getChangedLevels()[0]);
+        LOG.debug("while forced");
+
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while (control.getChangedLevels()[0].contains("reverts in") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        LOG.debug("after reverting");
+
+        // back to the INFO set in setup(), which still counts as a change
+        Assert.assertEquals(control.getLevel(PREFIX), "INFO");
+        Assert.assertEquals(events.size(), 1);
+        Assert.assertEquals(events.get(0).getRenderedMessage(), "while forced");
+    }
+
+    @Test
+    public void testLaterChangeCancelsReversion() throws Exception
+    {
+        control.setLevel(PREFIX, Level.DEBUG, 100, TimeUnit.MILLISECONDS);
+        control.setLevel(PREFIX, Level.WARN);
+        Thread.sleep(300);
+
+        Assert.assertEquals(control.getLevel(PREFIX), "WARN");
+    }
+
+    @Test
+    public void testNestedTemporaryChangesPutBackTheLevelFromBeforeTheFirst() throws Exception
+    {
+        control.setLevel(PREFIX, Level.DEBUG, 400, TimeUnit.MILLISECONDS);
+        control.setLevel(PREFIX, Level.TRACE, 100, TimeUnit.MILLISECONDS);
+        awaitLevel("DEBUG");
+        Assert.assertTrue(control.getChangedLevels()[0].contains("reverts in"), control.getChangedLevels()[0]);
+
+        awaitLevel("INFO");
+        Assert.assertFalse(control.getChangedLevels()[0].contains("reverts in"), control.getChangedLevels()[0]);
+    }
+
+    @Test
+    public void testOuterTemporaryChangeExpiringFirstIsNotPutBack() throws Exception
+    {
+        control.setLevel(PREFIX, Level.DEBUG, 100, TimeUnit.MILLISECONDS);
+        control.setLevel(PREFIX, Level.TRACE, 400, TimeUnit.MILLISECONDS);
+        Thread.sleep(200);
+        Assert.assertEquals(control.getLevel(PREFIX), "TRACE");
+
+        awaitLevel("INFO");
+        Thread.sleep(100);
+        Assert.assertEquals(control.getLevel(PREFIX), "INFO");
+    }
+
+    @Test
+    public void testRejectsBadInput()
+    {
+        try {
+            control.setLevel("", (String) null);
+            Assert.fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            control.setLevel(PREFIX, "LOUD");
+            Assert.fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRegisteredWithJmxOnRequest() throws Exception
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(LevelControl.OBJECT_NAME);
+
+        LevelControl.register();
+        LevelControl.register();
+        Assert.assertTrue(server.isRegistered(name));
+        server.invoke(name, "setLevel", new Object[]{PREFIX, "DEBUG"}, new String[]{String.class.getName(), String.class.getName()});
+        LOG.debug("through JMX");
+
+        Assert.assertEquals(events.size(), 1);
+    }
+
+    private void awaitLevel(String level) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while (!level.equals(control.getLevel(PREFIX)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(control.getLevel(PREFIX), level);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TestLevelOverride
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestLevelOverride.class.getName());
+
+    private final List<LoggingEvent> events = new CopyOnWriteArrayList<LoggingEvent>();
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        events.clear();
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.setAdditivity(false);
+        LOG4J_LOGGER.setLevel(Level.INFO);
+        LOG4J_LOGGER.addAppender(new AppenderSkeleton()
+        {
+            @Override
+            protected void append(LoggingEvent event)
+            {
+                events.add(event);
+            }
+
+            @Override
+            public boolean requiresLayout()
+            {
+                return false;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        });
+        Logger.refreshLevels();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        Logger.setAsyncDispatcher(null);
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.setLevel(null);
+        Logger.refreshLevels();
+        Assert.assertNull(LevelOverride.current());
+    }
+
+    @Test
+    public void testForceEnablesLevelOnCurrentThreadOnly()
+    {
+        LOG.debugf("before %s", 1);
+
+        LevelOverride override = LevelOverride.force(Level.DEBUG);
+
+        try {
+            LOG.debugf("during %s", 2);
+            LOG.infof("during %s", 3);
+        }
+        finally {
+            override.restore();
+        }
+
+        LOG.debugf("after %s", 4);
+
+        Assert.assertEquals(events.size(), 2);
+        Assert.assertEquals(events.get(0).getLevel(), Level.DEBUG);
+        Assert.assertEquals(events.get(0).getRenderedMessage(), "during 2");
+        Assert.assertEquals(events.get(1).getRenderedMessage(), "during 3");
+        Assert.assertFalse(LOG4J_LOGGER.isDebugEnabled());
+    }
+
+    @Test
+    public void testForcedDebugPrintsFullStackTraces()
+    {
+        RuntimeException cause = new RuntimeException("boom");
+
+        LOG.warnDebug(cause, "without");
+
+        LevelOverride override = LevelOverride.force(Level.DEBUG);
+
+        try {
+            LOG.warnDebug(cause, "with");
+            LOG.warnDebugf(cause, "with %s", "format");
+        }
+        finally {
+            override.restore();
+        }
+
+        Assert.assertEquals(events.size(), 3);
+        Assert.assertNull(events.get(0).getThrowableInformation());
+        Assert.assertSame(events.get(1).getThrowableInformation().getThrowable(), cause);
+        Assert.assertEquals(events.get(2).getRenderedMessage(), "with format");
+        Assert.assertSame(events.get(2).getThrowableInformation().getThrowable(), cause);
+    }
+
+    @Test
+    public void testOverridesNestAndOnlyEnable()
+    {
+        LevelOverride outer = LevelOverride.force(Level.DEBUG);
+        LevelOverride inner = LevelOverride.force(Level.ERROR);
+
+        // ERROR is above the logger's own INFO, so nothing extra is enabled, but nothing is disabled either
+        LOG.debug("inner debug");
+        LOG.info("inner info");
+        inner.restore();
+        Assert.assertEquals(LevelOverride.current(), Level.DEBUG);
+        LOG.debug("outer debug");
+        outer.restore();
+        Assert.assertNull(LevelOverride.current());
+
+        Assert.assertEquals(events.size(), 2);
+        Assert.assertEquals(events.get(0).getRenderedMessage(), "inner info");
+        Assert.assertEquals(events.get(1).getRenderedMessage(), "outer debug");
+    }
+
+    @Test
+    public void testRestoreFromAnotherThreadFails() throws Exception
+    {
+        final LevelOverride override = LevelOverride.force(Level.DEBUG);
+        final Exception[] failure = new Exception[1];
+
+        try {
+            Thread thread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        override.restore();
+                    }
+                    catch (IllegalStateException e) {
+                        failure[0] = e;
+                    }
+                }
+            });
+
+            thread.start();
+            thread.join();
+        }
+        finally {
+            override.restore();
+        }
+
+        Assert.assertNotNull(failure[0]);
+    }
+
+    @Test
+    public void testPropagatesThroughWrappedExecutor() throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Runnable task = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                LOG.debugf("on %s", Thread.currentThread().getName());
+            }
+        };
+
+        try {
+            LevelOverride override = LevelOverride.force(Level.DEBUG);
+
+            try {
+                executor.submit(task).get();
+                LevelOverride.wrap(executor).execute(task);
+                executor.submit(LevelOverride.wrap(task)).get();
+            }
+            finally {
+                override.restore();
+            }
+        }
+        finally {
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        Assert.assertEquals(events.size(), 2);
+    }
+
+    @Test
+    public void testForcedEventsSurviveAsyncDispatch() throws Exception
+    {
+        AsyncDispatcher dispatcher = new AsyncDispatcher(64, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.BLOCK);
+
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+
+        LevelOverride override = LevelOverride.force(Level.DEBUG);
+
+        try {
+            LOG.debugf("async %s", 1);
+        }
+        finally {
+            override.restore();
+        }
+
+        LOG.debugf("async %s", 2);
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(events.size(), 1);
+        Assert.assertEquals(events.get(0).getRenderedMessage(), "async 1");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class TestLog4jBackend
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestLog4jBackend.class.getName());
+
+    private File directory;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        directory = File.createTempFile("backend", "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.setAdditivity(false);
+        LOG4J_LOGGER.setLevel(Level.INFO);
+        Logger.refreshLevels();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        Logger.setAsyncDispatcher(null);
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.setLevel(null);
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    @Test
+    public void testIsEnabled()
+    {
+        BackendLogger logger = new Log4jBackend().getLogger(TestLog4jBackend.class.getName());
+
+        Assert.assertFalse(logger.isEnabled(Level.DEBUG));
+        Assert.assertTrue(logger.isEnabled(Level.INFO));
+        LOG4J_LOGGER.setLevel(Level.ERROR);
+        Logger.refreshLevels();
+        Assert.assertFalse(logger.isEnabled(Level.WARN));
+        Assert.assertTrue(logger.isEnabled(Level.ERROR));
+    }
+
+    @Test
+    public void testFlushDrainsDispatcherAndFlushesAppenders() throws Exception
+    {
+        BinaryLogAppender appender = new BinaryLogAppender();
+        AsyncDispatcher dispatcher = new AsyncDispatcher(1024, AsyncDispatcher.WaitStrategy.SLEEPING, AsyncDispatcher.OverflowPolicy.BLOCK);
+
+        appender.setFile(new File(directory, "test.bin").getPath());
+        appender.setImmediateFlush(false);
+        appender.activateOptions();
+        LOG4J_LOGGER.addAppender(appender);
+        dispatcher.start();
+        Logger.setAsyncDispatcher(dispatcher);
+
+        for (int i = 0; i < 100; ++i) {
+            LOG.infof("event %d", i);
+        }
+
+        Logger.flush();
+        Assert.assertEquals(dispatcher.getPendingCount(), 0);
+
+        BinaryLogReader reader = new BinaryLogReader(new FileInputStream(appender.segmentFile(1)));
+        int count = 0;
+
+        while (reader.read() != null) {
+            ++count;
+        }
+
+        reader.close();
+        Assert.assertEquals(count, 100);
+        Assert.assertFalse(reader.isTruncated());
+        Assert.assertTrue(dispatcher.shutdown(10, TimeUnit.SECONDS));
+        appender.close();
+    }
+}
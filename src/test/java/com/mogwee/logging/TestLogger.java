@@ -741,4 +741,204 @@ public class TestLogger
             }
         }
     }
+
+    @Test
+    public void testFixedArityOverloads() throws Exception
+    {
+        Exception e = new BrokenBarrierException("Uh oh!");
+
+        LOG.infof("%s", "a");
+        assertEvent(true, Level.INFO, "a");
+        LOG.infof("%s %s", "a", "b");
+        assertEvent(true, Level.INFO, "a b");
+        LOG.infof("%s %s %s", "a", "b", "c");
+        assertEvent(true, Level.INFO, "a b c");
+        LOG.infof("%s %s %s %s", "a", "b", "c", "d");
+        assertEvent(true, Level.INFO, "a b c d");
+        LOG.warnf(e, "%s %s", "a", 2);
+        assertEvent(true, Level.WARN, "java.util.concurrent.BrokenBarrierException: Uh oh!", "a 2");
+        LOG.errorf("%s", new Object[]{"spread", "array"});
+        assertEvent(true, Level.ERROR, "spread");
+        LOG.infof("%s %d", "a", "b");
+        assertEvent(true, Level.WARN, "Bogus format string: INFO %s %d [a, b] (java.util.IllegalFormatConversionException: d != java.lang.String)");
+
+        CapturingAppender.setLogLevel(Level.INFO);
+        LOG.debugf("%s", "a");
+        assertEvent(false, Level.DEBUG, null);
+        LOG.debugf("%s %s %s %s", 1, 2L, 3.0, 'c');
+        assertEvent(false, Level.DEBUG, null);
+        LOG.infoDebugf(e, "%s %s", "a", "b");
+        assertEvent(true, Level.INFO, "a b (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!");
+        LOG.infoDebugf(e, "%d", 42);
+        assertEvent(true, Level.INFO, "42 (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!");
+    }
+
+    @Test
+    public void testPrimitiveOverloads() throws Exception
+    {
+        Exception e = new BrokenBarrierException("Uh oh!");
+
+        // each primitive must render exactly as its wrapper type would under String.format
+        LOG.infof("%d", 1234567);
+        assertEvent(true, Level.INFO, "1234567");
+        LOG.infof("%s", -9876543210L);
+        assertEvent(true, Level.INFO, "-9876543210");
+        LOG.infof("%x", -1);
+        assertEvent(true, Level.INFO, "ffffffff");
+        LOG.infof("%x", -1L);
+        assertEvent(true, Level.INFO, "ffffffffffffffff");
+        LOG.infof("%x", (byte) -1);
+        assertEvent(true, Level.INFO, "ff");
+        LOG.infof("%x", (short) -1);
+        assertEvent(true, Level.INFO, "ffff");
+        LOG.infof("%s", 'c');
+        assertEvent(true, Level.INFO, "c");
+        LOG.infof("%s", 0.1f);
+        assertEvent(true, Level.INFO, "0.1");
+        LOG.infof("%s", 0.1);
+        assertEvent(true, Level.INFO, "0.1");
+        LOG.infof("%.2f", 0.125);
+        assertEvent(true, Level.INFO, String.format("%.2f", 0.125));
+        LOG.infof("%s", true);
+        assertEvent(true, Level.INFO, "true");
+        LOG.errorf(e, "%d", 7L);
+        assertEvent(true, Level.ERROR, "java.util.concurrent.BrokenBarrierException: Uh oh!", "7");
+        LOG.warnf("%d", 1.5);
+        assertEvent(true, Level.WARN, "Bogus format string: WARN %d [1.5] (java.util.IllegalFormatConversionException: d != java.lang.Double)");
+        LOG.warnDebugf(e, "%s", 3.5);
+        assertEvent(true, Level.WARN, "java.util.concurrent.BrokenBarrierException: Uh oh!", "3.5");
+
+        CapturingAppender.setLogLevel(Level.ERROR);
+        LOG.warnf("%d", 1);
+        assertEvent(false, Level.WARN, null);
+        LOG.warnDebugf(e, "%d", 1L);
+        assertEvent(false, Level.WARN, null);
+    }
+
+    @Test
+    public void testLoggerRegistry()
+    {
+        Assert.assertSame(Logger.getLogger(TestLogger.class), LOG);
+        Assert.assertSame(Logger.getLogger(TestLogger.class.getName()), LOG);
+        Assert.assertSame(Logger.getLogger("com.mogwee.logging.TestLogger.registry"), Logger.getLogger("com.mogwee.logging.TestLogger.registry"));
+        Assert.assertNotSame(Logger.getLogger("com.mogwee.logging.TestLogger.registry"), LOG);
+        assertEvent(false, Level.WARN, null);
+    }
+
+    @Test
+    public void testMessageCallbacks() throws Exception
+    {
+        Exception e = new BrokenBarrierException("Uh oh!");
+        final int[] calls = {0};
+        MessageSupplier supplier = new MessageSupplier()
+        {
+            @Override
+            public String get()
+            {
+                ++calls[0];
+                return "supplied";
+            }
+        };
+        MessageFormatter<java.util.List<String>> formatter = new MessageFormatter<java.util.List<String>>()
+        {
+            @Override
+            public String format(java.util.List<String> arg)
+            {
+                ++calls[0];
+                return "joined " + arg;
+            }
+        };
+
+        LOG.debug(supplier);
+        assertEvent(true, Level.DEBUG, "supplied");
+        LOG.info(e, supplier);
+        assertEvent(true, Level.INFO, "java.util.concurrent.BrokenBarrierException: Uh oh!", "supplied");
+        LOG.warn(formatter, Arrays.asList("a", "b"));
+        assertEvent(true, Level.WARN, "joined [a, b]");
+        LOG.error(e, formatter, Arrays.asList("c"));
+        assertEvent(true, Level.ERROR, "java.util.concurrent.BrokenBarrierException: Uh oh!", "joined [c]");
+        LOG.infoDebug(e, supplier);
+        assertEvent(true, Level.INFO, "java.util.concurrent.BrokenBarrierException: Uh oh!", "supplied");
+        Assert.assertEquals(calls[0], 5);
+
+        CapturingAppender.setLogLevel(Level.INFO);
+        LOG.debug(supplier);
+        assertEvent(false, Level.DEBUG, null);
+        LOG.debug(formatter, Arrays.asList("a"));
+        assertEvent(false, Level.DEBUG, null);
+        Assert.assertEquals(calls[0], 5);
+        LOG.warnDebug(e, supplier);
+        assertEvent(true, Level.WARN, "supplied (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!");
+        LOG.errorDebug(e, formatter, Arrays.asList("d"));
+        assertEvent(true, Level.ERROR, "joined [d] (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!");
+
+        MessageSupplier exploding = new MessageSupplier()
+        {
+            @Override
+            public String get()
+            {
+                throw new IllegalStateException("I was doomed to fail...");
+            }
+        };
+
+        LOG.info(exploding);
+        assertEvent(true, Level.WARN, "Bogus message callback: INFO " + exploding.getClass().getName() + " (java.lang.IllegalStateException: I was doomed to fail...)");
+    }
+
+    @Test
+    public void testMessageWriters() throws Exception
+    {
+        Exception e = new BrokenBarrierException("Uh oh!");
+        final int[] calls = {0};
+        MessageWriter writer = new MessageWriter()
+        {
+            @Override
+            public void write(StringBuilder message)
+            {
+                ++calls[0];
+                Assert.assertEquals(message.length(), 0);
+                message.append("id=").append(42).append(' ').append(true);
+            }
+        };
+
+        LOG.debug(writer);
+        assertEvent(true, Level.DEBUG, "id=42 true");
+        LOG.warn(e, writer);
+        assertEvent(true, Level.WARN, "java.util.concurrent.BrokenBarrierException: Uh oh!", "id=42 true");
+        LOG.errorDebug(e, writer);
+        assertEvent(true, Level.ERROR, "java.util.concurrent.BrokenBarrierException: Uh oh!", "id=42 true");
+        Assert.assertEquals(calls[0], 3);
+
+        CapturingAppender.setLogLevel(Level.INFO);
+        LOG.debug(writer);
+        assertEvent(false, Level.DEBUG, null);
+        LOG.infoDebug(e, writer);
+        assertEvent(true, Level.INFO, "id=42 true (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!");
+        Assert.assertEquals(calls[0], 4);
+
+        // rendering from inside a writer uses a builder of its own
+        LOG.info(new MessageWriter()
+        {
+            @Override
+            public void write(StringBuilder message)
+            {
+                message.append("outer ");
+                message.append(FormatTemplate.format("%s", "inner"));
+            }
+        });
+        assertEvent(true, Level.INFO, "outer inner");
+
+        MessageWriter exploding = new MessageWriter()
+        {
+            @Override
+            public void write(StringBuilder message)
+            {
+                message.append("partial");
+                throw new IllegalStateException("I was doomed to fail...");
+            }
+        };
+
+        LOG.info(exploding);
+        assertEvent(true, Level.WARN, "Bogus message callback: INFO " + exploding.getClass().getName() + " (java.lang.IllegalStateException: I was doomed to fail...)");
+    }
 }
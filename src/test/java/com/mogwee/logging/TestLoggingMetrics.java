@@ -0,0 +1,255 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.varia.NullAppender;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+public class TestLoggingMetrics
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final String NAME = TestLoggingMetrics.class.getName();
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(NAME);
+
+    private final LoggingMetrics metrics = LoggingMetrics.getInstance();
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        Assert.assertTrue(LoggingMetrics.ENABLED, "tests run with " + LoggingMetrics.ENABLED_PROPERTY);
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.setAdditivity(false);
+        LOG4J_LOGGER.setLevel(Level.INFO);
+        LOG4J_LOGGER.addAppender(new NullAppender());
+        Logger.refreshLevels();
+        LoggingMetrics.forLogger(NAME).reset();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.setLevel(null);
+        Logger.refreshLevels();
+    }
+
+    @Test
+    public void testCountsPerLevel()
+    {
+        LOG.debug("not logged");
+        LOG.debugf("not logged %s", "either");
+        LOG.info("abc");
+        LOG.warnf("x %s", "y");
+        LOG.warnDebug(new RuntimeException(), "oops");
+
+        Assert.assertEquals(metrics.getEmittedEvents(NAME, "INFO"), 1);
+        Assert.assertEquals(metrics.getEmittedEvents(NAME, "warn"), 2);
+        Assert.assertEquals(metrics.getEmittedEvents(NAME, "DEBUG"), 0);
+        Assert.assertEquals(metrics.getSuppressedEvents(NAME, "DEBUG"), 2);
+        Assert.assertEquals(metrics.getSuppressedEvents(NAME, "INFO"), 0);
+        Assert.assertEquals(
+            metrics.getRenderedCharacters(NAME),
+            "abc".length() + "x y".length() + new CauseSummaryMessage("oops", new RuntimeException()).toString().length()
+        );
+        Assert.assertEquals(metrics.getFormatFailures(NAME), 0);
+        Assert.assertTrue(Arrays.asList(metrics.getLoggerNames()).contains(NAME));
+        Assert.assertTrue(metrics.getEmittedEvents() >= 3);
+    }
+
+    @Test
+    public void testCountsFormatFailures()
+    {
+        LOG.infof("%d", "not a number");
+        LOG.infof("%d", "not a number");
+        LOG.info((MessageSupplier) null);
+
+        Assert.assertEquals(metrics.getFormatFailures(NAME), 3);
+        // the failures are logged at WARN instead
+        Assert.assertEquals(metrics.getEmittedEvents(NAME, "WARN"), 3);
+    }
+
+    @Test
+    public void testRecordsLatencyOfEmittedEventsOnly()
+    {
+        long before = sum(metrics.getLatencyHistogram());
+
+        // calls are sampled, so any run of this many enabled calls has exactly two timed ones
+        for (int i = 0; i < LoggingMetrics.LATENCY_SAMPLE_INTERVAL; ++i) {
+            LOG.debug("not logged");
+            LOG.info("logged");
+            LOG.infof("logged %s", "too");
+        }
+
+        Assert.assertEquals(sum(metrics.getLatencyHistogram()) - before, 2);
+        Assert.assertTrue(metrics.getLatencyPercentileNanos(100) > 0);
+        Assert.assertEquals(metrics.getLatencyBucketBoundsNanos().length, metrics.getLatencyHistogram().length);
+    }
+
+    @Test
+    public void testCallsThatNeverReachTheBackendAreNotTimed() throws Exception
+    {
+        LOG.setRateLimit(Level.INFO, 0.001, 1);
+
+        try {
+            // every one of these is enabled but never logged, so a sampled start time must not be left behind
+            for (int i = 0; i < LoggingMetrics.LATENCY_SAMPLE_INTERVAL; ++i) {
+                LOG.atWarn("abandoned");
+                LOG.info("rate limited");
+            }
+        }
+        finally {
+            LOG.removeRateLimit(Level.INFO);
+        }
+
+        long[] before = metrics.getLatencyHistogram();
+
+        Thread.sleep(200);
+
+        for (int i = 0; i < LoggingMetrics.LATENCY_SAMPLE_INTERVAL; ++i) {
+            LOG.warn("logged");
+        }
+
+        long[] after = metrics.getLatencyHistogram();
+        long[] bounds = metrics.getLatencyBucketBoundsNanos();
+
+        for (int i = 0; i < after.length; ++i) {
+            if (bounds[i] > TimeUnit.MILLISECONDS.toNanos(100)) {
+                Assert.assertEquals(after[i], before[i], "bucket below " + bounds[i] + "ns");
+            }
+        }
+    }
+
+    @Test
+    public void testNestedCallsAreTimedAsPartOfTheOuterCall()
+    {
+        final Object slowArgument = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                LOG.info("nested");
+
+                try {
+                    Thread.sleep(20);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return "slow";
+            }
+        };
+        long[] before = metrics.getLatencyHistogram();
+
+        // only outermost calls count towards sampling, so exactly one of these is timed, from start to end
+        for (int i = 0; i < LoggingMetrics.LATENCY_SAMPLE_INTERVAL; ++i) {
+            LOG.infof("outer %s", slowArgument);
+        }
+
+        long[] after = metrics.getLatencyHistogram();
+        long[] bounds = metrics.getLatencyBucketBoundsNanos();
+        long timed = 0;
+
+        for (int i = 0; i < after.length; ++i) {
+            long recorded = after[i] - before[i];
+
+            if (recorded > 0) {
+                Assert.assertTrue(bounds[i] > TimeUnit.MILLISECONDS.toNanos(20), "recorded below " + bounds[i] + "ns");
+                timed += recorded;
+            }
+        }
+
+        Assert.assertEquals(timed, 1);
+        Assert.assertEquals(metrics.getEmittedEvents(NAME, "INFO"), 2 * LoggingMetrics.LATENCY_SAMPLE_INTERVAL);
+    }
+
+    @Test
+    public void testTopLoggers()
+    {
+        LOG.info("a message long enough to be at the top of the list, hopefully");
+
+        String[] top = metrics.getTopLoggers(Integer.MAX_VALUE);
+        boolean found = false;
+
+        for (String line : top) {
+            found |= line.startsWith(NAME + " emitted=1 suppressed=0 characters=");
+        }
+
+        Assert.assertTrue(found, Arrays.toString(top));
+        Assert.assertEquals(metrics.getTopLoggers(0).length, 0);
+    }
+
+    @Test
+    public void testRegisteredWithJmx() throws Exception
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(LoggingMetrics.OBJECT_NAME);
+
+        LOG.info("counted");
+
+        Assert.assertTrue(server.isRegistered(name));
+        Assert.assertTrue((Long) server.getAttribute(name, "EmittedEvents") >= 1);
+        Assert.assertEquals(
+            server.invoke(name, "getEmittedEvents", new Object[]{NAME, "INFO"}, new String[]{String.class.getName(), String.class.getName()}),
+            1L
+        );
+    }
+
+    @Test
+    public void testHistogramBuckets()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        Assert.assertEquals(LatencyHistogram.bucket(0), 0);
+        Assert.assertEquals(LatencyHistogram.bucket(1), 1);
+        Assert.assertEquals(LatencyHistogram.bucket(1023), 10);
+        Assert.assertEquals(LatencyHistogram.bucket(1024), 11);
+        Assert.assertEquals(LatencyHistogram.bucket(Long.MAX_VALUE), LatencyHistogram.BUCKETS - 1);
+        Assert.assertEquals(histogram.getPercentile(50), 0);
+
+        for (int i = 0; i < 99; ++i) {
+            histogram.record(100);
+        }
+
+        histogram.record(100000);
+
+        Assert.assertEquals(histogram.getPercentile(50), 128);
+        Assert.assertEquals(histogram.getPercentile(99), 128);
+        Assert.assertEquals(histogram.getPercentile(100), 131072);
+    }
+
+    private static long sum(long[] counts)
+    {
+        long sum = 0;
+
+        for (long count : counts) {
+            sum += count;
+        }
+
+        return sum;
+    }
+}
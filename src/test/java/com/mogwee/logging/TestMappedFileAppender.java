@@ -0,0 +1,193 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+public class TestMappedFileAppender
+{
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestMappedFileAppender.class.getName());
+
+    private File directory;
+    private String fileName;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        directory = File.createTempFile("mapped", "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+        fileName = new File(directory, "test.log").getPath();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    @Test
+    public void testAppendAndClose() throws Exception
+    {
+        MappedFileAppender appender = new MappedFileAppender(new PatternLayout("%p %m%n"), fileName);
+
+        appender.doAppend(event(Level.INFO, "first"));
+        appender.doAppend(event(Level.WARN, "second"));
+        appender.close();
+
+        Assert.assertEquals(read(appender.segmentFile(1)), "INFO first\nWARN second\n");
+
+        // reopening resumes after what's there
+        appender = new MappedFileAppender(new PatternLayout("%p %m%n"), fileName);
+        appender.doAppend(event(Level.ERROR, "third"));
+        appender.close();
+
+        Assert.assertEquals(read(appender.segmentFile(1)), "INFO first\nWARN second\nERROR third\n");
+        Assert.assertFalse(appender.segmentFile(2).exists());
+    }
+
+    @Test
+    public void testRolling() throws Exception
+    {
+        MappedFileAppender appender = new MappedFileAppender();
+
+        appender.setLayout(new JsonLayout());
+        appender.setFile(fileName);
+        appender.setSegmentSize("256");
+        appender.activateOptions();
+
+        StringBuilder big = new StringBuilder();
+
+        for (int i = 0; i < 50; ++i) {
+            big.append("0123456789");
+        }
+
+        for (int i = 0; i < 5; ++i) {
+            appender.doAppend(event(Level.INFO, "message " + i));
+        }
+
+        appender.doAppend(event(Level.INFO, big.toString()));
+        appender.doAppend(event(Level.INFO, "after"));
+        appender.close();
+
+        StringBuilder all = new StringBuilder();
+        int segments = 0;
+
+        for (int i = 1; appender.segmentFile(i).exists(); ++i) {
+            String contents = read(appender.segmentFile(i));
+
+            Assert.assertTrue(contents.endsWith("}\n"), contents);
+            Assert.assertTrue(contents.length() <= 256 || contents.contains(big), contents);
+            all.append(contents);
+            ++segments;
+        }
+
+        Assert.assertTrue(segments >= 4, String.valueOf(segments));
+
+        String[] lines = all.toString().split("\n");
+
+        Assert.assertEquals(lines.length, 7);
+        Assert.assertTrue(lines[0].contains("\"message\":\"message 0\""));
+        Assert.assertTrue(lines[5].contains(big));
+        Assert.assertTrue(lines[6].contains("\"message\":\"after\""));
+    }
+
+    @Test
+    public void testRecovery() throws Exception
+    {
+        File segment = new File(fileName + ".000003");
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+
+        // two complete records, a torn one, and a hole left by a page that never made it to disk
+        raf.setLength(4096);
+        raf.write("complete 1\ncomplete 2\ntorn".getBytes("UTF-8"));
+        raf.seek(2048);
+        raf.write("after hole\n".getBytes("UTF-8"));
+        raf.close();
+
+        MappedFileAppender appender = new MappedFileAppender();
+
+        appender.setLayout(new PatternLayout("%m%n"));
+        appender.setFile(fileName);
+        appender.setSegmentSize("4096");
+        appender.activateOptions();
+        appender.doAppend(event(Level.INFO, "resumed"));
+        appender.flush();
+
+        // the torn record and everything after it are gone, not just overwritten up to where writing resumed
+        String open = read(segment);
+
+        Assert.assertEquals(open.length(), 4096);
+        Assert.assertEquals(open.replace("\u0000", ""), "complete 1\ncomplete 2\nresumed\n");
+
+        appender.close();
+
+        Assert.assertEquals(read(segment), "complete 1\ncomplete 2\nresumed\n");
+        Assert.assertFalse(new File(fileName + ".000001").exists());
+    }
+
+    @Test
+    public void testThrowableWithPatternLayout() throws Exception
+    {
+        MappedFileAppender appender = new MappedFileAppender(new PatternLayout("%m%n"), fileName);
+
+        appender.doAppend(new LoggingEvent(TestMappedFileAppender.class.getName(), LOG4J_LOGGER, Level.ERROR, "failed", new RuntimeException("boom")));
+        appender.close();
+
+        Assert.assertTrue(read(appender.segmentFile(1)).startsWith("failed\njava.lang.RuntimeException: boom\n\tat "));
+    }
+
+    private static LoggingEvent event(Level level, String message)
+    {
+        return new LoggingEvent(TestMappedFileAppender.class.getName(), LOG4J_LOGGER, level, message, null);
+    }
+
+    private static String read(File file) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+
+            while (read < bytes.length) {
+                read += in.read(bytes, read, bytes.length - read);
+            }
+
+            return new String(bytes, "UTF-8");
+        }
+        finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+public class TestNativeBackend
+{
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static class CollectingAppender implements NativeAppender
+    {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<String> messages = new ArrayList<String>();
+
+        @Override
+        public synchronized void append(NativeEvent event, ByteBuffer record)
+        {
+            messages.add(event.getRenderedMessage());
+
+            while (record.hasRemaining()) {
+                bytes.write(record.get());
+            }
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        private synchronized String text() throws Exception
+        {
+            return bytes.toString("UTF-8");
+        }
+    }
+
+    private CollectingAppender appender;
+    private NativeBackend backend;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        appender = new CollectingAppender();
+        backend = new NativeBackend(Level.INFO, appender);
+    }
+
+    @Test
+    public void testLevelHierarchy()
+    {
+        BackendLogger foo = backend.getLogger("com.example.Foo");
+        BackendLogger examples = backend.getLogger("com.examples.Foo");
+
+        Assert.assertSame(backend.getLogger("com.example.Foo"), foo);
+        Assert.assertFalse(foo.isEnabled(Level.DEBUG));
+        Assert.assertTrue(foo.isEnabled(Level.INFO));
+
+        backend.setLevel("com.example", Level.DEBUG);
+        Assert.assertTrue(foo.isEnabled(Level.DEBUG));
+        Assert.assertFalse(examples.isEnabled(Level.DEBUG));
+
+        backend.setLevel("com.example.Foo", Level.ERROR);
+        Assert.assertFalse(foo.isEnabled(Level.WARN));
+        Assert.assertEquals(backend.getEffectiveLevel("com.example.Foo.Inner"), Level.ERROR);
+
+        backend.setLevel("com.example.Foo", null);
+        backend.setLevel("com.example", null);
+        backend.setLevel("", Level.OFF);
+        Assert.assertFalse(foo.isEnabled(Level.ERROR));
+        Assert.assertFalse(examples.isEnabled(Level.ERROR));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRootLevelIsRequired()
+    {
+        backend.setLevel("", null);
+    }
+
+    @Test
+    public void testLineFormat() throws Exception
+    {
+        backend.getLogger("com.example.Foo").log(Level.INFO, "caf\u00e9 \ud83d\ude00", null);
+        backend.getLogger("com.example.Foo").log(Level.ERROR, null, null);
+
+        String[] lines = appender.text().split(LINE_SEPARATOR);
+        String prefix = "\\d{4}-\\d\\d-\\d\\d \\d\\d:\\d\\d:\\d\\d,\\d{3} \\[" + Thread.currentThread().getName() + "\\] ";
+
+        Assert.assertEquals(lines.length, 2);
+        Assert.assertTrue(lines[0].matches(prefix + "INFO  com\\.example\\.Foo - caf\u00e9 \ud83d\ude00"), lines[0]);
+        Assert.assertTrue(lines[1].matches(prefix + "ERROR com\\.example\\.Foo - null"), lines[1]);
+    }
+
+    @Test
+    public void testRenamedThreadIsLoggedUnderItsNewName() throws Exception
+    {
+        Thread thread = Thread.currentThread();
+        String originalName = thread.getName();
+
+        try {
+            // as with a thread renamed per request, within the same second
+            thread.setName("request-1");
+            backend.getLogger("com.example.Foo").log(Level.INFO, "first", null);
+            thread.setName("request-2");
+            backend.getLogger("com.example.Foo").log(Level.INFO, "second", null);
+        }
+        finally {
+            thread.setName(originalName);
+        }
+
+        String[] lines = appender.text().split(LINE_SEPARATOR);
+
+        Assert.assertEquals(lines.length, 2);
+        Assert.assertTrue(lines[0].contains(" [request-1] INFO  com.example.Foo - first"), lines[0]);
+        Assert.assertTrue(lines[1].contains(" [request-2] INFO  com.example.Foo - second"), lines[1]);
+    }
+
+    @Test
+    public void testStackTraceMatchesPrintStackTrace() throws Exception
+    {
+        Exception cause = new IllegalStateException("inner");
+        Exception exception = new RuntimeException("outer", cause);
+        StringWriter expected = new StringWriter();
+        PrintWriter writer = new PrintWriter(expected);
+
+        exception.printStackTrace(writer);
+        writer.flush();
+        backend.getLogger("com.example.Foo").log(Level.WARN, "failed", exception);
+
+        String text = appender.text();
+
+        Assert.assertTrue(text.endsWith(" - failed" + LINE_SEPARATOR + expected), text);
+        Assert.assertTrue(text.contains("Caused by: java.lang.IllegalStateException: inner"));
+    }
+
+    @Test
+    public void testMessageObjects() throws Exception
+    {
+        BackendLogger logger = backend.getLogger("com.example.Foo");
+        StructuredMessage structured = new StructuredMessage("done", new String[]{"count"}, new byte[]{(byte) StructuredMessage.FieldType.LONG.ordinal()}, new long[]{3}, null);
+
+        logger.logStructured(Level.INFO, structured, null);
+        logger.log(Level.WARN, new CauseSummaryMessage("call failed", new IllegalStateException("timeout")), null);
+
+        Assert.assertEquals(appender.messages, Arrays.asList(
+            "done count=3",
+            new CauseSummaryMessage("call failed", new IllegalStateException("timeout")).toString()
+        ));
+        Assert.assertFalse(appender.text().contains("\tat "));
+    }
+
+    @Test
+    public void testMessageThatLogsWhileRendering() throws Exception
+    {
+        final BackendLogger logger = backend.getLogger("com.example.Foo");
+        Object message = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                logger.log(Level.INFO, "inner", null);
+                return "outer";
+            }
+        };
+
+        logger.log(Level.INFO, message, null);
+        Assert.assertEquals(appender.messages, Arrays.asList("inner", "outer"));
+
+        String[] lines = appender.text().split(LINE_SEPARATOR);
+
+        Assert.assertTrue(lines[0].endsWith(" - inner"), lines[0]);
+        Assert.assertTrue(lines[1].endsWith(" - outer"), lines[1]);
+    }
+
+    @Test
+    public void testCloseDropsLaterEvents() throws Exception
+    {
+        backend.close();
+        backend.getLogger("com.example.Foo").log(Level.INFO, "dropped", null);
+        Assert.assertEquals(appender.text(), "");
+    }
+
+    @Test
+    public void testConfiguredFromProperties()
+    {
+        Properties properties = new Properties();
+
+        properties.setProperty(NativeBackend.LEVEL_PROPERTY, "WARN");
+        properties.setProperty(NativeBackend.LEVEL_PROPERTY + ".com.example", "DEBUG");
+        properties.setProperty(NativeBackend.BUFFER_SIZE_PROPERTY, "bogus");
+
+        NativeBackend configured = new NativeBackend(properties);
+
+        Assert.assertEquals(configured.getEffectiveLevel("com.example.Foo"), Level.DEBUG);
+        Assert.assertEquals(configured.getEffectiveLevel("org.example.Foo"), Level.WARN);
+        Assert.assertFalse(configured.getLogger("org.example.Foo").isEnabled(Level.INFO));
+    }
+}
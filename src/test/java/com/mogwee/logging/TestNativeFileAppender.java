@@ -0,0 +1,128 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestNativeFileAppender
+{
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private File directory;
+    private File file;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        directory = File.createTempFile("native", "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+        file = new File(new File(directory, "logs"), "test.log");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        file.delete();
+        file.getParentFile().delete();
+        directory.delete();
+    }
+
+    @Test
+    public void testBufferedUntilFlushed() throws IOException
+    {
+        NativeFileAppender appender = new NativeFileAppender(file);
+        NativeBackend backend = new NativeBackend(Level.INFO, appender);
+
+        backend.getLogger("com.example.Foo").log(Level.INFO, "first", null);
+        Assert.assertEquals(file.length(), 0);
+
+        backend.flush();
+        Assert.assertEquals(messages(), Arrays.asList("first"));
+
+        backend.getLogger("com.example.Foo").log(Level.INFO, "second", null);
+        backend.close();
+        Assert.assertEquals(messages(), Arrays.asList("first", "second"));
+        Assert.assertEquals(appender.getErrorCount(), 0);
+    }
+
+    @Test
+    public void testImmediateFlushAndLargeRecords() throws IOException
+    {
+        NativeBackend backend = new NativeBackend(Level.INFO, new NativeFileAppender(file, false, 64, true));
+        StringBuilder large = new StringBuilder();
+
+        for (int i = 0; i < 100; ++i) {
+            large.append("large ");
+        }
+
+        backend.getLogger("com.example.Foo").log(Level.INFO, "small", null);
+        Assert.assertEquals(messages(), Arrays.asList("small"));
+
+        backend.getLogger("com.example.Foo").log(Level.INFO, large, null);
+        backend.getLogger("com.example.Foo").log(Level.INFO, "small again", null);
+        Assert.assertEquals(messages(), Arrays.asList("small", large.toString(), "small again"));
+        backend.close();
+    }
+
+    @Test
+    public void testAppendsToExistingFile() throws IOException
+    {
+        NativeBackend backend = new NativeBackend(Level.INFO, new NativeFileAppender(file));
+
+        backend.getLogger("com.example.Foo").log(Level.INFO, "first", null);
+        backend.close();
+
+        backend = new NativeBackend(Level.INFO, new NativeFileAppender(file));
+        backend.getLogger("com.example.Foo").log(Level.INFO, "second", null);
+        backend.close();
+
+        Assert.assertEquals(messages(), Arrays.asList("first", "second"));
+    }
+
+    private List<String> messages() throws IOException
+    {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+
+        try {
+            Assert.assertEquals(in.read(bytes), bytes.length);
+        }
+        finally {
+            in.close();
+        }
+
+        List<String> messages = new ArrayList<String>();
+
+        for (String line : new String(bytes, "UTF-8").split(LINE_SEPARATOR)) {
+            messages.add(line.substring(line.indexOf(" - ") + 3));
+        }
+
+        return messages;
+    }
+}
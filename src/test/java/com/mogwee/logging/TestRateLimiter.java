@@ -0,0 +1,260 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestRateLimiter
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestRateLimiter.class.getName());
+
+    private static class CollectingAppender extends AppenderSkeleton
+    {
+        private final List<String> messages = new ArrayList<String>();
+
+        @Override
+        protected synchronized void append(LoggingEvent event)
+        {
+            messages.add(event.getLevel() + " " + event.getRenderedMessage());
+        }
+
+        @Override
+        public boolean requiresLayout()
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    private CollectingAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        appender = new CollectingAppender();
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.addAppender(appender);
+        LOG4J_LOGGER.setAdditivity(false);
+        LOG4J_LOGGER.setLevel(Level.INFO);
+        Logger.refreshLevels();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        LOG.removeRateLimit(Level.INFO);
+        LOG.removeRateLimit(Level.WARN);
+        LOG4J_LOGGER.removeAllAppenders();
+    }
+
+    @Test
+    public void testLimitsEachFormatString()
+    {
+        final int[] formatted = {0};
+        Object argument = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                ++formatted[0];
+                return "host";
+            }
+        };
+
+        LOG.setRateLimit(Level.WARN, 0.001, 3);
+
+        for (int i = 0; i < 100; ++i) {
+            LOG.warnf("call to %s failed", argument);
+            LOG.warnDebugf(new RuntimeException("boom"), "retry %s failed", i);
+            LOG.infof("unlimited %s", i);
+        }
+
+        Assert.assertEquals(formatted[0], 3);
+        Assert.assertEquals(count("WARN call to host failed"), 3);
+        Assert.assertEquals(count("WARN retry "), 3);
+        Assert.assertEquals(count("INFO unlimited "), 100);
+
+        LOG.removeRateLimit(Level.WARN);
+
+        Assert.assertEquals(count("WARN suppressed 97 similar messages in last 1s: call to %s failed"), 1);
+        Assert.assertEquals(count("WARN suppressed 97 similar messages in last 1s: retry %s failed"), 1);
+
+        LOG.warnf("call to %s failed", argument);
+        Assert.assertEquals(count("WARN call to host failed"), 4);
+    }
+
+    @Test
+    public void testPlainAndStructuredMessages()
+    {
+        LOG.setRateLimit(Level.INFO, 0.001, 1);
+
+        for (int i = 0; i < 10; ++i) {
+            LOG.info("plain");
+            LOG.atInfo("structured").kv("i", i).log();
+        }
+
+        Assert.assertEquals(count("INFO plain"), 1);
+        Assert.assertEquals(count("INFO structured"), 1);
+    }
+
+    @Test
+    public void testRefill() throws Exception
+    {
+        // an interval well above what a cold first call can take (resolving the caller the first time is slow)
+        LOG.setRateLimit(Level.INFO, 5, 1);
+
+        for (int i = 0; i < 3; ++i) {
+            LOG.info("refill");
+
+            if (i == 1) {
+                Thread.sleep(300);
+            }
+        }
+
+        Assert.assertEquals(count("INFO refill"), 2);
+    }
+
+    @Test
+    public void testPlainMessagesAreLimitedByCaller()
+    {
+        LOG.setRateLimit(Level.INFO, 0.001, 1);
+
+        for (int i = 0; i < 10; ++i) {
+            LOG.info("user " + i);
+            LOG.info("other " + i);
+        }
+
+        Assert.assertEquals(count("INFO user "), 1);
+        Assert.assertEquals(count("INFO other "), 1);
+
+        LOG.removeRateLimit(Level.INFO);
+
+        Assert.assertEquals(count("INFO suppressed 9 similar messages in last 1s: at " + TestRateLimiter.class.getName() + ".testPlainMessagesAreLimitedByCaller("), 2);
+    }
+
+    @Test
+    public void testCallbacksAreLimitedByClass()
+    {
+        final int[] calls = {0};
+        MessageSupplier supplier = new MessageSupplier()
+        {
+            @Override
+            public String get()
+            {
+                return "supplied " + ++calls[0];
+            }
+        };
+
+        LOG.setRateLimit(Level.INFO, 0.001, 2);
+
+        for (int i = 0; i < 10; ++i) {
+            LOG.info(supplier);
+        }
+
+        // suppressed callbacks aren't called
+        Assert.assertEquals(calls[0], 2);
+        Assert.assertEquals(count("INFO supplied "), 2);
+    }
+
+    @Test
+    public void testFullTableAdmits()
+    {
+        RateLimiter limiter = RateLimiter.create(LOG, Level.INFO, 0.001, 1);
+
+        try {
+            for (int i = 0; i < 10 * RateLimiter.TABLE_SIZE; ++i) {
+                Assert.assertTrue(limiter.admit("message " + i));
+            }
+
+            Assert.assertTrue(limiter.bucketCount() <= RateLimiter.TABLE_SIZE);
+
+            // keys that got a bucket are still limited
+            int suppressed = 0;
+
+            for (int i = 0; i < 10 * RateLimiter.TABLE_SIZE; ++i) {
+                if (!limiter.admit("message " + i)) {
+                    ++suppressed;
+                }
+            }
+
+            Assert.assertEquals(suppressed, limiter.bucketCount());
+        }
+        finally {
+            limiter.retire();
+        }
+    }
+
+    @Test
+    public void testRefilledBucketsAreFreed() throws Exception
+    {
+        RateLimiter limiter = RateLimiter.create(LOG, Level.INFO, 100, 1);
+
+        try {
+            for (int i = 0; i < 100; ++i) {
+                limiter.admit("message " + i);
+            }
+
+            Assert.assertTrue(limiter.admit("busy"));
+            Assert.assertFalse(limiter.admit("busy"));
+            Assert.assertTrue(limiter.bucketCount() > 1);
+            Thread.sleep(50);
+
+            // the bucket that suppressed an event is summarized first, and only freed once it's quiet
+            limiter.summarize();
+            Assert.assertEquals(limiter.bucketCount(), 1);
+            limiter.summarize();
+            Assert.assertEquals(limiter.bucketCount(), 0);
+            Assert.assertTrue(limiter.admit("busy"));
+        }
+        finally {
+            limiter.retire();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidLevel()
+    {
+        LOG.setRateLimit(Level.FATAL, 1, 1);
+    }
+
+    private int count(String prefix)
+    {
+        int count = 0;
+
+        for (String message : appender.messages) {
+            if (message.startsWith(prefix)) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.util.IllegalFormatException;
+import java.util.Locale;
+
+public class TestRenderContext
+{
+    @Test
+    public void testReusesBuilder()
+    {
+        RenderContext first = RenderContext.acquire();
+        StringBuilder builder = first.builder();
+
+        builder.append("leftover");
+        first.release();
+
+        RenderContext second = RenderContext.acquire();
+
+        try {
+            Assert.assertSame(second, first);
+            Assert.assertSame(second.builder(), builder);
+            Assert.assertEquals(second.builder().length(), 0);
+        }
+        finally {
+            second.release();
+        }
+    }
+
+    @Test
+    public void testNestedAcquireGetsItsOwnBuilder()
+    {
+        RenderContext outer = RenderContext.acquire();
+
+        try {
+            outer.builder().append("outer");
+
+            RenderContext inner = RenderContext.acquire();
+
+            try {
+                Assert.assertNotSame(inner, outer);
+                Assert.assertNotSame(inner.builder(), outer.builder());
+                inner.builder().append("inner");
+            }
+            finally {
+                inner.release();
+            }
+
+            Assert.assertEquals(outer.builder().toString(), "outer");
+        }
+        finally {
+            outer.release();
+        }
+
+        // the thread's own context is still the one handed out
+        RenderContext again = RenderContext.acquire();
+
+        try {
+            Assert.assertSame(again, outer);
+        }
+        finally {
+            again.release();
+        }
+    }
+
+    @Test
+    public void testDropsOversizedBuilder()
+    {
+        RenderContext context = RenderContext.acquire();
+        StringBuilder builder = context.builder();
+
+        builder.ensureCapacity(RenderContext.MAX_RETAINED_CAPACITY + 1);
+        context.release();
+
+        context = RenderContext.acquire();
+
+        try {
+            Assert.assertNotSame(context.builder(), builder);
+            Assert.assertTrue(context.builder().capacity() <= RenderContext.MAX_RETAINED_CAPACITY);
+        }
+        finally {
+            context.release();
+        }
+    }
+
+    @Test
+    public void testFormatMatchesStringFormat()
+    {
+        Assert.assertEquals(RenderContext.format("%5s|%-3d|%.2f|%x", "a", 7, 3.14159, 255), String.format("%5s|%-3d|%.2f|%x", "a", 7, 3.14159, 255));
+        Assert.assertEquals(RenderContext.format("%s", (Object[]) null), String.format("%s", (Object[]) null));
+        // the formatter writes into the reused builder, so consecutive calls mustn't see each other's output
+        Assert.assertEquals(RenderContext.format("first %s", 1), "first 1");
+        Assert.assertEquals(RenderContext.format("second %s", 2), "second 2");
+    }
+
+    @Test
+    public void testFormatFollowsDefaultLocale()
+    {
+        Locale original = Locale.getDefault();
+
+        try {
+            Locale.setDefault(Locale.US);
+            Assert.assertEquals(RenderContext.format("%,d", 1234567), "1,234,567");
+            Locale.setDefault(Locale.GERMANY);
+            Assert.assertEquals(RenderContext.format("%,d", 1234567), String.format("%,d", 1234567));
+        }
+        finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    @Test
+    public void testFormatFollowsFormatLocale() throws Exception
+    {
+        Class<?> categoryClass;
+
+        try {
+            categoryClass = Class.forName("java.util.Locale$Category");
+        }
+        catch (ClassNotFoundException e) {
+            throw new SkipException("no locale categories before Java 7");
+        }
+
+        Object format = categoryClass.getField("FORMAT").get(null);
+        Method getDefault = Locale.class.getMethod("getDefault", categoryClass);
+        Method setDefault = Locale.class.getMethod("setDefault", categoryClass, Locale.class);
+        Locale original = Locale.getDefault();
+        Locale originalFormat = (Locale) getDefault.invoke(null, format);
+
+        try {
+            Locale.setDefault(Locale.US);
+            Assert.assertEquals(RenderContext.format("%,d", 1234567), "1,234,567");
+            // only the formatting locale differs, which is the one String.format uses
+            setDefault.invoke(null, format, Locale.GERMANY);
+            Assert.assertEquals(RenderContext.format("%,d", 1234567), "1.234.567");
+            Assert.assertEquals(RenderContext.format("%,d", 1234567), String.format("%,d", 1234567));
+        }
+        finally {
+            Locale.setDefault(original);
+            setDefault.invoke(null, format, originalFormat);
+        }
+    }
+
+    @Test
+    public void testFormatFailureReleasesContext()
+    {
+        try {
+            RenderContext.format("%d", "not a number");
+            Assert.fail();
+        }
+        catch (IllegalFormatException e) {
+            // expected
+        }
+
+        Assert.assertEquals(RenderContext.format("after %s", "failure"), "after failure");
+    }
+}
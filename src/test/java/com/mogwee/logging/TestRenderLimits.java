@@ -0,0 +1,232 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestRenderLimits
+{
+    private RenderLimits original;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        original = RenderLimits.set(new RenderLimits(20, 50, 3));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        RenderLimits.set(original);
+    }
+
+    private static List<Integer> numbers(int count)
+    {
+        List<Integer> result = new ArrayList<Integer>();
+
+        for (int i = 0; i < count; ++i) {
+            result.add(i);
+        }
+
+        return result;
+    }
+
+    private static String repeat(char c, int count)
+    {
+        char[] chars = new char[count];
+
+        Arrays.fill(chars, c);
+
+        return new String(chars);
+    }
+
+    @Test
+    public void testSmallArgumentsRenderAsStringFormat()
+    {
+        Assert.assertEquals(FormatTemplate.format("%s and %s", numbers(3), "short"), String.format("%s and %s", numbers(3), "short"));
+        Assert.assertEquals(FormatTemplate.format("%5s|%s", "x", numbers(2)), String.format("%5s|%s", "x", numbers(2)));
+    }
+
+    @Test
+    public void testCollectionOverElementLimit()
+    {
+        Assert.assertEquals(FormatTemplate.format("list %s", numbers(2000000)), "list [0, 1, 2, ...(1999997 more)]");
+        // the Formatter fallback gets the same rendering
+        Assert.assertEquals(FormatTemplate.format("%3s %s", "a", numbers(10)), "  a [0, 1, 2, ...(7 more)]");
+    }
+
+    @Test
+    public void testCollectionIsNotIteratedPastLimit()
+    {
+        final int[] gets = new int[1];
+        List<Integer> huge = new AbstractList<Integer>()
+        {
+            @Override
+            public Integer get(int index)
+            {
+                ++gets[0];
+                return index;
+            }
+
+            @Override
+            public int size()
+            {
+                return Integer.MAX_VALUE;
+            }
+        };
+
+        Assert.assertEquals(FormatTemplate.format("%s", huge), "[0, 1, 2, ...(" + (Integer.MAX_VALUE - 3) + " more)]");
+        Assert.assertEquals(gets[0], 3);
+    }
+
+    @Test
+    public void testMapOverElementLimit()
+    {
+        Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+
+        for (int i = 0; i < 5; ++i) {
+            map.put("k" + i, i);
+        }
+
+        Assert.assertEquals(FormatTemplate.format("%s", map), "{k0=0, k1=1, k2=2, ...(2 more)}");
+    }
+
+    @Test
+    public void testLongText()
+    {
+        String text = repeat('a', 1000);
+
+        Assert.assertEquals(FormatTemplate.format("%s!", text), repeat('a', 20) + "...(1000 chars)!");
+        Assert.assertEquals(FormatTemplate.format("%s!", new StringBuilder(text)), repeat('a', 20) + "...(1000 chars)!");
+        // toString() of arbitrary objects is cut as well
+        Assert.assertEquals(FormatTemplate.format("%s", new Object()
+        {
+            @Override
+            public String toString()
+            {
+                return repeat('a', 1000);
+            }
+        }), repeat('a', 20) + "...(1000 chars)");
+        Assert.assertEquals(RenderLimits.get().toString(Arrays.asList(text)), "[" + repeat('a', 19) + "...(1000 chars)]");
+    }
+
+    @Test
+    public void testLongElementsShareTheArgumentLimit()
+    {
+        List<String> list = Arrays.asList(repeat('a', 15), repeat('b', 15), repeat('c', 15), "d");
+
+        Assert.assertEquals(FormatTemplate.format("%s", list), "[" + repeat('a', 15) + ", " + repeat('b', 2) + "...(15 chars), ...(2 more)]");
+    }
+
+    @Test
+    public void testLimitsApplyToNestedCollections()
+    {
+        final int[] gets = new int[1];
+        List<Integer> huge = new AbstractList<Integer>()
+        {
+            @Override
+            public Integer get(int index)
+            {
+                ++gets[0];
+                return index;
+            }
+
+            @Override
+            public int size()
+            {
+                return Integer.MAX_VALUE;
+            }
+        };
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+
+        map.put("a", huge);
+        map.put("b", huge);
+
+        // the first value uses up the argument limit, so the second isn't even looked at
+        String expected = "{a=[0, 1, 2, ...(" + (Integer.MAX_VALUE - 3) + " more)], ...(1 more)}";
+
+        Assert.assertEquals(FormatTemplate.format("%s", map), expected);
+        Assert.assertEquals(gets[0], 3);
+
+        // the Formatter fallback renders through the same limits
+        gets[0] = 0;
+        Assert.assertEquals(FormatTemplate.format("%1$s", map), expected);
+        Assert.assertEquals(gets[0], 3);
+    }
+
+    @Test
+    public void testCustomCollectionRenderingIsKept()
+    {
+        List<Integer> custom = new ArrayList<Integer>(numbers(2))
+        {
+            @Override
+            public String toString()
+            {
+                return "custom";
+            }
+        };
+
+        Assert.assertEquals(FormatTemplate.format("%s", custom), "custom");
+        Assert.assertEquals(FormatTemplate.format("%2$s %1$h", custom, "x"), String.format("%2$s %1$h", custom, "x"));
+    }
+
+    @Test
+    public void testMessageLimit()
+    {
+        Object neverRendered = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                throw new IllegalStateException("rendered past the message limit");
+            }
+        };
+        String expected = "0123456789" + "0123456789" + repeat('x', 20) + "...(40 cha" + RenderLimits.TRUNCATED;
+
+        Assert.assertEquals(FormatTemplate.format("%s%s%s%s", "0123456789", "0123456789", repeat('x', 40), neverRendered), expected);
+        // the Formatter fallback stops as well
+        Assert.assertEquals(FormatTemplate.format("%2s%s%s%s", "0123456789", "0123456789", repeat('x', 40), neverRendered), expected);
+    }
+
+    @Test
+    public void testSafeToStringIsBounded()
+    {
+        Assert.assertEquals(StructuredMessage.safeToString(numbers(5)), "[0, 1, 2, ...(2 more)]");
+        Assert.assertEquals(StructuredMessage.safeToString(null), "null");
+    }
+
+    @Test
+    public void testNoLimits()
+    {
+        RenderLimits.set(new RenderLimits(0, 0, 0));
+
+        List<Integer> list = numbers(1000);
+        String text = repeat('a', 100000);
+
+        Assert.assertEquals(FormatTemplate.format("%s %s", list, text), String.format("%s %s", list, text));
+    }
+}
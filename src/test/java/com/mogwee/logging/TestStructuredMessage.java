@@ -0,0 +1,223 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestStructuredMessage
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestStructuredMessage.class.getName());
+
+    private static class CollectingAppender extends AppenderSkeleton
+    {
+        private final List<LoggingEvent> events = new ArrayList<LoggingEvent>();
+
+        @Override
+        protected void append(LoggingEvent event)
+        {
+            events.add(event);
+        }
+
+        @Override
+        public boolean requiresLayout()
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    private CollectingAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        appender = new CollectingAppender();
+        LOG4J_LOGGER.removeAllAppenders();
+        LOG4J_LOGGER.addAppender(appender);
+        LOG4J_LOGGER.setAdditivity(false);
+        LOG4J_LOGGER.setLevel(Level.INFO);
+        Logger.refreshLevels();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        LOG4J_LOGGER.removeAllAppenders();
+    }
+
+    @Test
+    public void testFields()
+    {
+        Exception cause = new Exception("boom");
+
+        LOG.atWarn("request.done")
+            .kv("latencyMs", 12)
+            .kv("ratio", 0.5f)
+            .kv("cached", true)
+            .kv("user", "bob")
+            .kv("path", "/a b")
+            .kv("missing", null)
+            .cause(cause)
+            .log();
+
+        Assert.assertEquals(appender.events.size(), 1);
+
+        LoggingEvent event = appender.events.get(0);
+        StructuredMessage message = (StructuredMessage) event.getMessage();
+
+        Assert.assertEquals(event.getLevel(), Level.WARN);
+        Assert.assertSame(event.getThrowableInformation().getThrowable(), cause);
+        Assert.assertEquals(message.getMessage(), "request.done");
+        Assert.assertEquals(message.getFieldCount(), 6);
+        Assert.assertEquals(message.getKey(0), "latencyMs");
+        Assert.assertEquals(message.getType(0), StructuredMessage.FieldType.LONG);
+        Assert.assertEquals(message.getLong(0), 12L);
+        Assert.assertEquals(message.getType(1), StructuredMessage.FieldType.DOUBLE);
+        Assert.assertEquals(message.getDouble(1), 0.5);
+        Assert.assertEquals(message.getType(2), StructuredMessage.FieldType.BOOLEAN);
+        Assert.assertTrue(message.getBoolean(2));
+        Assert.assertEquals(message.getType(3), StructuredMessage.FieldType.OBJECT);
+        Assert.assertEquals(message.getObject(3), "bob");
+        Assert.assertEquals(event.getRenderedMessage(), "request.done latencyMs=12 ratio=0.5 cached=true user=bob path=\"/a b\" missing=null");
+        Assert.assertEquals(
+            message.toJson(),
+            "{\"message\":\"request.done\",\"latencyMs\":12,\"ratio\":0.5,\"cached\":true,\"user\":\"bob\",\"path\":\"/a b\",\"missing\":null}"
+        );
+    }
+
+    @Test
+    public void testJsonEscaping()
+    {
+        LOG.atInfo("a \"quoted\"\nmessage").kv("nan", Double.NaN).kv("tab", "x\ty\u0001").kv("count", Integer.valueOf(3)).log();
+
+        StructuredMessage message = (StructuredMessage) appender.events.get(0).getMessage();
+
+        Assert.assertEquals(
+            message.toJson(),
+            "{\"message\":\"a \\\"quoted\\\"\\nmessage\",\"nan\":\"NaN\",\"tab\":\"x\\ty\\u0001\",\"count\":3}"
+        );
+    }
+
+    @Test
+    public void testQuotedValuesEscapeControlCharacters()
+    {
+        LOG.atInfo("escaped").kv("line", "a\r\nb").kv("tab", "x\ty\u0001").kv("path", "c:\\tmp").log();
+
+        Assert.assertEquals(appender.events.get(0).getRenderedMessage(), "escaped line=\"a\\r\\nb\" tab=\"x\\ty\\u0001\" path=c:\\tmp");
+    }
+
+    @Test
+    public void testDisabledLevel()
+    {
+        final int[] calls = {0};
+        Object expensive = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                ++calls[0];
+                return "expensive";
+            }
+        };
+
+        Assert.assertSame(LOG.atDebug("ignored"), NoopEventBuilder.INSTANCE);
+        LOG.atDebug("ignored").kv("value", expensive).log();
+        Assert.assertEquals(appender.events.size(), 0);
+        Assert.assertEquals(calls[0], 0);
+    }
+
+    @Test
+    public void testBuilderIsRecycled()
+    {
+        EventBuilder first = LOG.atInfo("first").kv("a", 1);
+
+        first.log();
+
+        EventBuilder second = LOG.atError("second");
+
+        Assert.assertSame(second, first);
+        second.log();
+        Assert.assertEquals(appender.events.get(1).getRenderedMessage(), "second");
+
+        try {
+            second.log();
+            Assert.fail();
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAbandonedBuilderIsReplaced()
+    {
+        EventBuilder abandoned = LOG.atInfo("abandoned").kv("a", 1);
+        EventBuilder next = LOG.atInfo("next");
+
+        Assert.assertNotSame(next, abandoned);
+        next.log();
+
+        EventBuilder again = LOG.atInfo("again");
+
+        Assert.assertSame(again, next);
+        again.log();
+        Assert.assertEquals(appender.events.size(), 2);
+        Assert.assertEquals(appender.events.get(1).getRenderedMessage(), "again");
+    }
+
+    @Test
+    public void testNestedBuilders()
+    {
+        final Logger logger = LOG;
+        Object reentrant = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                return "reentrant";
+            }
+        };
+        EventBuilder outer = logger.atInfo("outer").kv("first", reentrant);
+
+        logger.atInfo("inner").kv("x", 1).log();
+
+        StringBuilder keys = new StringBuilder();
+
+        for (int i = 0; i < 20; ++i) {
+            outer.kv("k" + i, i);
+            keys.append(" k").append(i).append('=').append(i);
+        }
+
+        outer.log();
+        Assert.assertEquals(appender.events.get(0).getRenderedMessage(), "inner x=1");
+        Assert.assertEquals(appender.events.get(1).getRenderedMessage(), "outer first=reentrant" + keys);
+    }
+}